@@ -0,0 +1,59 @@
+package com.hedera.mirror.importer;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Locates the sample stream files in the source tree. They can't be read from the benchmarks jar since the readers
+ * need files on disk, so the location of the importer's test resources is written into benchmarks.properties when the
+ * module is built.
+ */
+public final class BenchmarkResources {
+
+    private static final Path DATA_PATH = loadDataPath();
+
+    private BenchmarkResources() {
+    }
+
+    /**
+     * @param path the path relative to the importer's test data directory, e.g. recordstreams/v2
+     * @return the absolute path of the sample file or directory
+     */
+    public static Path getDataPath(String path) {
+        return DATA_PATH.resolve(path);
+    }
+
+    private static Path loadDataPath() {
+        try (InputStream inputStream = BenchmarkResources.class.getResourceAsStream("/benchmarks.properties")) {
+            Properties properties = new Properties();
+            properties.load(inputStream);
+            return Paths.get(properties.getProperty("data")).normalize();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load benchmarks.properties", e);
+        }
+    }
+}
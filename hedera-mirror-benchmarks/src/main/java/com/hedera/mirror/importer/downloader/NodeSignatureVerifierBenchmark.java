@@ -0,0 +1,116 @@
+package com.hedera.mirror.importer.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hedera.mirror.importer.BenchmarkResources;
+import com.hedera.mirror.importer.MirrorProperties;
+import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
+import com.hedera.mirror.importer.domain.HederaNetwork;
+
+/**
+ * Measures {@link NodeSignatureVerifier#verifySignatureFiles} on the signature files of a sample record file from each
+ * node, verified against the testnet address book that signed them. Scores are in signature file sets per second.
+ * Run {@link #main} or select it in benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class NodeSignatureVerifierBenchmark {
+
+    private static final String SIG_FILE = "2019-08-30T18_10_00.419072Z.rcd_sig";
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Path dataPath;
+    private ExecutorService executor;
+    private List<File> sigFiles;
+    private NodeSignatureVerifier verifier;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NodeSignatureVerifierBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dataPath = Files.createTempDirectory("benchmark");
+        MirrorProperties mirrorProperties = new MirrorProperties();
+        mirrorProperties.setDataPath(dataPath);
+        mirrorProperties.setNetwork(HederaNetwork.TESTNET);
+
+        executor = Executors.newFixedThreadPool(threads);
+        verifier = new NodeSignatureVerifier(new NetworkAddressBook(mirrorProperties).getAddressBook(), executor);
+
+        try (Stream<Path> nodes = Files.list(BenchmarkResources.getDataPath("recordstreams/v2"))) {
+            sigFiles = nodes.sorted()
+                    .map(node -> node.resolve(SIG_FILE).toFile())
+                    .collect(Collectors.toList());
+        }
+
+        if (verifier.verifySignatureFiles(sigFiles).getLeft() == null) {
+            throw new IllegalStateException("Signature files are not signed by the address book");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(dataPath.toFile());
+    }
+
+    @Benchmark
+    public Object verifySignatureFiles() {
+        return verifier.verifySignatureFiles(sigFiles);
+    }
+}
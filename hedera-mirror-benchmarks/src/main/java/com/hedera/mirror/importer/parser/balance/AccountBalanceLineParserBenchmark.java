@@ -0,0 +1,172 @@
+package com.hedera.mirror.importer.parser.balance;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link AccountBalanceLineParser} encoding COPY rows from a memory mapped file against the previous per line
+ * NumberedLine, String.split() and boxed valueOf() parsing, on a synthetic balance file with a million accounts. Line
+ * streaming through {@link AccountBalancesDatasetV2} is measured on its own as the lower bound of the latter. The
+ * database is left out so only parsing is measured. Scores are in lines per second and the GC profiler reports the
+ * allocation rate (gc.alloc.rate.norm is bytes allocated per line). Run {@link #main} or select it in benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(AccountBalanceLineParserBenchmark.LINES)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class AccountBalanceLineParserBenchmark {
+
+    static final int LINES = 1_000_000;
+
+    private static final long CONSENSUS_TIMESTAMP = 1567188900016002001L;
+    private static final int BATCH_SIZE = 2000;
+
+    private Path file;
+    private ByteBuffer buffer;
+    private int bodyStart;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountBalanceLineParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("2019-08-30T18_15_00.016002001Z_", "_Balances.csv");
+        String header = "TimeStamp:2019-08-30T18:15:00.016002001Z\nshardNum,realmNum,accountNum,balance\n";
+        bodyStart = header.length();
+
+        try (var writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write(header);
+            for (int i = 1; i <= LINES; ++i) {
+                writer.write("0,0," + i + "," + (i * 7919L % 100_000_000_000_000L) + "\n");
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void lineParser(Blackhole blackhole) {
+        var parser = new AccountBalanceLineParser(0, CONSENSUS_TIMESTAMP);
+        byte[] rows = new byte[BATCH_SIZE * AccountBalanceLineParser.MAX_ROW_LENGTH];
+        int length = 0;
+        int limit = buffer.limit();
+
+        for (int start = bodyStart; start < limit; ) {
+            int end = start;
+            while (end < limit && buffer.get(end) != '\n') {
+                ++end;
+            }
+
+            if (end > start && parser.parse(buffer, start, end)) {
+                if (length + AccountBalanceLineParser.MAX_ROW_LENGTH > rows.length) {
+                    blackhole.consume(rows);
+                    length = 0;
+                }
+                length = parser.writeRow(rows, length);
+            }
+            start = end + 1;
+        }
+        blackhole.consume(length);
+    }
+
+    /**
+     * Streams the lines through {@link AccountBalancesDatasetV2}, which reads the header and numbers each line, without
+     * parsing the columns.
+     */
+    @Benchmark
+    public void datasetV2(Blackhole blackhole) throws Exception {
+        try (var dataset = new AccountBalancesDatasetV2(file.toString(),
+                Files.newBufferedReader(file, StandardCharsets.US_ASCII))) {
+            dataset.getRecordStream().forEach(blackhole::consume);
+        }
+    }
+
+    /**
+     * The parsing prior to the line parser, kept as the baseline for the comparison. The boxed values stand in for the
+     * JDBC batch parameters they were bound to.
+     */
+    @Benchmark
+    public void splitAndValueOf(Blackhole blackhole) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            reader.readLine();
+            reader.readLine();
+            int lineNumber = 2;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                var numberedLine = new NumberedLine(++lineNumber, line);
+                if (numberedLine.getValue().isEmpty()) {
+                    continue;
+                }
+
+                String[] cols = numberedLine.getValue().split(",");
+                if (4 != cols.length || Long.valueOf(cols[0]) != 0) {
+                    throw new IllegalStateException("Invalid line " + numberedLine);
+                }
+                blackhole.consume(CONSENSUS_TIMESTAMP);
+                blackhole.consume(Short.valueOf(cols[1]));
+                blackhole.consume(Integer.valueOf(cols[2]));
+                blackhole.consume(Long.valueOf(cols[3]));
+            }
+        }
+    }
+}
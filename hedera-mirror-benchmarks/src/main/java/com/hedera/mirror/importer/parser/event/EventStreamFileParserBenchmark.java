@@ -0,0 +1,186 @@
+package com.hedera.mirror.importer.parser.event;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hedera.mirror.importer.util.FileDelimiter;
+import com.hedera.mirror.importer.util.Utility;
+
+/**
+ * Measures decoding and hashing the events of an event stream file the way {@link EventStreamFileParser} reads them
+ * before storing them. There are no sample event files, so a version 3 file is generated with events of a few
+ * transactions each. Scores are in events per second and the GC profiler reports the allocation rate
+ * (gc.alloc.rate.norm is bytes allocated per event). Run {@link #main} or select it in benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(EventStreamFileParserBenchmark.EVENTS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class EventStreamFileParserBenchmark {
+
+    static final int EVENTS = 10_000;
+
+    private static final int HASH_LENGTH = 48;
+    private static final int SIGNATURE_LENGTH = 384;
+    private static final int TRANSACTIONS = 4;
+    private static final int TRANSACTION_LENGTH = 200;
+
+    private Path file;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EventStreamFileParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("2019-09-01T00_00_00.000000Z", ".evts");
+        Random random = new Random(0);
+
+        try (DataOutputStream dos = new DataOutputStream(Files.newOutputStream(file))) {
+            dos.writeInt(FileDelimiter.EVENT_STREAM_FILE_VERSION_CURRENT);
+            dos.writeByte(FileDelimiter.EVENT_TYPE_PREV_HASH);
+            dos.write(randomBytes(random, HASH_LENGTH));
+
+            for (int i = 0; i < EVENTS; ++i) {
+                writeEvent(dos, random, i);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void readEvents(Blackhole blackhole) throws IOException, NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
+        MessageDigest mdForContent = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
+
+        try (DataInputStream dis = new DataInputStream(new FileInputStream(file.toFile()))) {
+            md.update(Utility.integerToBytes(dis.readInt()));
+
+            while (dis.available() != 0) {
+                byte typeDelimiter = dis.readByte();
+                switch (typeDelimiter) {
+                    case FileDelimiter.EVENT_TYPE_PREV_HASH:
+                        byte[] prevFileHash = new byte[HASH_LENGTH];
+                        dis.readFully(prevFileHash);
+                        md.update(typeDelimiter);
+                        md.update(prevFileHash);
+                        break;
+                    case FileDelimiter.EVENT_STREAM_START_NO_TRANS_WITH_VERSION:
+                    case FileDelimiter.EVENT_STREAM_START_WITH_VERSION:
+                        mdForContent.update(typeDelimiter);
+                        blackhole.consume(EventStreamFileParser.readEvent(dis, mdForContent,
+                                typeDelimiter == FileDelimiter.EVENT_STREAM_START_NO_TRANS_WITH_VERSION));
+                        break;
+                    default:
+                        throw new IOException("Unknown event file delimiter " + typeDelimiter);
+                }
+            }
+        }
+
+        md.update(mdForContent.digest());
+        blackhole.consume(md.digest());
+    }
+
+    private static void writeEvent(DataOutputStream dos, Random random, long consensusOrder) throws IOException {
+        dos.writeByte(FileDelimiter.EVENT_STREAM_START_WITH_VERSION);
+        dos.writeInt(FileDelimiter.EVENT_STREAM_VERSION);
+        dos.writeLong(consensusOrder % 4); // creatorId
+        dos.writeLong(consensusOrder); // creatorSeq
+        dos.writeLong((consensusOrder + 1) % 4); // otherId
+        dos.writeLong(consensusOrder); // otherSeq
+        dos.writeLong(consensusOrder); // selfParentGen
+        dos.writeLong(consensusOrder); // otherParentGen
+        writeByteArray(dos, randomBytes(random, HASH_LENGTH)); // selfParentHash
+        writeByteArray(dos, randomBytes(random, HASH_LENGTH)); // otherParentHash
+
+        // Transaction array and checksums as read by Transaction.readArray()
+        dos.writeInt(TRANSACTIONS);
+        dos.writeInt(1873 - TRANSACTIONS);
+        for (int i = 0; i < TRANSACTIONS; ++i) {
+            dos.writeInt(TRANSACTION_LENGTH);
+            dos.writeInt(277 - TRANSACTION_LENGTH);
+            dos.writeBoolean(false);
+            dos.write(randomBytes(random, TRANSACTION_LENGTH));
+            dos.writeInt(0);
+            dos.writeInt(353);
+        }
+
+        long seconds = 1567296000L + consensusOrder;
+        dos.writeLong(seconds); // timeCreated
+        dos.writeLong(0);
+        writeByteArray(dos, randomBytes(random, SIGNATURE_LENGTH));
+        dos.writeByte(FileDelimiter.EVENT_COMM_EVENT_LAST);
+        writeByteArray(dos, randomBytes(random, HASH_LENGTH)); // hash
+        dos.writeLong(seconds); // consensusTimestamp
+        dos.writeLong(1000);
+        dos.writeLong(consensusOrder);
+    }
+
+    private static void writeByteArray(DataOutputStream dos, byte[] bytes) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.writeInt(101 - bytes.length);
+        dos.write(bytes);
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the {@link EntityIdCache} lookups that {@link Entities} does for every account, file and contract a
+ * record references, for cached entities and for new entities that miss the cache. The cache is filled as it would be
+ * when loaded from t_entities. Scores are in lookups per second. Run {@link #main} or select it in benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(EntityIdCacheBenchmark.LOOKUPS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class EntityIdCacheBenchmark {
+
+    static final int LOOKUPS = 1024;
+
+    @Param({"10000", "1000000"})
+    private int entities;
+
+    private EntityIdCache entityIdCache;
+    private long[] cached;
+    private long[] uncached;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EntityIdCacheBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        entityIdCache = new EntityIdCache();
+        for (int num = 1; num <= entities; ++num) {
+            entityIdCache.put(0, 0, num, num);
+        }
+        entityIdCache.commit(); // Measure the committed entities that the cache holds between record files
+
+        // Spread the lookups over the table instead of walking it in insertion order
+        cached = new long[LOOKUPS];
+        uncached = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; ++i) {
+            cached[i] = 1 + (i * 7919L) % entities;
+            uncached[i] = entities + 1 + i;
+        }
+    }
+
+    @Benchmark
+    public void hit(Blackhole blackhole) {
+        for (long num : cached) {
+            blackhole.consume(entityIdCache.get(0, 0, num));
+        }
+    }
+
+    @Benchmark
+    public void miss(Blackhole blackhole) {
+        for (long num : uncached) {
+            blackhole.consume(entityIdCache.get(0, 0, num));
+        }
+    }
+}
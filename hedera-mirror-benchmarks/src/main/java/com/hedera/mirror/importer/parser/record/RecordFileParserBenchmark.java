@@ -0,0 +1,118 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.tuple.Triple;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hedera.mirror.importer.BenchmarkResources;
+import com.hedera.mirror.importer.MirrorProperties;
+
+/**
+ * Measures the parse-only throughput of record files: reading, hashing and decoding them as {@link RecordFileParser}
+ * does ahead of the database writer, plus decoding the transaction bodies as {@link RecordFileLogger} does before it
+ * persists a record. Persistence is left out entirely so the score is the upper bound of the parser. Scores are in
+ * records per second. Run {@link #main} or select it in benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(RecordFileReaderBenchmark.RECORDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class RecordFileParserBenchmark {
+
+    private final String[] fileNames;
+    // The default properties, which persist everything but claims
+    private final RecordDecoder recordDecoder = new RecordDecoder(new RecordParserProperties(new MirrorProperties()));
+
+    public RecordFileParserBenchmark() {
+        Path path = BenchmarkResources.getDataPath("recordstreams");
+        fileNames = new String[] {
+                path.resolve("v1/record0.0.3/2019-07-01T14:29:00.302068Z.rcd").toString(),
+                path.resolve("v2/record0.0.3/2019-08-30T18_10_00.419072Z.rcd").toString()
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecordFileParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    /**
+     * Reads and hashes the files without decoding the records, as done to verify a downloaded file
+     */
+    @Benchmark
+    public void hashOnly(Blackhole blackhole) throws Exception {
+        for (String fileName : fileNames) {
+            blackhole.consume(RecordFileReader.read(new File(fileName), false));
+        }
+    }
+
+    @Benchmark
+    public void parseOnly(Blackhole blackhole) throws Exception {
+        parse(recordDecoder, blackhole);
+    }
+
+    /**
+     * Decodes every field as done when trace logging is enabled, for comparison with {@link #parseOnly}
+     */
+    @Benchmark
+    public void parseAllFields(Blackhole blackhole) throws Exception {
+        parse(RecordDecoder.ALL_FIELDS, blackhole);
+    }
+
+    private void parse(RecordDecoder decoder, Blackhole blackhole) throws Exception {
+        for (String fileName : fileNames) {
+            ParsedRecordFile parsedRecordFile = RecordFileParser.readRecordFile(fileName, decoder);
+            for (Triple<Transaction, TransactionRecord, ByteString> record : parsedRecordFile.getRecords()) {
+                Transaction transaction = record.getLeft();
+                blackhole.consume(transaction.hasBody() ? transaction.getBody() :
+                        TransactionBody.parseFrom(transaction.getBodyBytes()));
+                blackhole.consume(record.getMiddle());
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hedera.mirror.importer.BenchmarkResources;
+import com.hedera.mirror.importer.util.FileDelimiter;
+import com.hedera.mirror.importer.util.Utility;
+
+/**
+ * Compares the memory mapped {@link RecordFileReader} against the previous stream based reader that copied every
+ * transaction and record onto the heap. Scores are in records per second and the GC profiler reports the allocation
+ * rate (gc.alloc.rate.norm is bytes allocated per record). Run {@link #main} or select it in benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OperationsPerInvocation(RecordFileReaderBenchmark.RECORDS)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class RecordFileReaderBenchmark {
+
+    // Records in the v1 and v2 sample files below
+    static final int RECORDS = 69 + 19;
+
+    private final File[] files;
+
+    public RecordFileReaderBenchmark() {
+        Path path = BenchmarkResources.getDataPath("recordstreams");
+        files = new File[] {
+                path.resolve("v1/record0.0.3/2019-07-01T14:29:00.302068Z.rcd").toFile(),
+                path.resolve("v2/record0.0.3/2019-08-30T18_10_00.419072Z.rcd").toFile()
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RecordFileReaderBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Benchmark
+    public void mappedReader(Blackhole blackhole) throws IOException {
+        for (File file : files) {
+            blackhole.consume(RecordFileReader.read(file, true));
+        }
+    }
+
+    @Benchmark
+    public void streamReader(Blackhole blackhole) throws IOException, NoSuchAlgorithmException {
+        for (File file : files) {
+            readStream(file, blackhole);
+        }
+    }
+
+    /**
+     * The reader prior to memory mapping, kept as the baseline for the comparison.
+     */
+    private static void readStream(File file, Blackhole blackhole) throws IOException, NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
+        MessageDigest mdForContent = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
+
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int recordFormatVersion = dis.readInt();
+            md.update(Utility.integerToBytes(recordFormatVersion));
+            md.update(Utility.integerToBytes(dis.readInt()));
+            MessageDigest contentDigest = recordFormatVersion >= FileDelimiter.RECORD_FORMAT_VERSION ?
+                    mdForContent : md;
+
+            while (dis.available() != 0) {
+                byte typeDelimiter = dis.readByte();
+
+                switch (typeDelimiter) {
+                    case FileDelimiter.RECORD_TYPE_PREV_HASH:
+                        byte[] readFileHash = new byte[48];
+                        dis.readFully(readFileHash);
+                        md.update(typeDelimiter);
+                        md.update(readFileHash);
+                        break;
+                    case FileDelimiter.RECORD_TYPE_RECORD:
+                        byte[] transactionBytes = readBytes(dis);
+                        byte[] recordBytes = readBytes(dis);
+                        contentDigest.update(typeDelimiter);
+                        contentDigest.update(Utility.integerToBytes(transactionBytes.length));
+                        contentDigest.update(transactionBytes);
+                        contentDigest.update(Utility.integerToBytes(recordBytes.length));
+                        contentDigest.update(recordBytes);
+                        blackhole.consume(Transaction.parseFrom(transactionBytes));
+                        blackhole.consume(TransactionRecord.parseFrom(recordBytes));
+                        break;
+                    case FileDelimiter.RECORD_TYPE_SIGNATURE:
+                        blackhole.consume(readBytes(dis));
+                        break;
+                    default:
+                        throw new IOException("Unknown record file delimiter " + typeDelimiter);
+                }
+            }
+
+            if (contentDigest == mdForContent) {
+                md.update(mdForContent.digest());
+            }
+            blackhole.consume(md.digest());
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream dis) throws IOException {
+        byte[] bytes = new byte[dis.readInt()];
+        dis.readFully(bytes);
+        return bytes;
+    }
+}
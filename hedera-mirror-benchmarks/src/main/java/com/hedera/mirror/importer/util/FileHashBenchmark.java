@@ -0,0 +1,87 @@
+package com.hedera.mirror.importer.util;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hedera.mirror.importer.BenchmarkResources;
+
+/**
+ * Measures {@link Utility#getFileHash} on the sample record and balance files, which is how every downloaded file is
+ * checked against the hash agreed on by the signature files. Scores are in files per second. Hashing event files is
+ * measured along with their decoding by EventStreamFileParserBenchmark. Run {@link #main} or select it in
+ * benchmarks.jar.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5, time = 2)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+public class FileHashBenchmark {
+
+    private final String balanceFile;
+    private final String recordFileV1;
+    private final String recordFileV2;
+
+    public FileHashBenchmark() {
+        balanceFile = dataFile("accountBalances/balance0.0.3/2019-08-30T18_15_00.016002001Z_Balances.csv");
+        recordFileV1 = dataFile("recordstreams/v1/record0.0.3/2019-07-01T14:29:00.302068Z.rcd");
+        recordFileV2 = dataFile("recordstreams/v2/record0.0.3/2019-08-30T18_10_00.419072Z.rcd");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FileHashBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    @Benchmark
+    public byte[] balanceFile() {
+        return Utility.getFileHash(balanceFile);
+    }
+
+    @Benchmark
+    public byte[] recordFileV1() {
+        return Utility.getFileHash(recordFileV1);
+    }
+
+    @Benchmark
+    public byte[] recordFileV2() {
+        return Utility.getFileHash(recordFileV2);
+    }
+
+    private static String dataFile(String path) {
+        return BenchmarkResources.getDataPath(path).toString();
+    }
+}
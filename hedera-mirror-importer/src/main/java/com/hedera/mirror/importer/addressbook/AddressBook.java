@@ -0,0 +1,89 @@
+package com.hedera.mirror.importer.addressbook;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.hederahashgraph.api.proto.java.NodeAddressBook;
+
+import java.security.PublicKey;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Value;
+
+import com.hedera.mirror.importer.domain.NodeAddress;
+
+/**
+ * An immutable snapshot of the network address book with the public keys of its nodes already decoded. Every change to
+ * the address book creates a new snapshot with a higher version, so consumers can tell whether theirs is current by
+ * comparing versions.
+ */
+@Value
+public class AddressBook {
+
+    private final long version;
+    private final List<NodeAddress> nodeAddresses;
+    private final List<String> nodeAccountIds;
+    private final Map<String, PublicKey> publicKeys;
+
+    private AddressBook(long version, Collection<NodeAddress> nodeAddresses) {
+        this.version = version;
+        this.nodeAddresses = ImmutableList.copyOf(nodeAddresses);
+        ImmutableList.Builder<String> nodeAccountIds = ImmutableList.builder();
+        ImmutableMap.Builder<String, PublicKey> publicKeys = ImmutableMap.builder();
+        for (NodeAddress nodeAddress : nodeAddresses) {
+            nodeAccountIds.add(nodeAddress.getId());
+            publicKeys.put(nodeAddress.getId(), nodeAddress.getPublicKeyAsObject());
+        }
+        this.nodeAccountIds = nodeAccountIds.build();
+        this.publicKeys = publicKeys.build();
+    }
+
+    public static AddressBook of(long version, Collection<NodeAddress> nodeAddresses) {
+        return new AddressBook(version, nodeAddresses);
+    }
+
+    /**
+     * Parses the contents of an address book file
+     *
+     * @throws InvalidProtocolBufferException if the contents are not a complete NodeAddressBook
+     * @throws RuntimeException               if a public key can not be decoded
+     */
+    public static AddressBook parse(long version, byte[] bytes) throws InvalidProtocolBufferException {
+        ImmutableList.Builder<NodeAddress> builder = ImmutableList.builder();
+        NodeAddressBook nodeAddressBook = NodeAddressBook.parseFrom(bytes);
+
+        for (com.hederahashgraph.api.proto.java.NodeAddress nodeAddressProto : nodeAddressBook.getNodeAddressList()) {
+            NodeAddress nodeAddress = NodeAddress.builder()
+                    .id(nodeAddressProto.getMemo().toStringUtf8())
+                    .ip(nodeAddressProto.getIpAddress().toStringUtf8())
+                    .port(nodeAddressProto.getPortno())
+                    .publicKey(nodeAddressProto.getRSAPubKey())
+                    .build();
+            builder.add(nodeAddress);
+        }
+
+        return new AddressBook(version, builder.build());
+    }
+}
@@ -20,16 +20,15 @@ package com.hedera.mirror.importer.addressbook;
  * ‍
  */
 
-import com.google.common.collect.ImmutableList;
-import com.hederahashgraph.api.proto.java.NodeAddressBook;
-
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import javax.inject.Named;
 
 import lombok.extern.log4j.Log4j2;
@@ -39,19 +38,26 @@ import org.springframework.core.io.Resource;
 
 import com.hedera.mirror.importer.MirrorProperties;
 import com.hedera.mirror.importer.domain.HederaNetwork;
-import com.hedera.mirror.importer.domain.NodeAddress;
 import com.hedera.mirror.importer.util.Utility;
 
+/**
+ * Holds the current {@link AddressBook} in memory. The address book file is only read at startup or when reload() is
+ * called; afterwards the snapshot is replaced whenever a file update or append to the address book makes its contents
+ * a complete address book again, and the subscribers are notified of the new snapshot.
+ */
 @Log4j2
 @Named
 public class NetworkAddressBook {
 
-    private MirrorProperties mirrorProperties;
+    private final MirrorProperties mirrorProperties;
+    private final List<Consumer<AddressBook>> subscribers = new CopyOnWriteArrayList<>();
     private byte[] addressBookBytes = new byte[0];
+    private volatile AddressBook addressBook = AddressBook.of(0L, List.of());
 
     public NetworkAddressBook(MirrorProperties mirrorProperties) {
         this.mirrorProperties = mirrorProperties;
         init();
+        reload();
     }
 
     private void init() {
@@ -71,12 +77,39 @@ public class NetworkAddressBook {
         }
     }
 
-    public void update(byte[] newContents) throws IOException {
+    /**
+     * @return the current address book
+     */
+    public AddressBook getAddressBook() {
+        return addressBook;
+    }
+
+    /**
+     * Registers a callback that receives each new address book after it has replaced the current one
+     */
+    public void subscribe(Consumer<AddressBook> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Reads the address book file again, e.g. after the address book path was changed. The current address book is
+     * kept if the file can not be parsed.
+     */
+    public synchronized void reload() {
+        Path path = mirrorProperties.getAddressBookPath();
+        try {
+            publish(Files.readAllBytes(path));
+        } catch (Exception ex) {
+            log.error("Failed to parse NodeAddressBook from {}", path, ex);
+        }
+    }
+
+    public synchronized void update(byte[] newContents) throws IOException {
         addressBookBytes = newContents;
         saveToDisk();
     }
 
-    public void append(byte[] extraContents) throws IOException {
+    public synchronized void append(byte[] extraContents) throws IOException {
         byte[] newAddressBook = Arrays.copyOf(addressBookBytes, addressBookBytes.length + extraContents.length);
         System.arraycopy(extraContents, 0, newAddressBook, addressBookBytes.length, extraContents.length);
         addressBookBytes = newAddressBook;
@@ -87,30 +120,22 @@ public class NetworkAddressBook {
         Path path = mirrorProperties.getAddressBookPath();
         Files.write(path, addressBookBytes);
         log.info("New address book successfully saved to {}", path);
-    }
-
-    public Collection<NodeAddress> load() {
-        ImmutableList.Builder<NodeAddress> builder = ImmutableList.builder();
-        Path path = mirrorProperties.getAddressBookPath();
 
+        // An address book larger than a transaction is updated in parts, so its contents are incomplete until the
+        // last append
         try {
-            byte[] addressBookBytes = Files.readAllBytes(path);
-            NodeAddressBook nodeAddressBook = NodeAddressBook.parseFrom(addressBookBytes);
-
-            for (com.hederahashgraph.api.proto.java.NodeAddress nodeAddressProto : nodeAddressBook
-                    .getNodeAddressList()) {
-                NodeAddress nodeAddress = NodeAddress.builder()
-                        .id(nodeAddressProto.getMemo().toStringUtf8())
-                        .ip(nodeAddressProto.getIpAddress().toStringUtf8())
-                        .port(nodeAddressProto.getPortno())
-                        .publicKey(nodeAddressProto.getRSAPubKey())
-                        .build();
-                builder.add(nodeAddress);
-            }
-        } catch (Exception ex) {
-            log.error("Failed to parse NodeAddressBook from {}", path, ex);
+            publish(addressBookBytes);
+        } catch (Exception e) {
+            log.info("Keeping address book version {} until the new address book is complete: {}",
+                    addressBook.getVersion(), e.getMessage());
         }
+    }
 
-        return builder.build();
+    private void publish(byte[] bytes) throws IOException {
+        AddressBook newAddressBook = AddressBook.parse(addressBook.getVersion() + 1, bytes);
+        addressBook = newAddressBook;
+        log.info("Using address book version {} with nodes {}", newAddressBook.getVersion(),
+                newAddressBook.getNodeAccountIds());
+        subscribers.forEach(subscriber -> subscriber.accept(newAddressBook));
     }
 }
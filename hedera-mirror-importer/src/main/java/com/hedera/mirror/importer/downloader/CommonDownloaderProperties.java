@@ -20,6 +20,7 @@ package com.hedera.mirror.importer.downloader;
  * ‍
  */
 
+import java.time.Duration;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -43,9 +44,20 @@ public class CommonDownloaderProperties {
     @NotNull
     private CloudProvider cloudProvider = CloudProvider.S3;
 
+    @NotNull
+    private Duration hedgeDelay = Duration.ofMillis(500L);
+
+    @Min(1)
+    private int hedgedRequests = 2;
+
+    private boolean inMemory = false;
+
     @Min(0)
     private int maxConcurrency = 1000; // aws sdk default = 50
 
+    @Min(1)
+    private int maxInFlight = 4;
+
     private String region = "us-east-1";
 
     private String secretKey;
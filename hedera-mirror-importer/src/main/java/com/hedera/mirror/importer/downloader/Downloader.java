@@ -29,18 +29,28 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
@@ -52,10 +62,10 @@ import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 import software.amazon.awssdk.services.s3.model.ListObjectsResponse;
 import software.amazon.awssdk.services.s3.model.S3Object;
 
+import com.hedera.mirror.importer.addressbook.AddressBook;
 import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
-import com.hedera.mirror.importer.domain.NodeAddress;
-import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.repository.IngestionState;
 import com.hedera.mirror.importer.util.ShutdownHelper;
 import com.hedera.mirror.importer.util.Utility;
 
@@ -63,22 +73,51 @@ public abstract class Downloader {
     protected final Logger log = LogManager.getLogger(getClass());
 
     private final S3AsyncClient s3Client;
-    private final ApplicationStatusRepository applicationStatusRepository;
+    private final IngestionState ingestionState;
     private final NetworkAddressBook networkAddressBook;
     private final DownloaderProperties downloaderProperties;
+    private final MeterRegistry meterRegistry;
+    private final Timer signatureVerificationTimer;
+    private final Timer hashTimer;
     // Thread pool used one per node during the download process for signatures.
     private final ExecutorService signatureDownloadThreadPool;
-    private List<String> nodeAccountIds;
-
-    public Downloader(S3AsyncClient s3Client, ApplicationStatusRepository applicationStatusRepository,
-                      NetworkAddressBook networkAddressBook, DownloaderProperties downloaderProperties) {
+    // Thread pool used to verify the signatures of files with the same name in parallel
+    private final ExecutorService signatureVerificationThreadPool;
+    // Lists and downloads the signatures of the next batch while the current batch is verified
+    private final ExecutorService prefetchThreadPool;
+    private volatile AddressBook addressBook;
+    private CompletableFuture<SignatureBatch> prefetchedBatch;
+    private AddressBook verifierAddressBook;
+    private NodeSignatureVerifier verifier;
+
+    public Downloader(S3AsyncClient s3Client, IngestionState ingestionState,
+                      NetworkAddressBook networkAddressBook, DownloaderProperties downloaderProperties,
+                      MeterRegistry meterRegistry) {
         this.s3Client = s3Client;
-        this.applicationStatusRepository = applicationStatusRepository;
+        this.ingestionState = ingestionState;
         this.networkAddressBook = networkAddressBook;
         this.downloaderProperties = downloaderProperties;
+        this.meterRegistry = meterRegistry;
+        signatureVerificationTimer = Timer.builder("hedera.mirror.download.verification")
+                .description("The time it takes to verify the signature files of a data file")
+                .tag("type", getType())
+                .register(meterRegistry);
+        hashTimer = Timer.builder("hedera.mirror.download.hash")
+                .description("The time it takes to calculate the hash of a downloaded data file")
+                .tag("type", getType())
+                .register(meterRegistry);
+        Gauge.builder("hedera.mirror.files.pending", this, Downloader::getPendingFiles)
+                .description("The number of verified files in the valid directory waiting to be parsed")
+                .tag("type", getType())
+                .register(meterRegistry);
         signatureDownloadThreadPool = Executors.newFixedThreadPool(downloaderProperties.getThreads());
-        nodeAccountIds = networkAddressBook.load().stream().map(NodeAddress::getId).collect(Collectors.toList());
+        signatureVerificationThreadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        prefetchThreadPool = Executors.newSingleThreadExecutor();
+        addressBook = networkAddressBook.getAddressBook();
+        networkAddressBook.subscribe(this::onAddressBookUpdated);
         Runtime.getRuntime().addShutdownHook(new Thread(signatureDownloadThreadPool::shutdown));
+        Runtime.getRuntime().addShutdownHook(new Thread(signatureVerificationThreadPool::shutdown));
+        Runtime.getRuntime().addShutdownHook(new Thread(prefetchThreadPool::shutdown));
     }
 
     protected void downloadNextBatch() {
@@ -89,31 +128,76 @@ public abstract class Downloader {
             if (ShutdownHelper.isStopping()) {
                 return;
             }
-            var sigFilesMap = downloadSigFiles();
+            String lastValidFileName = ingestionState.get(getLastValidDownloadedFileKey());
+            // foo.rcd < foo.rcd_sig. If we read foo.rcd from application stats, we have to start listing from
+            // next to 'foo.rcd_sig'.
+            String lastValidSigFileName = lastValidFileName.isEmpty() ? "" : lastValidFileName + "_sig";
+
+            SignatureBatch batch = takePrefetchedBatch(lastValidSigFileName);
+            if (batch == null) {
+                batch = downloadSigFiles(lastValidSigFileName, false);
+            }
+
+            // Start on the batch after this one while it is being verified
+            String lastSigFileName = batch.getLastSigFileName();
+            if (lastSigFileName != null && downloaderProperties.getCommon().getMaxInFlight() > 1) {
+                prefetchedBatch = CompletableFuture.supplyAsync(() -> downloadSigFiles(lastSigFileName, true),
+                        prefetchThreadPool);
+            }
+
             // Verify signature files and download corresponding files of valid signature files
-            verifySigsAndDownloadDataFiles(sigFilesMap);
+            verifySigsAndDownloadDataFiles(batch);
         } catch (Exception e) {
             log.error("Error downloading files", e);
         }
     }
 
+    /**
+     * Waits for the signatures of the next batch that are still being downloaded in the background
+     */
+    void awaitPrefetchedBatch() {
+        CompletableFuture<SignatureBatch> future = prefetchedBatch;
+        if (future != null) {
+            future.exceptionally(e -> null).join();
+        }
+    }
+
+    /**
+     * Returns the prefetched batch if it starts right after the last valid file, i.e. every file of the batch before
+     * it was verified. Otherwise the failed files need to be listed again, so the prefetched batch is discarded.
+     */
+    private SignatureBatch takePrefetchedBatch(String lastValidSigFileName) {
+        if (prefetchedBatch == null) {
+            return null;
+        }
+
+        // Always wait for it so it doesn't overlap with another download of the same signature files
+        CompletableFuture<SignatureBatch> future = prefetchedBatch;
+        prefetchedBatch = null;
+        SignatureBatch batch = future.join();
+
+        if (batch.getMarker().equals(lastValidSigFileName) && !batch.getSigFilesMap().isEmpty()) {
+            log.debug("Using prefetched signatures after {}", lastValidSigFileName);
+            return batch;
+        }
+        return null;
+    }
+
     /**
      * Download all sig files (*.rcd_sig for records, *_Balances.csv_sig for balances) with timestamp later than
      * lastValid<Type>FileName Validate each file with corresponding node's PubKey. Put valid files into HashMap<String,
      * List<File>>
      *
-     * @return key: sig file name value: a list of sig files with the same name and from different nodes folder;
+     * @param lastValidSigFileName the sig file to list after
+     * @param excludeMarker        whether to skip lastValidSigFileName if the listing returns it
+     * @return the downloaded sig files
      */
-    private Map<String, List<File>> downloadSigFiles() throws InterruptedException {
-        String lastValidFileName = applicationStatusRepository.findByStatusCode(getLastValidDownloadedFileKey());
-        // foo.rcd < foo.rcd_sig. If we read foo.rcd from application stats, we have to start listing from
-        // next to 'foo.rcd_sig'.
-        String lastValidSigFileName = lastValidFileName.isEmpty() ? "" : lastValidFileName + "_sig";
-
+    private SignatureBatch downloadSigFiles(String lastValidSigFileName, boolean excludeMarker) {
         var sigFilesMap = new ConcurrentHashMap<String, List<File>>();
+        // Contents of the signature files when they are downloaded into memory instead of to disk
+        var sigFileContents = new ConcurrentHashMap<File, byte[]>();
 
-        // refresh node account ids
-        nodeAccountIds = networkAddressBook.load().stream().map(NodeAddress::getId).collect(Collectors.toList());
+        List<String> nodeAccountIds = addressBook.getNodeAccountIds();
         List<Callable<Object>> tasks = new ArrayList<>(nodeAccountIds.size());
         var totalDownloads = new AtomicInteger();
         /**
@@ -135,7 +219,9 @@ public abstract class Downloader {
                 // for local filesystem.
                 Path sigFilesDir = dataPath.resolve(s3Prefix.replace('/', File.separatorChar));
                 // Ensure the directory for downloading sig files exists.
-                Utility.ensureDirectory(sigFilesDir);
+                if (!isInMemory()) {
+                    Utility.ensureDirectory(sigFilesDir);
+                }
 
                 try {
                     // batchSize (number of items we plan do download in a single batch) times 2 for file + sig.
@@ -148,18 +234,27 @@ public abstract class Downloader {
                             .marker(s3Prefix + lastValidSigFileName)
                             .maxKeys(listSize)
                             .build();
-                    CompletableFuture<ListObjectsResponse> response = s3Client.listObjects(listRequest);
+                    Timer.Sample listSample = Timer.start(meterRegistry);
+                    ListObjectsResponse response = s3Client.listObjects(listRequest).get();
+                    listSample.stop(Timer.builder("hedera.mirror.download.list")
+                            .description("The time it takes to list the files of a node in cloud storage")
+                            .tag("type", getType())
+                            .tag("node", nodeAccountId)
+                            .register(meterRegistry));
                     var pendingDownloads = new ArrayList<PendingDownload>(downloaderProperties.getBatchSize());
                     // Loop through the list of remote files beginning a download for each relevant sig file
                     // Note:
                     // lastValidSigFileName specified as marker above is not returned in these results by AWS S3.
                     // However, it is returned by mockS3 implementation we use in our tests.
-                    for (S3Object content : response.get().contents()) {
+                    for (S3Object content : response.contents()) {
                         String s3ObjectKey = content.key();
+                        String fileName = s3ObjectKey.substring(s3ObjectKey.lastIndexOf("/") + 1);
+                        if (excludeMarker && fileName.equals(lastValidSigFileName)) {
+                            continue;
+                        }
                         if (s3ObjectKey.endsWith("_sig")) {
-                            String fileName = s3ObjectKey.substring(s3ObjectKey.lastIndexOf("/") + 1);
                             Path saveTarget = sigFilesDir.resolve(fileName);
-                            pendingDownloads.add(saveToLocalAsync(s3ObjectKey, saveTarget));
+                            pendingDownloads.add(downloadAsync(nodeAccountId, s3ObjectKey, saveTarget));
                             totalDownloads.incrementAndGet();
                         }
                     }
@@ -176,6 +271,9 @@ public abstract class Downloader {
                             if (pd.waitForCompletion()) {
                                 ref.count++;
                                 File sigFile = pd.getFile();
+                                if (pd.getBytes() != null) {
+                                    sigFileContents.put(sigFile, pd.getBytes());
+                                }
                                 String fileName = sigFile.getName();
                                 sigFilesMap.putIfAbsent(fileName, Collections.synchronizedList(new ArrayList<>()));
                                 List<File> files = sigFilesMap.get(fileName);
@@ -197,12 +295,60 @@ public abstract class Downloader {
         // Wait for all tasks to complete.
         // invokeAll() does return Futures, but it waits for all to complete (so they're returned in a completed state).
         Stopwatch stopwatch = Stopwatch.createStarted();
-        signatureDownloadThreadPool.invokeAll(tasks);
+        try {
+            signatureDownloadThreadPool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while downloading signature files");
+            Thread.currentThread().interrupt();
+        }
         if (totalDownloads.get() > 0) {
             var rate = (int) (1000000.0 * totalDownloads.get() / stopwatch.elapsed(TimeUnit.MICROSECONDS));
             log.info("Downloaded {} signatures in {} ({}/s)", totalDownloads, stopwatch, rate);
         }
-        return sigFilesMap;
+        return new SignatureBatch(lastValidSigFileName, sigFilesMap, sigFileContents);
+    }
+
+    private boolean isInMemory() {
+        return downloaderProperties.getCommon().isInMemory();
+    }
+
+    private String getType() {
+        return downloaderProperties.getStreamType().toString();
+    }
+
+    private int getPendingFiles() {
+        String[] files = downloaderProperties.getValidPath().toFile().list();
+        return files != null ? files.length : 0;
+    }
+
+    /**
+     * Starts downloading the object either into memory or to {@code localFile}, depending on configuration. The time
+     * until the download completes, fails or is cancelled is recorded per node.
+     */
+    private PendingDownload downloadAsync(String nodeAccountId, String s3ObjectKey, Path localFile) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        PendingDownload pendingDownload = isInMemory() ? saveToMemoryAsync(s3ObjectKey, localFile) :
+                saveToLocalAsync(s3ObjectKey, localFile);
+        pendingDownload.getFuture().whenComplete((response, throwable) -> sample.stop(
+                Timer.builder("hedera.mirror.download.get")
+                        .description("The time it takes to download a file from a node in cloud storage")
+                        .tag("type", getType())
+                        .tag("node", nodeAccountId)
+                        .tag("status", throwable == null ? "success" : "failure")
+                        .register(meterRegistry)));
+        return pendingDownload;
+    }
+
+    /**
+     * Returns a PendingDownload that holds the downloaded bytes once complete. Nothing is written to {@code localFile},
+     * it only identifies the file the object would have been saved as.
+     */
+    private PendingDownload saveToMemoryAsync(String s3ObjectKey, Path localFile) {
+        var future = s3Client.getObject(
+                GetObjectRequest.builder().bucket(downloaderProperties.getCommon().getBucketName()).key(s3ObjectKey)
+                        .build(),
+                AsyncResponseTransformer.toBytes());
+        return new PendingDownload(future, localFile.toFile(), s3ObjectKey);
     }
 
     /**
@@ -258,6 +404,20 @@ public abstract class Downloader {
         }
     }
 
+    /**
+     * Writes the contents of a file downloaded into memory to {@code tempFile} and then moves it to its destination, so
+     * that the parser never sees a partially written file.
+     */
+    private boolean saveFile(byte[] contents, File tempFile, File destinationFile) {
+        try {
+            Files.write(tempFile.toPath(), contents);
+        } catch (IOException e) {
+            log.error("Failed writing file {}", tempFile, e);
+            return false;
+        }
+        return moveFile(tempFile, destinationFile);
+    }
+
     /**
      * For each group of signature Files with the same file name: (1) verify that the signature files are signed by
      * corresponding node's PublicKey; (2) For valid signature files, we compare their Hashes to see if more than 2/3
@@ -266,91 +426,292 @@ public abstract class Downloader {
      * signatures, if match, move the data file into `valid` directory; else download the data file from other valid
      * node folder, and compare the Hash until find a match one
      *
-     * @param sigFilesMap
+     * Up to maxInFlight files are verified and have their data file download started ahead of the file being checked,
+     * while the files are still accepted one at a time in order.
+     *
+     * @param batch the signature files to verify
      */
-    private void verifySigsAndDownloadDataFiles(Map<String, List<File>> sigFilesMap) {
+    private void verifySigsAndDownloadDataFiles(SignatureBatch batch) {
         // reload address book and keys in case it has been updated by RecordFileLogger
-        NodeSignatureVerifier verifier = new NodeSignatureVerifier(networkAddressBook);
+        NodeSignatureVerifier verifier = getVerifier();
         Path validPath = downloaderProperties.getValidPath();
+        Map<File, byte[]> sigFileContents = batch.getSigFileContents();
+        Function<File, Pair<byte[], byte[]>> hashAndSigReader = isInMemory() ?
+                sigFile -> Utility.extractHashAndSig(sigFileContents.get(sigFile), sigFile) :
+                Utility::extractHashAndSigFromFile;
 
+        Map<String, List<File>> sigFilesMap = batch.getSigFilesMap();
         List<String> sigFileNames = new ArrayList<>(sigFilesMap.keySet());
         // sort in increasing order of timestamp, so that we process files in the order they are written.
         // It's very important for record and event files because they form immutable linked list by include one file's
         // hash into next file.
         Collections.sort(sigFileNames);
 
-        for (String sigFileName : sigFileNames) {
-            if (ShutdownHelper.isStopping()) {
-                return;
-            }
+        Iterator<String> sigFileNameIterator = sigFileNames.iterator();
+        Deque<VerifiedSignatures> inFlight = new LinkedList<>();
+        int maxInFlight = downloaderProperties.getCommon().getMaxInFlight();
+
+        try {
+            while (true) {
+                // Verify the next files and start downloading their data files while earlier files are checked
+                while (inFlight.size() < maxInFlight && sigFileNameIterator.hasNext()) {
+                    String sigFileName = sigFileNameIterator.next();
+                    VerifiedSignatures verifiedSignatures = verifySignatures(verifier, sigFileName,
+                            sigFilesMap.get(sigFileName), hashAndSigReader);
+                    if (verifiedSignatures != null) {
+                        inFlight.add(verifiedSignatures);
+                    }
+                }
 
-            List<File> sigFiles = sigFilesMap.get(sigFileName);
-            boolean valid = false;
+                VerifiedSignatures verifiedSignatures = inFlight.poll();
+                if (verifiedSignatures == null || ShutdownHelper.isStopping()) {
+                    return;
+                }
 
-            // If the number of sigFiles is not greater than 2/3 of number of nodes, we don't need to verify them
-            if (sigFiles == null || !Utility.greaterThanSuperMajorityNum(sigFiles.size(), nodeAccountIds.size())) {
-                log.warn("Signature file count does not exceed 2/3 of nodes");
-                continue;
+                String sigFileName = verifiedSignatures.getSigFileName();
+                if (!downloadDataFile(verifiedSignatures, validPath)) {
+                    log.error("File could not be verified by at least 2/3 of nodes: {}", sigFileName);
+                }
             }
+        } finally {
+            inFlight.forEach(VerifiedSignatures::cancel);
+        }
+    }
+
+    /**
+     * Verifies the signature files with the same name and starts downloading the data file from the first node with a
+     * valid signature.
+     *
+     * @return the valid signature files, or null if there are not enough of them
+     */
+    private VerifiedSignatures verifySignatures(NodeSignatureVerifier verifier, String sigFileName,
+                                                List<File> sigFiles,
+                                                Function<File, Pair<byte[], byte[]>> hashAndSigReader) {
+        // If the number of sigFiles is not greater than 2/3 of number of nodes, we don't need to verify them
+        int nodes = addressBook.getNodeAccountIds().size();
+        if (sigFiles == null || !Utility.greaterThanSuperMajorityNum(sigFiles.size(), nodes)) {
+            log.warn("Signature file count does not exceed 2/3 of nodes");
+            return null;
+        }
 
-            // validSigFiles are signed by node'key and contains the same Hash which has been agreed by more than 2/3
-            // nodes
-            Pair<byte[], List<File>> hashAndValidSigFiles = verifier.verifySignatureFiles(sigFiles);
-            byte[] validHash = hashAndValidSigFiles.getLeft();
-            for (File validSigFileName : hashAndValidSigFiles.getRight()) {
+        // validSigFiles are signed by node'key and contains the same Hash which has been agreed by more than 2/3
+        // nodes
+        Pair<byte[], List<File>> hashAndValidSigFiles = signatureVerificationTimer.record(
+                () -> verifier.verifySignatureFiles(sigFiles, hashAndSigReader));
+        List<File> validSigFiles = hashAndValidSigFiles.getRight();
+        if (validSigFiles.isEmpty()) {
+            log.error("File could not be verified by at least 2/3 of nodes: {}", sigFileName);
+            return null;
+        }
+
+        log.debug("Verified signature file matches at least 2/3 of nodes: {}", sigFileName);
+        PendingDownload firstDownload = downloadSignedDataFileAsync(validSigFiles.get(0));
+        return new VerifiedSignatures(sigFileName, hashAndValidSigFiles.getLeft(), validSigFiles, firstDownload);
+    }
+
+    /**
+     * Downloads the data file for the verified signatures and moves it to the valid directory. The download is hedged:
+     * if it has not completed after hedgeDelay, the same file is also requested from the next node with a valid
+     * signature, up to hedgedRequests at once. The first download that matches the verified hash is kept and the
+     * others are cancelled. A node whose download fails or doesn't match is replaced by the next node right away.
+     *
+     * @return whether a valid data file was saved
+     */
+    private boolean downloadDataFile(VerifiedSignatures verifiedSignatures, Path validPath) {
+        String sigFileName = verifiedSignatures.getSigFileName();
+        int hedgedRequests = downloaderProperties.getCommon().getHedgedRequests();
+        long hedgeDelayMillis = downloaderProperties.getCommon().getHedgeDelay().toMillis();
+
+        // The download from the first node was already started during verification
+        Iterator<File> sigFiles = verifiedSignatures.getSigFiles().iterator();
+        sigFiles.next();
+        PendingDownload lastStarted = verifiedSignatures.getFirstDownload();
+        List<PendingDownload> downloads = new ArrayList<>(hedgedRequests);
+        downloads.add(lastStarted);
+
+        try {
+            while (!downloads.isEmpty()) {
                 if (ShutdownHelper.isStopping()) {
-                    return;
+                    return false;
                 }
-                log.debug("Verified signature file matches at least 2/3 of nodes: {}", sigFileName);
 
-                try {
-                    File signedDataFile = downloadSignedDataFile(validSigFileName);
-                    if (signedDataFile != null && Utility.hashMatch(validHash, signedDataFile)) {
-                        log.debug("Downloaded data file {} corresponding to verified hash", signedDataFile.getName());
-                        // Check that file is newer than last valid downloaded file.
-                        // Additionally, if the file type uses prevFileHash based linking, verify that new file is
-                        // next in
-                        // the sequence.
-                        if (verifyHashChain(signedDataFile)) {
-                            // move the file to the valid directory
-                            File destination = validPath.resolve(signedDataFile.getName()).toFile();
-                            if (moveFile(signedDataFile, destination)) {
-                                log.debug("Successfully moved file from {} to {}", signedDataFile, destination);
-                                if (getLastValidDownloadedFileHashKey() != null) {
-                                    applicationStatusRepository.updateStatusValue(getLastValidDownloadedFileHashKey(),
-                                            Utility.bytesToHex(validHash));
-                                }
-                                applicationStatusRepository
-                                        .updateStatusValue(getLastValidDownloadedFileKey(), destination.getName());
-                                valid = true;
-                                break;
-                            }
-                        }
-                    } else if (signedDataFile != null) {
-                        log.warn("Hash doesn't match the hash contained in valid signature file. Will try to download" +
-                                " a file with same timestamp from other nodes and check the Hash: {}", signedDataFile);
+                long timeoutMillis = Long.MAX_VALUE;
+                if (downloads.size() < hedgedRequests && sigFiles.hasNext() &&
+                        downloads.stream().noneMatch(pendingDownload -> pendingDownload.getFuture().isDone())) {
+                    timeoutMillis = hedgeDelayMillis - lastStarted.getStopwatch().elapsed(TimeUnit.MILLISECONDS);
+                    if (timeoutMillis <= 0) {
+                        lastStarted = downloadSignedDataFileAsync(sigFiles.next());
+                        downloads.add(lastStarted);
+                        log.debug("Hedging download of {} with {}", sigFileName, lastStarted.getS3key());
+                        continue;
                     }
-                } catch (Exception e) {
-                    log.error("Error downloading data file corresponding to {}", sigFileName, e);
+                }
+
+                PendingDownload completed = waitForAny(downloads, timeoutMillis);
+                if (completed == null) {
+                    continue;
+                }
+
+                downloads.remove(completed);
+                if (saveDataFile(completed, verifiedSignatures.getHash(), validPath)) {
+                    return true;
+                }
+
+                // Replace the node right away even if other downloads are still running, without waiting for the
+                // hedge delay
+                if (sigFiles.hasNext()) {
+                    lastStarted = downloadSignedDataFileAsync(sigFiles.next());
+                    downloads.add(lastStarted);
+                    log.debug("Retrying download of {} with {}", sigFileName, lastStarted.getS3key());
                 }
             }
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while downloading data file corresponding to {}", sigFileName);
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error downloading data file corresponding to {}", sigFileName, e);
+        } finally {
+            downloads.forEach(pendingDownload -> pendingDownload.getFuture().cancel(true));
+        }
+
+        return false;
+    }
 
-            if (!valid) {
-                log.error("File could not be verified by at least 2/3 of nodes: {}", sigFileName);
+    /**
+     * Waits until one of the downloads completes or the timeout elapses.
+     *
+     * @return the completed download, or null if the timeout elapsed
+     */
+    private PendingDownload waitForAny(List<PendingDownload> downloads, long timeoutMillis)
+            throws InterruptedException {
+        CompletableFuture<?>[] futures = downloads.stream()
+                .map(PendingDownload::getFuture)
+                .toArray(CompletableFuture[]::new);
+        try {
+            CompletableFuture.anyOf(futures).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            // A failed download is also complete
+        } catch (TimeoutException e) {
+            return null;
+        }
+        return downloads.stream().filter(pendingDownload -> pendingDownload.getFuture().isDone()).findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Checks that a completed download matches the verified hash and continues the hash chain, then moves it to the
+     * valid directory.
+     *
+     * @return whether the data file was saved
+     */
+    private boolean saveDataFile(PendingDownload pendingDownload, byte[] validHash, Path validPath)
+            throws InterruptedException {
+        if (!pendingDownload.waitForCompletion()) {
+            return false;
+        }
+
+        File signedDataFile = pendingDownload.getFile();
+        byte[] contents = pendingDownload.getBytes();
+        Pair<byte[], String> hashes = hashTimer.record(() -> contents != null ?
+                readHashes(signedDataFile, contents) : readHashes(signedDataFile));
+        if (!Arrays.equals(validHash, hashes.getLeft())) {
+            log.warn("Hash doesn't match the hash contained in valid signature file. Will try to download" +
+                    " a file with same timestamp from other nodes and check the Hash: {}", pendingDownload.getS3key());
+            return false;
+        }
+
+        log.debug("Downloaded data file {} corresponding to verified hash", pendingDownload.getS3key());
+        // Check that file is newer than last valid downloaded file.
+        // Additionally, if the file type uses prevFileHash based linking, verify that new file is next in the
+        // sequence.
+        if (!verifyHashChain(signedDataFile, hashes.getRight())) {
+            return false;
+        }
+
+        // move the file to the valid directory
+        File destination = validPath.resolve(signedDataFile.getName()).toFile();
+        boolean saved = contents != null ? saveFile(contents, signedDataFile, destination) :
+                moveFile(signedDataFile, destination);
+        if (saved) {
+            log.debug("Successfully moved file from {} to {}", signedDataFile, destination);
+            if (getLastValidDownloadedFileHashKey() != null) {
+                ingestionState.update(getLastValidDownloadedFileHashKey(),
+                        Utility.bytesToHex(validHash));
             }
+            ingestionState.update(getLastValidDownloadedFileKey(), destination.getName());
+            onValidFile(destination, validHash, hashes.getRight(), contents);
         }
+        return saved;
     }
 
     /**
-     * Verifies that prevFileHash in given {@code file} matches that in application repository.
+     * Called after a verified data file was moved to the valid directory and recorded as the last valid file
      *
-     * @throws Exception
+     * @param file         the data file in the valid directory
+     * @param hash         the verified hash of the file
+     * @param prevFileHash the previous file hash contained in the file, if the file type has one
+     * @param contents     the contents of the file if it was downloaded into memory, otherwise null
      */
-    protected boolean verifyHashChain(File file) {
+    protected void onValidFile(File file, byte[] hash, String prevFileHash, byte[] contents) {
+    }
+
+    /**
+     * Called by the network address book after a new address book replaced the current one. The next batch lists the
+     * nodes of the new address book and verifies their signatures with its public keys.
+     */
+    private void onAddressBookUpdated(AddressBook newAddressBook) {
+        log.info("Switching to address book version {}", newAddressBook.getVersion());
+        addressBook = newAddressBook;
+    }
+
+    /**
+     * Returns a verifier for the current address book, reusing the previous one and the signatures it has already
+     * initialized unless the address book has changed.
+     */
+    private NodeSignatureVerifier getVerifier() {
+        AddressBook currentAddressBook = addressBook;
+        if (verifier == null || verifierAddressBook != currentAddressBook) {
+            verifier = new NodeSignatureVerifier(currentAddressBook, signatureVerificationThreadPool);
+            verifierAddressBook = currentAddressBook;
+        }
+        return verifier;
+    }
+
+    /**
+     * Reads the hash of the given {@code file} and the previous file hash it contains. Subclasses whose file type can
+     * produce both in a single pass should override this.
+     *
+     * @return the file hash, or null if it could not be calculated, and the previous file hash
+     */
+    protected Pair<byte[], String> readHashes(File file) {
+        String filePath = file.getAbsolutePath();
+        return Pair.of(Utility.getFileHash(filePath), getPrevFileHash(filePath));
+    }
+
+    /**
+     * Same as {@link #readHashes(File)} for a file that was downloaded into memory. Subclasses that can calculate the
+     * hashes from the contents directly should override this, by default the contents are written to {@code file}
+     * first.
+     *
+     * @return the file hash, or null if it could not be calculated, and the previous file hash
+     */
+    protected Pair<byte[], String> readHashes(File file, byte[] contents) {
+        try {
+            Files.write(file.toPath(), contents);
+        } catch (IOException e) {
+            log.error("Failed writing file {}", file, e);
+            return Pair.of(null, null);
+        }
+        return readHashes(file);
+    }
+
+    /**
+     * Verifies that prevFileHash in given {@code file} matches that in application repository.
+     */
+    protected boolean verifyHashChain(File file, String prevFileHash) {
         String filePath = file.getAbsolutePath();
-        String lastValidFileHash = applicationStatusRepository.findByStatusCode(getLastValidDownloadedFileHashKey());
-        String bypassMismatch = applicationStatusRepository.findByStatusCode(getBypassHashKey());
-        String prevFileHash = getPrevFileHash(filePath);
+        String lastValidFileHash = ingestionState.get(getLastValidDownloadedFileHashKey());
+        String bypassMismatch = ingestionState.get(getBypassHashKey());
 
         if (prevFileHash == null) {
             log.warn("Doesn't contain valid previous file hash: {}", filePath);
@@ -367,26 +728,47 @@ public abstract class Downloader {
         return false;
     }
 
-    private File downloadSignedDataFile(File sigFile) {
+    private PendingDownload downloadSignedDataFileAsync(File sigFile) {
         String fileName = sigFile.getName().replace("_sig", "");
         String s3Prefix = downloaderProperties.getPrefix();
 
         String nodeAccountId = Utility.getAccountIDStringFromFilePath(sigFile.getPath());
         String s3ObjectKey = s3Prefix + nodeAccountId + "/" + fileName;
 
-        Path localFile = downloaderProperties.getTempPath().resolve(fileName);
-        try {
-            var pendingDownload = saveToLocalAsync(s3ObjectKey, localFile);
-            pendingDownload.waitForCompletion();
-            if (pendingDownload.isDownloadSuccessful()) {
-                return pendingDownload.getFile();
-            } else {
-                log.error("Failed downloading {} from node {}", s3ObjectKey, nodeAccountId);
-            }
-        } catch (Exception ex) {
-            log.error("Failed downloading {} from node {}", s3ObjectKey, nodeAccountId, ex);
+        // Each node gets its own temp directory since the same file may be downloaded from several at once
+        Path localFile = downloaderProperties.getTempPath().resolve(nodeAccountId).resolve(fileName);
+        Utility.ensureDirectory(localFile.getParent());
+        return downloadAsync(nodeAccountId, s3ObjectKey, localFile);
+    }
+
+    /**
+     * The signatures of a batch of files listed after the marker
+     */
+    @Value
+    private static class SignatureBatch {
+        String marker;
+        Map<String, List<File>> sigFilesMap;
+        Map<File, byte[]> sigFileContents;
+
+        String getLastSigFileName() {
+            return sigFilesMap.keySet().stream().max(String::compareTo).orElse(null);
+        }
+    }
+
+    /**
+     * The valid signature files agreeing on the hash of a data file, along with the download of that data file from
+     * the first of their nodes
+     */
+    @Value
+    private static class VerifiedSignatures {
+        String sigFileName;
+        byte[] hash;
+        List<File> sigFiles;
+        PendingDownload firstDownload;
+
+        void cancel() {
+            firstDownload.getFuture().cancel(true);
         }
-        return null;
     }
 
     protected abstract ApplicationStatusCode getLastValidDownloadedFileKey();
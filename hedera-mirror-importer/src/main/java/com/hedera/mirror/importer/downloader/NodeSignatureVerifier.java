@@ -21,6 +21,7 @@ package com.hedera.mirror.importer.downloader;
  */
 
 import java.io.File;
+import java.security.GeneralSecurityException;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.util.ArrayList;
@@ -29,33 +30,49 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
 import lombok.extern.log4j.Log4j2;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.lang3.tuple.Pair;
 
-import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
-import com.hedera.mirror.importer.domain.NodeAddress;
+import com.hedera.mirror.importer.addressbook.AddressBook;
 import com.hedera.mirror.importer.util.Utility;
 
+/**
+ * Verifies signature files against the public keys of the nodes in an address book. Signatures are verified in
+ * parallel on the given executor, each thread reusing a {@link Signature} already initialized with the node's key.
+ * An instance should therefore be reused for as long as the address book it was created from is current.
+ */
 @Log4j2
 public class NodeSignatureVerifier {
 
+    private static final String SIGNATURE_ALGORITHM = "SHA384withRSA";
+    private static final String SIGNATURE_PROVIDER = "SunRsaSign";
+
     private final Map<String, PublicKey> nodeIDPubKeyMap;
+    private final Map<String, ThreadLocal<Signature>> nodeIDSignatureMap;
+    private final Executor executor;
 
-    public NodeSignatureVerifier(NetworkAddressBook networkAddressBook) {
-        nodeIDPubKeyMap = networkAddressBook
-                .load()
-                .stream()
-                .collect(Collectors.toMap(NodeAddress::getId, NodeAddress::getPublicKeyAsObject));
+    public NodeSignatureVerifier(AddressBook addressBook, Executor executor) {
+        this.executor = executor;
+        nodeIDPubKeyMap = addressBook.getPublicKeys();
+        nodeIDSignatureMap = new HashMap<>();
+        nodeIDPubKeyMap.forEach((nodeAccountID, publicKey) ->
+                nodeIDSignatureMap.put(nodeAccountID, ThreadLocal.withInitial(() -> newSignature(publicKey))));
     }
 
     /**
      * Verifies that the signature files are signed by corresponding node's PublicKey. For valid signature files, we
      * compare their Hashes to see if more than 2/3 Hashes match. If more than 2/3 Hashes match, we return a List of
-     * Files which contains this Hash.
+     * Files which contains this Hash. Verification stops as soon as one Hash is agreed by a super-majority, so the
+     * remaining signature files are neither verified nor returned.
      *
      * @param sigFiles a list of a sig files which have the same timestamp
      * @return Pair of <hash of valid data file, list of valid sig files>. Valid means the signature is valid and the
@@ -63,41 +80,74 @@ public class NodeSignatureVerifier {
      * empty list>.
      */
     public Pair<byte[], List<File>> verifySignatureFiles(List<File> sigFiles) {
+        return verifySignatureFiles(sigFiles, Utility::extractHashAndSigFromFile);
+    }
+
+    /**
+     * Same as {@link #verifySignatureFiles(List)} but reads the hash and signature of each signature file with the given
+     * function, e.g. from contents held in memory instead of from disk.
+     *
+     * @param sigFiles         a list of a sig files which have the same timestamp
+     * @param hashAndSigReader returns the hash and signature contained in a sig file, or null if it is invalid
+     * @return Pair of <hash of valid data file, list of valid sig files>
+     */
+    public Pair<byte[], List<File>> verifySignatureFiles(List<File> sigFiles,
+                                                         Function<File, Pair<byte[], byte[]>> hashAndSigReader) {
+        CompletionService<Pair<String, File>> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Pair<String, File>>> futures = new ArrayList<>(sigFiles.size());
+        for (File sigFile : sigFiles) {
+            futures.add(completionService.submit(() -> verifySignatureFile(sigFile, hashAndSigReader)));
+        }
+
         // If a signature is valid, we put the Hash in its content and its File to the map, to see if more than 2/3
         // valid signatures have the same Hash
         Map<String, Set<File>> hashToSigFiles = new HashMap<>();
-        for (File sigFile : sigFiles) {
-            Pair<byte[], byte[]> hashAndSig = Utility.extractHashAndSigFromFile(sigFile);
-            if (hashAndSig == null) {
-                continue;
-            }
-            String nodeAccountID = Utility.getAccountIDStringFromFilePath(sigFile.getPath());
-            if (verifySignature(hashAndSig.getLeft(), hashAndSig.getRight(), nodeAccountID, sigFile.getPath())) {
-                String hashString = Hex.encodeHexString(hashAndSig.getLeft());
-                hashToSigFiles
-                        .putIfAbsent(hashString, new HashSet<>());  // only one key present in common case, no
-                // efficiency issues.
-                hashToSigFiles.get(hashString).add(sigFile);
-            } else {
-                log.error("Invalid signature in file {}", sigFile.getPath());
-            }
-        }
+        try {
+            for (int i = 0; i < futures.size(); ++i) {
+                Pair<String, File> hashAndSigFile = completionService.take().get();
+                if (hashAndSigFile == null) {
+                    continue;
+                }
 
-        for (String key : hashToSigFiles.keySet()) {
-            if (Utility.greaterThanSuperMajorityNum(hashToSigFiles.get(key).size(),
-                    nodeIDPubKeyMap.size())) {
-                byte[] hash = null;
-                try {
-                    hash = Hex.decodeHex(key);
-                } catch (DecoderException e) {
-                    log.error("Error decoding hex string {}", key);
+                String hashString = hashAndSigFile.getLeft();
+                Set<File> validSigFiles = hashToSigFiles.computeIfAbsent(hashString, k -> new HashSet<>());
+                validSigFiles.add(hashAndSigFile.getRight());
+
+                if (Utility.greaterThanSuperMajorityNum(validSigFiles.size(), nodeIDPubKeyMap.size())) {
+                    return Pair.of(decodeHash(hashString), new ArrayList<>(validSigFiles));
                 }
-                return Pair.of(hash, new ArrayList<>(hashToSigFiles.get(key)));
             }
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while verifying signature files");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Error verifying signature files", e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(false));
         }
+
         return Pair.of(null, new ArrayList<>());
     }
 
+    /**
+     * @return the hex encoded hash and the signature file if its signature is valid, otherwise null
+     */
+    private Pair<String, File> verifySignatureFile(File sigFile,
+                                                   Function<File, Pair<byte[], byte[]>> hashAndSigReader) {
+        Pair<byte[], byte[]> hashAndSig = hashAndSigReader.apply(sigFile);
+        if (hashAndSig == null) {
+            return null;
+        }
+
+        String nodeAccountID = Utility.getAccountIDStringFromFilePath(sigFile.getPath());
+        if (verifySignature(hashAndSig.getLeft(), hashAndSig.getRight(), nodeAccountID, sigFile.getPath())) {
+            return Pair.of(Hex.encodeHexString(hashAndSig.getLeft()), sigFile);
+        }
+
+        log.error("Invalid signature in file {}", sigFile.getPath());
+        return null;
+    }
+
     /**
      * check whether the given signature is valid
      *
@@ -108,8 +158,8 @@ public class NodeSignatureVerifier {
      */
     private boolean verifySignature(byte[] data, byte[] signature,
                                     String nodeAccountID, String filePath) {
-        PublicKey publicKey = nodeIDPubKeyMap.get(nodeAccountID);
-        if (publicKey == null) {
+        ThreadLocal<Signature> threadLocalSignature = nodeIDSignatureMap.get(nodeAccountID);
+        if (threadLocalSignature == null) {
             log.warn("Missing PublicKey for node {}", nodeAccountID);
             return false;
         }
@@ -121,14 +171,35 @@ public class NodeSignatureVerifier {
 
         try {
             log.trace("Verifying signature of file {} with public key of node {}", filePath, nodeAccountID);
-            Signature sig = Signature.getInstance("SHA384withRSA", "SunRsaSign");
-            sig.initVerify(publicKey);
+            // verify() resets the instance to its initialized state, so it can be reused for the next file
+            Signature sig = threadLocalSignature.get();
             sig.update(data);
             return sig.verify(signature);
         } catch (Exception e) {
-            log.error("Failed to verify Signature: {}, PublicKey: {}, NodeID: {}, File: {}", signature, publicKey,
-                    nodeAccountID, filePath, e);
+            // Discard the instance in case the failure left it in an unknown state
+            threadLocalSignature.remove();
+            log.error("Failed to verify Signature: {}, PublicKey: {}, NodeID: {}, File: {}", signature,
+                    nodeIDPubKeyMap.get(nodeAccountID), nodeAccountID, filePath, e);
         }
         return false;
     }
+
+    private static Signature newSignature(PublicKey publicKey) {
+        try {
+            Signature sig = Signature.getInstance(SIGNATURE_ALGORITHM, SIGNATURE_PROVIDER);
+            sig.initVerify(publicKey);
+            return sig;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize signature verification", e);
+        }
+    }
+
+    private static byte[] decodeHash(String hashString) {
+        try {
+            return Hex.decodeHex(hashString);
+        } catch (DecoderException e) {
+            log.error("Error decoding hex string {}", hashString);
+            return null;
+        }
+    }
 }
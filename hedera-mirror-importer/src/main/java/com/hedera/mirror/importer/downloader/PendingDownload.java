@@ -23,30 +23,33 @@ package com.hedera.mirror.importer.downloader;
 import com.google.common.base.Stopwatch;
 
 import java.io.File;
-import java.util.concurrent.Future;
+import java.util.concurrent.CompletableFuture;
 
 import lombok.Value;
 import lombok.experimental.NonFinal;
 import lombok.extern.log4j.Log4j2;
-import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.core.ResponseBytes;
 
 /**
  * The results of a pending download from the AWS TransferManager. Call waitForCompletion() to wait for the transfer to
- * complete and get the status of whether it was successful or not.
+ * complete and get the status of whether it was successful or not. Downloads into memory expose the downloaded bytes
+ * once complete, while downloads to disk are written to the destination file.
  */
 @Log4j2
 @Value
 class PendingDownload {
-    Future<GetObjectResponse> future;
+    CompletableFuture<?> future;
     Stopwatch stopwatch;
     File file; // Destination file
     String s3key; // Source S3 key
     @NonFinal
+    byte[] bytes; // Downloaded contents if downloaded into memory
+    @NonFinal
     boolean alreadyWaited = false; // has waitForCompletion been called
     @NonFinal
     boolean downloadSuccessful;
 
-    PendingDownload(Future<GetObjectResponse> future, File file, String s3key) {
+    PendingDownload(CompletableFuture<?> future, File file, String s3key) {
         this.future = future;
         stopwatch = Stopwatch.createStarted();
         this.file = file;
@@ -62,7 +65,10 @@ class PendingDownload {
         }
         alreadyWaited = true;
         try {
-            future.get();
+            Object response = future.get();
+            if (response instanceof ResponseBytes) {
+                bytes = ((ResponseBytes<?>) response).asByteArray();
+            }
             log.debug("Finished downloading {} in {}", s3key, stopwatch);
             downloadSuccessful = true;
         } catch (InterruptedException e) {
@@ -23,23 +23,27 @@ package com.hedera.mirror.importer.downloader.balance;
 import java.io.File;
 import javax.inject.Named;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.scheduling.annotation.Scheduled;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 
 import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.downloader.Downloader;
-import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.repository.IngestionState;
+import com.hedera.mirror.importer.util.Utility;
 
 @Log4j2
 @Named
 public class AccountBalancesDownloader extends Downloader {
 
     public AccountBalancesDownloader(
-            S3AsyncClient s3Client, ApplicationStatusRepository applicationStatusRepository,
-            NetworkAddressBook networkAddressBook, BalanceDownloaderProperties downloaderProperties) {
-        super(s3Client, applicationStatusRepository, networkAddressBook, downloaderProperties);
+            S3AsyncClient s3Client, IngestionState ingestionState,
+            NetworkAddressBook networkAddressBook, BalanceDownloaderProperties downloaderProperties,
+            MeterRegistry meterRegistry) {
+        super(s3Client, ingestionState, networkAddressBook, downloaderProperties, meterRegistry);
     }
 
     @Override
@@ -49,10 +53,15 @@ public class AccountBalancesDownloader extends Downloader {
     }
 
     @Override
-    protected boolean verifyHashChain(File file) {
+    protected boolean verifyHashChain(File file, String prevFileHash) {
         return true;
     }
 
+    @Override
+    protected Pair<byte[], String> readHashes(File file, byte[] contents) {
+        return Pair.of(Utility.getHash(contents), null);
+    }
+
     @Override
     protected ApplicationStatusCode getLastValidDownloadedFileKey() {
         return ApplicationStatusCode.LAST_VALID_DOWNLOADED_BALANCE_FILE;
@@ -22,6 +22,7 @@ package com.hedera.mirror.importer.downloader.event;
 
 import javax.inject.Named;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.scheduling.annotation.Scheduled;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
@@ -30,16 +31,17 @@ import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.downloader.Downloader;
 import com.hedera.mirror.importer.parser.event.EventStreamFileParser;
-import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.repository.IngestionState;
 
 @Log4j2
 @Named
 public class EventStreamFileDownloader extends Downloader {
 
     public EventStreamFileDownloader(
-            S3AsyncClient s3Client, ApplicationStatusRepository applicationStatusRepository,
-            NetworkAddressBook networkAddressBook, EventDownloaderProperties downloaderProperties) {
-        super(s3Client, applicationStatusRepository, networkAddressBook, downloaderProperties);
+            S3AsyncClient s3Client, IngestionState ingestionState,
+            NetworkAddressBook networkAddressBook, EventDownloaderProperties downloaderProperties,
+            MeterRegistry meterRegistry) {
+        super(s3Client, ingestionState, networkAddressBook, downloaderProperties, meterRegistry);
     }
 
     @Override
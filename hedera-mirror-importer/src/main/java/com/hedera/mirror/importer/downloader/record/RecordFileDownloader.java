@@ -20,26 +20,38 @@ package com.hedera.mirror.importer.downloader.record;
  * ‍
  */
 
+import java.io.File;
+import java.nio.ByteBuffer;
 import javax.inject.Named;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.scheduling.annotation.Scheduled;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
 
 import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.downloader.Downloader;
-import com.hedera.mirror.importer.parser.record.RecordFileParser;
-import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.parser.record.ParsedRecordFile;
+import com.hedera.mirror.importer.parser.record.RecordFileQueue;
+import com.hedera.mirror.importer.parser.record.RecordFileReader;
+import com.hedera.mirror.importer.parser.record.ValidRecordFile;
+import com.hedera.mirror.importer.repository.IngestionState;
 
 @Log4j2
 @Named
 public class RecordFileDownloader extends Downloader {
 
+    private final RecordFileQueue recordFileQueue;
+
     public RecordFileDownloader(
-            S3AsyncClient s3Client, ApplicationStatusRepository applicationStatusRepository,
-            NetworkAddressBook networkAddressBook, RecordDownloaderProperties downloaderProperties) {
-        super(s3Client, applicationStatusRepository, networkAddressBook, downloaderProperties);
+            S3AsyncClient s3Client, IngestionState ingestionState,
+            NetworkAddressBook networkAddressBook, RecordDownloaderProperties downloaderProperties,
+            MeterRegistry meterRegistry, RecordFileQueue recordFileQueue) {
+        super(s3Client, ingestionState, networkAddressBook, downloaderProperties, meterRegistry);
+        this.recordFileQueue = recordFileQueue;
     }
 
     @Override
@@ -63,8 +75,35 @@ public class RecordFileDownloader extends Downloader {
         return ApplicationStatusCode.RECORD_HASH_MISMATCH_BYPASS_UNTIL_AFTER;
     }
 
+    @Override
+    protected void onValidFile(File file, byte[] hash, String prevFileHash, byte[] contents) {
+        recordFileQueue.offer(new ValidRecordFile(file, Hex.encodeHexString(hash), prevFileHash, contents));
+    }
+
+    @Override
+    protected Pair<byte[], String> readHashes(File file) {
+        try {
+            ParsedRecordFile recordFile = RecordFileReader.read(file, false);
+            return Pair.of(Hex.decodeHex(recordFile.getFileHash()), recordFile.getPreviousHash());
+        } catch (Exception e) {
+            log.error("Error reading hashes for file {}", file, e);
+            return Pair.of(null, null);
+        }
+    }
+
+    @Override
+    protected Pair<byte[], String> readHashes(File file, byte[] contents) {
+        try {
+            ParsedRecordFile recordFile = RecordFileReader.read(file.getPath(), ByteBuffer.wrap(contents), null);
+            return Pair.of(Hex.decodeHex(recordFile.getFileHash()), recordFile.getPreviousHash());
+        } catch (Exception e) {
+            log.error("Error reading hashes for file {}", file, e);
+            return Pair.of(null, null);
+        }
+    }
+
     @Override
     protected String getPrevFileHash(String filePath) {
-        return RecordFileParser.readPrevFileHash(filePath);
+        return readHashes(new File(filePath)).getRight();
     }
 }
@@ -26,6 +26,11 @@ import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 
 import lombok.RequiredArgsConstructor;
@@ -37,14 +42,29 @@ import org.springframework.scheduling.annotation.Async;
 
 import com.hedera.mirror.importer.util.ShutdownHelper;
 
+/**
+ * Watches the valid directory of a stream and hands the files that appear in it to the parser. The whole directory is
+ * only scanned on startup, for the files that arrived while this process was down, and when the watch service reports
+ * that events were lost. Otherwise only the files named by the create and modify events are processed. A file is
+ * considered complete once it has had no events for the debounce period, and complete files are passed on in order of
+ * their names, which start with their timestamps, up to the first file that is still being written. Files the parser
+ * could not process are retried after another debounce period.
+ */
 @RequiredArgsConstructor
 public abstract class FileWatcher {
 
+    private static final long POLL_MILLIS = 100L;
+
     protected final Logger log = LogManager.getLogger(getClass());
     protected final ParserProperties parserProperties;
 
     protected abstract boolean isEnabled();
 
+    /**
+     * @return how long a file must go without events before it is processed
+     */
+    protected abstract Duration getDebounce();
+
     @Async
     @EventListener(ApplicationReadyEvent.class)
     public void watch() {
@@ -54,19 +74,24 @@ public abstract class FileWatcher {
             return;
         }
 
-        // Invoke on startup to check for any changed files while this process was down.
-        onCreate();
-
         try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
             log.info("Watching directory for changes: {}", path);
             WatchKey rootKey = path
                     .register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
             boolean valid = rootKey.isValid();
 
+            // Invoke on startup to check for any changed files while this process was down. The directory is already
+            // watched so files created during the scan aren't missed.
+            onStartup();
+
+            long debounceNanos = getDebounce().toNanos();
+            // Time of the last event of each file that hasn't been processed yet, ordered by file name
+            TreeMap<Path, Long> pending = new TreeMap<>();
+
             while (valid && isEnabled()) {
                 WatchKey key;
                 try {
-                    key = watcher.poll(100, TimeUnit.MILLISECONDS);
+                    key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
                 } catch (InterruptedException e) {
                     continue;
                 }
@@ -75,27 +100,71 @@ public abstract class FileWatcher {
                     return;
                 }
 
-                if (key == null) {
-                    continue;
-                }
+                if (key != null) {
+                    boolean overflow = false;
+                    long now = System.nanoTime();
+
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else {
+                            pending.put(path.resolve((Path) event.context()), now);
+                        }
+                    }
 
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    WatchEvent.Kind<?> kind = event.kind();
+                    valid = key.reset();
 
-                    if (kind == StandardWatchEventKinds.OVERFLOW) {
-                        log.error("File watching events may have been lost or discarded");
+                    if (overflow) {
+                        log.warn("File watching events may have been lost or discarded, rescanning {}", path);
+                        pending.clear();
+                        onStartup();
                         continue;
                     }
-
-                    onCreate();
                 }
 
-                valid = key.reset();
+                List<Path> files = takeCompleteFiles(pending, debounceNanos);
+                if (!files.isEmpty()) {
+                    long now = System.nanoTime();
+                    for (Path file : onCreate(files)) {
+                        pending.put(file, now);
+                    }
+                }
             }
         } catch (Exception e) {
             log.error("Error starting watch service", e);
         }
     }
 
-    public abstract void onCreate();
+    /**
+     * Removes and returns the files that haven't had an event for the debounce period, stopping at the first file
+     * that has so that files are processed in order.
+     */
+    private static List<Path> takeCompleteFiles(TreeMap<Path, Long> pending, long debounceNanos) {
+        List<Path> files = new ArrayList<>();
+        long now = System.nanoTime();
+
+        for (var iterator = pending.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (now - entry.getValue() < debounceNanos) {
+                break;
+            }
+            files.add(entry.getKey());
+            iterator.remove();
+        }
+
+        return files;
+    }
+
+    /**
+     * Processes all the files in the directory
+     */
+    public abstract void onStartup();
+
+    /**
+     * Processes the given files, in order, that were created or modified in the directory. A file may no longer exist
+     * if it was already processed by a rescan.
+     *
+     * @return the files that could not be processed yet and should be retried
+     */
+    public abstract List<Path> onCreate(List<Path> files);
 }
@@ -0,0 +1,204 @@
+package com.hedera.mirror.importer.parser.balance;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import lombok.Getter;
+
+/**
+ * Parses account balance CSV lines (shardNum,realmNum,accountNum,balance) straight from bytes into primitives and
+ * encodes them as rows in the PostgreSQL COPY text format, without allocating anything per line. Since the columns are
+ * validated while parsing, rows are encoded by copying the column digits rather than formatting the primitives again.
+ * A parser holds the last parsed line, so each thread needs its own instance.
+ */
+public final class AccountBalanceLineParser {
+
+    /**
+     * The longest encoded row: a 20 character timestamp and balance, a 6 character realm and an 11 character number
+     * plus the separators.
+     */
+    public static final int MAX_ROW_LENGTH = 64;
+
+    private final long systemShardNum;
+    private final byte[] rowPrefix;
+    private final int[] columnStarts = new int[4];
+    private final int[] columnEnds = new int[4];
+    private ByteBuffer buffer;
+
+    @Getter
+    private long shardNum;
+    @Getter
+    private short realmNum;
+    @Getter
+    private int accountNum;
+    @Getter
+    private long balance;
+    private boolean invalidShard;
+    private int position;
+
+    /**
+     * @param consensusTimestamp the consensus timestamp of the balance file, which starts every row
+     */
+    public AccountBalanceLineParser(long systemShardNum, long consensusTimestamp) {
+        this.systemShardNum = systemShardNum;
+        rowPrefix = (consensusTimestamp + "\t").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses the line between start (inclusive) and end (exclusive), which must not contain the line terminator.
+     *
+     * @return true if the line is a valid balance for the system shard; false, with getInvalidReason() describing why.
+     */
+    public boolean parse(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        invalidShard = false;
+        position = start;
+
+        long shard = parseColumn(buffer, 0, end, Long.MIN_VALUE, Long.MAX_VALUE);
+        long realm = parseColumn(buffer, 1, end, Short.MIN_VALUE, Short.MAX_VALUE);
+        long num = parseColumn(buffer, 2, end, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        long amount = parseColumn(buffer, 3, end, Long.MIN_VALUE, Long.MAX_VALUE);
+
+        // Each column consumes its trailing separator, so a valid line ends exactly one past the end
+        if (position != end + 1) {
+            position = -1;
+            return false;
+        }
+
+        shardNum = shard;
+        realmNum = (short) realm;
+        accountNum = (int) num;
+        balance = amount;
+
+        if (shard != systemShardNum) {
+            invalidShard = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the reason the last parsed line is invalid, in the form used by the account balance error messages
+     */
+    public String getInvalidReason() {
+        return invalidShard ? "Invalid shardNum " + shardNum : "Invalid line";
+    }
+
+    /**
+     * Encodes the last parsed line as a COPY text format row (tab separated and newline terminated). The buffer the
+     * line was parsed from must not have changed since.
+     *
+     * @return the offset in the destination after the row. At least MAX_ROW_LENGTH bytes must be available.
+     */
+    public int writeRow(byte[] destination, int offset) {
+        System.arraycopy(rowPrefix, 0, destination, offset, rowPrefix.length);
+        offset += rowPrefix.length;
+        offset = writeColumn(1, realmNum < 0, destination, offset);
+        destination[offset++] = '\t';
+        offset = writeColumn(2, accountNum < 0, destination, offset);
+        destination[offset++] = '\t';
+        offset = writeColumn(3, balance < 0, destination, offset);
+        destination[offset++] = '\n';
+        return offset;
+    }
+
+    /**
+     * @return the line as a string, only needed to report invalid lines.
+     */
+    public static String toString(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.duplicate().position(start).get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Parses a decimal column with an optional sign, ending at a comma or at the end of the line, and moves the
+     * position past the separator. Sets the position to -1 if the column is empty, not numeric or out of range.
+     */
+    private long parseColumn(ByteBuffer buffer, int column, int end, long min, long max) {
+        if (position < 0 || position >= end) {
+            position = -1;
+            return 0;
+        }
+
+        int i = position;
+        boolean negative = false;
+        byte first = buffer.get(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            ++i;
+        }
+
+        // Accumulate negatively so that Long.MIN_VALUE can be represented
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        int digits = 0;
+        int significantStart = -1;
+
+        for (; i < end; ++i) {
+            byte b = buffer.get(i);
+            if (b == ',') {
+                break;
+            }
+
+            int digit = b - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                position = -1;
+                return 0;
+            }
+
+            result *= 10;
+            if (result < limit + digit) {
+                position = -1;
+                return 0;
+            }
+            result -= digit;
+            ++digits;
+            if (significantStart < 0 && digit != 0) {
+                significantStart = i;
+            }
+        }
+
+        if (digits == 0) {
+            position = -1;
+            return 0;
+        }
+
+        // Leading zeros are dropped so the copied digits never exceed the length of the largest value
+        columnStarts[column] = significantStart >= 0 ? significantStart : i - 1;
+        columnEnds[column] = i;
+        position = i + 1;
+        return negative ? result : -result;
+    }
+
+    private int writeColumn(int column, boolean negative, byte[] destination, int offset) {
+        if (negative) {
+            destination[offset++] = '-';
+        }
+        for (int i = columnStarts[column]; i < columnEnds[column]; ++i) {
+            destination[offset++] = buffer.get(i);
+        }
+        return offset;
+    }
+}
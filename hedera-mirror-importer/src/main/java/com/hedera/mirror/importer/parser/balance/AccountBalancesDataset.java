@@ -41,4 +41,9 @@ public interface AccountBalancesDataset extends AutoCloseable {
     Instant getConsensusTimestamp();
 
     Stream<NumberedLine> getRecordStream();
+
+    /**
+     * @return the number of lines read so far, which is the number of header lines until the record stream is consumed
+     */
+    int getLineNumber();
 }
@@ -25,34 +25,58 @@ import com.google.common.base.Stopwatch;
 import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.stream.Stream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import lombok.Getter;
+import lombok.Value;
 import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 import com.hedera.mirror.importer.exception.InvalidDatasetException;
 import com.hedera.mirror.importer.util.DatabaseUtilities;
 import com.hedera.mirror.importer.util.TimestampConverter;
 
 /**
- * Parse an account balances file and load it into the database.
+ * Parse an account balances file and load it into the database. The lines after the header are split into newline
+ * aligned byte ranges that are parsed and copied in parallel, each on its own database connection, straight into the
+ * daily account_balances partition of the set. The balance set is only marked complete once every range has been
+ * loaded successfully.
  */
 @Log4j2
 public final class AccountBalancesFileLoader implements AutoCloseable {
+    private static final String COPY_BALANCES = "copy %s (consensus_timestamp, account_realm_num, account_num, " +
+            "balance) from stdin";
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
     private final Path filePath;
     private final Instant filenameTimestamp;
     private final AccountBalancesDataset dataset;
     private final TimestampConverter timestampConverter = new TimestampConverter();
     private final int insertBatchSize;
+    private final int threads;
+    private final boolean deltaEncoded;
+    private final int keyframeInterval;
+    private final Duration retention;
     private final long systemShardNum;
-    @Getter
-    private int validRowCount;
+    private final AtomicInteger validRowCount = new AtomicInteger();
     private boolean loaded;
 
     /**
@@ -73,75 +97,139 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
                 .toFile())), balanceProperties.getFileBufferSize());
         dataset = new AccountBalancesDatasetV2(filePath.getFileName().toString(), reader);
         insertBatchSize = balanceProperties.getBatchSize();
+        threads = balanceProperties.getThreads();
+        deltaEncoded = balanceProperties.isDeltaEncoded();
+        keyframeInterval = balanceProperties.getKeyframeInterval();
+        retention = balanceProperties.getRetention();
+    }
+
+    public int getValidRowCount() {
+        return validRowCount.get();
     }
 
     /**
-     * Process a line (CSV account balance line) and insert it into the DB (or skip it if empty).
+     * Parses the lines between the buffer's position and limit and copies them to the database using a connection of
+     * its own. Invalid lines are skipped and reported with their line number relative to the start of the range, since
+     * the number of lines in the preceding ranges is not known until they have been scanned. If there is a base
+     * snapshot, only the balances that differ from it are copied.
      */
-    private void processLine(PreparedStatement ps, long consensusTimestamp, NumberedLine line)
-            throws InvalidDatasetException, SQLException {
-        String[] cols = line.getValue().split(",");
-        if (4 != cols.length) {
-            throw new InvalidDatasetException(String.format(
-                    "Invalid line in account balances file %s:line(%d):%s",
-                    filePath, line.getLineNumber(), line.getValue()));
+    private ChunkResult loadChunk(ByteBuffer buffer, String partition, long consensusTimestamp, BaseBalances base) {
+        var parser = new AccountBalanceLineParser(systemShardNum, consensusTimestamp);
+        List<InvalidLine> invalidLines = new ArrayList<>();
+        byte[] rows = new byte[insertBatchSize * AccountBalanceLineParser.MAX_ROW_LENGTH];
+        int length = 0;
+        int lines = 0;
+        int copied = 0;
+        int matched = 0;
+        int limit = buffer.limit();
+
+        try (Connection conn = DatabaseUtilities.getConnection()) {
+            CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(String.format(COPY_BALANCES, partition));
+            try {
+                int start = buffer.position();
+                while (start < limit) {
+                    int end = start;
+                    while (end < limit && !isLineTerminator(buffer.get(end))) {
+                        ++end;
+                    }
+                    ++lines;
+
+                    if (end > start) {
+                        if (parser.parse(buffer, start, end)) {
+                            validRowCount.incrementAndGet();
+                            int index = base != null ? base.indexOf(parser.getRealmNum(), parser.getAccountNum()) : -1;
+                            if (index >= 0) {
+                                ++matched;
+                            }
+
+                            if (index < 0 || base.getBalance(index) != parser.getBalance()) {
+                                if (length + AccountBalanceLineParser.MAX_ROW_LENGTH > rows.length) {
+                                    copyIn.writeToCopy(rows, 0, length);
+                                    length = 0;
+                                }
+                                length = parser.writeRow(rows, length);
+                                ++copied;
+                            }
+                        } else {
+                            invalidLines.add(new InvalidLine(lines, AccountBalanceLineParser
+                                    .toString(buffer, start, end), parser.getInvalidReason()));
+                        }
+                    }
+                    start = end < limit ? nextLine(buffer, end) : limit;
+                }
+
+                if (length > 0) {
+                    copyIn.writeToCopy(rows, 0, length);
+                }
+                copyIn.endCopy();
+                return new ChunkResult(lines, invalidLines, copied, matched, true);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Error copying account balances from {}", filePath, e);
+            return new ChunkResult(lines, invalidLines, copied, matched, false);
         }
+    }
 
-        var shardNum = Long.valueOf(cols[0]);
-        if (shardNum != systemShardNum) {
-            throw new InvalidDatasetException(String.format(
-                    "Invalid shardNum %d in account balances file %s:line(%d):%s",
-                    shardNum, filePath, line.getLineNumber(), line.getValue()));
+    /**
+     * Splits the lines after the header into at most one byte range per thread. Each range ends right after a line
+     * terminator, so no line is split across ranges.
+     */
+    private List<ByteBuffer> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Account balances file " + filePath + " is too large to map: " + size);
         }
 
-        try {
-            ps.setLong(1, consensusTimestamp);
-            ps.setShort(2, Short.valueOf(cols[1])); // realm_num
-            ps.setInt(3, Integer.valueOf(cols[2])); // num
-            ps.setLong(4, Long.valueOf(cols[3])); // balance (hbar_tinybars);
-            ps.addBatch();
-        } catch (NumberFormatException e) {
-            throw new InvalidDatasetException(String.format("Invalid line in account balances file %s:line(%d):%s",
-                    filePath, line.getLineNumber(), line.getValue()));
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        int limit = buffer.limit();
+        int start = skipLines(buffer, dataset.getLineNumber());
+        int chunkSize = Math.max(1, (limit - start) / threads);
+        List<ByteBuffer> chunks = new ArrayList<>(threads);
+
+        for (int i = 0; i < threads && start < limit; ++i) {
+            int end = i == threads - 1 ? limit : nextLine(buffer, (int) Math.min(limit, (long) start + chunkSize));
+            chunks.add(buffer.duplicate().position(start).limit(end));
+            start = end;
         }
+        return chunks;
     }
 
     /**
-     * @return true if all lines in the stream were successfully inserted; false, if any errors were seen.
+     * @return the offset of the first line after the given number of lines, treating line terminators the same way as
+     * BufferedReader.readLine()
      */
-    private boolean processRecordStream(PreparedStatement ps, long consensusTimestamp,
-                                        Stream<NumberedLine> stream) {
-        var state = new Object() {
-            int recordsInCurrentBatch = 0;
-            boolean insertSuccess = true;
-        };
-        stream.forEachOrdered((line) -> {
-            try {
-                if (line.getValue().isEmpty()) {
-                    return;
-                }
-                processLine(ps, consensusTimestamp, line);
-                ++validRowCount;
-                ++state.recordsInCurrentBatch;
-                if (state.recordsInCurrentBatch >= insertBatchSize) {
-                    state.recordsInCurrentBatch = 0;
-                    ps.executeBatch();
-                }
-            } catch (InvalidDatasetException | SQLException e) {
-                log.error(e);
-                state.insertSuccess = false;
-            }
-        });
-        // Process any remaining insert batches.
-        if (state.recordsInCurrentBatch > 0) {
-            try {
-                ps.executeBatch();
-            } catch (SQLException e) {
-                log.error(e);
-                state.insertSuccess = false;
+    private static int skipLines(ByteBuffer buffer, int lines) {
+        int position = 0;
+        for (int i = 0; i < lines && position < buffer.limit(); ++i) {
+            position = nextLine(buffer, position);
+        }
+        return position;
+    }
+
+    /**
+     * @return the offset right after the next line terminator at or after the given offset, or the limit if there is
+     * none. A carriage return followed by a line feed is a single terminator.
+     */
+    private static int nextLine(ByteBuffer buffer, int offset) {
+        int limit = buffer.limit();
+        for (int i = offset; i < limit; ++i) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                return i + 1;
+            } else if (b == '\r') {
+                return i + 1 < limit && buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
             }
         }
-        return state.insertSuccess;
+        return limit;
+    }
+
+    private static boolean isLineTerminator(byte b) {
+        return b == '\n' || b == '\r';
     }
 
     /**
@@ -170,47 +258,294 @@ public final class AccountBalancesFileLoader implements AutoCloseable {
 
         //
         // 1) insert row into account_balance_sets.
-        // 2) stream insert all the account_balances records.
-        // 3) update/close the account_balance_set.
+        // 2) copy all the account_balances records in parallel, or only the changed ones if delta encoded.
+        // 3) update/close the account_balance_set once every range has been copied.
         //
         log.info("Starting processing account balances file {}", filePath);
         var stopwatch = Stopwatch.createStarted();
-        try (Connection conn = DatabaseUtilities.getConnection()) {
-            Stream<NumberedLine> stream = dataset.getRecordStream();
-
-            var insertSet = conn.prepareStatement(
-                    "insert into account_balance_sets (consensus_timestamp) values (?) on conflict do nothing " +
-                            "returning is_complete, processing_start_timestamp;");
-            var insertBalance = conn.prepareStatement(
-                    "insert into account_balances (consensus_timestamp, account_realm_num, account_num, balance) " +
-                            "values (?, ?, ?, ?) on conflict do nothing;");
-            var updateSet = conn.prepareStatement(
-                    "update account_balance_sets set is_complete = true, processing_end_timestamp = now() at time " +
-                            "zone 'utc' where consensus_timestamp = ? and is_complete = false;");
-
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (Connection conn = DatabaseUtilities.getConnection();
+             FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ);
+             var insertSet = conn.prepareStatement(
+                     "insert into account_balance_sets (consensus_timestamp) values (?) on conflict do nothing " +
+                             "returning is_complete, processing_start_timestamp;");
+             var updateSet = conn.prepareStatement(
+                     "update account_balance_sets set is_complete = true, processing_end_timestamp = now() at time " +
+                             "zone 'utc' where consensus_timestamp = ? and is_complete = false;")) {
             insertSet.setLong(1, longConsensusTimestamp);
-            insertSet.execute();
+            try (var resultSet = insertSet.executeQuery()) {
+                if (!resultSet.next()) {
+                    if (isSetComplete(conn, longConsensusTimestamp)) {
+                        log.info("Account balance set {} is already complete, skipping account balances file {}",
+                                longConsensusTimestamp, filePath);
+                        return true;
+                    }
+                    resetSet(conn, longConsensusTimestamp);
+                }
+            }
+
+            String partition = createPartitions(conn, longConsensusTimestamp);
+            BaseBalances base = deltaEncoded ? loadBase(conn, longConsensusTimestamp) : null;
+            CopyResult result = copyBalances(executor, channel, partition, longConsensusTimestamp, base);
+
+            if (result.isSuccess() && base != null && result.getMatched() < base.size()) {
+                // Delta encoding can't represent an account that disappeared, so store every balance instead
+                log.info("{} accounts missing from account balances file {}, storing every balance",
+                        base.size() - result.getMatched(), filePath);
+                resetSet(conn, longConsensusTimestamp);
+                validRowCount.set(0);
+                base = null;
+                result = copyBalances(executor, channel, partition, longConsensusTimestamp, null);
+            }
 
-            if (processRecordStream(insertBalance, longConsensusTimestamp, stream)) {
+            if (result.isSuccess()) {
                 updateSet.setLong(1, longConsensusTimestamp);
                 updateSet.execute();
-                log.info("Successfully processed account balances file {} with {} records in {}", filePath,
-                        validRowCount, stopwatch);
+                dropPartitions(conn, longConsensusTimestamp);
+                log.info("Successfully processed account balances file {} with {} records ({} stored{}) in {} " +
+                                "using {} threads", filePath, validRowCount, result.getCopied(),
+                        base != null ? " as a delta" : "", stopwatch, result.getRanges());
                 return true;
             } else {
                 log.error("ERRORS processing account balances file {} with {} records in {}", filePath,
                         validRowCount, stopwatch);
             }
-        } catch (SQLException | InvalidDatasetException e) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted processing account balances file {}", filePath, e);
+        } catch (IOException | SQLException e) {
             log.error("Exception processing account balances file {}", filePath, e);
+        } finally {
+            executor.shutdownNow();
         }
         return false;
     }
 
+    /**
+     * Splits the file into ranges and copies them in parallel, waiting for every range even after a failure so nothing
+     * is still copying when this returns.
+     */
+    private CopyResult copyBalances(ExecutorService executor, FileChannel channel, String partition,
+                                    long consensusTimestamp, BaseBalances base)
+            throws IOException, InterruptedException {
+        List<Future<ChunkResult>> results = new ArrayList<>();
+        for (ByteBuffer chunk : split(channel)) {
+            results.add(executor.submit(() -> loadChunk(chunk, partition, consensusTimestamp, base)));
+        }
+
+        boolean success = true;
+        long copied = 0;
+        long matched = 0;
+        int lineNumber = dataset.getLineNumber();
+        for (Future<ChunkResult> result : results) {
+            try {
+                ChunkResult chunkResult = result.get();
+                for (InvalidLine invalidLine : chunkResult.getInvalidLines()) {
+                    log.error(new InvalidDatasetException(String.format(
+                            "%s in account balances file %s:line(%d):%s", invalidLine.getReason(), filePath,
+                            lineNumber + invalidLine.getLineNumber(), invalidLine.getLine())));
+                }
+                success &= chunkResult.isSuccess() && chunkResult.getInvalidLines().isEmpty();
+                lineNumber += chunkResult.getLines();
+                copied += chunkResult.getCopied();
+                matched += chunkResult.getMatched();
+            } catch (ExecutionException e) {
+                log.error("Exception loading account balances from {}", filePath, e.getCause());
+                success = false;
+            }
+        }
+        return new CopyResult(success, copied, matched, results.size());
+    }
+
+    /**
+     * Creates the daily account_balances partition for the set and the one after it, so the next day's partition
+     * already exists before its first set arrives.
+     *
+     * @return the name of the partition to copy the set's balances into
+     */
+    private String createPartitions(Connection conn, long consensusTimestamp) throws SQLException {
+        try (var createPartition = conn.prepareStatement("select account_balances_partition(?)")) {
+            String partition = null;
+            for (long timestamp : new long[] {consensusTimestamp, consensusTimestamp + DAY_NANOS}) {
+                createPartition.setLong(1, timestamp);
+                try (var resultSet = createPartition.executeQuery()) {
+                    resultSet.next();
+                    partition = partition == null ? resultSet.getString(1) : partition;
+                }
+            }
+            return partition;
+        }
+    }
+
+    /**
+     * Drops the partitions older than the retention period relative to the set that was just loaded.
+     */
+    private void dropPartitions(Connection conn, long consensusTimestamp) throws SQLException {
+        if (retention.isZero()) {
+            return;
+        }
+
+        try (var dropPartitions = conn.prepareStatement("select drop_account_balances_partitions(?)")) {
+            dropPartitions.setLong(1, consensusTimestamp - retention.toNanos());
+            try (var resultSet = dropPartitions.executeQuery()) {
+                resultSet.next();
+                int dropped = resultSet.getInt(1);
+                if (dropped > 0) {
+                    log.info("Dropped {} account balance partitions older than {}", dropped, retention);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the snapshot a delta encoded set is stored relative to, which is the latest complete set before it unless
+     * the chain of sets needed to rebuild that set has reached the keyframe interval or is broken. Records the base on
+     * the set and loads the base balances sorted by account.
+     *
+     * @return the base balances or null if every balance should be stored
+     */
+    private BaseBalances loadBase(Connection conn, long consensusTimestamp) throws SQLException {
+        Long baseTimestamp = null;
+        try (var findBase = conn.prepareStatement("select consensus_timestamp, (select count(*) from " +
+                "account_balance_set_chain(s.consensus_timestamp)) from account_balance_sets s where is_complete = " +
+                "true and consensus_timestamp < ? order by consensus_timestamp desc limit 1")) {
+            findBase.setLong(1, consensusTimestamp);
+            try (var resultSet = findBase.executeQuery()) {
+                // An empty chain means the set can't be rebuilt, so write a keyframe instead
+                if (resultSet.next() && resultSet.getLong(2) > 0 && resultSet.getLong(2) < keyframeInterval) {
+                    baseTimestamp = resultSet.getLong(1);
+                }
+            }
+        }
+
+        try (var updateBase = conn.prepareStatement(
+                "update account_balance_sets set base_timestamp = ? where consensus_timestamp = ?")) {
+            updateBase.setObject(1, baseTimestamp);
+            updateBase.setLong(2, consensusTimestamp);
+            updateBase.execute();
+        }
+
+        if (baseTimestamp == null) {
+            return null;
+        }
+
+        var stopwatch = Stopwatch.createStarted();
+        var base = new BaseBalances();
+        try (var selectBase = conn.prepareStatement("select account_realm_num, account_num, balance from " +
+                "account_balances_at(?) order by account_realm_num, account_num")) {
+            conn.setAutoCommit(false); // Fetch size is only honored in a transaction
+            selectBase.setFetchSize(10_000);
+            selectBase.setLong(1, baseTimestamp);
+            try (var resultSet = selectBase.executeQuery()) {
+                while (resultSet.next()) {
+                    base.add(resultSet.getShort(1), resultSet.getInt(2), resultSet.getLong(3));
+                }
+            }
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        log.info("Loaded {} base balances of set {} in {}", base.size(), baseTimestamp, stopwatch);
+        return base;
+    }
+
+    /**
+     * @return whether the existing balance set was completely loaded, in which case loading it again would only make
+     * its balances unavailable to readers while they are replaced
+     */
+    private boolean isSetComplete(Connection conn, long consensusTimestamp) throws SQLException {
+        try (var selectSet = conn.prepareStatement(
+                "select is_complete from account_balance_sets where consensus_timestamp = ?")) {
+            selectSet.setLong(1, consensusTimestamp);
+            try (var resultSet = selectSet.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * The balance set was partially loaded, so replace its balances since COPY can't skip existing rows.
+     */
+    private void resetSet(Connection conn, long consensusTimestamp) throws SQLException {
+        log.info("Reloading account balance set {}", consensusTimestamp);
+        try (var resetSet = conn.prepareStatement("update account_balance_sets set is_complete = false, " +
+                "processing_start_timestamp = now() at time zone 'utc', processing_end_timestamp = null, " +
+                "base_timestamp = null where consensus_timestamp = ?");
+             var deleteBalances = conn.prepareStatement(
+                     "delete from account_balances where consensus_timestamp = ?")) {
+            resetSet.setLong(1, consensusTimestamp);
+            resetSet.execute();
+            deleteBalances.setLong(1, consensusTimestamp);
+            deleteBalances.execute();
+        }
+    }
+
     @Override
     public void close() throws Exception {
         if (null != dataset) {
             dataset.close();
         }
     }
+
+    @Value
+    private static class ChunkResult {
+        int lines;
+        List<InvalidLine> invalidLines;
+        int copied;
+        int matched;
+        boolean success;
+    }
+
+    @Value
+    private static class CopyResult {
+        boolean success;
+        long copied;
+        long matched;
+        int ranges;
+    }
+
+    /**
+     * The balances of a base snapshot as primitive arrays sorted by account, so they can be shared by the range
+     * loaders without synchronization once loaded.
+     */
+    private static class BaseBalances {
+        private long[] accounts = new long[1024];
+        private long[] balances = new long[1024];
+        private int size;
+
+        /**
+         * Accounts must be added in (realm, num) order.
+         */
+        void add(short realmNum, int accountNum, long balance) {
+            if (size == accounts.length) {
+                accounts = Arrays.copyOf(accounts, size * 2);
+                balances = Arrays.copyOf(balances, size * 2);
+            }
+            accounts[size] = key(realmNum, accountNum);
+            balances[size++] = balance;
+        }
+
+        int indexOf(short realmNum, int accountNum) {
+            return Arrays.binarySearch(accounts, 0, size, key(realmNum, accountNum));
+        }
+
+        long getBalance(int index) {
+            return balances[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        // Preserves the (realm, num) order since every realm spans its own range of 2^32 keys
+        private static long key(short realmNum, int accountNum) {
+            return ((long) realmNum << 32) + accountNum;
+        }
+    }
+
+    @Value
+    private static class InvalidLine {
+        int lineNumber;
+        String line;
+        String reason;
+    }
 }
@@ -23,11 +23,22 @@ package com.hedera.mirror.importer.parser.balance;
 import com.google.common.base.Stopwatch;
 
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import javax.inject.Named;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 import com.hedera.mirror.importer.parser.FileWatcher;
 import com.hedera.mirror.importer.util.ShutdownHelper;
@@ -36,21 +47,92 @@ import com.hedera.mirror.importer.util.Utility;
 @Named
 public class BalanceFileParser extends FileWatcher {
 
-    public BalanceFileParser(BalanceParserProperties parserProperties) {
+    private final Counter balancesCounter;
+    private final Timer parseDurationTimer;
+
+    public BalanceFileParser(BalanceParserProperties parserProperties, MeterRegistry meterRegistry,
+                             DataSource dataSource) {
         super(parserProperties);
+        limitThreads(parserProperties, dataSource);
+        String type = parserProperties.getStreamType().toString();
+        balancesCounter = Counter.builder("hedera.mirror.parse.records")
+                .description("The number of records parsed and persisted")
+                .tag("type", type)
+                .register(meterRegistry);
+        parseDurationTimer = Timer.builder("hedera.mirror.parse.duration")
+                .description("The time it takes to persist a parsed file")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Each thread loading a balance file takes a connection of its own while the file's connection is held, and waits
+     * for a connection for as long as it takes. The threads are limited to one less than the connection pool size so
+     * that loading a file can't wait forever on itself.
+     */
+    private void limitThreads(BalanceParserProperties properties, DataSource dataSource) {
+        if (!(dataSource instanceof HikariDataSource)) {
+            return;
+        }
+
+        int maxThreads = Math.max(1, ((HikariDataSource) dataSource).getMaximumPoolSize() - 1);
+        if (properties.getThreads() > maxThreads) {
+            log.warn("Reducing hedera.mirror.parser.balance.threads from {} to {} to stay below the connection " +
+                    "pool size", properties.getThreads(), maxThreads);
+            properties.setThreads(maxThreads);
+        }
     }
 
     @Override
-    public void onCreate() {
+    public void onStartup() {
         processLastBalanceFile();
         processAllFilesForHistory();
     }
 
+    /**
+     * Loads the balance files in order, stopping at the first one that fails so that the balance history has no gaps.
+     * That file and the ones after it are returned to be retried.
+     */
+    @Override
+    public List<Path> onCreate(List<Path> files) {
+        for (int i = 0; i < files.size(); ++i) {
+            Path file = files.get(i);
+            if (ShutdownHelper.isStopping()) {
+                return Collections.emptyList();
+            }
+
+            // Skip signatures and files already processed by a rescan
+            if (!Utility.isBalanceFile(file.toString()) || !Files.exists(file)) {
+                continue;
+            }
+
+            try {
+                log.debug("Processing balance file {}", file);
+                if (loadBalanceFile(file.toFile())) {
+                    Utility.moveFileToParsedDir(file.toString(), "/parsedBalanceFiles/");
+                    continue;
+                }
+            } catch (Exception e) {
+                log.error("Error processing balance file {}", file, e);
+            }
+
+            log.warn("Retrying balance file {} and the {} files after it in {}", file, files.size() - i - 1,
+                    getDebounce());
+            return new ArrayList<>(files.subList(i, files.size()));
+        }
+        return Collections.emptyList();
+    }
+
     @Override
     protected boolean isEnabled() {
         return parserProperties.isEnabled();
     }
 
+    @Override
+    protected Duration getDebounce() {
+        return ((BalanceParserProperties) parserProperties).getDebounce();
+    }
+
     private File getLatestBalanceFile() throws IOException {
         File lastFile = null;
         // find all files in path
@@ -77,14 +159,15 @@ public class BalanceFileParser extends FileWatcher {
 
         try {
             File balanceFilePath = parserProperties.getValidPath().toFile();
-            File[] balanceFiles = balanceFilePath.listFiles();
+            File[] balanceFiles = balanceFilePath.listFiles((dir, name) -> Utility.isBalanceFile(name));
+            // sorted by name (timestamp)
+            Arrays.sort(balanceFiles);
 
             for (File balanceFile : balanceFiles) {
                 if (ShutdownHelper.isStopping()) {
                     throw new RuntimeException("Process is shutting down");
                 }
-                if (new AccountBalancesFileLoader((BalanceParserProperties) parserProperties, balanceFile.toPath())
-                        .loadAccountBalances()) {
+                if (loadBalanceFile(balanceFile)) {
                     // move it
                     Utility.moveFileToParsedDir(balanceFile.getCanonicalPath(), "/parsedBalanceFiles/");
                 }
@@ -107,8 +190,7 @@ public class BalanceFileParser extends FileWatcher {
 
             log.debug("Processing last balance file {}", balanceFile);
 
-            if (new AccountBalancesFileLoader((BalanceParserProperties) parserProperties, balanceFile.toPath())
-                    .loadAccountBalances()) {
+            if (loadBalanceFile(balanceFile)) {
                 // move it
                 Utility.moveFileToParsedDir(balanceFile.getCanonicalPath(), "/parsedBalanceFiles/");
             }
@@ -116,4 +198,15 @@ public class BalanceFileParser extends FileWatcher {
             log.error("Error processing balances files after {}", stopwatch, e);
         }
     }
+
+    private boolean loadBalanceFile(File balanceFile) throws FileNotFoundException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        var loader = new AccountBalancesFileLoader((BalanceParserProperties) parserProperties, balanceFile.toPath());
+        boolean loaded = loader.loadAccountBalances();
+        if (loaded) {
+            parseDurationTimer.record(stopwatch.elapsed());
+            balancesCounter.increment(loader.getValidRowCount());
+        }
+        return loaded;
+    }
 }
@@ -21,7 +21,9 @@ package com.hedera.mirror.importer.parser.balance;
  */
 
 import java.nio.file.Path;
+import java.time.Duration;
 import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
 
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -41,11 +43,25 @@ public class BalanceParserProperties implements ParserProperties {
     @Min(1)
     private int batchSize = 2000;
 
+    @NotNull
+    private Duration debounce = Duration.ofSeconds(1L);
+
+    private boolean deltaEncoded = false;
+
     private boolean enabled = true;
 
     @Min(1)
     private int fileBufferSize = 200_000;
 
+    @Min(1)
+    private int keyframeInterval = 96;
+
+    @NotNull
+    private Duration retention = Duration.ZERO;
+
+    @Min(1)
+    private int threads = 4;
+
     @Override
     public Path getStreamPath() {
         return mirrorProperties.getDataPath().resolve(getStreamType().getPath());
@@ -0,0 +1,49 @@
+package com.hedera.mirror.importer.parser.event;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.time.Instant;
+
+import lombok.Value;
+
+/**
+ * An event that has been read from an event stream file but not yet persisted. Hashes are the raw bytes of the hash
+ * and are null for a missing parent.
+ */
+@Value
+class Event {
+    long creatorId;
+    long creatorSeq;
+    long otherId;
+    long otherSeq;
+    long selfParentGen;
+    long otherParentGen;
+    byte[] selfParentHash;
+    byte[] otherParentHash;
+    int txsBytesCount;
+    int platformTxCount;
+    int appTxCount;
+    Instant timeCreated;
+    byte[] signature;
+    byte[] hash;
+    Instant consensusTimestamp;
+    long consensusOrder;
+}
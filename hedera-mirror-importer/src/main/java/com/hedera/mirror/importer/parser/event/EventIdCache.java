@@ -0,0 +1,113 @@
+package com.hedera.mirror.importer.parser.event;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maps an event hash to its t_events id so that parent events can be resolved without a database round trip. Parents
+ * are almost always in the same or the previous event file, so only the most recently inserted events are kept and
+ * the least recently used ones are evicted once the cache is full. Events that are not yet committed are tracked
+ * separately so a rollback can discard them without invalidating the rest of the cache. New ids are allocated from
+ * s_events_id_seq in blocks so that events can be inserted in batches with explicit ids.
+ */
+class EventIdCache {
+
+    static final long NOT_FOUND = -1;
+
+    private static final int ID_BLOCK_SIZE = 100;
+
+    private final Map<ByteBuffer, Long> committed;
+    private final Map<ByteBuffer, Long> pending = new HashMap<>();
+    private final long[] idBlock = new long[ID_BLOCK_SIZE];
+    private int idBlockPosition = ID_BLOCK_SIZE;
+
+    EventIdCache(int maxSize) {
+        committed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Long> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @return the event id or NOT_FOUND if the event is not cached
+     */
+    long get(byte[] hash) {
+        ByteBuffer key = ByteBuffer.wrap(hash);
+        Long id = pending.get(key);
+        if (id == null) {
+            id = committed.get(key);
+        }
+        return id != null ? id : NOT_FOUND;
+    }
+
+    void put(byte[] hash, long id) {
+        pending.put(ByteBuffer.wrap(hash), id);
+    }
+
+    /**
+     * Allocates a new event id from s_events_id_seq. Ids are fetched in blocks, and an id that is unused because its
+     * transaction rolled back just leaves a gap in the sequence like any other rolled back nextval.
+     */
+    long nextId(Connection connection) throws SQLException {
+        if (idBlockPosition >= ID_BLOCK_SIZE) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "select nextval('s_events_id_seq') from generate_series(1, " + ID_BLOCK_SIZE + ")")) {
+                int count = 0;
+                while (resultSet.next()) {
+                    idBlock[count++] = resultSet.getLong(1);
+                }
+                idBlockPosition = ID_BLOCK_SIZE - count;
+                System.arraycopy(idBlock, 0, idBlock, idBlockPosition, count);
+            }
+        }
+        return idBlock[idBlockPosition++];
+    }
+
+    /**
+     * Marks the events cached since the last commit as persisted.
+     */
+    void commit() {
+        committed.putAll(pending);
+        pending.clear();
+    }
+
+    /**
+     * Discards the events cached since the last commit, since they no longer exist after a rollback.
+     */
+    void rollback() {
+        pending.clear();
+    }
+
+    int size() {
+        return committed.size() + pending.size();
+    }
+}
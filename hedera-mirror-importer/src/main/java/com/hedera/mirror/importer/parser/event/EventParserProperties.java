@@ -22,6 +22,7 @@ package com.hedera.mirror.importer.parser.event;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import lombok.Data;
@@ -39,6 +40,9 @@ public class EventParserProperties implements ParserProperties {
 
     private final MirrorProperties mirrorProperties;
 
+    @Min(1)
+    private int cacheSize = 50000;
+
     private boolean enabled = false;
 
     @NotNull
@@ -46,7 +46,7 @@ import org.springframework.scheduling.annotation.Scheduled;
 
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.parser.FileParser;
-import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.repository.IngestionState;
 import com.hedera.mirror.importer.util.DatabaseUtilities;
 import com.hedera.mirror.importer.util.FileDelimiter;
 import com.hedera.mirror.importer.util.ShutdownHelper;
@@ -56,17 +56,23 @@ import com.hedera.mirror.importer.util.Utility;
 @Named
 public class EventStreamFileParser implements FileParser {
 
+    private static final int BATCH_SIZE = 1000;
     private static final Long PARENT_HASH_NULL = null;
     private static final long PARENT_HASH_NOT_FOUND_MATCH = -2;
     private static final String PARSED_DIR = "/parsedEventStreamFiles/";
     private static Connection connect = null;
-    private final ApplicationStatusRepository applicationStatusRepository;
+    private final IngestionState ingestionState;
     private final EventParserProperties parserProperties;
+    private final EventIdCache eventIdCache;
+    private PreparedStatement insertEvent;
+    private PreparedStatement selectEventId;
+    private int batchCount;
 
-    public EventStreamFileParser(ApplicationStatusRepository applicationStatusRepository,
+    public EventStreamFileParser(IngestionState ingestionState,
                                  EventParserProperties parserProperties) {
-        this.applicationStatusRepository = applicationStatusRepository;
+        this.ingestionState = ingestionState;
         this.parserProperties = parserProperties;
+        eventIdCache = new EventIdCache(parserProperties.getCacheSize());
     }
 
     /**
@@ -144,6 +150,8 @@ public class EventStreamFileParser implements FileParser {
         }
 
         Stopwatch stopwatch = Stopwatch.createStarted();
+        boolean committed = false;
+        String thisFileHash;
 
         try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
             md = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
@@ -177,8 +185,7 @@ public class EventStreamFileParser implements FileParser {
 
                         if (!Arrays.equals(new byte[48], readPrevFileHashBytes) && !readPrevFileHash.contentEquals(
                                 previousFileHash)) {
-                            if (applicationStatusRepository
-                                    .findByStatusCode(ApplicationStatusCode.EVENT_HASH_MISMATCH_BYPASS_UNTIL_AFTER)
+                            if (ingestionState.get(ApplicationStatusCode.EVENT_HASH_MISMATCH_BYPASS_UNTIL_AFTER)
                                     .compareTo(fileName) < 0) {
                                 // last file for which mismatch is allowed is in the past
                                 log.error("Hash mismatch for file {}. Previous = {}, Current = {}", fileName,
@@ -220,28 +227,51 @@ public class EventStreamFileParser implements FileParser {
                         log.error("Unknown record file delimiter {} for file", typeDelimiter, file);
                 }
             }
+
+            if (calculateContentHash) {
+                byte[] contentHash = mdForContent.digest();
+                md.update(contentHash);
+            }
+            thisFileHash = Utility.bytesToHex(md.digest());
+            if (!Utility.hashIsEmpty(thisFileHash)) {
+                ingestionState.write(connect, ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH, thisFileHash);
+            }
+
+            commit();
+            committed = true;
             log.info("Loaded {} events successfully from {} in {}", counter, fileName, stopwatch);
         } catch (Exception e) {
             log.error("Error parsing event file {} after {}", fileName, stopwatch, e);
             return LoadResult.ERROR;
+        } finally {
+            if (!committed) {
+                rollback();
+            }
         }
 
-        if (calculateContentHash) {
-            byte[] contentHash = mdForContent.digest();
-            md.update(contentHash);
-        }
-        String thisFileHash = Utility.bytesToHex(md.digest());
         if (!Utility.hashIsEmpty(thisFileHash)) {
-            applicationStatusRepository
-                    .updateStatusValue(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH, thisFileHash);
+            ingestionState.committed(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH, thisFileHash);
         }
         return LoadResult.OK;
     }
 
     private boolean loadEvent(DataInputStream dis, MessageDigest md, boolean noTxs) throws IOException {
+        Event event = readEvent(dis, md, noTxs);
+        return event != null && storeEvent(event);
+    }
+
+    /**
+     * Reads the next event from an event stream file without touching the database, adding its bytes to the digest.
+     *
+     * @param dis   the stream positioned after the event's delimiter
+     * @param md    the digest of the file or its content
+     * @param noTxs whether the delimiter indicated an event without transactions
+     * @return the event or null if it is not in the expected format
+     */
+    static Event readEvent(DataInputStream dis, MessageDigest md, boolean noTxs) throws IOException {
         if (dis.readInt() != FileDelimiter.EVENT_STREAM_VERSION) {
             log.error("EventStream format version doesn't match.");
-            return false;
+            return null;
         }
         md.update(Utility.integerToBytes(FileDelimiter.EVENT_STREAM_VERSION));
 
@@ -282,7 +312,7 @@ public class EventStreamFileParser implements FileParser {
         byte[] signature = readByteArray(dis, md);
         if (dis.readByte() != FileDelimiter.EVENT_COMM_EVENT_LAST) {
             log.warn("Event end marker incorrect");
-            return false;
+            return null;
         }
         md.update(FileDelimiter.EVENT_COMM_EVENT_LAST);
 
@@ -305,69 +335,40 @@ public class EventStreamFileParser implements FileParser {
                     Utility.bytesToHex(signature), Utility.bytesToHex(hash), consensusTimeStamp, consensusOrder);
         }
 
-        if (storeEvent(creatorId, creatorSeq, otherId, otherSeq, selfParentGen, otherParentGen, selfParentHash,
-                otherParentHash, counts, timeCreated, signature, hash, consensusTimeStamp, consensusOrder)) {
-            return true;
-        } else {
-            return false;
-        }
+        return new Event(creatorId, creatorSeq, otherId, otherSeq, selfParentGen, otherParentGen, selfParentHash,
+                otherParentHash, counts[0], counts[1], counts[2], timeCreated, signature, hash, consensusTimeStamp,
+                consensusOrder);
     }
 
     /**
      * Store parsed Event information into database
      *
-     * @param creatorId
-     * @param creatorSeq
-     * @param otherId
-     * @param otherSeq
-     * @param selfParentGen
-     * @param otherParentGen
-     * @param selfParentHash
-     * @param otherParentHash
-     * @param txCounts
-     * @param timeCreated
-     * @param signature
-     * @param hash
-     * @param consensusTimeStamp
-     * @param consensusOrder
-     * @return
+     * @param event the event read from the file
+     * @return true if the event was stored
      */
-    private boolean storeEvent(long creatorId, long creatorSeq, long otherId, long otherSeq, long selfParentGen,
-                               long otherParentGen, byte[] selfParentHash, byte[] otherParentHash, int[] txCounts,
-                               Instant timeCreated, byte[] signature, byte[] hash, Instant consensusTimeStamp,
-                               long consensusOrder) {
+    private boolean storeEvent(Event event) {
         try {
-            long generation = Math.max(selfParentGen, otherParentGen) + 1;
+            long generation = Math.max(event.getSelfParentGen(), event.getOtherParentGen()) + 1;
             Long self_parent_id = null;
-            if (selfParentHash != null) {
-                self_parent_id = getIdForParent(selfParentHash, "selfParentHash");
+            if (event.getSelfParentHash() != null) {
+                self_parent_id = getIdForParent(event.getSelfParentHash(), "selfParentHash");
             }
             Long other_parent_id = null;
-            if (otherParentHash != null) {
-                other_parent_id = getIdForParent(otherParentHash, "otherParentHash");
+            if (event.getOtherParentHash() != null) {
+                other_parent_id = getIdForParent(event.getOtherParentHash(), "otherParentHash");
             }
 
-            int txsBytesCount = txCounts[0];
-            int platformTxCount = txCounts[1];
-            int appTxCount = txCounts[2];
-
-            long timeCreatedInNanos = Utility.convertInstantToNanos(timeCreated);
-            long consensusTimestampInNanos = Utility.convertInstantToNanos(consensusTimeStamp);
-            PreparedStatement insertEvent = connect.prepareStatement(
-                    "insert into t_events (consensus_order, creator_node_id, creator_seq, other_node_id, other_seq, " +
-                            "self_parent_generation, other_parent_generation, generation, self_parent_id, " +
-                            "other_parent_id, created_timestamp_ns, signature, consensus_timestamp_ns, " +
-                            "txs_bytes_count, platform_tx_count, app_tx_count, latency_ns, hash, self_parent_hash, " +
-                            "other_parent_hash) "
-                            + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ");
-
-            insertEvent.setLong(1, consensusOrder);
-            insertEvent.setLong(2, creatorId);
-            insertEvent.setLong(3, creatorSeq);
-            insertEvent.setLong(4, otherId);
-            insertEvent.setLong(5, otherSeq);
-            insertEvent.setLong(6, selfParentGen);
-            insertEvent.setLong(7, otherParentGen);
+            long timeCreatedInNanos = Utility.convertInstantToNanos(event.getTimeCreated());
+            long consensusTimestampInNanos = Utility.convertInstantToNanos(event.getConsensusTimestamp());
+            long id = eventIdCache.nextId(connect);
+
+            insertEvent.setLong(1, event.getConsensusOrder());
+            insertEvent.setLong(2, event.getCreatorId());
+            insertEvent.setLong(3, event.getCreatorSeq());
+            insertEvent.setLong(4, event.getOtherId());
+            insertEvent.setLong(5, event.getOtherSeq());
+            insertEvent.setLong(6, event.getSelfParentGen());
+            insertEvent.setLong(7, event.getOtherParentGen());
             insertEvent.setLong(8, generation);
             if (self_parent_id != null && self_parent_id >= 0) {
                 insertEvent.setLong(9, self_parent_id);
@@ -380,18 +381,24 @@ public class EventStreamFileParser implements FileParser {
                 insertEvent.setNull(10, Types.BIGINT);
             }
             insertEvent.setLong(11, timeCreatedInNanos);
-            insertEvent.setBytes(12, signature);
+            insertEvent.setBytes(12, event.getSignature());
             insertEvent.setLong(13, consensusTimestampInNanos);
-            insertEvent.setInt(14, txsBytesCount);
-            insertEvent.setInt(15, platformTxCount);
-            insertEvent.setInt(16, appTxCount);
+            insertEvent.setInt(14, event.getTxsBytesCount());
+            insertEvent.setInt(15, event.getPlatformTxCount());
+            insertEvent.setInt(16, event.getAppTxCount());
             insertEvent.setLong(17, consensusTimestampInNanos - timeCreatedInNanos);
-            insertEvent.setBytes(18, hash);
-            insertEvent.setBytes(19, selfParentHash);
-            insertEvent.setBytes(20, otherParentHash);
-            insertEvent.execute();
-            log.info("Successfully stored event with consensusOrder {}", consensusOrder);
-            insertEvent.close();
+            insertEvent.setBytes(18, event.getHash());
+            insertEvent.setBytes(19, event.getSelfParentHash());
+            insertEvent.setBytes(20, event.getOtherParentHash());
+            insertEvent.setLong(21, id);
+            insertEvent.addBatch();
+            eventIdCache.put(event.getHash(), id);
+
+            if (++batchCount >= BATCH_SIZE) {
+                insertEvent.executeBatch();
+                batchCount = 0;
+            }
+            log.trace("Stored event with consensusOrder {}", event.getConsensusOrder());
         } catch (Exception ex) {
             log.error("Error storing event", ex);
             return false;
@@ -401,7 +408,8 @@ public class EventStreamFileParser implements FileParser {
 
     /**
      * Find an event's id in t_events table which hash value matches the given byte array return PARENT_HASH_NULL if the
-     * byte array is null; return PARENT_HASH_NOT_FOUND_MATCH if didn't find a match;
+     * byte array is null; return PARENT_HASH_NOT_FOUND_MATCH if didn't find a match; Recently stored events are resolved
+     * from the cache and only older events are looked up in the database.
      *
      * @param hash
      * @param name
@@ -411,29 +419,63 @@ public class EventStreamFileParser implements FileParser {
     private long getIdForParent(byte[] hash, String name) throws SQLException {
         if (hash == null) {
             return PARENT_HASH_NULL;
-        } else {
-            PreparedStatement query = connect.prepareStatement(
-                    "SELECT id FROM t_events WHERE hash = ?");
-            query.setBytes(1, hash);
-            query.execute();
-            ResultSet resultSet = query.getResultSet();
-            long id;
+        }
+
+        long id = eventIdCache.get(hash);
+        if (id != EventIdCache.NOT_FOUND) {
+            return id;
+        }
+
+        selectEventId.setBytes(1, hash);
+        try (ResultSet resultSet = selectEventId.executeQuery()) {
             if (resultSet.next()) {
-                id = resultSet.getLong(1);
-            } else {
-                log.error("There isn't an event's hash in the database that matches {}: {}", hash, name);
-                id = PARENT_HASH_NOT_FOUND_MATCH;
+                return resultSet.getLong(1);
             }
-            resultSet.close();
-            query.close();
-            return id;
+        }
+
+        log.error("There isn't an event's hash in the database that matches {}: {}", hash, name);
+        return PARENT_HASH_NOT_FOUND_MATCH;
+    }
+
+    private void prepareStatements() throws SQLException {
+        connect.setAutoCommit(false);
+        insertEvent = connect.prepareStatement(
+                "insert into t_events (consensus_order, creator_node_id, creator_seq, other_node_id, other_seq, " +
+                        "self_parent_generation, other_parent_generation, generation, self_parent_id, " +
+                        "other_parent_id, created_timestamp_ns, signature, consensus_timestamp_ns, " +
+                        "txs_bytes_count, platform_tx_count, app_tx_count, latency_ns, hash, self_parent_hash, " +
+                        "other_parent_hash, id) "
+                        + " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) ");
+        selectEventId = connect.prepareStatement("select id from t_events where hash = ?");
+        batchCount = 0;
+    }
+
+    /**
+     * Inserts the remaining batched events and commits the events of the current file in one transaction.
+     */
+    private void commit() throws SQLException {
+        insertEvent.executeBatch();
+        batchCount = 0;
+        connect.commit();
+        eventIdCache.commit();
+    }
+
+    private void rollback() {
+        try {
+            batchCount = 0;
+            insertEvent.clearBatch();
+            connect.rollback();
+        } catch (SQLException e) {
+            log.error("Exception while rolling transaction back", e);
+        } finally {
+            eventIdCache.rollback();
         }
     }
 
     /**
      * read an Instant from a data stream
      */
-    private Instant readInstant(DataInput dis)
+    private static Instant readInstant(DataInput dis)
             throws IOException {
         Instant time = Instant.ofEpochSecond(//
                 dis.readLong(), // from getEpochSecond()
@@ -441,14 +483,14 @@ public class EventStreamFileParser implements FileParser {
         return time;
     }
 
-    private byte[] readByteArray(DataInputStream dis, MessageDigest md)
+    private static byte[] readByteArray(DataInputStream dis, MessageDigest md)
             throws IOException {
         int len = dis.readInt();
         md.update(Utility.integerToBytes(len));
         return readByteArrayOfLength(dis, len, md);
     }
 
-    private byte[] readNullableByteArray(DataInputStream dis, MessageDigest md) throws IOException {
+    private static byte[] readNullableByteArray(DataInputStream dis, MessageDigest md) throws IOException {
         int len = dis.readInt();
         md.update(Utility.integerToBytes(len));
         if (len < 0) {
@@ -458,7 +500,7 @@ public class EventStreamFileParser implements FileParser {
         }
     }
 
-    private byte[] readByteArrayOfLength(DataInputStream dis, int len, MessageDigest md) throws IOException {
+    private static byte[] readByteArrayOfLength(DataInputStream dis, int len, MessageDigest md) throws IOException {
         int checksum = dis.readInt();
         md.update(Utility.integerToBytes(checksum));
 
@@ -485,8 +527,7 @@ public class EventStreamFileParser implements FileParser {
      */
     private boolean loadEventStreamFiles(List<String> fileNames) throws Exception {
 
-        String prevFileHash = applicationStatusRepository
-                .findByStatusCode(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH);
+        String prevFileHash = ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH);
         for (String name : fileNames) {
             if (ShutdownHelper.isStopping()) {
                 return false;
@@ -495,8 +536,7 @@ public class EventStreamFileParser implements FileParser {
             if (loadResult == LoadResult.STOP) {
                 return false;
             }
-            prevFileHash = applicationStatusRepository
-                    .findByStatusCode(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH);
+            prevFileHash = ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH);
             if (loadResult == LoadResult.OK) {
                 Utility.moveFileToParsedDir(name, PARSED_DIR);
             }
@@ -520,12 +560,13 @@ public class EventStreamFileParser implements FileParser {
             log.info("Parsing event files from {}", path);
             File file = path.toFile();
             connect = DatabaseUtilities.openDatabase(connect);
+            prepareStatements();
 
             boolean result = true;
             if (file.isFile()) {
                 log.info("Loading event file {}", path);
-                if (loadEventStreamFile(path.toString(), applicationStatusRepository
-                        .findByStatusCode(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH)) == LoadResult.STOP) {
+                if (loadEventStreamFile(path.toString(), ingestionState
+                        .get(ApplicationStatusCode.LAST_PROCESSED_EVENT_HASH)) == LoadResult.STOP) {
                     result = false;
                 }
             } else if (file.isDirectory()) { //if it's a directory
@@ -0,0 +1,267 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import com.hedera.mirror.importer.domain.ContractResult;
+import com.hedera.mirror.importer.domain.CryptoTransfer;
+import com.hedera.mirror.importer.domain.Entities;
+import com.hedera.mirror.importer.domain.FileData;
+import com.hedera.mirror.importer.domain.LiveHash;
+import com.hedera.mirror.importer.domain.Transaction;
+
+/**
+ * Writes records using a JDBC batch of INSERT statements per table. Transactions and crypto transfers are inserted
+ * directly into the daily partition of their consensus timestamp, with a batch per partition.
+ */
+public class BatchInsertRecordWriter implements RecordWriter {
+
+    private static final String INSERT_TRANSACTION = "INSERT INTO %s"
+            + " (fk_node_acc_id, memo, valid_start_ns, type, fk_payer_acc_id"
+            + ", result, consensus_ns, fk_cud_entity_id, charged_tx_fee"
+            + ", initial_balance, fk_rec_file_id, valid_duration_seconds, max_fee"
+            + ", transaction_hash)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_TRANSFER_LIST = "INSERT INTO %s"
+            + " (consensus_timestamp, amount, realm_num, entity_num)"
+            + " VALUES (?, ?, ?, ?)";
+
+    private final Connection connection;
+    private final MeterRegistry meterRegistry;
+    private final TablePartitions transactionPartitions;
+    private final TablePartitions transferListPartitions;
+    private final Map<String, PreparedStatement> sqlInsertTransactions = new LinkedHashMap<>();
+    private final Map<String, PreparedStatement> sqlInsertTransferLists = new LinkedHashMap<>();
+    private final PreparedStatement sqlInsertEntity;
+    private final PreparedStatement sqlInsertFileData;
+    private final PreparedStatement sqlInsertContractCall;
+    private final PreparedStatement sqlInsertClaimData;
+
+    public BatchInsertRecordWriter(Connection connection, MeterRegistry meterRegistry) throws SQLException {
+        this.connection = connection;
+        this.meterRegistry = meterRegistry;
+        transactionPartitions = new TablePartitions(connection, "t_transactions");
+        transferListPartitions = new TablePartitions(connection, "t_cryptotransferlists");
+
+        sqlInsertEntity = connection.prepareStatement("INSERT INTO t_entities"
+                + " (id, entity_shard, entity_realm, entity_num, fk_entity_type_id, exp_time_seconds"
+                + ", exp_time_nanos, exp_time_ns, auto_renew_period, ed25519_public_key_hex, key, fk_prox_acc_id)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+
+        sqlInsertFileData = connection.prepareStatement("INSERT INTO t_file_data"
+                + " (consensus_timestamp, file_data)"
+                + " VALUES (?, ?)");
+
+        sqlInsertContractCall = connection.prepareStatement("INSERT INTO t_contract_result"
+                + " (consensus_timestamp, function_params, gas_supplied, call_result, gas_used)"
+                + " VALUES (?, ?, ?, ?, ?)");
+
+        sqlInsertClaimData = connection.prepareStatement("INSERT INTO t_livehashes"
+                + " (consensus_timestamp, livehash)"
+                + " VALUES (?, ?)");
+    }
+
+    @Override
+    public void insertEntity(Entities entity) throws SQLException {
+        sqlInsertEntity.setLong(F_ENTITY.ID.ordinal(), entity.getId());
+        sqlInsertEntity.setLong(F_ENTITY.ENTITY_SHARD.ordinal(), entity.getEntityShard());
+        sqlInsertEntity.setLong(F_ENTITY.ENTITY_REALM.ordinal(), entity.getEntityRealm());
+        sqlInsertEntity.setLong(F_ENTITY.ENTITY_NUM.ordinal(), entity.getEntityNum());
+        sqlInsertEntity.setInt(F_ENTITY.FK_ENTITY_TYPE_ID.ordinal(), entity.getEntityTypeId());
+        sqlInsertEntity.setObject(F_ENTITY.EXP_TIME_SECONDS.ordinal(), entity.getExpiryTimeSeconds(), Types.BIGINT);
+        sqlInsertEntity.setObject(F_ENTITY.EXP_TIME_NANOS.ordinal(), entity.getExpiryTimeNanos(), Types.BIGINT);
+        sqlInsertEntity.setObject(F_ENTITY.EXP_TIME_NS.ordinal(), entity.getExpiryTimeNs(), Types.BIGINT);
+        sqlInsertEntity.setObject(F_ENTITY.AUTO_RENEW_PERIOD.ordinal(), entity.getAutoRenewPeriod(), Types.BIGINT);
+        sqlInsertEntity.setString(F_ENTITY.ED25519_PUBLIC_KEY_HEX.ordinal(), entity.getEd25519PublicKeyHex());
+        sqlInsertEntity.setBytes(F_ENTITY.KEY.ordinal(), entity.getKey());
+        sqlInsertEntity.setObject(F_ENTITY.FK_PROX_ACC_ID.ordinal(), entity.getProxyAccountId(), Types.BIGINT);
+        sqlInsertEntity.addBatch();
+    }
+
+    @Override
+    public void insertTransaction(Transaction transaction) throws SQLException {
+        PreparedStatement sqlInsertTransaction = partitionStatement(sqlInsertTransactions, INSERT_TRANSACTION,
+                transactionPartitions.get(transaction.getConsensusNs()));
+        sqlInsertTransaction.setLong(F_TRANSACTION.FK_NODE_ACCOUNT_ID.ordinal(), transaction.getNodeAccountId());
+        sqlInsertTransaction.setBytes(F_TRANSACTION.MEMO.ordinal(), transaction.getMemo());
+        sqlInsertTransaction.setLong(F_TRANSACTION.VALID_START_NS.ordinal(), transaction.getValidStartNs());
+        sqlInsertTransaction.setInt(F_TRANSACTION.TYPE.ordinal(), transaction.getType());
+        sqlInsertTransaction.setLong(F_TRANSACTION.FK_REC_FILE_ID.ordinal(), transaction.getRecordFileId());
+        sqlInsertTransaction.setLong(F_TRANSACTION.VALID_DURATION_SECONDS.ordinal(), transaction
+                .getValidDurationSeconds());
+        sqlInsertTransaction.setLong(F_TRANSACTION.FK_PAYER_ACCOUNT_ID.ordinal(), transaction.getPayerAccountId());
+        sqlInsertTransaction.setLong(F_TRANSACTION.RESULT.ordinal(), transaction.getResult());
+        sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_NS.ordinal(), transaction.getConsensusNs());
+        sqlInsertTransaction.setLong(F_TRANSACTION.CHARGED_TX_FEE.ordinal(), transaction.getChargedTxFee());
+        sqlInsertTransaction.setLong(F_TRANSACTION.MAX_FEE.ordinal(), transaction.getMaxFee());
+        sqlInsertTransaction.setBytes(F_TRANSACTION.TRANSACTION_HASH.ordinal(), transaction.getTransactionHash());
+
+        if (transaction.getEntityId() == null) {
+            sqlInsertTransaction.setNull(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), Types.BIGINT);
+        } else {
+            sqlInsertTransaction.setLong(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), transaction.getEntityId());
+        }
+
+        sqlInsertTransaction.setLong(F_TRANSACTION.INITIAL_BALANCE.ordinal(), transaction.getInitialBalance());
+        sqlInsertTransaction.addBatch();
+    }
+
+    @Override
+    public void insertCryptoTransfer(CryptoTransfer cryptoTransfer) throws SQLException {
+        PreparedStatement sqlInsertTransferList = partitionStatement(sqlInsertTransferLists, INSERT_TRANSFER_LIST,
+                transferListPartitions.get(cryptoTransfer.getConsensusTimestamp()));
+        sqlInsertTransferList.setLong(F_TRANSFERLIST.CONSENSUS_TIMESTAMP.ordinal(), cryptoTransfer
+                .getConsensusTimestamp());
+        sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), cryptoTransfer.getAmount());
+        sqlInsertTransferList.setLong(F_TRANSFERLIST.REALM_NUM.ordinal(), cryptoTransfer.getRealmNum());
+        sqlInsertTransferList.setLong(F_TRANSFERLIST.ENTITY_NUM.ordinal(), cryptoTransfer.getEntityNum());
+        sqlInsertTransferList.addBatch();
+    }
+
+    @Override
+    public void insertFileData(FileData fileData) throws SQLException {
+        sqlInsertFileData.setLong(F_FILE_DATA.CONSENSUS_TIMESTAMP.ordinal(), fileData.getConsensusTimestamp());
+        sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), fileData.getFileData());
+        sqlInsertFileData.addBatch();
+    }
+
+    @Override
+    public void insertContractResult(ContractResult contractResult) throws SQLException {
+        sqlInsertContractCall.setLong(F_CONTRACT_CALL.CONSENSUS_TIMESTAMP.ordinal(), contractResult
+                .getConsensusTimestamp());
+        sqlInsertContractCall.setBytes(F_CONTRACT_CALL.FUNCTION_PARAMS.ordinal(), contractResult
+                .getFunctionParameters());
+        sqlInsertContractCall.setLong(F_CONTRACT_CALL.GAS_SUPPLIED.ordinal(), contractResult.getGasSupplied());
+        sqlInsertContractCall.setBytes(F_CONTRACT_CALL.CALL_RESULT.ordinal(), contractResult.getCallResult());
+        sqlInsertContractCall.setLong(F_CONTRACT_CALL.GAS_USED.ordinal(), contractResult.getGasUsed());
+        sqlInsertContractCall.addBatch();
+    }
+
+    @Override
+    public void insertLiveHash(LiveHash liveHash) throws SQLException {
+        sqlInsertClaimData.setLong(F_LIVEHASH_DATA.CONSENSUS_TIMESTAMP.ordinal(), liveHash.getConsensusTimestamp());
+        sqlInsertClaimData.setBytes(F_LIVEHASH_DATA.LIVEHASH.ordinal(), liveHash.getLivehash());
+        sqlInsertClaimData.addBatch();
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        executeBatch("t_entities", sqlInsertEntity);
+        for (PreparedStatement sqlInsertTransaction : sqlInsertTransactions.values()) {
+            executeBatch("t_transactions", sqlInsertTransaction);
+        }
+        for (PreparedStatement sqlInsertTransferList : sqlInsertTransferLists.values()) {
+            executeBatch("t_cryptotransferlists", sqlInsertTransferList);
+        }
+        executeBatch("t_file_data", sqlInsertFileData);
+        executeBatch("t_contract_result", sqlInsertContractCall);
+        executeBatch("t_livehashes", sqlInsertClaimData);
+    }
+
+    @Override
+    public void clear() throws SQLException {
+        sqlInsertEntity.clearBatch();
+        sqlInsertFileData.clearBatch();
+        sqlInsertContractCall.clearBatch();
+        sqlInsertClaimData.clearBatch();
+
+        // Partitions created by the rolled back transaction no longer exist
+        closePartitionStatements();
+        transactionPartitions.clear();
+        transferListPartitions.clear();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        sqlInsertFileData.close();
+        closePartitionStatements();
+        sqlInsertContractCall.close();
+        sqlInsertClaimData.close();
+        sqlInsertEntity.close();
+    }
+
+    private void executeBatch(String table, PreparedStatement statement) throws SQLException {
+        long start = System.nanoTime();
+        if (statement.executeBatch().length > 0) {
+            RecordWriter.flushTimer(meterRegistry, table).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private PreparedStatement partitionStatement(Map<String, PreparedStatement> statements, String sql,
+                                                 String partition) throws SQLException {
+        PreparedStatement statement = statements.get(partition);
+        if (statement == null) {
+            statement = connection.prepareStatement(String.format(sql, partition));
+            statements.put(partition, statement);
+        }
+        return statement;
+    }
+
+    private void closePartitionStatements() throws SQLException {
+        for (PreparedStatement statement : sqlInsertTransactions.values()) {
+            statement.close();
+        }
+        for (PreparedStatement statement : sqlInsertTransferLists.values()) {
+            statement.close();
+        }
+        sqlInsertTransactions.clear();
+        sqlInsertTransferLists.clear();
+    }
+
+    enum F_ENTITY {
+        ZERO // column indices start at 1, this creates the necessary offset
+        , ID, ENTITY_SHARD, ENTITY_REALM, ENTITY_NUM, FK_ENTITY_TYPE_ID, EXP_TIME_SECONDS, EXP_TIME_NANOS,
+        EXP_TIME_NS, AUTO_RENEW_PERIOD, ED25519_PUBLIC_KEY_HEX, KEY, FK_PROX_ACC_ID
+    }
+
+    enum F_TRANSACTION {
+        ZERO // column indices start at 1, this creates the necessary offset
+        , FK_NODE_ACCOUNT_ID, MEMO, VALID_START_NS, TYPE, FK_PAYER_ACCOUNT_ID, RESULT, CONSENSUS_NS,
+        CUD_ENTITY_ID, CHARGED_TX_FEE, INITIAL_BALANCE, FK_REC_FILE_ID, VALID_DURATION_SECONDS, MAX_FEE,
+        TRANSACTION_HASH
+    }
+
+    enum F_TRANSFERLIST {
+        ZERO // column indices start at 1, this creates the necessary offset
+        , CONSENSUS_TIMESTAMP, AMOUNT, REALM_NUM, ENTITY_NUM
+    }
+
+    enum F_FILE_DATA {
+        ZERO, CONSENSUS_TIMESTAMP, FILE_DATA
+    }
+
+    enum F_CONTRACT_CALL {
+        ZERO, CONSENSUS_TIMESTAMP, FUNCTION_PARAMS, GAS_SUPPLIED, CALL_RESULT, GAS_USED
+    }
+
+    enum F_LIVEHASH_DATA {
+        ZERO, CONSENSUS_TIMESTAMP, LIVEHASH
+    }
+}
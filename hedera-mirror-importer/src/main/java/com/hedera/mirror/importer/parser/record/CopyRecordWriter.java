@@ -0,0 +1,167 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import com.hedera.mirror.importer.domain.ContractResult;
+import com.hedera.mirror.importer.domain.CryptoTransfer;
+import com.hedera.mirror.importer.domain.Entities;
+import com.hedera.mirror.importer.domain.FileData;
+import com.hedera.mirror.importer.domain.LiveHash;
+import com.hedera.mirror.importer.domain.Transaction;
+import com.hedera.mirror.importer.util.CopyTable;
+
+/**
+ * Writes records by buffering each table's rows as CSV and streaming them with PostgreSQL's COPY protocol on flush.
+ * Only one COPY can be active per connection, so tables are copied one after another starting with t_entities to
+ * satisfy the foreign keys of t_transactions. Transactions and crypto transfers are copied directly into the daily
+ * partition of their consensus timestamp.
+ */
+public class CopyRecordWriter implements RecordWriter {
+
+    private static final String TRANSACTION_COLUMNS = "fk_node_acc_id, memo, valid_start_ns, type, " +
+            "fk_payer_acc_id, result, consensus_ns, fk_cud_entity_id, charged_tx_fee, initial_balance, " +
+            "fk_rec_file_id, valid_duration_seconds, max_fee, transaction_hash";
+    private static final String CRYPTO_TRANSFER_COLUMNS = "consensus_timestamp, amount, realm_num, entity_num";
+
+    private final CopyManager copyManager;
+    private final MeterRegistry meterRegistry;
+    private final TablePartitions transactionPartitions;
+    private final TablePartitions cryptoTransferPartitions;
+    private final Map<String, CopyTable> transactions = new LinkedHashMap<>();
+    private final Map<String, CopyTable> cryptoTransfers = new LinkedHashMap<>();
+    private final CopyTable entities = new CopyTable("t_entities", "id, entity_shard, entity_realm, entity_num, " +
+            "fk_entity_type_id, exp_time_seconds, exp_time_nanos, exp_time_ns, auto_renew_period, " +
+            "ed25519_public_key_hex, key, fk_prox_acc_id");
+    private final CopyTable fileData = new CopyTable("t_file_data", "consensus_timestamp, file_data");
+    private final CopyTable contractResults = new CopyTable("t_contract_result", "consensus_timestamp, " +
+            "function_params, gas_supplied, call_result, gas_used");
+    private final CopyTable liveHashes = new CopyTable("t_livehashes", "consensus_timestamp, livehash");
+    private final List<CopyTable> tables = List.of(fileData, contractResults, liveHashes);
+
+    public CopyRecordWriter(Connection connection, MeterRegistry meterRegistry) throws SQLException {
+        copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        this.meterRegistry = meterRegistry;
+        transactionPartitions = new TablePartitions(connection, "t_transactions");
+        cryptoTransferPartitions = new TablePartitions(connection, "t_cryptotransferlists");
+    }
+
+    @Override
+    public void insertEntity(Entities entity) {
+        entities.addRow(entity.getId(), entity.getEntityShard(), entity.getEntityRealm(), entity.getEntityNum(),
+                entity.getEntityTypeId(), entity.getExpiryTimeSeconds(), entity.getExpiryTimeNanos(),
+                entity.getExpiryTimeNs(), entity.getAutoRenewPeriod(), entity.getEd25519PublicKeyHex(),
+                entity.getKey(), entity.getProxyAccountId());
+    }
+
+    @Override
+    public void insertTransaction(Transaction transaction) throws SQLException {
+        String partition = transactionPartitions.get(transaction.getConsensusNs());
+        CopyTable table = transactions.computeIfAbsent(partition, p -> new CopyTable(p, TRANSACTION_COLUMNS));
+        table.addRow(transaction.getNodeAccountId(), transaction.getMemo(), transaction.getValidStartNs(),
+                transaction.getType(), transaction.getPayerAccountId(), transaction.getResult(),
+                transaction.getConsensusNs(), transaction.getEntityId(), transaction.getChargedTxFee(),
+                transaction.getInitialBalance(), transaction.getRecordFileId(), transaction.getValidDurationSeconds(),
+                transaction.getMaxFee(), transaction.getTransactionHash());
+    }
+
+    @Override
+    public void insertCryptoTransfer(CryptoTransfer cryptoTransfer) throws SQLException {
+        String partition = cryptoTransferPartitions.get(cryptoTransfer.getConsensusTimestamp());
+        CopyTable table = cryptoTransfers.computeIfAbsent(partition, p -> new CopyTable(p, CRYPTO_TRANSFER_COLUMNS));
+        table.addRow(cryptoTransfer.getConsensusTimestamp(), cryptoTransfer.getAmount(), cryptoTransfer.getRealmNum(),
+                cryptoTransfer.getEntityNum());
+    }
+
+    @Override
+    public void insertFileData(FileData data) {
+        fileData.addRow(data.getConsensusTimestamp(), data.getFileData());
+    }
+
+    @Override
+    public void insertContractResult(ContractResult contractResult) {
+        contractResults.addRow(contractResult.getConsensusTimestamp(), contractResult.getFunctionParameters(),
+                contractResult.getGasSupplied(), contractResult.getCallResult(), contractResult.getGasUsed());
+    }
+
+    @Override
+    public void insertLiveHash(LiveHash liveHash) {
+        liveHashes.addRow(liveHash.getConsensusTimestamp(), liveHash.getLivehash());
+    }
+
+    @Override
+    public void flush() throws SQLException {
+        copy("t_entities", entities);
+        for (CopyTable table : transactions.values()) {
+            copy("t_transactions", table);
+        }
+        for (CopyTable table : cryptoTransfers.values()) {
+            copy("t_cryptotransferlists", table);
+        }
+        for (CopyTable table : tables) {
+            copy(table.getName(), table);
+        }
+    }
+
+    /**
+     * Rows are buffered for the whole record file since a COPY has a fixed cost per table regardless of the row count.
+     */
+    @Override
+    public void flushBatch() {
+        // Only flush when the file is complete
+    }
+
+    @Override
+    public void clear() {
+        entities.clear();
+        tables.forEach(CopyTable::clear);
+
+        // Partitions created by the rolled back transaction no longer exist
+        transactions.clear();
+        cryptoTransfers.clear();
+        transactionPartitions.clear();
+        cryptoTransferPartitions.clear();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    private void copy(String name, CopyTable table) throws SQLException {
+        if (table.getRows() > 0) {
+            long start = System.nanoTime();
+            table.copy(copyManager);
+            RecordWriter.flushTimer(meterRegistry, name).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
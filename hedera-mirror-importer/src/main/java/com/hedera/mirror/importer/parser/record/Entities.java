@@ -25,15 +25,14 @@ import com.hederahashgraph.api.proto.java.AccountID;
 import com.hederahashgraph.api.proto.java.ContractID;
 import com.hederahashgraph.api.proto.java.FileID;
 
-import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Types;
 import java.time.DateTimeException;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import lombok.extern.log4j.Log4j2;
 
@@ -43,14 +42,29 @@ import static java.sql.Types.*;
 
 @Log4j2
 public class Entities {
+    private static final String UPDATE_SQL = "UPDATE t_entities SET " +
+            "exp_time_seconds = coalesce(?, exp_time_seconds), " +
+            "exp_time_nanos = coalesce(?, exp_time_nanos), " +
+            "exp_time_ns = coalesce(?, exp_time_ns), " +
+            "auto_renew_period = coalesce(?, auto_renew_period), " +
+            "ed25519_public_key_hex = case when ? then ? else ed25519_public_key_hex end, " +
+            "key = coalesce(?, key), " +
+            "fk_prox_acc_id = coalesce(?, fk_prox_acc_id), " +
+            "deleted = coalesce(?, deleted) " +
+            "WHERE id = ?";
     private static int FK_ACCOUNT = 0;
     private static int FK_CONTRACT = 0;
     private static int FK_FILE = 0;
     private static Connection connect = null;
-    HashMap<String, Long> entities = new HashMap<>();
+    private final EntityIdCache entityIdCache;
+    private final RecordWriter recordWriter;
+    // Pending updates by entity id, in the order the entities were first updated
+    private final Map<Long, EntityUpdate> updates = new LinkedHashMap<>();
 
-    public Entities(Connection connect) throws SQLException {
+    public Entities(Connection connect, EntityIdCache entityIdCache, RecordWriter recordWriter) throws SQLException {
         Entities.connect = connect;
+        this.entityIdCache = entityIdCache;
+        this.recordWriter = recordWriter;
         if (Entities.connect != null) {
             if (FK_ACCOUNT + FK_CONTRACT + FK_FILE == 0) {
                 try (Statement statement = Entities.connect.createStatement()) {
@@ -73,122 +87,44 @@ public class Entities {
 
     private long updateEntity(int fk_entity_type, long shard, long realm, long num, long exp_time_seconds,
                               long exp_time_nanos, long auto_renew_period, byte[] key, long fk_proxy_account_id) throws SQLException {
-        long entityId = 0;
-
         if (shard + realm + num == 0) {
             return 0;
         }
 
-        entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
+        long entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
 
         if ((exp_time_nanos == 0) && (exp_time_seconds == 0) && (auto_renew_period == 0) && (fk_proxy_account_id == 0) && (key == null)) {
             // nothing to update
             return entityId;
         }
 
-        // build the SQL to prepare a statement
-        String sqlUpdate = "UPDATE t_entities SET ";
-        int fieldCount = 0;
-        boolean bDoComma = false;
+        EntityUpdate update = getUpdate(entityId, shard, realm, num);
 
         if ((exp_time_seconds != 0) || (exp_time_nanos != 0)) {
-            sqlUpdate += " exp_time_seconds = ?";
-            sqlUpdate += ",exp_time_nanos = ?";
-            sqlUpdate += ",exp_time_ns = ?";
-            bDoComma = true;
+            update.expiryTimeSeconds = exp_time_seconds;
+            update.expiryTimeNanos = exp_time_nanos;
+            update.expiryTimeNs = Utility.convertToNanosMax(exp_time_seconds, exp_time_nanos);
         }
+
         if (auto_renew_period != 0) {
-            if (bDoComma) {
-                sqlUpdate += ",";
-            }
-            sqlUpdate += "auto_renew_period = ?";
-            bDoComma = true;
+            update.autoRenewPeriod = auto_renew_period;
         }
 
         if (key != null) {
             // The key has been specified, thus update this field either to null for non-ED25519 key or the hex value.
-            if (bDoComma) {
-                sqlUpdate += ",";
+            update.key = key;
+            update.ed25519PublicKeyHex = null;
+            try {
+                update.ed25519PublicKeyHex = Utility.protobufKeyToHexIfEd25519OrNull(key);
+            } catch (InvalidProtocolBufferException e) {
+                log.error("Invalid ED25519 key could not be translated to hex text for entity {}.{}.{}. Column " +
+                                "will be nulled. {}",
+                        shard, realm, num, e);
             }
-            sqlUpdate += "ed25519_public_key_hex = ?";
-            bDoComma = true;
-
-            if (bDoComma) {
-                sqlUpdate += ",";
-            }
-            sqlUpdate += "key = ?";
-            bDoComma = true;
         }
 
         if (fk_proxy_account_id != 0) {
-            if (bDoComma) {
-                sqlUpdate += ",";
-            }
-            sqlUpdate += "fk_prox_acc_id = ?";
-            bDoComma = true;
-        }
-
-        sqlUpdate += " WHERE entity_shard = ?";
-        sqlUpdate += " AND entity_realm = ?";
-        sqlUpdate += " AND entity_num = ?";
-        sqlUpdate += " RETURNING id";
-
-        // inserts or returns an existing entity
-        try (PreparedStatement updateEntity = Entities.connect.prepareStatement(sqlUpdate)) {
-
-            if ((exp_time_seconds != 0) || (exp_time_nanos != 0)) {
-                updateEntity.setLong(1, exp_time_seconds);
-                updateEntity.setLong(2, exp_time_nanos);
-                updateEntity.setLong(3, Utility.convertToNanosMax(exp_time_seconds, exp_time_nanos));
-                fieldCount = 3;
-            }
-
-            if (auto_renew_period != 0) {
-                fieldCount += 1;
-                updateEntity.setLong(fieldCount, auto_renew_period);
-            }
-
-            if (key != null) {
-                fieldCount += 1;
-                String ed25519PublicKeyHex = null;
-                try {
-                    ed25519PublicKeyHex = Utility.protobufKeyToHexIfEd25519OrNull(key);
-                } catch (InvalidProtocolBufferException e) {
-                    log.error("Invalid ED25519 key could not be translated to hex text for entity {}.{}.{}. Column " +
-                                    "will be nulled. {}",
-                            shard, realm, num, e);
-                }
-                if (null != ed25519PublicKeyHex) {
-                    updateEntity.setString(fieldCount, ed25519PublicKeyHex);
-                } else {
-                    updateEntity.setNull(fieldCount, VARCHAR);
-                }
-
-                fieldCount += 1;
-                updateEntity.setBytes(fieldCount, key);
-            }
-
-            if (fk_proxy_account_id != 0) {
-                fieldCount += 1;
-                updateEntity.setLong(fieldCount, fk_proxy_account_id);
-            }
-
-            fieldCount += 1;
-            updateEntity.setLong(fieldCount, shard);
-            fieldCount += 1;
-            updateEntity.setLong(fieldCount, realm);
-            fieldCount += 1;
-            updateEntity.setLong(fieldCount, num);
-
-            updateEntity.execute();
-
-            try (ResultSet newId = updateEntity.getResultSet()) {
-                if (newId.next()) {
-                    entityId = newId.getLong(1);
-                } else {
-                    throw new IllegalStateException("Expected entity not found, shard " + shard + ", realm " + realm + ", num " + num);
-                }
-            }
+            update.proxyAccountId = fk_proxy_account_id;
         }
 
         return entityId;
@@ -213,40 +149,12 @@ public class Entities {
     }
 
     private long deleteEntity(int fk_entity_type, long shard, long realm, long num) throws SQLException {
-
-        long entityId = 0;
-
         if (shard + realm + num == 0) {
             return 0;
         }
 
-        entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
-
-        // build the SQL to prepare a statement
-        String sqlDelete = "UPDATE t_entities SET deleted = true";
-        sqlDelete += " WHERE entity_shard = ?";
-        sqlDelete += " AND entity_realm = ?";
-        sqlDelete += " AND entity_num = ?";
-        sqlDelete += " RETURNING id";
-
-        // inserts or returns an existing entity
-        try (PreparedStatement deleteEntity = Entities.connect.prepareStatement(sqlDelete)) {
-
-            deleteEntity.setLong(1, shard);
-            deleteEntity.setLong(2, realm);
-            deleteEntity.setLong(3, num);
-
-            deleteEntity.execute();
-
-            try (ResultSet newId = deleteEntity.getResultSet()) {
-                if (newId.next()) {
-                    entityId = newId.getLong(1);
-                } else {
-                    throw new IllegalStateException("Expected entity not found, shard " + shard + ", realm " + realm + ", num " + num);
-                }
-            }
-        }
-
+        long entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
+        getUpdate(entityId, shard, realm, num).deleted = true;
         return entityId;
     }
 
@@ -264,40 +172,12 @@ public class Entities {
     }
 
     private long unDeleteEntity(int fk_entity_type, long shard, long realm, long num) throws SQLException {
-
-        long entityId = 0;
-
         if (shard + realm + num == 0) {
             return 0;
         }
 
-        entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
-
-        // build the SQL to prepare a statement
-        String sqlDelete = "UPDATE t_entities SET deleted = false";
-        sqlDelete += " WHERE entity_shard = ?";
-        sqlDelete += " AND entity_realm = ?";
-        sqlDelete += " AND entity_num = ?";
-        sqlDelete += " RETURNING id";
-
-        // inserts or returns an existing entity
-        try (PreparedStatement deleteEntity = Entities.connect.prepareStatement(sqlDelete)) {
-
-            deleteEntity.setLong(1, shard);
-            deleteEntity.setLong(2, realm);
-            deleteEntity.setLong(3, num);
-
-            deleteEntity.execute();
-
-            try (ResultSet newId = deleteEntity.getResultSet()) {
-                if (newId.next()) {
-                    entityId = newId.getLong(1);
-                } else {
-                    throw new IllegalStateException("Expected entity not found, shard " + shard + ", realm " + realm + ", num " + num);
-                }
-            }
-        }
-
+        long entityId = createOrGetEntity(shard, realm, num, fk_entity_type);
+        getUpdate(entityId, shard, realm, num).deleted = false;
         return entityId;
     }
 
@@ -319,49 +199,12 @@ public class Entities {
             throws SQLException {
 
         long entityId = getCachedEntityId(shard, realm, num);
-        if (entityId != -1) {
+        if (entityId != EntityIdCache.NOT_FOUND) {
             return entityId;
         }
 
-        try (CallableStatement entityCreate = connect
-                .prepareCall("{? = call f_entity_create ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) }")) {
-            entityCreate.registerOutParameter(1, Types.BIGINT);
-            entityCreate.setLong(2, shard);
-            entityCreate.setLong(3, realm);
-            entityCreate.setLong(4, num);
-            entityCreate.setInt(5, fk_entity_type);
-            entityCreate.setLong(6, exp_time_seconds);
-            entityCreate.setLong(7, exp_time_nanos);
-            entityCreate.setLong(8, Utility.convertToNanosMax(exp_time_seconds, exp_time_nanos));
-            entityCreate.setLong(9, auto_renew_period);
-
-            if (key == null) {
-                entityCreate.setNull(10, VARCHAR);
-                entityCreate.setNull(11, VARBINARY);
-            } else {
-                String ed25519PublicKeyHex = null;
-                try {
-                    ed25519PublicKeyHex = Utility.protobufKeyToHexIfEd25519OrNull(key);
-                } catch (InvalidProtocolBufferException e) {
-                    log.error("Invalid ED25519 key could not be translated to hex text for entity {}.{}.{}. Column " +
-                                    "will be nulled. {}",
-                            shard, realm, num, e);
-                }
-                if (null != ed25519PublicKeyHex) {
-                    entityCreate.setString(10, ed25519PublicKeyHex);
-                } else {
-                    entityCreate.setNull(10, VARCHAR);
-                }
-                entityCreate.setBytes(11, key);
-            }
-
-            entityCreate.setLong(12, fk_proxy_account_id);
-
-            entityCreate.execute();
-            entityId = entityCreate.getLong(1);
-        }
-
-        return entityId;
+        return insertEntity(fk_entity_type, shard, realm, num, exp_time_seconds, exp_time_nanos, auto_renew_period,
+                key, fk_proxy_account_id);
     }
 
     public long createEntity(FileID fileId, long exp_time_seconds, long exp_time_nanos, long auto_renew_period,
@@ -388,32 +231,11 @@ public class Entities {
     private long createOrGetEntity(long shard, long realm, long num, int fk_entity_type) throws SQLException {
 
         long entityId = getCachedEntityId(shard, realm, num);
-        if (entityId != -1) {
+        if (entityId != EntityIdCache.NOT_FOUND) {
             return entityId;
         }
 
-        try (CallableStatement entityCreate = connect
-                .prepareCall("{? = call f_entity_create ( ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ? ) }")) {
-            entityCreate.registerOutParameter(1, Types.BIGINT);
-            entityCreate.setLong(2, shard);
-            entityCreate.setLong(3, realm);
-            entityCreate.setLong(4, num);
-            entityCreate.setInt(5, fk_entity_type);
-            entityCreate.setLong(6, 0);
-            entityCreate.setLong(7, 0);
-            entityCreate.setLong(8, 0);
-            entityCreate.setLong(9, 0);
-            entityCreate.setNull(10, VARCHAR);
-            entityCreate.setNull(11, VARBINARY);
-            entityCreate.setLong(12, 0);
-
-            entityCreate.execute();
-            entityId = entityCreate.getLong(1);
-        }
-
-        String entity = shard + "-" + realm + "-" + num;
-        entities.put(entity, entityId);
-        return entityId;
+        return insertEntity(fk_entity_type, shard, realm, num, 0, 0, 0, null, 0);
     }
 
     public long createOrGetEntity(FileID fileId) throws SQLException {
@@ -430,15 +252,132 @@ public class Entities {
                 .getAccountNum(), FK_ACCOUNT);
     }
 
-    private long getCachedEntityId(long shard, long realm, long num) {
-        String entity = shard + "-" + realm + "-" + num;
+    /**
+     * Queues a new entity to be written with the rest of the record file instead of inserting it immediately. The id is
+     * allocated up front so it can be referenced by the transaction before the entity has been written.
+     */
+    private long insertEntity(int fk_entity_type, long shard, long realm, long num, long exp_time_seconds,
+                              long exp_time_nanos, long auto_renew_period, byte[] key, long fk_proxy_account_id)
+            throws SQLException {
+        long entityId = entityIdCache.nextId(connect);
+
+        com.hedera.mirror.importer.domain.Entities entity = new com.hedera.mirror.importer.domain.Entities();
+        entity.setId(entityId);
+        entity.setEntityShard(shard);
+        entity.setEntityRealm(realm);
+        entity.setEntityNum(num);
+        entity.setEntityTypeId(fk_entity_type);
+
+        // Set the nanoseconds first since its setter also overwrites the seconds and nanos
+        long exp_time_ns = Utility.convertToNanosMax(exp_time_seconds, exp_time_nanos);
+        if (exp_time_ns != 0) {
+            entity.setExpiryTimeNs(exp_time_ns);
+        }
+        entity.setExpiryTimeSeconds(exp_time_seconds == 0 ? null : exp_time_seconds);
+        entity.setExpiryTimeNanos(exp_time_nanos == 0 ? null : exp_time_nanos);
+        entity.setAutoRenewPeriod(auto_renew_period == 0 ? null : auto_renew_period);
+        entity.setProxyAccountId(fk_proxy_account_id == 0 ? null : fk_proxy_account_id);
+
+        if (key != null) {
+            entity.setKey(key);
+            if (entity.getEd25519PublicKeyHex() == null) {
+                logInvalidKey(shard, realm, num, key);
+            }
+        }
+
+        recordWriter.insertEntity(entity);
+        entityIdCache.put(shard, realm, num, entityId);
+        return entityId;
+    }
+
+    /**
+     * Applies the updates collected for the record file with one batch of statements. Must be called after the
+     * record writer has been flushed so that the entities created by the file exist.
+     */
+    public void flush() throws SQLException {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement updateEntity = Entities.connect.prepareStatement(UPDATE_SQL)) {
+            for (Map.Entry<Long, EntityUpdate> entry : updates.entrySet()) {
+                EntityUpdate update = entry.getValue();
+                updateEntity.setObject(1, update.expiryTimeSeconds, BIGINT);
+                updateEntity.setObject(2, update.expiryTimeNanos, BIGINT);
+                updateEntity.setObject(3, update.expiryTimeNs, BIGINT);
+                updateEntity.setObject(4, update.autoRenewPeriod, BIGINT);
+                updateEntity.setBoolean(5, update.key != null);
+                updateEntity.setString(6, update.ed25519PublicKeyHex);
+                updateEntity.setBytes(7, update.key);
+                updateEntity.setObject(8, update.proxyAccountId, BIGINT);
+                updateEntity.setObject(9, update.deleted, BOOLEAN);
+                updateEntity.setLong(10, entry.getKey());
+                updateEntity.addBatch();
+            }
+
+            int[] counts = updateEntity.executeBatch();
+            int i = 0;
+            for (EntityUpdate update : updates.values()) {
+                if (counts[i++] == 0) {
+                    throw new IllegalStateException("Expected entity not found, shard " + update.shard + ", realm " +
+                            update.realm + ", num " + update.num);
+                }
+            }
+            log.debug("Updated {} entities", counts.length);
+        }
+
+        updates.clear();
+    }
 
+    /**
+     * Discards the updates collected for a record file that is being rolled back.
+     */
+    public void clear() {
+        updates.clear();
+    }
+
+    private EntityUpdate getUpdate(long entityId, long shard, long realm, long num) {
+        return updates.computeIfAbsent(entityId, id -> new EntityUpdate(shard, realm, num));
+    }
+
+    private void logInvalidKey(long shard, long realm, long num, byte[] key) {
+        try {
+            Utility.protobufKeyToHexIfEd25519OrNull(key);
+        } catch (InvalidProtocolBufferException e) {
+            log.error("Invalid ED25519 key could not be translated to hex text for entity {}.{}.{}. Column " +
+                            "will be nulled. {}",
+                    shard, realm, num, e);
+        }
+    }
+
+    private long getCachedEntityId(long shard, long realm, long num) {
         if (shard + realm + num == 0) {
             return 0;
-        } else if (entities.containsKey(entity)) {
-            return entities.get(entity);
-        } else {
-            return -1;
+        }
+        return entityIdCache.get(shard, realm, num);
+    }
+
+    /**
+     * The columns changed by the transactions of a record file. Null columns are left unchanged and a later change to
+     * a column replaces an earlier one.
+     */
+    private static class EntityUpdate {
+        private final long shard;
+        private final long realm;
+        private final long num;
+        private Long expiryTimeSeconds;
+        private Long expiryTimeNanos;
+        private Long expiryTimeNs;
+        private Long autoRenewPeriod;
+        private byte[] key;
+        private String ed25519PublicKeyHex;
+        private Long proxyAccountId;
+        private Boolean deleted;
+
+        private EntityUpdate(long shard, long realm, long num) {
+            this.shard = shard;
+            this.realm = realm;
+            this.num = num;
         }
     }
 }
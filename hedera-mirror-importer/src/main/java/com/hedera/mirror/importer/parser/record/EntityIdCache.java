@@ -0,0 +1,375 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.base.Stopwatch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Maps shard.realm.num to the t_entities id so entities can be resolved without a database round trip. The cache is
+ * loaded from the database once and then outlives the record files, since t_entities is only changed by the record
+ * file logger. Entities that are not yet committed are recorded in an undo log so a rollback can discard them without
+ * invalidating the rest of the cache. New ids are allocated from s_entities_seq in blocks so that entities can be
+ * inserted in bulk with the rest of the record file.
+ *
+ * Entity ids are kept in open addressing tables of primitive longs, so neither lookups nor the entities of the current
+ * transaction allocate. Entities are keyed by the packed entity number, and those with a shard, realm or number too
+ * large to pack are keyed by all three numbers in a separate table.
+ */
+@Log4j2
+class EntityIdCache implements MeterBinder {
+
+    static final long NOT_FOUND = -1;
+
+    private static final String CACHE_NAME = "entities";
+    private static final int ID_BLOCK_SIZE = 100;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int INITIAL_OVERFLOW_CAPACITY = 1 << 4;
+    private static final int UNDO_WIDTH = 4; // shard, realm, num and the previous id
+
+    private final Table packed = new Table(1, INITIAL_CAPACITY);
+    private final Table overflow = new Table(3, INITIAL_OVERFLOW_CAPACITY);
+    private final long[] idBlock = new long[ID_BLOCK_SIZE];
+    private long[] undo = new long[UNDO_WIDTH * ID_BLOCK_SIZE];
+    private int undoSize;
+    private int idBlockPosition = ID_BLOCK_SIZE;
+    private int savepoint = -1;
+    private boolean loaded;
+    private long hits;
+    private long misses;
+
+    /**
+     * Loads the t_entities table unless it is already cached. The connection must not be in auto-commit mode so the
+     * table is fetched in batches.
+     */
+    void load(Connection connection) throws SQLException {
+        if (loaded) {
+            return;
+        }
+
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        clear();
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "select id, entity_shard, entity_realm, entity_num from t_entities")) {
+            statement.setFetchSize(10_000);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    long shard = resultSet.getLong(2);
+                    long realm = resultSet.getLong(3);
+                    long num = resultSet.getLong(4);
+                    table(shard, realm, num).put(shard, realm, num, resultSet.getLong(1));
+                }
+            }
+        }
+
+        loaded = true;
+        log.info("Loaded {} entity ids in {}", size(), stopwatch);
+    }
+
+    /**
+     * @return the entity id or NOT_FOUND if the entity is not cached
+     */
+    long get(long shard, long realm, long num) {
+        long id = table(shard, realm, num).get(shard, realm, num);
+        if (id == NOT_FOUND) {
+            ++misses;
+        } else {
+            ++hits;
+        }
+        return id;
+    }
+
+    /**
+     * Caches an entity that was inserted in the current transaction.
+     */
+    void put(long shard, long realm, long num, long id) {
+        long previous = table(shard, realm, num).put(shard, realm, num, id);
+        if (undoSize + UNDO_WIDTH > undo.length) {
+            undo = Arrays.copyOf(undo, undo.length * 2);
+        }
+        undo[undoSize++] = shard;
+        undo[undoSize++] = realm;
+        undo[undoSize++] = num;
+        undo[undoSize++] = previous;
+    }
+
+    /**
+     * Allocates a new entity id from s_entities_seq. Ids are fetched in blocks, and an id that is unused because its
+     * transaction rolled back just leaves a gap in the sequence like any other rolled back nextval.
+     */
+    long nextId(Connection connection) throws SQLException {
+        if (idBlockPosition >= ID_BLOCK_SIZE) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(
+                         "select nextval('s_entities_seq') from generate_series(1, " + ID_BLOCK_SIZE + ")")) {
+                int count = 0;
+                while (resultSet.next()) {
+                    idBlock[count++] = resultSet.getLong(1);
+                }
+                idBlockPosition = ID_BLOCK_SIZE - count;
+                System.arraycopy(idBlock, 0, idBlock, idBlockPosition, count);
+            }
+        }
+        return idBlock[idBlockPosition++];
+    }
+
+    /**
+     * Marks the entities cached since the last commit as persisted.
+     */
+    void commit() {
+        undoSize = 0;
+        savepoint = -1;
+    }
+
+    /**
+     * Remembers the entities cached so far, so that rollbackToSavepoint() only discards the ones cached after it.
+     */
+    void setSavepoint() {
+        savepoint = undoSize;
+    }
+
+    /**
+     * Discards the entities cached since setSavepoint(), since they no longer exist after the database rolled back to
+     * its savepoint.
+     */
+    void rollbackToSavepoint() {
+        undo(Math.max(savepoint, 0));
+        savepoint = -1;
+    }
+
+    /**
+     * Discards the entities cached since the last commit, since they no longer exist after a rollback.
+     */
+    void rollback() {
+        undo(0);
+        savepoint = -1;
+    }
+
+    /**
+     * Invalidates the cache so it is reloaded on the next call to load().
+     */
+    void clear() {
+        packed.clear();
+        overflow.clear();
+        undoSize = 0;
+        savepoint = -1;
+        loaded = false;
+    }
+
+    int size() {
+        return packed.size + overflow.size;
+    }
+
+    /**
+     * Exposes the hit and miss counts of get() as the standard cache.gets metric and the size as cache.size.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", this, cache -> cache.hits)
+                .description("The number of times cache lookup methods have returned a cached value")
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", this, cache -> cache.misses)
+                .description("The number of times cache lookup methods have returned an uncached value")
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .register(registry);
+        Gauge.builder("cache.size", this, EntityIdCache::size)
+                .description("The number of entries in the cache")
+                .tag("cache", CACHE_NAME)
+                .register(registry);
+    }
+
+    // Restores the ids that were replaced by the puts after the given position of the undo log, newest first
+    private void undo(int position) {
+        while (undoSize > position) {
+            long previous = undo[--undoSize];
+            long num = undo[--undoSize];
+            long realm = undo[--undoSize];
+            long shard = undo[--undoSize];
+            Table table = table(shard, realm, num);
+            if (previous == NOT_FOUND) {
+                table.remove(shard, realm, num);
+            } else {
+                table.put(shard, realm, num, previous);
+            }
+        }
+    }
+
+    private Table table(long shard, long realm, long num) {
+        return isPackable(shard, realm, num) ? packed : overflow;
+    }
+
+    // Shard uses 15 bits so a packed key is never negative
+    private static boolean isPackable(long shard, long realm, long num) {
+        return shard >= 0 && shard < (1L << 15) && realm >= 0 && realm < (1L << 16) && num >= 0 && num < (1L << 32);
+    }
+
+    /**
+     * An open addressing table with linear probing from an entity to its id. Each slot holds the packed entity number
+     * as its key when the width is 1, or the shard, realm and number when it is 3. Entity ids are never negative, so an
+     * empty slot is marked by a NOT_FOUND value.
+     */
+    private static final class Table {
+
+        private static final float LOAD_FACTOR = 0.5f;
+
+        private final int width;
+        private long[] keys;
+        private long[] values;
+        private int size;
+
+        private Table(int width, int capacity) {
+            this.width = width;
+            allocate(capacity);
+        }
+
+        private long get(long shard, long realm, long num) {
+            return values[slot(shard, realm, num)];
+        }
+
+        // Returns the id that was replaced or NOT_FOUND
+        private long put(long shard, long realm, long num, long id) {
+            int i = slot(shard, realm, num);
+            long previous = values[i];
+            if (previous == NOT_FOUND) {
+                if (width == 1) {
+                    keys[i] = pack(shard, realm, num);
+                } else {
+                    keys[i * 3] = shard;
+                    keys[i * 3 + 1] = realm;
+                    keys[i * 3 + 2] = num;
+                }
+                ++size;
+            }
+            values[i] = id;
+
+            if (size > values.length * LOAD_FACTOR) {
+                resize();
+            }
+            return previous;
+        }
+
+        // Removes the entry and shifts the entries probed after it back so that no lookup stops early at its slot
+        private void remove(long shard, long realm, long num) {
+            int i = slot(shard, realm, num);
+            if (values[i] == NOT_FOUND) {
+                return;
+            }
+
+            int mask = values.length - 1;
+            values[i] = NOT_FOUND;
+            --size;
+            for (int j = (i + 1) & mask; values[j] != NOT_FOUND; j = (j + 1) & mask) {
+                int home = home(j, mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    System.arraycopy(keys, j * width, keys, i * width, width);
+                    values[i] = values[j];
+                    values[j] = NOT_FOUND;
+                    i = j;
+                }
+            }
+        }
+
+        private void clear() {
+            Arrays.fill(values, NOT_FOUND);
+            size = 0;
+        }
+
+        // Returns the slot of the entity, or the empty slot it would be put in
+        private int slot(long shard, long realm, long num) {
+            int mask = values.length - 1;
+            if (width == 1) {
+                long key = pack(shard, realm, num);
+                int i = index(key, mask);
+                while (values[i] != NOT_FOUND && keys[i] != key) {
+                    i = (i + 1) & mask;
+                }
+                return i;
+            }
+
+            int i = index(hash(shard, realm, num), mask);
+            while (values[i] != NOT_FOUND &&
+                    (keys[i * 3] != shard || keys[i * 3 + 1] != realm || keys[i * 3 + 2] != num)) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        // Returns the slot that the entry in the given slot was put in before probing
+        private int home(int i, int mask) {
+            if (width == 1) {
+                return index(keys[i], mask);
+            }
+            return index(hash(keys[i * 3], keys[i * 3 + 1], keys[i * 3 + 2]), mask);
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            allocate(oldValues.length * 2);
+            int mask = values.length - 1;
+
+            for (int j = 0; j < oldValues.length; ++j) {
+                if (oldValues[j] != NOT_FOUND) {
+                    int i = index(width == 1 ? oldKeys[j] : hash(oldKeys[j * 3], oldKeys[j * 3 + 1],
+                            oldKeys[j * 3 + 2]), mask);
+                    while (values[i] != NOT_FOUND) {
+                        i = (i + 1) & mask;
+                    }
+                    System.arraycopy(oldKeys, j * width, keys, i * width, width);
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity * width];
+            values = new long[capacity];
+            Arrays.fill(values, NOT_FOUND);
+        }
+
+        private static long pack(long shard, long realm, long num) {
+            return (shard << 48) | (realm << 32) | num;
+        }
+
+        private static long hash(long shard, long realm, long num) {
+            return (shard * 31 + realm) * 31 + num;
+        }
+
+        private static int index(long key, int mask) {
+            long hash = key * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
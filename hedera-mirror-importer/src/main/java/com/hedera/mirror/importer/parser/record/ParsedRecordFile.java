@@ -0,0 +1,46 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+
+import java.util.List;
+
+import lombok.Value;
+import org.apache.commons.lang3.tuple.Triple;
+
+/**
+ * A record file that has been read, hashed and optionally decoded but not yet persisted. Hashes are hex encoded.
+ */
+@Value
+public class ParsedRecordFile {
+    String fileName;
+    String fileHash; // Hash of this file that is signed by the nodes and linked to by the next file
+    // Hash of the records in this file, or null if the format version doesn't hash them separately or the file was
+    // verified by the downloader
+    String contentHash;
+    String previousHash; // Hash of the previous file as recorded in this file, or null if not present
+    int version;
+    // Each transaction with its record and its encoded contract result, if any. Empty if the records were not decoded
+    List<Triple<Transaction, TransactionRecord, ByteString>> records;
+}
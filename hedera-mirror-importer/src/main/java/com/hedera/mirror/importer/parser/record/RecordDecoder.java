@@ -0,0 +1,349 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
+import com.hederahashgraph.api.proto.java.AccountID;
+import com.hederahashgraph.api.proto.java.Claim;
+import com.hederahashgraph.api.proto.java.ContractFunctionResult;
+import com.hederahashgraph.api.proto.java.CryptoAddClaimTransactionBody;
+import com.hederahashgraph.api.proto.java.CryptoTransferTransactionBody;
+import com.hederahashgraph.api.proto.java.Duration;
+import com.hederahashgraph.api.proto.java.FileAppendTransactionBody;
+import com.hederahashgraph.api.proto.java.FileCreateTransactionBody;
+import com.hederahashgraph.api.proto.java.FileID;
+import com.hederahashgraph.api.proto.java.FileUpdateTransactionBody;
+import com.hederahashgraph.api.proto.java.Timestamp;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionID;
+import com.hederahashgraph.api.proto.java.TransactionReceipt;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import com.hederahashgraph.api.proto.java.TransferList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.commons.lang3.tuple.Triple;
+
+/**
+ * Decodes the transactions and records of a record file. Bytes fields like file contents and contract parameters are
+ * aliased to the record file contents instead of being copied, so a payload is only copied once a handler persists it.
+ * Unless every field is requested, fields that no handler reads are skipped without being decoded:
+ * <ul>
+ * <li>the signatures of the transaction</li>
+ * <li>the contract results of the record if contracts are not persisted</li>
+ * <li>the transfers in the body of a crypto transfer, since the transfer list of its record is persisted instead</li>
+ * <li>the contents of a file if files are not persisted, unless it is a persisted system file or the address book</li>
+ * <li>the hash of a claim if claims are not persisted</li>
+ * </ul>
+ * In that case the transaction body is decoded up front and set as the body of the transaction, so RecordFileLogger
+ * does not decode it again. The known fields are decoded in a single pass and a message with any other field is
+ * decoded in full instead, e.g. the body of a contract call.
+ */
+public class RecordDecoder {
+
+    /**
+     * Decodes every field, e.g. to compare the decoded records with their originals or to log them in full
+     */
+    public static final RecordDecoder ALL_FIELDS = new RecordDecoder(null);
+
+    private static final ExtensionRegistryLite EXTENSIONS = ExtensionRegistryLite.getEmptyRegistry();
+
+    private static final int TRANSACTION_BODY = tag(Transaction.BODY_FIELD_NUMBER);
+    private static final int TRANSACTION_SIGS = tag(Transaction.SIGS_FIELD_NUMBER);
+    private static final int TRANSACTION_SIG_MAP = tag(Transaction.SIGMAP_FIELD_NUMBER);
+    private static final int TRANSACTION_BODY_BYTES = tag(Transaction.BODYBYTES_FIELD_NUMBER);
+
+    private static final int BODY_TRANSACTION_ID = tag(TransactionBody.TRANSACTIONID_FIELD_NUMBER);
+    private static final int BODY_NODE_ACCOUNT_ID = tag(TransactionBody.NODEACCOUNTID_FIELD_NUMBER);
+    private static final int BODY_TRANSACTION_FEE = tag(TransactionBody.TRANSACTIONFEE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_VARINT);
+    private static final int BODY_VALID_DURATION = tag(TransactionBody.TRANSACTIONVALIDDURATION_FIELD_NUMBER);
+    private static final int BODY_GENERATE_RECORD = tag(TransactionBody.GENERATERECORD_FIELD_NUMBER,
+            WireFormat.WIRETYPE_VARINT);
+    private static final int BODY_MEMO = tag(TransactionBody.MEMO_FIELD_NUMBER);
+    private static final int BODY_CRYPTO_TRANSFER = tag(TransactionBody.CRYPTOTRANSFER_FIELD_NUMBER);
+    private static final int BODY_CRYPTO_ADD_CLAIM = tag(TransactionBody.CRYPTOADDCLAIM_FIELD_NUMBER);
+    private static final int BODY_FILE_APPEND = tag(TransactionBody.FILEAPPEND_FIELD_NUMBER);
+    private static final int BODY_FILE_CREATE = tag(TransactionBody.FILECREATE_FIELD_NUMBER);
+    private static final int BODY_FILE_UPDATE = tag(TransactionBody.FILEUPDATE_FIELD_NUMBER);
+
+    private static final int ADD_CLAIM_CLAIM = tag(CryptoAddClaimTransactionBody.CLAIM_FIELD_NUMBER);
+    private static final int CLAIM_HASH = tag(Claim.HASH_FIELD_NUMBER);
+    private static final int FILE_APPEND_CONTENTS = tag(FileAppendTransactionBody.CONTENTS_FIELD_NUMBER);
+    private static final int FILE_CREATE_CONTENTS = tag(FileCreateTransactionBody.CONTENTS_FIELD_NUMBER);
+    private static final int FILE_UPDATE_CONTENTS = tag(FileUpdateTransactionBody.CONTENTS_FIELD_NUMBER);
+
+    private static final int RECORD_RECEIPT = tag(TransactionRecord.RECEIPT_FIELD_NUMBER);
+    private static final int RECORD_TRANSACTION_HASH = tag(TransactionRecord.TRANSACTIONHASH_FIELD_NUMBER);
+    private static final int RECORD_CONSENSUS_TIMESTAMP = tag(TransactionRecord.CONSENSUSTIMESTAMP_FIELD_NUMBER);
+    private static final int RECORD_TRANSACTION_ID = tag(TransactionRecord.TRANSACTIONID_FIELD_NUMBER);
+    private static final int RECORD_MEMO = tag(TransactionRecord.MEMO_FIELD_NUMBER);
+    private static final int RECORD_TRANSACTION_FEE = tag(TransactionRecord.TRANSACTIONFEE_FIELD_NUMBER,
+            WireFormat.WIRETYPE_VARINT);
+    private static final int RECORD_CONTRACT_CALL_RESULT = tag(TransactionRecord.CONTRACTCALLRESULT_FIELD_NUMBER);
+    private static final int RECORD_CONTRACT_CREATE_RESULT = tag(
+            TransactionRecord.CONTRACTCREATERESULT_FIELD_NUMBER);
+    private static final int RECORD_TRANSFER_LIST = tag(TransactionRecord.TRANSFERLIST_FIELD_NUMBER);
+
+    private final RecordParserProperties parserProperties;
+
+    public RecordDecoder(RecordParserProperties parserProperties) {
+        this.parserProperties = parserProperties;
+    }
+
+    /**
+     * Decodes a transaction and its record. The right element is the encoded contract call or create result of the
+     * record as a slice of the record bytes, so that it is persisted without being encoded again. It is null if the
+     * record has no contract result or contracts are not persisted.
+     */
+    public Triple<Transaction, TransactionRecord, ByteString> decode(ByteBuffer transactionBuffer,
+                                                                    ByteBuffer recordBuffer) throws IOException {
+        Transaction transaction = decodeTransaction(transactionBuffer);
+        ByteString recordBytes = UnsafeByteOperations.unsafeWrap(recordBuffer);
+        TransactionRecord record = decodeRecord(recordBytes);
+        ByteString contractResult = null;
+        if (record.hasContractCallResult() || record.hasContractCreateResult()) {
+            if (parserProperties == null || parserProperties.isPersistContracts()) {
+                contractResult = contractResult(recordBytes);
+            }
+        }
+        return Triple.of(transaction, record, contractResult);
+    }
+
+    public Transaction decodeTransaction(ByteBuffer buffer) throws IOException {
+        ByteString bytes = UnsafeByteOperations.unsafeWrap(buffer);
+        if (parserProperties == null) {
+            return Transaction.parseFrom(newCodedInput(bytes));
+        }
+
+        Transaction.Builder builder = Transaction.newBuilder();
+        CodedInputStream input = newCodedInput(bytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == TRANSACTION_BODY_BYTES) {
+                builder.setBodyBytes(input.readBytes());
+            } else if (tag == TRANSACTION_SIGS || tag == TRANSACTION_SIG_MAP) {
+                input.skipField(tag);
+            } else if (tag == TRANSACTION_BODY) {
+                builder.mergeBody(input.readMessage(TransactionBody.parser(), EXTENSIONS));
+            } else {
+                builder = Transaction.parseFrom(newCodedInput(bytes)).toBuilder();
+                break;
+            }
+        }
+
+        if (!builder.hasBody()) {
+            builder.setBody(decodeBody(builder.getBodyBytes()));
+        }
+        return builder.build();
+    }
+
+    public TransactionRecord decodeRecord(ByteBuffer buffer) throws IOException {
+        return decodeRecord(UnsafeByteOperations.unsafeWrap(buffer));
+    }
+
+    private TransactionRecord decodeRecord(ByteString bytes) throws IOException {
+        if (parserProperties == null || parserProperties.isPersistContracts()) {
+            return TransactionRecord.parseFrom(newCodedInput(bytes));
+        }
+
+        // Keeps the presence of the contract results, only their contents are skipped
+        TransactionRecord.Builder builder = TransactionRecord.newBuilder();
+        CodedInputStream input = newCodedInput(bytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == RECORD_RECEIPT) {
+                builder.mergeReceipt(input.readMessage(TransactionReceipt.parser(), EXTENSIONS));
+            } else if (tag == RECORD_TRANSACTION_HASH) {
+                builder.setTransactionHash(input.readBytes());
+            } else if (tag == RECORD_CONSENSUS_TIMESTAMP) {
+                builder.mergeConsensusTimestamp(input.readMessage(Timestamp.parser(), EXTENSIONS));
+            } else if (tag == RECORD_TRANSACTION_ID) {
+                builder.mergeTransactionID(input.readMessage(TransactionID.parser(), EXTENSIONS));
+            } else if (tag == RECORD_MEMO) {
+                builder.setMemoBytes(input.readBytes());
+            } else if (tag == RECORD_TRANSACTION_FEE) {
+                builder.setTransactionFee(input.readUInt64());
+            } else if (tag == RECORD_CONTRACT_CALL_RESULT) {
+                input.skipField(tag);
+                builder.setContractCallResult(ContractFunctionResult.getDefaultInstance());
+            } else if (tag == RECORD_CONTRACT_CREATE_RESULT) {
+                input.skipField(tag);
+                builder.setContractCreateResult(ContractFunctionResult.getDefaultInstance());
+            } else if (tag == RECORD_TRANSFER_LIST) {
+                builder.mergeTransferList(input.readMessage(TransferList.parser(), EXTENSIONS));
+            } else {
+                return TransactionRecord.parseFrom(newCodedInput(bytes));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Decodes a transaction body. This is the fast path for crypto transfers, by far the most common transaction, whose
+     * transfers are skipped while keeping the type of the transaction. The bodies of files and claims only skip the
+     * payloads that are not persisted.
+     */
+    TransactionBody decodeBody(ByteString bodyBytes) throws IOException {
+        TransactionBody.Builder builder = TransactionBody.newBuilder();
+        CodedInputStream input = newCodedInput(bodyBytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == BODY_TRANSACTION_ID) {
+                builder.mergeTransactionID(input.readMessage(TransactionID.parser(), EXTENSIONS));
+            } else if (tag == BODY_NODE_ACCOUNT_ID) {
+                builder.mergeNodeAccountID(input.readMessage(AccountID.parser(), EXTENSIONS));
+            } else if (tag == BODY_TRANSACTION_FEE) {
+                builder.setTransactionFee(input.readUInt64());
+            } else if (tag == BODY_VALID_DURATION) {
+                builder.mergeTransactionValidDuration(input.readMessage(Duration.parser(), EXTENSIONS));
+            } else if (tag == BODY_GENERATE_RECORD) {
+                builder.setGenerateRecord(input.readBool());
+            } else if (tag == BODY_MEMO) {
+                builder.setMemoBytes(input.readBytes());
+            } else if (tag == BODY_CRYPTO_TRANSFER) {
+                input.skipField(tag);
+                builder.setCryptoTransfer(CryptoTransferTransactionBody.getDefaultInstance());
+            } else if (tag == BODY_CRYPTO_ADD_CLAIM) {
+                builder.setCryptoAddClaim(decodeAddClaim(input.readBytes()));
+            } else if (tag == BODY_FILE_APPEND) {
+                builder.setFileAppend(decodeFileAppend(input.readBytes()));
+            } else if (tag == BODY_FILE_CREATE) {
+                builder.setFileCreate(decodeFileCreate(input.readBytes()));
+            } else if (tag == BODY_FILE_UPDATE) {
+                builder.setFileUpdate(decodeFileUpdate(input.readBytes()));
+            } else {
+                return TransactionBody.parseFrom(newCodedInput(bodyBytes));
+            }
+        }
+        return builder.build();
+    }
+
+    private CryptoAddClaimTransactionBody decodeAddClaim(ByteString bytes) throws IOException {
+        if (parserProperties.isPersistClaims()) {
+            return CryptoAddClaimTransactionBody.parseFrom(newCodedInput(bytes), EXTENSIONS);
+        }
+
+        CryptoAddClaimTransactionBody.Builder builder = CryptoAddClaimTransactionBody.newBuilder();
+        CodedInputStream input = newCodedInput(bytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == ADD_CLAIM_CLAIM) {
+                builder.mergeClaim(decodeWithout(input.readBytes(), CLAIM_HASH, Claim.newBuilder()).build());
+            } else {
+                return CryptoAddClaimTransactionBody.parseFrom(newCodedInput(bytes), EXTENSIONS);
+            }
+        }
+        return builder.build();
+    }
+
+    private FileAppendTransactionBody decodeFileAppend(ByteString bytes) throws IOException {
+        if (!parserProperties.isPersistFiles()) {
+            FileAppendTransactionBody fileAppend = decodeWithout(bytes, FILE_APPEND_CONTENTS,
+                    FileAppendTransactionBody.newBuilder()).build();
+            if (!isPersistedSystemFile(fileAppend.getFileID())) {
+                return fileAppend;
+            }
+        }
+        return FileAppendTransactionBody.parseFrom(newCodedInput(bytes), EXTENSIONS);
+    }
+
+    // The id of a created file is only in its receipt, so its contents are kept if any system file is persisted
+    private FileCreateTransactionBody decodeFileCreate(ByteString bytes) throws IOException {
+        if (!parserProperties.isPersistFiles() && !parserProperties.isPersistSystemFiles()) {
+            return decodeWithout(bytes, FILE_CREATE_CONTENTS, FileCreateTransactionBody.newBuilder()).build();
+        }
+        return FileCreateTransactionBody.parseFrom(newCodedInput(bytes), EXTENSIONS);
+    }
+
+    private FileUpdateTransactionBody decodeFileUpdate(ByteString bytes) throws IOException {
+        if (!parserProperties.isPersistFiles()) {
+            FileUpdateTransactionBody fileUpdate = decodeWithout(bytes, FILE_UPDATE_CONTENTS,
+                    FileUpdateTransactionBody.newBuilder()).build();
+            FileID fileId = fileUpdate.getFileID();
+            if (!isPersistedSystemFile(fileId) && !RecordFileLogger.isFileAddressBook(fileId)) {
+                return fileUpdate;
+            }
+        }
+        return FileUpdateTransactionBody.parseFrom(newCodedInput(bytes), EXTENSIONS);
+    }
+
+    private boolean isPersistedSystemFile(FileID fileId) {
+        return parserProperties.isPersistSystemFiles() && fileId.getFileNum() < 1000;
+    }
+
+    /**
+     * Decodes a message without one of its fields. The other fields are merged one at a time, which is the same as
+     * decoding them together.
+     */
+    private static <T extends MessageLite.Builder> T decodeWithout(ByteString bytes, int skippedTag, T builder)
+            throws IOException {
+        CodedInputStream input = newCodedInput(bytes);
+        while (!input.isAtEnd()) {
+            int start = input.getTotalBytesRead();
+            int tag = input.readTag();
+            input.skipField(tag);
+            if (tag != skippedTag) {
+                builder.mergeFrom(newCodedInput(bytes.substring(start, input.getTotalBytesRead())), EXTENSIONS);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Returns the encoded contract result of a record, or null if it occurs more than once since the occurrences are
+     * merged when decoded.
+     */
+    private static ByteString contractResult(ByteString recordBytes) throws IOException {
+        ByteString contractResult = null;
+        CodedInputStream input = newCodedInput(recordBytes);
+        for (int tag = input.readTag(); tag != 0; tag = input.readTag()) {
+            if (tag == RECORD_CONTRACT_CALL_RESULT || tag == RECORD_CONTRACT_CREATE_RESULT) {
+                if (contractResult != null) {
+                    return null;
+                }
+                contractResult = input.readBytes();
+            } else {
+                input.skipField(tag);
+            }
+        }
+        return contractResult;
+    }
+
+    /**
+     * The input of a wrapped buffer treats it as immutable, so that bytes fields can alias it
+     */
+    private static CodedInputStream newCodedInput(ByteString bytes) {
+        CodedInputStream input = bytes.newCodedInput();
+        input.enableAliasing(true);
+        return input;
+    }
+
+    private static int tag(int fieldNumber) {
+        return tag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+    }
+
+    private static int tag(int fieldNumber, int wireType) {
+        return fieldNumber << 3 | wireType;
+    }
+}
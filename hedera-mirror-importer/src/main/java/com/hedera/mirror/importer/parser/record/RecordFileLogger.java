@@ -20,9 +20,11 @@ package com.hedera.mirror.importer.parser.record;
  * ‍
  */
 
+import com.google.protobuf.ByteString;
 import com.hederahashgraph.api.proto.java.AccountID;
 import com.hederahashgraph.api.proto.java.ContractCallTransactionBody;
 import com.hederahashgraph.api.proto.java.ContractCreateTransactionBody;
+import com.hederahashgraph.api.proto.java.ContractFunctionResult;
 import com.hederahashgraph.api.proto.java.ContractUpdateTransactionBody;
 import com.hederahashgraph.api.proto.java.CryptoAddClaimTransactionBody;
 import com.hederahashgraph.api.proto.java.CryptoCreateTransactionBody;
@@ -41,15 +43,23 @@ import com.hederahashgraph.api.proto.java.TransferList;
 import java.io.IOException;
 import java.sql.CallableStatement;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.Set;
 import javax.inject.Named;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.log4j.Log4j2;
 
 import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
+import com.hedera.mirror.importer.domain.ApplicationStatusCode;
+import com.hedera.mirror.importer.domain.ContractResult;
+import com.hedera.mirror.importer.domain.CryptoTransfer;
+import com.hedera.mirror.importer.domain.FileData;
+import com.hedera.mirror.importer.domain.LiveHash;
+import com.hedera.mirror.importer.repository.IngestionState;
 import com.hedera.mirror.importer.util.DatabaseUtilities;
 import com.hedera.mirror.importer.util.Utility;
 
@@ -60,20 +70,30 @@ public class RecordFileLogger {
     private static Entities entities = null;
     private static RecordParserProperties parserProperties = null;
     private static NetworkAddressBook networkAddressBook = null;
+    private static MeterRegistry meterRegistry = null;
+    private static IngestionState ingestionState = null;
 
     private static long fileId = 0;
     private static long BATCH_SIZE = 100;
     private static long batch_count = 0;
 
-    private static PreparedStatement sqlInsertTransaction;
-    private static PreparedStatement sqlInsertTransferList;
-    private static PreparedStatement sqlInsertFileData;
-    private static PreparedStatement sqlInsertContractCall;
-    private static PreparedStatement sqlInsertClaimData;
+    private static RecordWriter recordWriter;
+    private static final EntityIdCache entityIdCache = new EntityIdCache();
 
-    public RecordFileLogger(RecordParserProperties parserProperties, NetworkAddressBook networkAddressBook) {
+    // Files completed since the last commit, which happens after commitFiles files or commitInterval
+    private static int uncommittedFiles = 0;
+    private static long uncommittedSince = 0;
+    private static String uncommittedHash = null;
+    // Set while a file is being added to a transaction that already holds other files so it can be rolled back alone
+    private static Savepoint savepoint = null;
+
+    public RecordFileLogger(RecordParserProperties parserProperties, NetworkAddressBook networkAddressBook,
+                            MeterRegistry meterRegistry, IngestionState ingestionState) {
         RecordFileLogger.parserProperties = parserProperties;
         RecordFileLogger.networkAddressBook = networkAddressBook;
+        RecordFileLogger.meterRegistry = meterRegistry;
+        RecordFileLogger.ingestionState = ingestionState;
+        entityIdCache.bindTo(meterRegistry);
     }
 
     static long getFileId() {
@@ -86,6 +106,9 @@ public class RecordFileLogger {
 
     public static boolean start() {
         batch_count = 0;
+        uncommittedFiles = 0;
+        uncommittedHash = null;
+        savepoint = null;
 
         connect = DatabaseUtilities.openDatabase(connect);
 
@@ -101,37 +124,23 @@ public class RecordFileLogger {
             return false;
         }
         try {
-            entities = new Entities(connect);
+            recordWriter = createRecordWriter();
+        } catch (SQLException e) {
+            log.error("Unable to prepare SQL statements", e);
+            return false;
+        }
+
+        try {
+            entities = new Entities(connect, entityIdCache, recordWriter);
         } catch (SQLException e) {
             log.error("Unable to fetch entity types", e);
             return false;
         }
 
         try {
-            sqlInsertTransaction = connect.prepareStatement("INSERT INTO t_transactions"
-                    + " (fk_node_acc_id, memo, valid_start_ns, type, fk_payer_acc_id"
-                    + ", result, consensus_ns, fk_cud_entity_id, charged_tx_fee"
-                    + ", initial_balance, fk_rec_file_id, valid_duration_seconds, max_fee"
-                    + ", transaction_hash)"
-                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
-
-            sqlInsertTransferList = connect.prepareStatement("INSERT INTO t_cryptotransferlists"
-                    + " (consensus_timestamp, amount, realm_num, entity_num)"
-                    + " VALUES (?, ?, ?, ?)");
-
-            sqlInsertFileData = connect.prepareStatement("INSERT INTO t_file_data"
-                    + " (consensus_timestamp, file_data)"
-                    + " VALUES (?, ?)");
-
-            sqlInsertContractCall = connect.prepareStatement("INSERT INTO t_contract_result"
-                    + " (consensus_timestamp, function_params, gas_supplied, call_result, gas_used)"
-                    + " VALUES (?, ?, ?, ?, ?)");
-
-            sqlInsertClaimData = connect.prepareStatement("INSERT INTO t_livehashes"
-                    + " (consensus_timestamp, livehash)"
-                    + " VALUES (?, ?)");
+            entityIdCache.load(connect);
         } catch (SQLException e) {
-            log.error("Unable to prepare SQL statements", e);
+            log.error("Unable to load entity ids", e);
             return false;
         }
 
@@ -140,11 +149,7 @@ public class RecordFileLogger {
 
     public static boolean finish() {
         try {
-            sqlInsertFileData.close();
-            sqlInsertTransferList.close();
-            sqlInsertTransaction.close();
-            sqlInsertContractCall.close();
-            sqlInsertClaimData.close();
+            recordWriter.close();
 
             connect = DatabaseUtilities.closeDatabase(connect);
             return false;
@@ -154,9 +159,28 @@ public class RecordFileLogger {
         return true;
     }
 
+    private static RecordWriter createRecordWriter() throws SQLException {
+        switch (parserProperties.getWriter()) {
+            case COPY:
+                return new CopyRecordWriter(connect, meterRegistry);
+            case INSERT:
+            default:
+                return new BatchInsertRecordWriter(connect, meterRegistry);
+        }
+    }
+
     public static INIT_RESULT initFile(String fileName) {
         try {
             fileId = 0;
+            if (uncommittedFiles > 0) {
+                savepoint = connect.setSavepoint();
+                entityIdCache.setSavepoint();
+            } else if (!parserProperties.isSynchronousCommit()) {
+                // Only for this transaction so the pooled connection is returned with the server default
+                try (Statement statement = connect.createStatement()) {
+                    statement.execute("set local synchronous_commit to off");
+                }
+            }
 
             try (CallableStatement fileCreate = connect.prepareCall("{? = call f_file_create( ? ) }")) {
                 fileCreate.registerOutParameter(1, Types.BIGINT);
@@ -166,6 +190,11 @@ public class RecordFileLogger {
             }
 
             if (fileId == 0) {
+                // Nothing was written since the savepoint, which must not outlive the skipped file
+                if (savepoint != null) {
+                    connect.releaseSavepoint(savepoint);
+                    savepoint = null;
+                }
                 log.trace("File {} already exists in the database.", fileName);
                 return INIT_RESULT.SKIP;
             } else {
@@ -178,11 +207,18 @@ public class RecordFileLogger {
         return INIT_RESULT.FAIL;
     }
 
-    public static void completeFile(String fileHash, String previousHash) throws SQLException {
-        try (CallableStatement fileClose = connect.prepareCall("{call f_file_complete( ?, ?, ? ) }")) {
-            // execute any remaining batches
-            executeBatches();
+    /**
+     * Completes the current file along with the last processed record hash, committing it together with the other
+     * files completed since the last commit once commitFiles files or commitInterval have been reached.
+     *
+     * @return whether the file was committed
+     */
+    public static boolean completeFile(String fileHash, String previousHash) throws SQLException {
+        // execute any remaining batches, then apply the entity updates to the entities they created
+        executeBatches();
+        entities.flush();
 
+        try (CallableStatement fileClose = connect.prepareCall("{call f_file_complete( ?, ?, ? ) }")) {
             // update the file to processed
 
             fileClose.setLong(1, fileId);
@@ -200,24 +236,100 @@ public class RecordFileLogger {
             }
 
             fileClose.execute();
-            // commit the changes to the database
-            connect.commit();
+        }
+
+        if (!Utility.hashIsEmpty(fileHash)) {
+            ingestionState.write(connect, ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH, fileHash);
+        }
+
+        if (savepoint != null) {
+            connect.releaseSavepoint(savepoint);
+            savepoint = null;
+        }
+
+        if (!Utility.hashIsEmpty(fileHash)) {
+            uncommittedHash = fileHash;
+        }
+
+        if (uncommittedFiles++ == 0) {
+            uncommittedSince = System.nanoTime();
+        }
+
+        if (uncommittedFiles >= parserProperties.getCommitFiles() ||
+                System.nanoTime() - uncommittedSince >= parserProperties.getCommitInterval().toNanos()) {
+            commit();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return whether there are completed files waiting for commit()
+     */
+    public static boolean hasUncommittedFiles() {
+        return uncommittedFiles > 0;
+    }
+
+    /**
+     * Commits the files completed since the last commit.
+     */
+    public static void commit() throws SQLException {
+        // commit the changes to the database
+        connect.commit();
+        entityIdCache.commit();
+        uncommittedFiles = 0;
+        if (uncommittedHash != null) {
+            ingestionState.committed(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH, uncommittedHash);
+            uncommittedHash = null;
         }
     }
 
+    /**
+     * Rolls back the current file. The files completed before it in the same transaction are kept, unless there is no
+     * savepoint for the current file because it failed before setting one or while committing, in which case they are
+     * rolled back too and hasUncommittedFiles() is false afterwards.
+     */
     public static void rollback() {
         try {
-            connect.rollback();
+            recordWriter.clear();
+            entities.clear();
+            if (savepoint != null) {
+                connect.rollback(savepoint);
+                savepoint = null;
+                entityIdCache.rollbackToSavepoint();
+            } else {
+                connect.rollback();
+                uncommittedFiles = 0;
+                uncommittedHash = null;
+                entityIdCache.rollback();
+            }
         } catch (SQLException e) {
             log.error("Exception while rolling transaction back", e);
         }
     }
 
+    /**
+     * Discards the cached entity ids so they are reloaded by the next start(), for when t_entities was changed by
+     * something other than this logger.
+     */
+    public static void invalidateEntityIdCache() {
+        entityIdCache.clear();
+    }
+
     public static boolean isSuccessful(TransactionRecord transactionRecord) {
         return ResponseCodeEnum.SUCCESS == transactionRecord.getReceipt().getStatus();
     }
 
     public static void storeRecord(Transaction transaction, TransactionRecord txRecord) throws Exception {
+        storeRecord(transaction, txRecord, null);
+    }
+
+    /**
+     * Stores a transaction and its record. The contract result is the encoded contract call or create result of the
+     * record as read from the record file, or null to encode it from the record.
+     */
+    public static void storeRecord(Transaction transaction, TransactionRecord txRecord, ByteString contractResult)
+            throws Exception {
         long createdAccountId = 0;
         TransactionBody body;
 
@@ -236,23 +348,22 @@ public class RecordFileLogger {
         var c = txRecord.getConsensusTimestamp();
         long consensusNs = Utility.convertToNanos(c.getSeconds(), c.getNanos());
 
-        sqlInsertTransaction.setLong(F_TRANSACTION.FK_NODE_ACCOUNT_ID.ordinal(), fkNodeAccountId);
-        sqlInsertTransaction.setBytes(F_TRANSACTION.MEMO.ordinal(), body.getMemo().getBytes());
-        sqlInsertTransaction.setLong(F_TRANSACTION.VALID_START_NS.ordinal(), validStartNs);
-        sqlInsertTransaction.setInt(F_TRANSACTION.TYPE.ordinal(), getTransactionType(body));
-        sqlInsertTransaction.setLong(F_TRANSACTION.FK_REC_FILE_ID.ordinal(), fileId);
-        sqlInsertTransaction.setLong(F_TRANSACTION.VALID_DURATION_SECONDS.ordinal(), validDurationSeconds);
+        com.hedera.mirror.importer.domain.Transaction tx = new com.hedera.mirror.importer.domain.Transaction();
+        tx.setNodeAccountId(fkNodeAccountId);
+        tx.setMemo(body.getMemo().getBytes());
+        tx.setValidStartNs(validStartNs);
+        tx.setType(getTransactionType(body));
+        tx.setRecordFileId(fileId);
+        tx.setValidDurationSeconds(validDurationSeconds);
 
         AccountID fkPayerAccountId = transactionID.getAccountID();
 
-        sqlInsertTransaction
-                .setLong(F_TRANSACTION.FK_PAYER_ACCOUNT_ID.ordinal(), entities.createOrGetEntity(fkPayerAccountId));
-        sqlInsertTransaction.setLong(F_TRANSACTION.RESULT.ordinal(), txRecord.getReceipt().getStatusValue());
-        sqlInsertTransaction.setLong(F_TRANSACTION.CONSENSUS_NS.ordinal(), consensusNs);
-        sqlInsertTransaction.setLong(F_TRANSACTION.CHARGED_TX_FEE.ordinal(), txRecord.getTransactionFee());
-        sqlInsertTransaction.setLong(F_TRANSACTION.MAX_FEE.ordinal(), body.getTransactionFee());
-        sqlInsertTransaction
-                .setBytes(F_TRANSACTION.TRANSACTION_HASH.ordinal(), txRecord.getTransactionHash().toByteArray());
+        tx.setPayerAccountId(entities.createOrGetEntity(fkPayerAccountId));
+        tx.setResult(txRecord.getReceipt().getStatusValue());
+        tx.setConsensusNs(consensusNs);
+        tx.setChargedTxFee(txRecord.getTransactionFee());
+        tx.setMaxFee(body.getTransactionFee());
+        tx.setTransactionHash(txRecord.getTransactionHash().toByteArray());
 
         long entityId = 0;
         long initialBalance = 0;
@@ -484,14 +595,11 @@ public class RecordFileLogger {
             }
         }
 
-        if (entityId == 0) {
-            // insert null
-            sqlInsertTransaction.setObject(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), null);
-        } else {
-            sqlInsertTransaction.setLong(F_TRANSACTION.CUD_ENTITY_ID.ordinal(), entityId);
+        if (entityId != 0) {
+            tx.setEntityId(entityId);
         }
-        sqlInsertTransaction.setLong(F_TRANSACTION.INITIAL_BALANCE.ordinal(), initialBalance);
-        sqlInsertTransaction.addBatch();
+        tx.setInitialBalance(initialBalance);
+        recordWriter.insertTransaction(tx);
 
         if ((txRecord.hasTransferList()) && parserProperties.isPersistCryptoTransferAmounts()) {
             if (body.hasCryptoCreateAccount() && isSuccessful(txRecord)) {
@@ -503,11 +611,11 @@ public class RecordFileLogger {
         }
 
         // TransactionBody-specific handlers.
-        // If so-configured, each will update the SQL prepared statements via addBatch().
+        // If so-configured, each will queue its rows with the record writer.
         if (body.hasContractCall()) {
-            insertContractCall(consensusNs, body.getContractCall(), txRecord);
+            insertContractCall(consensusNs, body.getContractCall(), txRecord, contractResult);
         } else if (body.hasContractCreateInstance()) {
-            insertContractCreateInstance(consensusNs, body.getContractCreateInstance(), txRecord);
+            insertContractCreateInstance(consensusNs, body.getContractCreateInstance(), txRecord, contractResult);
         }
         if (doUpdateEntity) {
             if (body.hasCryptoAddClaim()) {
@@ -523,7 +631,7 @@ public class RecordFileLogger {
 
         if (batch_count == BATCH_SIZE - 1) {
             // execute any remaining batches
-            executeBatches();
+            recordWriter.flushBatch();
             batch_count = 0;
         } else {
             batch_count += 1;
@@ -536,9 +644,7 @@ public class RecordFileLogger {
                 (parserProperties.isPersistSystemFiles() && transactionRecord.getReceipt().getFileID()
                         .getFileNum() < 1000)) {
             byte[] contents = transactionBody.getContents().toByteArray();
-            sqlInsertFileData.setLong(F_FILE_DATA.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-            sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), contents);
-            sqlInsertFileData.addBatch();
+            insertFileData(consensusTimestamp, contents);
         }
     }
 
@@ -547,9 +653,7 @@ public class RecordFileLogger {
         if (parserProperties.isPersistFiles() ||
                 (parserProperties.isPersistSystemFiles() && transactionBody.getFileID().getFileNum() < 1000)) {
             byte[] contents = transactionBody.getContents().toByteArray();
-            sqlInsertFileData.setLong(F_FILE_DATA.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-            sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), contents);
-            sqlInsertFileData.addBatch();
+            insertFileData(consensusTimestamp, contents);
 
             // update the local address book
             if (isFileAddressBook(transactionBody.getFileID())) {
@@ -564,45 +668,48 @@ public class RecordFileLogger {
         if (parserProperties.isPersistClaims()) {
             byte[] claim = transactionBody.getClaim().getHash().toByteArray();
 
-            sqlInsertClaimData.setLong(F_LIVEHASH_DATA.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-            sqlInsertClaimData.setBytes(F_LIVEHASH_DATA.LIVEHASH.ordinal(), claim);
-            sqlInsertClaimData.addBatch();
+            LiveHash liveHash = new LiveHash();
+            liveHash.setConsensusTimestamp(consensusTimestamp);
+            liveHash.setLivehash(claim);
+            recordWriter.insertLiveHash(liveHash);
         }
     }
 
     private static void insertContractCall(long consensusTimestamp,
                                            ContractCallTransactionBody transactionBody,
-                                           TransactionRecord transactionRecord) throws SQLException {
+                                           TransactionRecord transactionRecord,
+                                           ByteString contractResult) throws SQLException {
         if (parserProperties.isPersistContracts()) {
             byte[] functionParams = transactionBody.getFunctionParameters().toByteArray();
             long gasSupplied = transactionBody.getGas();
             byte[] callResult = new byte[0];
             long gasUsed = 0;
             if (transactionRecord.hasContractCallResult()) {
-                callResult = transactionRecord.getContractCallResult().toByteArray();
-                gasUsed = transactionRecord.getContractCallResult().getGasUsed();
+                ContractFunctionResult result = transactionRecord.getContractCallResult();
+                callResult = contractResult != null ? contractResult.toByteArray() : result.toByteArray();
+                gasUsed = result.getGasUsed();
             }
 
-            insertContractResults(sqlInsertContractCall, consensusTimestamp, functionParams, gasSupplied, callResult,
-                    gasUsed);
+            insertContractResult(consensusTimestamp, functionParams, gasSupplied, callResult, gasUsed);
         }
     }
 
     private static void insertContractCreateInstance(long consensusTimestamp,
                                                      ContractCreateTransactionBody transactionBody,
-                                                     TransactionRecord transactionRecord) throws SQLException {
+                                                     TransactionRecord transactionRecord,
+                                                     ByteString contractResult) throws SQLException {
         if (parserProperties.isPersistContracts()) {
             byte[] functionParams = transactionBody.getConstructorParameters().toByteArray();
             long gasSupplied = transactionBody.getGas();
             byte[] callResult = new byte[0];
             long gasUsed = 0;
             if (transactionRecord.hasContractCreateResult()) {
-                callResult = transactionRecord.getContractCreateResult().toByteArray();
-                gasUsed = transactionRecord.getContractCreateResult().getGasUsed();
+                ContractFunctionResult result = transactionRecord.getContractCreateResult();
+                callResult = contractResult != null ? contractResult.toByteArray() : result.toByteArray();
+                gasUsed = result.getGasUsed();
             }
 
-            insertContractResults(sqlInsertContractCall, consensusTimestamp, functionParams, gasSupplied, callResult,
-                    gasUsed);
+            insertContractResult(consensusTimestamp, functionParams, gasSupplied, callResult, gasUsed);
         }
     }
 
@@ -610,16 +717,11 @@ public class RecordFileLogger {
             throws SQLException {
 
         for (int i = 0; i < transferList.getAccountAmountsCount(); ++i) {
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
             var aa = transferList.getAccountAmounts(i);
             var accountId = aa.getAccountID();
             entities.createOrGetEntity(accountId);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), aa.getAmount());
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.REALM_NUM.ordinal(),
-                    accountId.getRealmNum());
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.ENTITY_NUM.ordinal(),
+            insertCryptoTransfer(consensusTimestamp, aa.getAmount(), accountId.getRealmNum(),
                     accountId.getAccountNum());
-            sqlInsertTransferList.addBatch();
         }
     }
 
@@ -643,19 +745,13 @@ public class RecordFileLogger {
         }
         TransferList transferList = txRecord.getTransferList();
         for (int i = 0; i < transferList.getAccountAmountsCount(); ++i) {
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
             var aa = transferList.getAccountAmounts(i);
             long amount = aa.getAmount();
             var accountId = aa.getAccountID();
             long accountNum = accountId.getAccountNum();
             entities.createOrGetEntity(accountId);
 
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), amount);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.REALM_NUM.ordinal(),
-                    accountId.getRealmNum());
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.ENTITY_NUM.ordinal(),
-                    accountNum);
-            sqlInsertTransferList.addBatch();
+            insertCryptoTransfer(consensusTimestamp, amount, accountId.getRealmNum(), accountNum);
 
             if (addInitialBalance && (initialBalance == aa.getAmount()) && (accountNum == createdAccountNum)) {
                 addInitialBalance = false;
@@ -664,46 +760,38 @@ public class RecordFileLogger {
 
         if (addInitialBalance) {
             entities.createOrGetEntity(payerAccountId);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), -initialBalance);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.REALM_NUM.ordinal(),
-                    payerAccountId.getRealmNum());
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.ENTITY_NUM.ordinal(),
+            insertCryptoTransfer(consensusTimestamp, -initialBalance, payerAccountId.getRealmNum(),
                     payerAccountId.getAccountNum());
 
-            sqlInsertTransferList.addBatch();
-
             entities.createOrGetEntity(createdAccountId);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.REALM_NUM.ordinal(),
-                    createdAccountId.getRealmNum());
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.ENTITY_NUM.ordinal(),
+            insertCryptoTransfer(consensusTimestamp, initialBalance, createdAccountId.getRealmNum(),
                     createdAccountNum);
-            sqlInsertTransferList.setLong(F_TRANSFERLIST.AMOUNT.ordinal(), initialBalance);
-
-            sqlInsertTransferList.addBatch();
         }
     }
 
-    private static boolean isFileAddressBook(FileID fileId) {
+    static boolean isFileAddressBook(FileID fileId) {
         return (fileId.getFileNum() == 102) && (fileId.getShardNum() == 0) && (fileId.getRealmNum() == 0);
     }
 
     private static void insertFileUpdate(long consensusTimestamp, FileUpdateTransactionBody transactionBody)
             throws SQLException, IOException {
         FileID fileId = transactionBody.getFileID();
-        if (parserProperties.isPersistFiles() ||
-                (parserProperties.isPersistSystemFiles() && fileId.getFileNum() < 1000)) {
-            byte[] contents = transactionBody.getContents().toByteArray();
-            sqlInsertFileData.setLong(F_FILE_DATA.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-            sqlInsertFileData.setBytes(F_FILE_DATA.FILE_DATA.ordinal(), contents);
-            sqlInsertFileData.addBatch();
+        boolean persist = parserProperties.isPersistFiles() ||
+                (parserProperties.isPersistSystemFiles() && fileId.getFileNum() < 1000);
+        boolean addressBook = isFileAddressBook(fileId);
+        if (!persist && !addressBook) {
+            return;
+        }
+
+        byte[] contents = transactionBody.getContents().toByteArray();
+        if (persist) {
+            insertFileData(consensusTimestamp, contents);
         }
 
         // update the local address book
-        if (isFileAddressBook(fileId)) {
+        if (addressBook) {
             // we have an address book update, refresh the local file
-            networkAddressBook.update(transactionBody.getContents().toByteArray());
+            networkAddressBook.update(contents);
         }
     }
 
@@ -732,51 +820,39 @@ public class RecordFileLogger {
         return dataCase.getNumber();
     }
 
-    public static void insertContractResults(PreparedStatement insert, long consensusTimestamp,
-                                             byte[] functionParams, long gasSupplied,
-                                             byte[] callResult, long gasUsed) throws SQLException {
-        insert.setLong(F_CONTRACT_CALL.CONSENSUS_TIMESTAMP.ordinal(), consensusTimestamp);
-        insert.setBytes(F_CONTRACT_CALL.FUNCTION_PARAMS.ordinal(), functionParams);
-        insert.setLong(F_CONTRACT_CALL.GAS_SUPPLIED.ordinal(), gasSupplied);
-        insert.setBytes(F_CONTRACT_CALL.CALL_RESULT.ordinal(), callResult);
-        insert.setLong(F_CONTRACT_CALL.GAS_USED.ordinal(), gasUsed);
-
-        insert.addBatch();
-    }
-
-    private static void executeBatches() throws SQLException {
-        sqlInsertTransaction.executeBatch();
-        sqlInsertTransferList.executeBatch();
-        sqlInsertFileData.executeBatch();
-        sqlInsertContractCall.executeBatch();
-        sqlInsertClaimData.executeBatch();
-    }
-
-    public enum INIT_RESULT {
-        OK, FAIL, SKIP
-    }
-
-    enum F_TRANSACTION {
-        ZERO // column indices start at 1, this creates the necessary offset
-        , FK_NODE_ACCOUNT_ID, MEMO, VALID_START_NS, TYPE, FK_PAYER_ACCOUNT_ID, RESULT, CONSENSUS_NS,
-        CUD_ENTITY_ID, CHARGED_TX_FEE, INITIAL_BALANCE, FK_REC_FILE_ID, VALID_DURATION_SECONDS, MAX_FEE,
-        TRANSACTION_HASH
+    private static void insertCryptoTransfer(long consensusTimestamp, long amount, long realmNum, long entityNum)
+            throws SQLException {
+        CryptoTransfer cryptoTransfer = new CryptoTransfer();
+        cryptoTransfer.setConsensusTimestamp(consensusTimestamp);
+        cryptoTransfer.setAmount(amount);
+        cryptoTransfer.setRealmNum(realmNum);
+        cryptoTransfer.setEntityNum(entityNum);
+        recordWriter.insertCryptoTransfer(cryptoTransfer);
     }
 
-    enum F_TRANSFERLIST {
-        ZERO // column indices start at 1, this creates the necessary offset
-        , CONSENSUS_TIMESTAMP, AMOUNT, REALM_NUM, ENTITY_NUM
+    private static void insertFileData(long consensusTimestamp, byte[] contents) throws SQLException {
+        FileData fileData = new FileData();
+        fileData.setConsensusTimestamp(consensusTimestamp);
+        fileData.setFileData(contents);
+        recordWriter.insertFileData(fileData);
     }
 
-    enum F_FILE_DATA {
-        ZERO, CONSENSUS_TIMESTAMP, FILE_DATA
+    private static void insertContractResult(long consensusTimestamp, byte[] functionParams, long gasSupplied,
+                                             byte[] callResult, long gasUsed) throws SQLException {
+        ContractResult contractResult = new ContractResult();
+        contractResult.setConsensusTimestamp(consensusTimestamp);
+        contractResult.setFunctionParameters(functionParams);
+        contractResult.setGasSupplied(gasSupplied);
+        contractResult.setCallResult(callResult);
+        contractResult.setGasUsed(gasUsed);
+        recordWriter.insertContractResult(contractResult);
     }
 
-    enum F_CONTRACT_CALL {
-        ZERO, CONSENSUS_TIMESTAMP, FUNCTION_PARAMS, GAS_SUPPLIED, CALL_RESULT, GAS_USED
+    private static void executeBatches() throws SQLException {
+        recordWriter.flush();
     }
 
-    enum F_LIVEHASH_DATA {
-        ZERO, CONSENSUS_TIMESTAMP, LIVEHASH
+    public enum INIT_RESULT {
+        OK, FAIL, SKIP
     }
 }
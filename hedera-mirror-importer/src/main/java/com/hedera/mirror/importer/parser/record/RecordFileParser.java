@@ -21,28 +21,43 @@ package com.hedera.mirror.importer.parser.record;
  */
 
 import com.google.common.base.Stopwatch;
+import com.google.protobuf.ByteString;
 import com.google.protobuf.TextFormat;
 import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionRecord;
 
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.inject.Named;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.log4j.Log4j2;
-import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.parser.FileParser;
-import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
-import com.hedera.mirror.importer.util.FileDelimiter;
+import com.hedera.mirror.importer.repository.IngestionState;
 import com.hedera.mirror.importer.util.ShutdownHelper;
 import com.hedera.mirror.importer.util.Utility;
 
@@ -53,206 +68,338 @@ import com.hedera.mirror.importer.util.Utility;
 @Named
 public class RecordFileParser implements FileParser {
 
-    private final ApplicationStatusRepository applicationStatusRepository;
-    private final RecordParserProperties parserProperties;
+    private static final Duration QUEUE_POLL_TIMEOUT = Duration.ofMillis(100L);
 
-    public RecordFileParser(ApplicationStatusRepository applicationStatusRepository,
-                            RecordParserProperties parserProperties) {
-        this.applicationStatusRepository = applicationStatusRepository;
+    private final IngestionState ingestionState;
+    private final RecordParserProperties parserProperties;
+    private final RecordDecoder recordDecoder;
+    private final RecordFileQueue recordFileQueue;
+    // Thread pool used to read and decode the next files while the current file is written to the database
+    private final ExecutorService readAheadThreadPool;
+    // Thread that parses the files queued by the downloader
+    private final ExecutorService queueThreadPool = Executors.newSingleThreadExecutor();
+    private final Counter recordsCounter;
+    private final Timer parseDurationTimer;
+    private final Timer latencyTimer;
+    // Whether the consumer of the queue started the logger, which then stays started between the files it parses
+    private boolean loggerStarted = false;
+
+    public RecordFileParser(IngestionState ingestionState, RecordParserProperties parserProperties,
+                            MeterRegistry meterRegistry, RecordFileQueue recordFileQueue) {
+        this.ingestionState = ingestionState;
         this.parserProperties = parserProperties;
+        this.recordFileQueue = recordFileQueue;
+        recordDecoder = new RecordDecoder(parserProperties);
+        String type = parserProperties.getStreamType().toString();
+        recordsCounter = Counter.builder("hedera.mirror.parse.records")
+                .description("The number of records parsed and persisted")
+                .tag("type", type)
+                .register(meterRegistry);
+        parseDurationTimer = Timer.builder("hedera.mirror.parse.duration")
+                .description("The time it takes to persist a parsed file")
+                .tag("type", type)
+                .register(meterRegistry);
+        latencyTimer = Timer.builder("hedera.mirror.parse.latency")
+                .description("The time between the consensus timestamp of the last transaction in a file and when " +
+                        "the file was persisted")
+                .tag("type", type)
+                .register(meterRegistry);
+        readAheadThreadPool = Executors.newFixedThreadPool(parserProperties.getReadAhead());
+        Runtime.getRuntime().addShutdownHook(new Thread(readAheadThreadPool::shutdown));
+        Runtime.getRuntime().addShutdownHook(new Thread(queueThreadPool::shutdownNow));
     }
 
     /**
-     * Given a service record name, read its prevFileHash
+     * Given a service record name, read, hash and decode it in a single pass without touching the database. This is
+     * run ahead of the database writer on the read ahead thread pool.
      *
      * @param fileName the name of record file to read
-     * @return return previous file hash's Hex String
+     * @param decoder  decodes the transactions and records of the file
+     * @return the decoded record file
+     * @throws Exception if the file could not be read or is not a valid record file
      */
-    public static String readPrevFileHash(String fileName) {
+    static ParsedRecordFile readRecordFile(String fileName, RecordDecoder decoder) throws Exception {
         File file = new File(fileName);
-        if (file.exists() == false) {
-            log.warn("File does not exist {}", fileName);
-            return null;
-        }
-        byte[] prevFileHash = new byte[48];
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-            // record_format_version
-            dis.readInt();
-            // version
-            dis.readInt();
-
-            byte typeDelimiter = dis.readByte();
-
-            if (typeDelimiter == FileDelimiter.RECORD_TYPE_PREV_HASH) {
-                dis.read(prevFileHash);
-                String hexString = Hex.encodeHexString(prevFileHash);
-                log.trace("Read previous file hash {} for file {}", hexString, fileName);
-                return hexString;
-            } else {
-                log.error("Expecting previous file hash, but found file delimiter {} for file {}", typeDelimiter,
-                        fileName);
-            }
-        } catch (Exception e) {
-            log.error("Error reading previous file hash {}", fileName, e);
+        if (!file.exists()) {
+            throw new FileNotFoundException("File does not exist " + fileName);
         }
 
-        return null;
+        ParsedRecordFile parsedRecordFile = RecordFileReader.read(file, decoder);
+        log.info("Loaded version {} record file: {}", parsedRecordFile.getVersion(), file.getName());
+        return parsedRecordFile;
     }
 
     /**
-     * Given a service record name, read and parse and return as a list of service record pair
+     * Same as {@link #readRecordFile(String, RecordDecoder)} but takes the hashes that the downloader verified instead
+     * of calculating them again, and reads the contents from memory if the downloader still had them
+     */
+    static ParsedRecordFile readRecordFile(ValidRecordFile validRecordFile, RecordDecoder decoder) throws Exception {
+        ParsedRecordFile parsedRecordFile = RecordFileReader.read(validRecordFile, decoder);
+        log.info("Loaded version {} record file: {}", parsedRecordFile.getVersion(),
+                validRecordFile.getFile().getName());
+        return parsedRecordFile;
+    }
+
+    /**
+     * Persist a record file that is being read in the background, verifying it continues the hash chain. The file
+     * may not be committed yet if other files are committed along with it.
      *
-     * @param fileName         the name of record file to read
+     * @param fileName         the name of record file to persist
+     * @param recordFile       the pending result of reading the record file
      * @param previousFileHash the hash of the previous record file in the series
-     * @param thisFileHash     the hash of this file
-     * @return return boolean indicating method success
-     * @throws Exception
+     * @return the hash of this file if it was persisted or skipped, otherwise null
      */
-    private boolean loadRecordFile(String fileName, String previousFileHash, String thisFileHash) throws Exception {
-
-        File file = new File(fileName);
-        String newFileHash = "";
-
-        if (file.exists() == false) {
-            log.warn("File does not exist {}", fileName);
-            return false;
-        }
-        long counter = 0;
-        byte[] readFileHash = new byte[48];
+    private String loadRecordFile(String fileName, Future<ParsedRecordFile> recordFile, String previousFileHash) {
         RecordFileLogger.INIT_RESULT initFileResult = RecordFileLogger.initFile(fileName);
         Stopwatch stopwatch = Stopwatch.createStarted();
 
         if (initFileResult == RecordFileLogger.INIT_RESULT.OK) {
-            try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
-                int record_format_version = dis.readInt();
-                int version = dis.readInt();
-
-                log.info("Loading version {} record file: {}", record_format_version, file.getName());
-
-                while (dis.available() != 0) {
-
-                    try {
-                        byte typeDelimiter = dis.readByte();
-
-                        switch (typeDelimiter) {
-                            case FileDelimiter.RECORD_TYPE_PREV_HASH:
-                                dis.read(readFileHash);
-
-                                if (Utility.hashIsEmpty(previousFileHash)) {
-                                    log.error("Previous file hash not available");
-                                    previousFileHash = Hex.encodeHexString(readFileHash);
-                                }
-
-                                newFileHash = Hex.encodeHexString(readFileHash);
-
-                                log.trace("New file hash = {}, old hash = {}", newFileHash, previousFileHash);
-
-                                if (!newFileHash.contentEquals(previousFileHash)) {
-
-                                    if (applicationStatusRepository
-                                            .findByStatusCode(ApplicationStatusCode.RECORD_HASH_MISMATCH_BYPASS_UNTIL_AFTER)
-                                            .compareTo(Utility.getFileName(fileName)) < 0) {
-                                        // last file for which mismatch is allowed is in the past
-                                        log.error("Hash mismatch for file {}. Previous = {}, Current = {}", fileName,
-                                                previousFileHash, newFileHash);
-                                        RecordFileLogger.rollback();
-                                        return false;
-                                    }
-                                }
-                                break;
-                            case FileDelimiter.RECORD_TYPE_RECORD:
-                                counter++;
-
-                                int byteLength = dis.readInt();
-                                byte[] rawBytes = new byte[byteLength];
-                                dis.readFully(rawBytes);
-                                Transaction transaction = Transaction.parseFrom(rawBytes);
-
-                                byteLength = dis.readInt();
-                                rawBytes = new byte[byteLength];
-                                dis.readFully(rawBytes);
-
-                                TransactionRecord txRecord = TransactionRecord.parseFrom(rawBytes);
-                                RecordFileLogger.storeRecord(transaction, txRecord);
-
-                                if (log.isTraceEnabled()) {
-                                    log.trace("Transaction = {}, Record = {}", Utility
-                                            .printTransaction(transaction), TextFormat.shortDebugString(txRecord));
-                                } else {
-                                    log.debug("Stored transaction with consensus timestamp {}", txRecord
-                                            .getConsensusTimestamp());
-                                }
-                                break;
-                            case FileDelimiter.RECORD_TYPE_SIGNATURE:
-                                int sigLength = dis.readInt();
-                                byte[] sigBytes = new byte[sigLength];
-                                dis.readFully(sigBytes);
-                                log.trace("File {} has signature {}", fileName, Hex.encodeHexString(sigBytes));
-                                break;
-
-                            default:
-                                log.error("Unknown record file delimiter {} for file {}", typeDelimiter, file);
-                                RecordFileLogger.rollback();
-                                return false;
+            ParsedRecordFile parsedRecordFile;
+            try {
+                parsedRecordFile = recordFile.get();
+            } catch (Exception e) {
+                log.error("Error parsing record file {}", fileName, e);
+                RecordFileLogger.rollback();
+                return null;
+            }
+
+            try {
+                String newFileHash = parsedRecordFile.getPreviousHash();
+
+                if (newFileHash != null) {
+                    if (Utility.hashIsEmpty(previousFileHash)) {
+                        log.error("Previous file hash not available");
+                        previousFileHash = newFileHash;
+                    }
+
+                    log.trace("New file hash = {}, old hash = {}", newFileHash, previousFileHash);
+
+                    if (!newFileHash.contentEquals(previousFileHash)) {
+
+                        if (ingestionState.get(ApplicationStatusCode.RECORD_HASH_MISMATCH_BYPASS_UNTIL_AFTER)
+                                .compareTo(Utility.getFileName(fileName)) < 0) {
+                            // last file for which mismatch is allowed is in the past
+                            log.error("Hash mismatch for file {}. Previous = {}, Current = {}", fileName,
+                                    previousFileHash, newFileHash);
+                            RecordFileLogger.rollback();
+                            return null;
                         }
-                    } catch (Exception e) {
-                        log.error("Exception {}", e);
-                        RecordFileLogger.rollback();
-                        return false;
                     }
                 }
 
+                for (Triple<Transaction, TransactionRecord, ByteString> record : parsedRecordFile.getRecords()) {
+                    Transaction transaction = record.getLeft();
+                    TransactionRecord txRecord = record.getMiddle();
+                    RecordFileLogger.storeRecord(transaction, txRecord, record.getRight());
+
+                    if (log.isTraceEnabled()) {
+                        log.trace("Transaction = {}, Record = {}", Utility
+                                .printTransaction(transaction), TextFormat.shortDebugString(txRecord));
+                    } else {
+                        log.debug("Stored transaction with consensus timestamp {}", txRecord
+                                .getConsensusTimestamp());
+                    }
+                }
+
+                String thisFileHash = parsedRecordFile.getFileHash();
                 log.trace("Calculated file hash for the current file {}", thisFileHash);
 
                 RecordFileLogger.completeFile(thisFileHash, previousFileHash);
             } catch (Exception e) {
-                log.error("Error parsing record file {} after {}", file, stopwatch, e);
+                log.error("Error parsing record file {} after {}", fileName, stopwatch, e);
                 RecordFileLogger.rollback();
-                return false;
+                return null;
             }
 
-            log.info("Finished parsing {} transactions from record file {} in {}", counter, file.getName(), stopwatch);
-            if (!Utility.hashIsEmpty(thisFileHash)) {
-                applicationStatusRepository
-                        .updateStatusValue(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH, thisFileHash);
-            }
-            return true;
+            log.info("Finished parsing {} transactions from record file {} in {}", parsedRecordFile.getRecords()
+                    .size(), new File(fileName).getName(), stopwatch);
+            recordMetrics(parsedRecordFile, stopwatch.elapsed());
+            return parsedRecordFile.getFileHash();
         } else if (initFileResult == RecordFileLogger.INIT_RESULT.SKIP) {
-            return true;
+            try {
+                return recordFile.get().getFileHash();
+            } catch (Exception e) {
+                log.error("Error reading skipped record file {}", fileName, e);
+                return null;
+            }
         } else {
             RecordFileLogger.rollback();
-            return false;
+            return null;
         }
     }
 
     /**
-     * read and parse a list of record files
+     * Commits the files that are still uncommitted and moves the given files out of the valid directory, which can
+     * only be done once they are committed. Files that were skipped because they were already in the database are moved
+     * as well.
+     */
+    private void commit(List<String> fileNames) throws SQLException {
+        if (RecordFileLogger.hasUncommittedFiles()) {
+            RecordFileLogger.commit();
+        }
+        fileNames.forEach(fileName -> Utility.moveFileToParsedDir(fileName, "/parsedRecordFiles/"));
+    }
+
+    /**
+     * Skipped fields would be missing from the transactions and records logged when tracing, so then every field is
+     * decoded
+     */
+    private RecordDecoder getRecordDecoder() {
+        return log.isTraceEnabled() ? RecordDecoder.ALL_FIELDS : recordDecoder;
+    }
+
+    private void recordMetrics(ParsedRecordFile parsedRecordFile, Duration duration) {
+        List<Triple<Transaction, TransactionRecord, ByteString>> records = parsedRecordFile.getRecords();
+        parseDurationTimer.record(duration);
+        recordsCounter.increment(records.size());
+
+        if (!records.isEmpty()) {
+            TransactionRecord lastRecord = records.get(records.size() - 1).getMiddle();
+            Instant consensusTimestamp = Utility.convertToInstant(lastRecord.getConsensusTimestamp());
+            latencyTimer.record(Duration.between(consensusTimestamp, Instant.now()));
+        }
+    }
+
+    /**
+     * Read and parse a list of record files. Up to readAhead files are read and decoded in parallel while the files
+     * before them are persisted in order, one transaction per file.
      *
      * @throws Exception
      */
     private void loadRecordFiles(List<String> fileNames) throws Exception {
-        String prevFileHash = applicationStatusRepository
-                .findByStatusCode(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH);
+        String prevFileHash = ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH);
         Collections.sort(fileNames);
 
-        for (String name : fileNames) {
-            String thisFileHash = "";
-            if (ShutdownHelper.isStopping()) {
-                return;
-            }
-            thisFileHash = Hex.encodeHexString(Utility.getFileHash(name));
-            if (loadRecordFile(name, prevFileHash, thisFileHash)) {
+        Iterator<String> fileIterator = fileNames.iterator();
+        Deque<Pair<String, Future<ParsedRecordFile>>> pending = new ArrayDeque<>();
+        List<String> uncommitted = new ArrayList<>();
+        RecordDecoder decoder = getRecordDecoder();
+
+        try {
+            while (true) {
+                while (pending.size() < parserProperties.getReadAhead() && fileIterator.hasNext()) {
+                    String name = fileIterator.next();
+                    pending.add(Pair.of(name, readAheadThreadPool.submit(() -> readRecordFile(name, decoder))));
+                }
+
+                Pair<String, Future<ParsedRecordFile>> next = pending.poll();
+                if (next == null || ShutdownHelper.isStopping()) {
+                    break;
+                }
+
+                String name = next.getLeft();
+                String thisFileHash = loadRecordFile(name, next.getRight(), prevFileHash);
+                if (thisFileHash == null) {
+                    if (!RecordFileLogger.hasUncommittedFiles()) {
+                        // The files completed before it were rolled back with it so they have to be parsed again
+                        uncommitted.clear();
+                    }
+                    break;
+                }
+
                 prevFileHash = thisFileHash;
-                Utility.moveFileToParsedDir(name, "/parsedRecordFiles/");
-            } else {
-                return;
+                uncommitted.add(name);
+                if (!RecordFileLogger.hasUncommittedFiles()) {
+                    commit(uncommitted);
+                    uncommitted.clear();
+                }
+            }
+
+            commit(uncommitted);
+        } finally {
+            pending.forEach(p -> p.getRight().cancel(true));
+        }
+    }
+
+    /**
+     * Parses the record files queued by the downloader running in this process as soon as they are verified. The
+     * scheduled scan of the valid directory keeps running alongside for any files that weren't queued.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (recordFileQueue.isEnabled()) {
+            queueThreadPool.submit(this::consume);
+        }
+    }
+
+    private void consume() {
+        log.info("Parsing record files as they are downloaded");
+        try {
+            while (!ShutdownHelper.isStopping()) {
+                try {
+                    ValidRecordFile validRecordFile = recordFileQueue.poll(QUEUE_POLL_TIMEOUT);
+                    if (validRecordFile != null && startLogger()) {
+                        parse(validRecordFile);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("Error parsing queued record file", e);
+                }
             }
+        } finally {
+            finishLogger();
+        }
+    }
+
+    private synchronized boolean startLogger() {
+        if (!loggerStarted) {
+            loggerStarted = RecordFileLogger.start();
+        }
+        return loggerStarted;
+    }
+
+    private synchronized void finishLogger() {
+        if (loggerStarted) {
+            RecordFileLogger.finish();
+            loggerStarted = false;
+        }
+    }
+
+    /**
+     * Parse a record file queued by the downloader. If it doesn't continue the hash chain of the last parsed file then
+     * the files before it were not queued, so the whole valid directory is parsed in order instead.
+     */
+    synchronized void parse(ValidRecordFile validRecordFile) throws Exception {
+        String fileName = validRecordFile.getFile().getPath();
+        if (!parserProperties.isEnabled() || ShutdownHelper.isStopping() || !validRecordFile.getFile().exists()) {
+            return; // Disabled or already parsed by a scan of the directory
+        }
+
+        String prevFileHash = ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH);
+        if (Utility.hashIsEmpty(prevFileHash) || !prevFileHash.equals(validRecordFile.getPreviousHash())) {
+            log.debug("Record file {} is not next in the chain, parsing {}", fileName, parserProperties
+                    .getValidPath());
+            parse();
+            return;
+        }
+
+        // Decoded in the background in case the logger has to be started first
+        RecordDecoder decoder = getRecordDecoder();
+        Future<ParsedRecordFile> recordFile = readAheadThreadPool
+                .submit(() -> readRecordFile(validRecordFile, decoder));
+        boolean consumer = loggerStarted;
+        if (!consumer && !RecordFileLogger.start()) {
+            recordFile.cancel(true);
+            return;
+        }
+
+        boolean loaded = loadRecordFile(fileName, recordFile, prevFileHash) != null;
+        if (loaded) {
+            commit(List.of(fileName));
+        }
+
+        // The consumer starts the logger again with a new connection after a failure, in case the connection broke
+        if (!consumer || !loaded) {
+            RecordFileLogger.finish();
+            loggerStarted = false;
         }
     }
 
     @Override
     @Scheduled(fixedRateString = "${hedera.mirror.parser.record.frequency:500}")
-    public void parse() {
+    public synchronized void parse() {
         try {
             if (!parserProperties.isEnabled()) {
                 return;
@@ -264,7 +411,7 @@ public class RecordFileParser implements FileParser {
 
             Path path = parserProperties.getValidPath();
             log.debug("Parsing record files from {}", path);
-            if (RecordFileLogger.start()) {
+            if (loggerStarted || RecordFileLogger.start()) {
 
                 File file = path.toFile();
                 if (file.isDirectory()) { //if it's a directory
@@ -287,7 +434,9 @@ public class RecordFileParser implements FileParser {
                 } else {
                     log.error("Input parameter {} is not a folder", path);
                 }
-                RecordFileLogger.finish();
+                if (!loggerStarted) {
+                    RecordFileLogger.finish();
+                }
             }
         } catch (Exception e) {
             log.error("Error parsing files", e);
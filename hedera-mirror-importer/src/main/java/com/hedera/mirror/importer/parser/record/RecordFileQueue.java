@@ -0,0 +1,81 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Named;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Hands the record files verified by the downloader to the parser running in the same process, so they are parsed as
+ * soon as they are downloaded rather than on the next scan of the valid directory. The valid directory stays the
+ * source of truth: a file that doesn't fit in the queue is left there for the scan, as are the files downloaded before
+ * a restart.
+ */
+@Log4j2
+@Named
+public class RecordFileQueue {
+
+    private final RecordParserProperties parserProperties;
+    private final BlockingQueue<ValidRecordFile> queue;
+
+    public RecordFileQueue(RecordParserProperties parserProperties) {
+        this.parserProperties = parserProperties;
+        int capacity = parserProperties.getQueueCapacity();
+        queue = capacity > 0 ? new ArrayBlockingQueue<>(capacity) : null;
+    }
+
+    public boolean isEnabled() {
+        return queue != null;
+    }
+
+    /**
+     * Queues the file without blocking the downloader
+     *
+     * @return whether the file was queued
+     */
+    public boolean offer(ValidRecordFile validRecordFile) {
+        if (queue == null || !parserProperties.isEnabled()) {
+            return false;
+        }
+
+        boolean queued = queue.offer(validRecordFile);
+        if (!queued) {
+            log.debug("Record file queue is full, leaving {} for the next scan", validRecordFile.getFile());
+        }
+        return queued;
+    }
+
+    /**
+     * @return the next file, or null if none was queued within the timeout
+     */
+    public ValidRecordFile poll(Duration timeout) throws InterruptedException {
+        return queue.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public int size() {
+        return queue != null ? queue.size() : 0;
+    }
+}
@@ -0,0 +1,241 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.tuple.Triple;
+
+import com.hedera.mirror.importer.util.FileDelimiter;
+import com.hedera.mirror.importer.util.Utility;
+
+/**
+ * Reads a record stream file in a single pass, calculating its hashes while decoding its records. Used by both the
+ * downloader, which only needs the hashes to verify the file, and the parser.
+ *
+ * The file is memory mapped and each protobuf is decoded directly from a slice of the mapped buffer, so the file
+ * contents are never copied onto the heap. Bytes fields of the decoded records are views of the same buffer.
+ *
+ * For version 2 the file hash is hash(p || h || hash(c)) where p is the bytes before the previous file hash h and c is
+ * the bytes after it. For older versions it is simply hash(p || h || c).
+ */
+@Log4j2
+public class RecordFileReader {
+
+    private static final int HASH_SIZE = 48;
+
+    private RecordFileReader() {
+    }
+
+    /**
+     * @param file          the record file to read
+     * @param decodeRecords whether to decode every field of the transactions and records or to only calculate the
+     *                      hashes
+     * @return the hashes and, if requested, the decoded records of the file
+     * @throws IOException if the file could not be read or is not a valid record file
+     */
+    public static ParsedRecordFile read(File file, boolean decodeRecords) throws IOException {
+        return read(file, decodeRecords ? RecordDecoder.ALL_FIELDS : null);
+    }
+
+    /**
+     * @param file    the record file to read
+     * @param decoder decodes the transactions and records, or null to only calculate the hashes
+     * @return the hashes and, if a decoder was given, the decoded records of the file
+     * @throws IOException if the file could not be read or is not a valid record file
+     */
+    public static ParsedRecordFile read(File file, RecordDecoder decoder) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return read(file.getPath(), map(file, channel), decoder);
+        }
+    }
+
+    /**
+     * Decodes a record file that the downloader already read and verified. Its hashes are taken from the downloader
+     * instead of being calculated again, and its contents are read from memory if the downloader still had them.
+     *
+     * @param validRecordFile the verified record file
+     * @param decoder         decodes the transactions and records
+     * @return the hashes from the downloader and the decoded records of the file
+     * @throws IOException if the file could not be read or is not a valid record file
+     */
+    public static ParsedRecordFile read(ValidRecordFile validRecordFile, RecordDecoder decoder) throws IOException {
+        File file = validRecordFile.getFile();
+        ParsedRecordFile parsedRecordFile;
+        if (validRecordFile.getContents() != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(validRecordFile.getContents());
+            parsedRecordFile = readBuffer(file.getPath(), buffer, decoder, false);
+        } else {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                parsedRecordFile = readBuffer(file.getPath(), map(file, channel), decoder, false);
+            }
+        }
+
+        return new ParsedRecordFile(parsedRecordFile.getFileName(), validRecordFile.getFileHash(), null,
+                validRecordFile.getPreviousHash(), parsedRecordFile.getVersion(), parsedRecordFile.getRecords());
+    }
+
+    /**
+     * Reads a record file whose contents are already in memory.
+     *
+     * @param fileName the name of the record file, used for logging and the result
+     * @param buffer   the contents of the record file from its position to its limit
+     * @param decoder  decodes the transactions and records, or null to only calculate the hashes
+     * @return the hashes and, if a decoder was given, the decoded records of the file
+     * @throws IOException if the contents are not a valid record file
+     */
+    public static ParsedRecordFile read(String fileName, ByteBuffer buffer, RecordDecoder decoder) throws IOException {
+        return readBuffer(fileName, buffer, decoder, true);
+    }
+
+    private static ByteBuffer map(File file, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Record file " + file + " is too large to map: " + size);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    private static ParsedRecordFile readBuffer(String fileName, ByteBuffer buffer, RecordDecoder decoder,
+                                               boolean hash) throws IOException {
+        try {
+            return parse(fileName, buffer, decoder, hash);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Record file " + fileName + " is truncated", e);
+        }
+    }
+
+    // Without hash, the file is only decoded and its hashes in the result are null
+    private static ParsedRecordFile parse(String fileName, ByteBuffer buffer, RecordDecoder decoder, boolean hash)
+            throws IOException {
+        MessageDigest md = hash ? newDigest() : null;
+        MessageDigest mdForContent = hash ? newDigest() : null;
+        String previousHash = null;
+        List<Triple<Transaction, TransactionRecord, ByteString>> records = decoder != null ? new ArrayList<>() :
+                Collections.emptyList();
+
+        int record_format_version = buffer.getInt();
+        int version = buffer.getInt();
+
+        if (hash) {
+            md.update(Utility.integerToBytes(record_format_version));
+            md.update(Utility.integerToBytes(version));
+        }
+
+        log.debug("Reading version {} record file: {}", record_format_version, fileName);
+        boolean hashContentSeparately = record_format_version >= FileDelimiter.RECORD_FORMAT_VERSION;
+        MessageDigest contentDigest = hashContentSeparately ? mdForContent : md;
+
+        while (buffer.hasRemaining()) {
+            byte typeDelimiter = buffer.get();
+
+            switch (typeDelimiter) {
+                case FileDelimiter.RECORD_TYPE_PREV_HASH:
+                    // Copied since encoding a ByteBuffer that is a view of a larger array encodes the whole array
+                    byte[] readFileHash = new byte[HASH_SIZE];
+                    slice(buffer, HASH_SIZE).get(readFileHash);
+                    if (hash) {
+                        md.update(typeDelimiter);
+                        md.update(readFileHash);
+                    }
+                    previousHash = Hex.encodeHexString(readFileHash);
+                    break;
+                case FileDelimiter.RECORD_TYPE_RECORD:
+                    // The lengths and bytes of the transaction and its record are contiguous and hashed as is
+                    ByteBuffer content = buffer.duplicate();
+                    ByteBuffer transactionBytes = slice(buffer, buffer.getInt());
+                    ByteBuffer recordBytes = slice(buffer, buffer.getInt());
+                    content.limit(buffer.position());
+
+                    if (hash) {
+                        contentDigest.update(typeDelimiter);
+                        contentDigest.update(content);
+                    }
+
+                    if (decoder != null) {
+                        records.add(decoder.decode(transactionBytes, recordBytes));
+                    }
+                    break;
+                case FileDelimiter.RECORD_TYPE_SIGNATURE:
+                    ByteBuffer sigBytes = slice(buffer, buffer.getInt());
+                    log.trace("File {} has signature {}", () -> fileName, () -> Hex.encodeHexString(sigBytes));
+                    break;
+                default:
+                    throw new IOException("Unknown record file delimiter " + typeDelimiter + " for file " + fileName);
+            }
+        }
+
+        if (!hash) {
+            return new ParsedRecordFile(fileName, null, null, previousHash, record_format_version, records);
+        }
+
+        String contentHash = null;
+        if (hashContentSeparately) {
+            byte[] contentHashBytes = mdForContent.digest();
+            contentHash = Hex.encodeHexString(contentHashBytes);
+            if (record_format_version == FileDelimiter.RECORD_FORMAT_VERSION) {
+                md.update(contentHashBytes);
+            }
+        }
+
+        String fileHash = Hex.encodeHexString(md.digest());
+        log.trace("Calculated file hash {} for record file {}", fileHash, fileName);
+        return new ParsedRecordFile(fileName, fileHash, contentHash, previousHash, record_format_version, records);
+    }
+
+    /**
+     * Returns a view of the next length bytes of the buffer and advances past them.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int length) throws IOException {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Invalid length " + length + " with " + buffer.remaining() + " bytes remaining");
+        }
+
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -22,6 +22,7 @@ package com.hedera.mirror.importer.parser.record;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import lombok.Data;
@@ -39,6 +40,12 @@ public class RecordParserProperties implements ParserProperties {
 
     private final MirrorProperties mirrorProperties;
 
+    @Min(1)
+    private int commitFiles = 1;
+
+    @NotNull
+    private Duration commitInterval = Duration.ofSeconds(1L);
+
     private boolean enabled = true;
 
     @NotNull
@@ -54,6 +61,17 @@ public class RecordParserProperties implements ParserProperties {
 
     private boolean persistSystemFiles = true;
 
+    @Min(0)
+    private int queueCapacity = 10;
+
+    @Min(1)
+    private int readAhead = 4;
+
+    private boolean synchronousCommit = true;
+
+    @NotNull
+    private WriterType writer = WriterType.INSERT;
+
     @Override
     public Path getStreamPath() {
         return mirrorProperties.getDataPath().resolve(getStreamType().getPath());
@@ -63,4 +81,9 @@ public class RecordParserProperties implements ParserProperties {
     public StreamType getStreamType() {
         return StreamType.RECORD;
     }
+
+    public enum WriterType {
+        COPY, // Stream rows with the PostgreSQL COPY protocol
+        INSERT // Batched JDBC INSERT statements
+    }
 }
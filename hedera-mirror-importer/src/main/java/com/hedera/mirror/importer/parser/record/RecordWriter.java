@@ -0,0 +1,85 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.SQLException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import com.hedera.mirror.importer.domain.ContractResult;
+import com.hedera.mirror.importer.domain.CryptoTransfer;
+import com.hedera.mirror.importer.domain.Entities;
+import com.hedera.mirror.importer.domain.FileData;
+import com.hedera.mirror.importer.domain.LiveHash;
+import com.hedera.mirror.importer.domain.Transaction;
+
+/**
+ * Persists the rows produced from a record file. Implementations may buffer rows until flush() is called, but must
+ * write them on the connection they were created with so they become part of the caller's transaction. Transactions
+ * and entities are always written before the rows that reference them.
+ */
+public interface RecordWriter extends AutoCloseable {
+
+    void insertEntity(Entities entity) throws SQLException;
+
+    void insertTransaction(Transaction transaction) throws SQLException;
+
+    void insertCryptoTransfer(CryptoTransfer cryptoTransfer) throws SQLException;
+
+    void insertFileData(FileData fileData) throws SQLException;
+
+    void insertContractResult(ContractResult contractResult) throws SQLException;
+
+    void insertLiveHash(LiveHash liveHash) throws SQLException;
+
+    /**
+     * Writes any buffered rows to the database.
+     */
+    void flush() throws SQLException;
+
+    /**
+     * Called each time a batch of records has been added. Implementations that benefit from larger writes can defer
+     * until flush() is called when the file is complete.
+     */
+    default void flushBatch() throws SQLException {
+        flush();
+    }
+
+    /**
+     * Discards any buffered rows that have not been flushed yet.
+     */
+    void clear() throws SQLException;
+
+    @Override
+    void close() throws SQLException;
+
+    /**
+     * The timer implementations use to record the time taken to write the buffered rows of a table. Partitioned tables
+     * are tagged with the name of the parent table.
+     */
+    static Timer flushTimer(MeterRegistry meterRegistry, String table) {
+        return Timer.builder("hedera.mirror.parse.flush")
+                .description("The time it takes to write a batch of rows to a table")
+                .tag("table", table)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,97 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.log4j.Log4j2;
+
+/**
+ * Resolves the daily partition of a table that a timestamp belongs to, creating it with the table's partition function
+ * the first time a day is seen. The partition of the following day is created at the same time so that it already
+ * exists when the stream crosses midnight. Partitions are created on the caller's connection and are only cached
+ * until clear() is called, since a rollback also drops the partitions created by the transaction.
+ */
+@Log4j2
+class TablePartitions {
+
+    static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
+    private final Connection connection;
+    private final String function;
+    private final Map<Long, String> partitions = new HashMap<>();
+    private long lastDay = -1;
+    private String lastPartition;
+
+    TablePartitions(Connection connection, String table) {
+        this.connection = connection;
+        function = table + "_partition";
+    }
+
+    /**
+     * @return the name of the partition holding the timestamp
+     */
+    String get(long timestamp) throws SQLException {
+        long day = Math.floorDiv(timestamp, DAY_NANOS);
+        if (day == lastDay) {
+            return lastPartition;
+        }
+
+        String partition = partitions.get(day);
+        if (partition == null || !partitions.containsKey(day + 1)) {
+            try (PreparedStatement statement = connection.prepareStatement("select " + function + "(?)")) {
+                if (partition == null) {
+                    partition = create(statement, day);
+                    partitions.put(day, partition);
+                }
+                if (!partitions.containsKey(day + 1)) {
+                    partitions.put(day + 1, create(statement, day + 1));
+                }
+            }
+        }
+
+        lastDay = day;
+        lastPartition = partition;
+        return partition;
+    }
+
+    void clear() {
+        partitions.clear();
+        lastDay = -1;
+        lastPartition = null;
+    }
+
+    private String create(PreparedStatement statement, long day) throws SQLException {
+        statement.setLong(1, day * DAY_NANOS);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            String partition = resultSet.getString(1);
+            log.trace("Using partition {}", partition);
+            return partition;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.io.File;
+
+import lombok.Value;
+
+/**
+ * A record file that the downloader verified and moved to the valid directory, along with the hashes it read from it
+ */
+@Value
+public class ValidRecordFile {
+    File file;
+    String fileHash;
+    String previousHash;
+    // The contents of the file if it was downloaded into memory, otherwise null
+    byte[] contents;
+}
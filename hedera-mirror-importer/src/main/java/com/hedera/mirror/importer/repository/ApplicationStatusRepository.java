@@ -43,6 +43,13 @@ public interface ApplicationStatusRepository extends CrudRepository<ApplicationS
         return findById(statusCode).map(ApplicationStatus::getStatusValue).orElse("");
     }
 
+    /**
+     * Evicts a status that was changed without going through this repository
+     */
+    @CacheEvict(key = "#p0")
+    default void evict(ApplicationStatusCode statusCode) {
+    }
+
     @Modifying
     @CacheEvict(key = "#p0")
     @Query("update ApplicationStatus set statusValue = :value where statusCode = :code")
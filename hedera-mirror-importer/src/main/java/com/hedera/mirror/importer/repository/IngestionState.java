@@ -0,0 +1,132 @@
+package com.hedera.mirror.importer.repository;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.hedera.mirror.importer.domain.ApplicationStatusCode;
+
+/**
+ * The authoritative in-memory copy of the stream cursors and hashes in t_application_status. Each status is read from
+ * the database once and then only changed through this class, so the downloaders and parsers don't need a query per
+ * file. Values set with update() are written behind by flush() and may lag after a crash, which is safe since the
+ * downloaders just verify and download the same files again. Values that have to stay exact with the data they
+ * describe are written by the caller's transaction with write() instead. The hash mismatch bypass statuses are set by
+ * operators in the database, so they are reloaded on each flush().
+ */
+@Log4j2
+@Named
+public class IngestionState {
+
+    private static final Set<ApplicationStatusCode> EXTERNAL = EnumSet.of(
+            ApplicationStatusCode.EVENT_HASH_MISMATCH_BYPASS_UNTIL_AFTER,
+            ApplicationStatusCode.RECORD_HASH_MISMATCH_BYPASS_UNTIL_AFTER);
+
+    private final ApplicationStatusRepository applicationStatusRepository;
+    private final Map<ApplicationStatusCode, String> values = new ConcurrentHashMap<>();
+    private final Map<ApplicationStatusCode, String> unflushed = new ConcurrentHashMap<>();
+
+    public IngestionState(ApplicationStatusRepository applicationStatusRepository) {
+        this.applicationStatusRepository = applicationStatusRepository;
+    }
+
+    /**
+     * @return the current value of the status or an empty string if it has none
+     */
+    public String get(ApplicationStatusCode statusCode) {
+        return values.computeIfAbsent(statusCode, applicationStatusRepository::findByStatusCode);
+    }
+
+    /**
+     * Changes the value of the status in memory. It is written to the database by the next flush().
+     */
+    public void update(ApplicationStatusCode statusCode, String value) {
+        values.put(statusCode, value);
+        unflushed.put(statusCode, value);
+    }
+
+    /**
+     * Writes the value of the status on the given connection so that it is committed or rolled back with the rest of
+     * the caller's transaction. Once it is committed, committed() must be called to make it the current value.
+     */
+    public void write(Connection connection, ApplicationStatusCode statusCode, String value) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "update t_application_status set status_value = ? where status_code = ?")) {
+            statement.setString(1, value);
+            statement.setString(2, statusCode.name());
+            statement.execute();
+        }
+    }
+
+    /**
+     * Changes the value of the status in memory after it was committed with write().
+     */
+    public void committed(ApplicationStatusCode statusCode, String value) {
+        values.put(statusCode, value);
+        unflushed.remove(statusCode);
+    }
+
+    /**
+     * Writes the values changed with update() since the last flush and reloads the statuses set by operators.
+     */
+    @PreDestroy
+    @Scheduled(fixedDelay = 1000L)
+    public synchronized void flush() {
+        try {
+            for (Map.Entry<ApplicationStatusCode, String> entry : unflushed.entrySet()) {
+                applicationStatusRepository.updateStatusValue(entry.getKey(), entry.getValue());
+                unflushed.remove(entry.getKey(), entry.getValue());
+            }
+
+            for (ApplicationStatusCode statusCode : EXTERNAL) {
+                if (values.containsKey(statusCode)) {
+                    applicationStatusRepository.evict(statusCode);
+                    values.put(statusCode, applicationStatusRepository.findByStatusCode(statusCode));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error writing application status", e);
+        }
+    }
+
+    /**
+     * Discards the values in memory, including any that have not been flushed, so they are read from the database
+     * again.
+     */
+    public void reset() {
+        values.clear();
+        unflushed.clear();
+        for (ApplicationStatusCode statusCode : ApplicationStatusCode.values()) {
+            applicationStatusRepository.evict(statusCode);
+        }
+    }
+}
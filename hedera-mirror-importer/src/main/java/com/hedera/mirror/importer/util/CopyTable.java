@@ -0,0 +1,103 @@
+package com.hedera.mirror.importer.util;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.common.base.Stopwatch;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.input.CharSequenceReader;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Buffers rows for a single table in the PostgreSQL COPY CSV format and streams them to the database on copy().
+ * Empty unquoted values are NULL and bytea values use the hex format.
+ */
+@Log4j2
+public class CopyTable {
+
+    private final String name;
+    private final String sql;
+    private final StringBuilder buffer = new StringBuilder();
+    private int rows = 0;
+
+    public CopyTable(String name, String columns) {
+        this.name = name;
+        sql = "COPY " + name + " (" + columns + ") FROM STDIN WITH (FORMAT csv)";
+    }
+
+    public void addRow(Object... values) {
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0) {
+                buffer.append(',');
+            }
+
+            Object value = values[i];
+            if (value instanceof byte[]) {
+                buffer.append("\\x").append(Hex.encodeHex((byte[]) value));
+            } else if (value instanceof String) {
+                buffer.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+            } else if (value != null) {
+                buffer.append(value);
+            }
+        }
+        buffer.append('\n');
+        ++rows;
+    }
+
+    /**
+     * Copies the buffered rows to the table and clears the buffer, even if the copy failed.
+     *
+     * @return the number of rows copied
+     */
+    public long copy(CopyManager copyManager) throws SQLException {
+        if (rows == 0) {
+            return 0;
+        }
+
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            long count = copyManager.copyIn(sql, new CharSequenceReader(buffer));
+            log.debug("Copied {} rows to {} in {}", count, name, stopwatch);
+            return count;
+        } catch (IOException e) {
+            throw new SQLException("Error copying rows to " + name, e);
+        } finally {
+            clear();
+        }
+    }
+
+    public void clear() {
+        buffer.setLength(0);
+        rows = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
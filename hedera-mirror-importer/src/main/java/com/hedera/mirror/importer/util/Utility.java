@@ -34,10 +34,12 @@ import com.hederahashgraph.api.proto.java.Transaction;
 import com.hederahashgraph.api.proto.java.TransactionBody;
 import com.hederahashgraph.api.proto.java.TransactionID;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
@@ -59,6 +61,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.commons.lang3.tuple.Triple;
 
+import com.hedera.mirror.importer.parser.record.RecordFileReader;
+
 @Log4j2
 public class Utility {
 
@@ -83,14 +87,39 @@ public class Utility {
      * @return
      */
     public static Pair<byte[], byte[]> extractHashAndSigFromFile(File file) {
-        byte[] sig = null;
-
         if (file.exists() == false) {
             log.info("File does not exist {}", file.getPath());
             return null;
         }
 
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(file))) {
+        try {
+            return extractHashAndSig(new FileInputStream(file), file);
+        } catch (IOException e) {
+            log.error("Unable to extract hash and signature from file {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link #extractHashAndSigFromFile(File)} for the contents of a signature file that is held in memory.
+     *
+     * @param contents the contents of the signature file
+     * @param file     the signature file the contents were downloaded as, used for logging
+     * @return
+     */
+    public static Pair<byte[], byte[]> extractHashAndSig(byte[] contents, File file) {
+        if (contents == null) {
+            log.info("File was not downloaded {}", file.getPath());
+            return null;
+        }
+
+        return extractHashAndSig(new ByteArrayInputStream(contents), file);
+    }
+
+    private static Pair<byte[], byte[]> extractHashAndSig(InputStream inputStream, File file) {
+        byte[] sig = null;
+
+        try (DataInputStream dis = new DataInputStream(inputStream)) {
             byte[] fileHash = new byte[48];
 
             while (dis.available() != 0) {
@@ -128,24 +157,35 @@ public class Utility {
      * @return byte array of hash value of null if calculating has failed
      */
     public static byte[] getFileHash(String fileName) {
-        MessageDigest md;
         if (getFileExtension(fileName).contentEquals("rcd")) {
             return getRecordFileHash(fileName);
         } else if (getFileExtension(fileName).contentEquals("evt")) {
             return getEventFileHash(fileName);
         } else {
             try {
-                md = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
-
-                byte[] array = Files.readAllBytes(Paths.get(fileName));
-                return md.digest(array);
-            } catch (NoSuchAlgorithmException | IOException e) {
+                return getHash(Files.readAllBytes(Paths.get(fileName)));
+            } catch (IOException e) {
                 log.error("Exception {}", e);
                 return null;
             }
         }
     }
 
+    /**
+     * Calculate SHA384 hash of the contents of a file that is held in memory
+     *
+     * @param contents the file contents
+     * @return byte array of hash value of null if calculating has failed
+     */
+    public static byte[] getHash(byte[] contents) {
+        try {
+            return MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM).digest(contents);
+        } catch (NoSuchAlgorithmException e) {
+            log.error("Exception {}", e);
+            return null;
+        }
+    }
+
     /**
      * Calculate SHA384 hash of an event file
      *
@@ -237,76 +277,8 @@ public class Utility {
      * @return byte array of hash value of null if calculating has failed
      */
     private static byte[] getRecordFileHash(String filename) {
-        byte[] readFileHash = new byte[48];
-
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(filename))) {
-            MessageDigest md = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
-            MessageDigest mdForContent = MessageDigest.getInstance(FileDelimiter.HASH_ALGORITHM);
-
-            int record_format_version = dis.readInt();
-            int version = dis.readInt();
-
-            md.update(Utility.integerToBytes(record_format_version));
-            md.update(Utility.integerToBytes(version));
-
-            log.debug("Calculating hash for version {} record file: {}", record_format_version, filename);
-
-            while (dis.available() != 0) {
-
-                byte typeDelimiter = dis.readByte();
-
-                switch (typeDelimiter) {
-                    case FileDelimiter.RECORD_TYPE_PREV_HASH:
-                        md.update(typeDelimiter);
-                        dis.read(readFileHash);
-                        md.update(readFileHash);
-                        break;
-                    case FileDelimiter.RECORD_TYPE_RECORD:
-
-                        int byteLength = dis.readInt();
-                        byte[] rawBytes = new byte[byteLength];
-                        dis.readFully(rawBytes);
-                        if (record_format_version >= FileDelimiter.RECORD_FORMAT_VERSION) {
-                            mdForContent.update(typeDelimiter);
-                            mdForContent.update(Utility.integerToBytes(byteLength));
-                            mdForContent.update(rawBytes);
-                        } else {
-                            md.update(typeDelimiter);
-                            md.update(Utility.integerToBytes(byteLength));
-                            md.update(rawBytes);
-                        }
-
-                        byteLength = dis.readInt();
-                        rawBytes = new byte[byteLength];
-                        dis.readFully(rawBytes);
-
-                        if (record_format_version >= FileDelimiter.RECORD_FORMAT_VERSION) {
-                            mdForContent.update(Utility.integerToBytes(byteLength));
-                            mdForContent.update(rawBytes);
-                        } else {
-                            md.update(Utility.integerToBytes(byteLength));
-                            md.update(rawBytes);
-                        }
-                        break;
-                    case FileDelimiter.RECORD_TYPE_SIGNATURE:
-                        int sigLength = dis.readInt();
-                        byte[] sigBytes = new byte[sigLength];
-                        dis.readFully(sigBytes);
-                        log.trace("File {} has signature {}", () -> filename, () -> Hex.encodeHexString(sigBytes));
-                        break;
-                    default:
-                        log.error("Unknown record file delimiter {} for file {}", typeDelimiter, filename);
-                        return null;
-                }
-            }
-
-            if (record_format_version == FileDelimiter.RECORD_FORMAT_VERSION) {
-                md.update(mdForContent.digest());
-            }
-
-            byte[] fileHash = md.digest();
-            log.trace("Calculated file hash for the current file {}", () -> Hex.encodeHexString(fileHash));
-            return fileHash;
+        try {
+            return Hex.decodeHex(RecordFileReader.read(new File(filename), false).getFileHash());
         } catch (Exception e) {
             log.error("Error reading hash for file {}", filename, e);
             return null;
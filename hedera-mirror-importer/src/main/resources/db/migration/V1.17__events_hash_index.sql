@@ -0,0 +1,6 @@
+--
+-- Index t_events.hash so parent events that are no longer cached can be looked up without a sequential scan
+--
+
+create index if not exists idx__t_events__hash
+    on t_events (hash);
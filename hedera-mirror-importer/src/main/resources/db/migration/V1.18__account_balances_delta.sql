@@ -0,0 +1,48 @@
+--
+-- Optional delta encoded account balance sets that only store the balances that changed since a base set. A set with
+-- a null base_timestamp stores every balance (a keyframe) and ends the chain of sets needed to rebuild a snapshot.
+--
+
+alter table account_balance_sets
+    add column if not exists base_timestamp nanos_timestamp null;
+comment on column account_balance_sets.base_timestamp is 'the set a delta encoded set only stores the changed balances of, or null if every balance is stored';
+
+-- The sets needed to rebuild the latest complete snapshot at or before the given timestamp, or none if the chain is
+-- broken by a base set that is missing or not complete, since that snapshot can't be rebuilt
+create or replace function account_balance_set_chain(_timestamp nanos_timestamp)
+returns table (consensus_timestamp nanos_timestamp) as $$
+    with recursive chain as (
+        (select s.consensus_timestamp, s.base_timestamp
+        from account_balance_sets s
+        where s.is_complete = true and s.consensus_timestamp <= _timestamp
+        order by s.consensus_timestamp desc
+        limit 1)
+        union all
+        select s.consensus_timestamp, s.base_timestamp
+        from account_balance_sets s
+        join chain c on s.consensus_timestamp = c.base_timestamp and s.is_complete
+    )
+    select chain.consensus_timestamp from chain
+    where exists (select 1 from chain k where k.base_timestamp is null);
+$$ language sql stable;
+
+-- The balance of every account in the latest complete snapshot at or before the given timestamp
+create or replace function account_balances_at(_timestamp nanos_timestamp)
+returns table (account_realm_num entity_realm_num, account_num entity_num, balance hbar_tinybars) as $$
+    select distinct on (ab.account_realm_num, ab.account_num) ab.account_realm_num, ab.account_num, ab.balance
+    from account_balances ab
+    where ab.consensus_timestamp in (select c.consensus_timestamp from account_balance_set_chain(_timestamp) c)
+    order by ab.account_realm_num, ab.account_num, ab.consensus_timestamp desc;
+$$ language sql stable;
+
+-- The balance of an account in the latest complete snapshot at or before the given timestamp
+create or replace function account_balance_at(_timestamp nanos_timestamp, _realm_num entity_realm_num,
+                                              _num entity_num)
+returns hbar_tinybars as $$
+    select ab.balance
+    from account_balances ab
+    where ab.account_realm_num = _realm_num and ab.account_num = _num
+        and ab.consensus_timestamp in (select c.consensus_timestamp from account_balance_set_chain(_timestamp) c)
+    order by ab.consensus_timestamp desc
+    limit 1;
+$$ language sql stable;
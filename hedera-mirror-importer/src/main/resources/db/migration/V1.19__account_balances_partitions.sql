@@ -0,0 +1,60 @@
+--
+-- Daily partitions of account_balances. PostgreSQL 9.6 has no declarative partitioning, so each partition is a child
+-- table inheriting from account_balances with a check constraint on its day, which lets the planner exclude the other
+-- partitions. The importer copies balances straight into the partition of their day and creates partitions ahead of
+-- time. Retention drops whole partitions instead of deleting rows. Rows loaded before partitioning stay in the parent.
+--
+
+-- Creates the partition holding the given timestamp if it doesn't exist and returns its name
+create or replace function account_balances_partition(_timestamp nanos_timestamp)
+returns text as $$
+declare
+    _day constant bigint := 86400000000000;
+    _start bigint := _timestamp - (_timestamp % _day);
+    _name text := 'account_balances_p' ||
+        to_char(to_timestamp(_start / 1000000000) at time zone 'utc', 'YYYYMMDD');
+begin
+    if to_regclass(_name) is null then
+        execute format('create table %I (check (consensus_timestamp >= %s and consensus_timestamp < %s)) ' ||
+            'inherits (account_balances)', _name, _start, _start + _day);
+        execute format('alter table %I add constraint %I primary key ' ||
+            '(consensus_timestamp, account_realm_num, account_num)', _name, 'pk__' || _name);
+        execute format('create index %I on %I (account_realm_num desc, account_num desc, consensus_timestamp desc)',
+            'idx__' || _name || '__account_then_timestamp', _name);
+    end if;
+    return _name;
+end;
+$$ language plpgsql;
+
+-- Drops the partitions and their balance sets that end at or before the given timestamp, keeping any set needed to
+-- rebuild the oldest retained snapshot of a delta encoded chain. Returns the number of partitions dropped.
+create or replace function drop_account_balances_partitions(_before nanos_timestamp)
+returns integer as $$
+declare
+    _day constant bigint := 86400000000000;
+    _oldest_needed bigint;
+    _partition record;
+    _start bigint;
+    _count integer := 0;
+begin
+    select min(c.consensus_timestamp) into _oldest_needed
+    from account_balance_set_chain((select min(s.consensus_timestamp) from account_balance_sets s
+                                    where s.is_complete = true and s.consensus_timestamp >= _before)) c;
+
+    for _partition in
+        select c.relname
+        from pg_inherits i
+        join pg_class c on c.oid = i.inhrelid
+        where i.inhparent = 'account_balances'::regclass and c.relname ~ '^account_balances_p[0-9]{8}$'
+        order by c.relname
+    loop
+        _start := extract(epoch from to_date(substring(_partition.relname from 19), 'YYYYMMDD'))::bigint * 1000000000;
+        if _start + _day <= least(_before, coalesce(_oldest_needed, _before)) then
+            execute format('drop table %I', _partition.relname);
+            delete from account_balance_sets where consensus_timestamp >= _start and consensus_timestamp < _start + _day;
+            _count := _count + 1;
+        end if;
+    end loop;
+    return _count;
+end;
+$$ language plpgsql;
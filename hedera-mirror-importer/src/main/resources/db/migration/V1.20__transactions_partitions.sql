@@ -0,0 +1,77 @@
+--
+-- Daily partitions of t_transactions and t_cryptotransferlists. As with account_balances, PostgreSQL 9.6 has no
+-- declarative partitioning so each partition is a child table with a check constraint on its day. The importer
+-- inserts straight into the partition of a row's day and creates the partition of the following day ahead of time.
+-- Rows imported before partitioning stay in the parent tables.
+--
+-- Each partition only indexes its own day, so the btree indexes stay small and insert throughput no longer degrades
+-- as the history grows. The btree indexes already lead with the consensus timestamp of each table, which serves the
+-- time range scans, so only fk_rec_file_id gets an additional, much smaller BRIN index.
+--
+
+-- A foreign key only sees rows in the referenced table itself and not in its children, and a primary key only covers
+-- its own table. The foreign keys referencing t_transactions are dropped rather than replaced by triggers, which would
+-- look up the transaction for every inserted row. The importer writes a transaction and the rows referencing it in the
+-- same database transaction, and every consensus_ns falls into exactly one partition whose primary key keeps it unique.
+alter table t_cryptotransferlists
+    drop constraint if exists fk__t_transactions;
+alter table t_livehashes
+    drop constraint if exists fk__t_transactions;
+alter table t_contract_result
+    drop constraint if exists fk__t_transactions;
+alter table t_file_data
+    drop constraint if exists fk__t_transactions;
+
+-- Both indexes were created with the same columns
+drop index if exists idx__t_cryptotransferlists__ts_then_acct;
+
+-- Creates the t_transactions partition holding the given timestamp if it doesn't exist and returns its name
+create or replace function t_transactions_partition(_timestamp nanos_timestamp)
+returns text as $$
+declare
+    _day constant bigint := 86400000000000;
+    _start bigint := _timestamp - (_timestamp % _day);
+    _name text := 't_transactions_p' ||
+        to_char(to_timestamp(_start / 1000000000) at time zone 'utc', 'YYYYMMDD');
+begin
+    if to_regclass(_name) is null then
+        execute format('create table %I (check (consensus_ns >= %s and consensus_ns < %s)) ' ||
+            'inherits (t_transactions)', _name, _start, _start + _day);
+        execute format('alter table %I add constraint %I primary key (consensus_ns)', _name, 'pk__' || _name);
+        execute format('alter table %I add constraint %I foreign key (fk_node_acc_id) references t_entities (id) ' ||
+            'on delete cascade on update cascade', _name, 'fk__' || _name || '__node_account');
+        execute format('alter table %I add constraint %I foreign key (fk_payer_acc_id) references t_entities (id) ' ||
+            'on delete cascade on update cascade', _name, 'fk__' || _name || '__payer_account');
+        execute format('alter table %I add constraint %I foreign key (fk_cud_entity_id) references t_entities (id) ' ||
+            'on delete cascade on update cascade', _name, 'fk__' || _name || '__cud_entity');
+        execute format('alter table %I add constraint %I foreign key (fk_rec_file_id) references t_record_files (id) ' ||
+            'on delete cascade on update cascade', _name, 'fk__' || _name || '__record_file');
+        execute format('create index %I on %I using brin (fk_rec_file_id)', 'idx__' || _name || '__rec_file', _name);
+        execute format('create index %I on %I (valid_start_ns, fk_payer_acc_id)',
+            'idx__' || _name || '__transaction_id', _name);
+        execute format('create index %I on %I (fk_payer_acc_id)', 'idx__' || _name || '__payer_id', _name);
+        execute format('create index %I on %I (fk_node_acc_id)', 'idx__' || _name || '__node_account', _name);
+    end if;
+    return _name;
+end;
+$$ language plpgsql;
+
+-- Creates the t_cryptotransferlists partition holding the given timestamp if it doesn't exist and returns its name
+-- Unlike the parent table it has no amount index since the credit and debit filters on amount match half the rows
+create or replace function t_cryptotransferlists_partition(_timestamp nanos_timestamp)
+returns text as $$
+declare
+    _day constant bigint := 86400000000000;
+    _start bigint := _timestamp - (_timestamp % _day);
+    _name text := 't_cryptotransferlists_p' ||
+        to_char(to_timestamp(_start / 1000000000) at time zone 'utc', 'YYYYMMDD');
+begin
+    if to_regclass(_name) is null then
+        execute format('create table %I (check (consensus_timestamp >= %s and consensus_timestamp < %s)) ' ||
+            'inherits (t_cryptotransferlists)', _name, _start, _start + _day);
+        execute format('create index %I on %I (consensus_timestamp, realm_num, entity_num)',
+            'idx__' || _name || '__consensus_and_realm_and_num', _name);
+    end if;
+    return _name;
+end;
+$$ language plpgsql;
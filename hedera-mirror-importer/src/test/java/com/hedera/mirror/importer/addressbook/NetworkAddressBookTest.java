@@ -0,0 +1,109 @@
+package com.hedera.mirror.importer.addressbook;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.ResourceUtils;
+
+import com.hedera.mirror.importer.MirrorProperties;
+import com.hedera.mirror.importer.domain.HederaNetwork;
+
+public class NetworkAddressBookTest {
+
+    @TempDir
+    Path dataPath;
+
+    private byte[] testAddressBook;
+    private MirrorProperties mirrorProperties;
+    private NetworkAddressBook networkAddressBook;
+    private List<AddressBook> published;
+
+    @BeforeEach
+    void before() throws Exception {
+        testAddressBook = Files.readAllBytes(ResourceUtils.getFile("classpath:addressbook/test-v1").toPath());
+        mirrorProperties = new MirrorProperties();
+        mirrorProperties.setDataPath(dataPath);
+        mirrorProperties.setNetwork(HederaNetwork.TESTNET);
+        networkAddressBook = new NetworkAddressBook(mirrorProperties);
+        published = new ArrayList<>();
+        networkAddressBook.subscribe(published::add);
+    }
+
+    @Test
+    void loadDefault() {
+        AddressBook addressBook = networkAddressBook.getAddressBook();
+        assertThat(addressBook.getVersion()).isEqualTo(1L);
+        assertThat(addressBook.getNodeAccountIds()).isNotEmpty().hasSameSizeAs(addressBook.getPublicKeys().keySet());
+        assertThat(mirrorProperties.getAddressBookPath()).exists();
+    }
+
+    @Test
+    void update() throws Exception {
+        networkAddressBook.update(testAddressBook);
+
+        AddressBook addressBook = networkAddressBook.getAddressBook();
+        assertThat(addressBook.getVersion()).isEqualTo(2L);
+        assertThat(addressBook).isEqualTo(AddressBook.parse(2L, testAddressBook));
+        assertThat(published).containsExactly(addressBook);
+        assertThat(mirrorProperties.getAddressBookPath()).hasBinaryContent(testAddressBook);
+    }
+
+    @Test
+    void updateAndAppend() throws Exception {
+        AddressBook initial = networkAddressBook.getAddressBook();
+        int split = testAddressBook.length - 10;
+
+        networkAddressBook.update(Arrays.copyOf(testAddressBook, split));
+        assertThat(networkAddressBook.getAddressBook()).isSameAs(initial);
+        assertThat(published).isEmpty();
+
+        networkAddressBook.append(Arrays.copyOfRange(testAddressBook, split, testAddressBook.length));
+        assertThat(networkAddressBook.getAddressBook())
+                .isEqualTo(AddressBook.parse(2L, testAddressBook))
+                .isSameAs(published.get(0));
+        assertThat(published).hasSize(1);
+    }
+
+    @Test
+    void reload() throws Exception {
+        Path addressBookPath = dataPath.resolve("test-v1");
+        Files.write(addressBookPath, testAddressBook);
+        mirrorProperties.setAddressBookPath(addressBookPath);
+
+        networkAddressBook.reload();
+        assertThat(networkAddressBook.getAddressBook()).isEqualTo(AddressBook.parse(2L, testAddressBook));
+        assertThat(published).hasSize(1);
+
+        Files.delete(addressBookPath);
+        networkAddressBook.reload();
+        assertThat(networkAddressBook.getAddressBook().getVersion()).isEqualTo(2L);
+        assertThat(published).hasSize(1);
+    }
+}
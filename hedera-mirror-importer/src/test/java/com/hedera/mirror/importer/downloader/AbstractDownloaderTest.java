@@ -21,11 +21,13 @@ package com.hedera.mirror.importer.downloader;
  */
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 
 import io.findify.s3mock.S3Mock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -50,11 +52,13 @@ import com.hedera.mirror.importer.config.MirrorNodeConfiguration;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.domain.HederaNetwork;
 import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.repository.IngestionState;
 import com.hedera.mirror.importer.util.Utility;
 
 public abstract class AbstractDownloaderTest {
     @Mock(answer = Answers.RETURNS_SMART_NULLS)
     protected ApplicationStatusRepository applicationStatusRepository;
+    protected IngestionState ingestionState;
     @TempDir
     protected Path s3Path;
     protected S3Mock s3;
@@ -65,6 +69,7 @@ public abstract class AbstractDownloaderTest {
     protected S3AsyncClient s3AsyncClient;
     protected DownloaderProperties downloaderProperties;
     protected Downloader downloader;
+    protected MeterRegistry meterRegistry;
     protected Path validPath;
     @TempDir
     Path dataPath;
@@ -83,8 +88,8 @@ public abstract class AbstractDownloaderTest {
     // Implementation can assume that mirrorProperties and commonDownloaderProperties have been initialized.
     protected abstract DownloaderProperties getDownloaderProperties();
 
-    // Implementations can assume that s3AsyncClient, applicationStatusRepository, networkAddressBook and
-    // downloaderProperties have been initialized.
+    // Implementations can assume that s3AsyncClient, ingestionState, networkAddressBook,
+    // downloaderProperties and meterRegistry have been initialized.
     protected abstract Downloader getDownloader();
 
     protected abstract Path getTestDataDir();
@@ -100,6 +105,8 @@ public abstract class AbstractDownloaderTest {
         initProperties();
         s3AsyncClient = (new MirrorNodeConfiguration()).s3AsyncClient(commonDownloaderProperties);
         networkAddressBook = new NetworkAddressBook(mirrorProperties);
+        meterRegistry = new SimpleMeterRegistry();
+        ingestionState = spy(new IngestionState(applicationStatusRepository));
         downloader = getDownloader();
 
         fileCopier = FileCopier.create(Utility.getResource("data").toPath(), s3Path)
@@ -114,6 +121,8 @@ public abstract class AbstractDownloaderTest {
 
     @AfterEach
     void after() {
+        // Don't let the next batch be written to the temp directories while they are deleted
+        downloader.awaitPrefetchedBatch();
         s3.shutdown();
     }
 
@@ -146,31 +155,39 @@ public abstract class AbstractDownloaderTest {
                 .containsAll(filenames);
     }
 
+    // Files downloaded into memory should only be written to disk once they are valid
+    protected void assertNoFilesOutsideValidPath() throws Exception {
+        assertThat(Files.walk(downloaderProperties.getStreamPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .allMatch(p -> p.startsWith(validPath));
+    }
+
     protected void overwriteOnDownloadHelper(String fileName1, String fileName2, ApplicationStatusCode key)
             throws Exception {
         fileCopier.copy();
         downloader.download();
-        verify(applicationStatusRepository).updateStatusValue(key, fileName1);
-        verify(applicationStatusRepository).updateStatusValue(key, fileName2);
+        verify(ingestionState).update(key, fileName1);
+        verify(ingestionState).update(key, fileName2);
         assertValidFiles(List.of(fileName1, fileName2));
 
-        reset(applicationStatusRepository);
         // Corrupt the downloaded signatures to test that they get overwritten by good ones on re-download.
         Files.walk(downloaderProperties.getStreamPath()).filter(this::isSigFile)
                 .forEach(AbstractDownloaderTest::corruptFile);
         // fileName1 will be used to calculate marker for list request. mockS3 also returns back the marker in the
         // results. This is unlike AWS S3 which does not return back the marker.
-        doReturn(fileName1).when(applicationStatusRepository).findByStatusCode(key);
+        ingestionState.reset();
+        ingestionState.update(key, fileName1);
+        clearInvocations(ingestionState);
         downloader.download();
-        verify(applicationStatusRepository).updateStatusValue(key, fileName1);
-        verify(applicationStatusRepository).updateStatusValue(key, fileName2);
+        verify(ingestionState).update(key, fileName1);
+        verify(ingestionState).update(key, fileName2);
         assertValidFiles(List.of(fileName1, fileName2));
     }
 
     @Test
-    @DisplayName("Missing address book")
-    void testMissingAddressBook() throws Exception {
-        Files.delete(mirrorProperties.getAddressBookPath());
+    @DisplayName("Empty address book")
+    void testEmptyAddressBook() throws Exception {
+        networkAddressBook.update(new byte[0]);
         fileCopier.copy();
         downloader.download();
         assertNoFilesinValidPath();
@@ -215,6 +232,17 @@ public abstract class AbstractDownloaderTest {
         assertNoFilesinValidPath();
     }
 
+    @Test
+    @DisplayName("Signature doesn't match file in memory")
+    void signatureMismatchInMemory() throws Exception {
+        commonDownloaderProperties.setInMemory(true);
+        fileCopier.copy();
+        Files.walk(s3Path).filter(this::isSigFile).forEach(AbstractDownloaderTest::corruptFile);
+        downloader.download();
+        assertNoFilesinValidPath();
+        assertNoFilesOutsideValidPath();
+    }
+
     @Test
     @DisplayName("Invalid or incomplete file")
     void invalidBalanceFile() throws Exception {
@@ -224,6 +252,17 @@ public abstract class AbstractDownloaderTest {
         assertNoFilesinValidPath();
     }
 
+    @Test
+    @DisplayName("Invalid or incomplete file in memory")
+    void invalidFileInMemory() throws Exception {
+        commonDownloaderProperties.setInMemory(true);
+        fileCopier.copy();
+        Files.walk(s3Path).filter(file -> !isSigFile(file)).forEach(AbstractDownloaderTest::corruptFile);
+        downloader.download();
+        assertNoFilesinValidPath();
+        assertNoFilesOutsideValidPath();
+    }
+
     @Test
     @DisplayName("Error moving record to valid folder")
     void errorMovingFile() {
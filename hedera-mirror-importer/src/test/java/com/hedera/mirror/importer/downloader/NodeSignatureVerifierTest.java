@@ -0,0 +1,207 @@
+package com.hedera.mirror.importer.downloader;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hedera.mirror.importer.addressbook.AddressBook;
+import com.hedera.mirror.importer.domain.NodeAddress;
+import com.hedera.mirror.importer.util.FileDelimiter;
+
+public class NodeSignatureVerifierTest {
+
+    private static final String FILE_NAME = "2019-08-30T18_10_00.419072Z.rcd_sig";
+    private static final int NODES = 4;
+
+    private static KeyPair[] keyPairs;
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService executor;
+
+    @BeforeAll
+    static void generateKeys() throws GeneralSecurityException {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(1024);
+        keyPairs = new KeyPair[NODES];
+        for (int i = 0; i < NODES; ++i) {
+            keyPairs[i] = keyPairGenerator.generateKeyPair();
+        }
+    }
+
+    @AfterEach
+    void after() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void allValid() throws Exception {
+        byte[] hash = hash(1);
+        List<File> sigFiles = new ArrayList<>();
+        for (int i = 0; i < NODES; ++i) {
+            sigFiles.add(sigFile(i, hash, keyPairs[i].getPrivate()));
+        }
+
+        Pair<byte[], List<File>> result = verifier(NODES).verifySignatureFiles(sigFiles);
+
+        assertThat(result.getLeft()).isEqualTo(hash);
+        assertThat(result.getRight()).hasSizeGreaterThan(NODES * 2 / 3).isSubsetOf(sigFiles);
+    }
+
+    @Test
+    void stopsAtSuperMajority() throws Exception {
+        byte[] hash = hash(1);
+        List<File> sigFiles = new ArrayList<>();
+        for (int i = 0; i < NODES; ++i) {
+            sigFiles.add(sigFile(i, hash, keyPairs[i].getPrivate()));
+        }
+
+        // A single thread verifies in order, so the last file is never needed
+        Pair<byte[], List<File>> result = verifier(1).verifySignatureFiles(sigFiles);
+
+        assertThat(result.getLeft()).isEqualTo(hash);
+        assertThat(result.getRight()).containsExactlyInAnyOrderElementsOf(sigFiles.subList(0, 3));
+    }
+
+    @Test
+    void invalidSignatureIgnored() throws Exception {
+        byte[] hash = hash(1);
+        List<File> sigFiles = new ArrayList<>();
+        sigFiles.add(sigFile(0, hash, keyPairs[1].getPrivate()));
+        for (int i = 1; i < NODES; ++i) {
+            sigFiles.add(sigFile(i, hash, keyPairs[i].getPrivate()));
+        }
+
+        Pair<byte[], List<File>> result = verifier(NODES).verifySignatureFiles(sigFiles);
+
+        assertThat(result.getLeft()).isEqualTo(hash);
+        assertThat(result.getRight()).containsExactlyInAnyOrderElementsOf(sigFiles.subList(1, NODES));
+    }
+
+    @Test
+    void notEnoughValidSignatures() throws Exception {
+        byte[] hash = hash(1);
+        List<File> sigFiles = new ArrayList<>();
+        sigFiles.add(sigFile(0, hash, keyPairs[1].getPrivate()));
+        sigFiles.add(sigFile(1, hash, keyPairs[0].getPrivate()));
+        sigFiles.add(sigFile(2, hash, keyPairs[2].getPrivate()));
+        sigFiles.add(sigFile(3, hash, keyPairs[3].getPrivate()));
+
+        Pair<byte[], List<File>> result = verifier(NODES).verifySignatureFiles(sigFiles);
+
+        assertThat(result.getLeft()).isNull();
+        assertThat(result.getRight()).isEmpty();
+    }
+
+    @Test
+    void hashesDisagree() throws Exception {
+        List<File> sigFiles = new ArrayList<>();
+        for (int i = 0; i < NODES; ++i) {
+            sigFiles.add(sigFile(i, hash(i % 2), keyPairs[i].getPrivate()));
+        }
+
+        Pair<byte[], List<File>> result = verifier(NODES).verifySignatureFiles(sigFiles);
+
+        assertThat(result.getLeft()).isNull();
+        assertThat(result.getRight()).isEmpty();
+    }
+
+    @Test
+    void reusedAcrossCalls() throws Exception {
+        NodeSignatureVerifier verifier = verifier(2);
+
+        for (int n = 0; n < 3; ++n) {
+            byte[] hash = hash(n);
+            List<File> sigFiles = new ArrayList<>();
+            for (int i = 0; i < NODES; ++i) {
+                sigFiles.add(sigFile(i, hash, keyPairs[i].getPrivate()));
+            }
+
+            assertThat(verifier.verifySignatureFiles(sigFiles).getLeft()).isEqualTo(hash);
+        }
+    }
+
+    private NodeSignatureVerifier verifier(int threads) {
+        executor = Executors.newFixedThreadPool(threads);
+        List<NodeAddress> nodeAddresses = new ArrayList<>();
+        for (int i = 0; i < NODES; ++i) {
+            nodeAddresses.add(NodeAddress.builder()
+                    .id(nodeAccountId(i))
+                    .publicKey(Hex.encodeHexString(keyPairs[i].getPublic().getEncoded()))
+                    .build());
+        }
+        return new NodeSignatureVerifier(AddressBook.of(1L, nodeAddresses), executor);
+    }
+
+    private File sigFile(int node, byte[] hash, PrivateKey privateKey) throws IOException,
+            GeneralSecurityException {
+        Signature signature = Signature.getInstance("SHA384withRSA");
+        signature.initSign(privateKey);
+        signature.update(hash);
+        byte[] sig = signature.sign();
+
+        File file = tempDir.resolve("record" + nodeAccountId(node)).resolve(FILE_NAME).toFile();
+        file.getParentFile().mkdirs();
+        try (DataOutputStream dos = new DataOutputStream(new FileOutputStream(file))) {
+            dos.writeByte(FileDelimiter.SIGNATURE_TYPE_FILE_HASH);
+            dos.write(hash);
+            dos.writeByte(FileDelimiter.SIGNATURE_TYPE_SIGNATURE);
+            dos.writeInt(sig.length);
+            dos.write(sig);
+        }
+        return file;
+    }
+
+    private static byte[] hash(int seed) {
+        byte[] hash = new byte[48];
+        Arrays.fill(hash, (byte) seed);
+        return hash;
+    }
+
+    private static String nodeAccountId(int node) {
+        return "0.0." + (node + 3);
+    }
+}
@@ -47,8 +47,8 @@ public class AccountBalancesDownloaderTest extends AbstractDownloaderTest {
 
     @Override
     protected Downloader getDownloader() {
-        return new AccountBalancesDownloader(s3AsyncClient, applicationStatusRepository, networkAddressBook,
-                (BalanceDownloaderProperties) downloaderProperties);
+        return new AccountBalancesDownloader(s3AsyncClient, ingestionState, networkAddressBook,
+                (BalanceDownloaderProperties) downloaderProperties, meterRegistry);
     }
 
     @Override
@@ -61,13 +61,27 @@ public class AccountBalancesDownloaderTest extends AbstractDownloaderTest {
     void downloadAndVerify() throws Exception {
         fileCopier.copy();
         downloader.download();
-        verify(applicationStatusRepository).updateStatusValue(
+        verify(ingestionState).update(
                 ApplicationStatusCode.LAST_VALID_DOWNLOADED_BALANCE_FILE, "2019-08-30T18_30_00.010147001Z_Balances" +
                         ".csv");
         assertValidFiles(List
                 .of("2019-08-30T18_15_00.016002001Z_Balances.csv", "2019-08-30T18_30_00.010147001Z_Balances.csv"));
     }
 
+    @Test
+    @DisplayName("Download and verify signatures in memory")
+    void downloadAndVerifyInMemory() throws Exception {
+        commonDownloaderProperties.setInMemory(true);
+        fileCopier.copy();
+        downloader.download();
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_BALANCE_FILE, "2019-08-30T18_30_00.010147001Z_Balances" +
+                        ".csv");
+        assertValidFiles(List
+                .of("2019-08-30T18_15_00.016002001Z_Balances.csv", "2019-08-30T18_30_00.010147001Z_Balances.csv"));
+        assertNoFilesOutsideValidPath();
+    }
+
     @Test
     @DisplayName("Max download items reached")
     void maxDownloadItemsReached() throws Exception {
@@ -20,27 +20,51 @@ package com.hedera.mirror.importer.downloader.record;
  * ‍
  */
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
 
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.codec.binary.Hex;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatcher;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.util.ResourceUtils;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListObjectsRequest;
 
 import com.hedera.mirror.importer.FileCopier;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.downloader.AbstractDownloaderTest;
 import com.hedera.mirror.importer.downloader.Downloader;
 import com.hedera.mirror.importer.downloader.DownloaderProperties;
+import com.hedera.mirror.importer.parser.record.RecordFileQueue;
+import com.hedera.mirror.importer.parser.record.RecordParserProperties;
+import com.hedera.mirror.importer.parser.record.ValidRecordFile;
 import com.hedera.mirror.importer.util.Utility;
 
 @ExtendWith(MockitoExtension.class)
@@ -53,10 +77,13 @@ public class RecordFileDownloaderTest extends AbstractDownloaderTest {
         return properties;
     }
 
+    private RecordFileQueue recordFileQueue;
+
     @Override
     protected Downloader getDownloader() {
-        return new RecordFileDownloader(s3AsyncClient, applicationStatusRepository, networkAddressBook,
-                (RecordDownloaderProperties) downloaderProperties);
+        recordFileQueue = new RecordFileQueue(new RecordParserProperties(mirrorProperties));
+        return new RecordFileDownloader(s3AsyncClient, ingestionState, networkAddressBook,
+                (RecordDownloaderProperties) downloaderProperties, meterRegistry, recordFileQueue);
     }
 
     @Override
@@ -69,6 +96,7 @@ public class RecordFileDownloaderTest extends AbstractDownloaderTest {
     void downloadV1() throws Exception {
         Path addressBook = ResourceUtils.getFile("classpath:addressbook/test-v1").toPath();
         mirrorProperties.setAddressBookPath(addressBook);
+        networkAddressBook.reload();
         fileCopier = FileCopier.create(Utility.getResource("data").toPath(), s3Path)
                 .from(downloaderProperties.getStreamType().getPath(), "v1")
                 .to(commonDownloaderProperties.getBucketName(), downloaderProperties.getStreamType().getPath());
@@ -76,11 +104,11 @@ public class RecordFileDownloaderTest extends AbstractDownloaderTest {
 
         downloader.download();
 
-        verify(applicationStatusRepository).updateStatusValue(
+        verify(ingestionState).update(
                 ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-07-01T14:13:00.317763Z.rcd");
-        verify(applicationStatusRepository).updateStatusValue(
+        verify(ingestionState).update(
                 ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-07-01T14:29:00.302068Z.rcd");
-        verify(applicationStatusRepository, times(2)).updateStatusValue(
+        verify(ingestionState, times(2)).update(
                 eq(ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE_HASH), any());
         assertValidFiles(List.of("2019-07-01T14:13:00.317763Z.rcd", "2019-07-01T14:29:00.302068Z.rcd"));
     }
@@ -90,13 +118,64 @@ public class RecordFileDownloaderTest extends AbstractDownloaderTest {
     void downloadV2() throws Exception {
         fileCopier.copy();
         downloader.download();
-        verify(applicationStatusRepository).updateStatusValue(
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_00.419072Z.rcd");
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_05.249678Z.rcd");
+        verify(ingestionState, times(2)).update(
+                eq(ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE_HASH), any());
+        assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+    }
+
+    @Test
+    @DisplayName("Queue valid files for the parser")
+    void queueValidFiles() throws Exception {
+        fileCopier.copy();
+        downloader.download();
+
+        ValidRecordFile first = recordFileQueue.poll(Duration.ZERO);
+        ValidRecordFile second = recordFileQueue.poll(Duration.ZERO);
+        assertThat(recordFileQueue.size()).isZero();
+        assertThat(first.getFile()).isEqualTo(validPath.resolve("2019-08-30T18_10_00.419072Z.rcd").toFile());
+        assertThat(second.getFile()).isEqualTo(validPath.resolve("2019-08-30T18_10_05.249678Z.rcd").toFile());
+        assertThat(first.getFileHash()).isEqualTo(Hex.encodeHexString(Utility.getFileHash(first.getFile().getPath())));
+        assertThat(second.getPreviousHash()).isEqualTo(first.getFileHash());
+        assertThat(first.getContents()).isNull();
+    }
+
+    @Test
+    @DisplayName("Download metrics")
+    void metrics() throws Exception {
+        fileCopier.copy();
+        downloader.download();
+        assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+
+        assertThat(meterRegistry.find("hedera.mirror.download.list").tags("type", "RECORD", "node", "0.0.3").timer())
+                .isNotNull()
+                .extracting(Timer::count)
+                .isNotEqualTo(0L);
+        assertThat(meterRegistry.get("hedera.mirror.download.verification").timer().count()).isEqualTo(2L);
+        assertThat(meterRegistry.get("hedera.mirror.download.hash").timer().count()).isGreaterThanOrEqualTo(2L);
+        assertThat(meterRegistry.get("hedera.mirror.files.pending").tag("type", "RECORD").gauge().value())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    @DisplayName("Download and verify V2 files in memory")
+    void downloadV2InMemory() throws Exception {
+        commonDownloaderProperties.setInMemory(true);
+        fileCopier.copy();
+        downloader.download();
+        verify(ingestionState).update(
                 ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_00.419072Z.rcd");
-        verify(applicationStatusRepository).updateStatusValue(
+        verify(ingestionState).update(
                 ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_05.249678Z.rcd");
-        verify(applicationStatusRepository, times(2)).updateStatusValue(
+        verify(ingestionState, times(2)).update(
                 eq(ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE_HASH), any());
         assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+        assertNoFilesOutsideValidPath();
+        assertThat(recordFileQueue.poll(Duration.ZERO).getContents())
+                .isEqualTo(Files.readAllBytes(validPath.resolve("2019-08-30T18_10_00.419072Z.rcd")));
     }
 
     @Test
@@ -106,6 +185,136 @@ public class RecordFileDownloaderTest extends AbstractDownloaderTest {
         testMaxDownloadItemsReached("2019-08-30T18_10_00.419072Z.rcd");
     }
 
+    @Test
+    @DisplayName("Use prefetched signatures for the next batch")
+    void prefetchNextBatch() throws Exception {
+        String fileName1 = "2019-08-30T18_10_00.419072Z.rcd";
+        String fileName2 = "2019-08-30T18_10_05.249678Z.rcd";
+        // Like AWS S3 and unlike mockS3, only list keys after the marker
+        S3AsyncClient s3 = s3AsyncClient;
+        s3AsyncClient = mock(S3AsyncClient.class, delegatesTo(s3));
+        doAnswer(invocation -> {
+            ListObjectsRequest request = invocation.getArgument(0);
+            return s3.listObjects(request.toBuilder().maxKeys(null).build())
+                    .thenApply(response -> response.toBuilder().contents(response.contents().stream()
+                            .filter(o -> o.key().compareTo(request.marker()) > 0)
+                            .limit(request.maxKeys())
+                            .collect(Collectors.toList())).build());
+        }).when(s3AsyncClient).listObjects(any(ListObjectsRequest.class));
+        downloader = getDownloader();
+        ((RecordDownloaderProperties) downloaderProperties).setBatchSize(1);
+        fileCopier.copy();
+
+        downloader.download();
+        assertValidFiles(List.of(fileName1));
+
+        // Files after the first one are listed ahead of the second download
+        int nodes = networkAddressBook.getAddressBook().getNodeAccountIds().size();
+        ArgumentMatcher<ListObjectsRequest> afterFirstFile = request -> request.marker().endsWith(fileName1 + "_sig");
+        verify(s3AsyncClient, timeout(5000).times(nodes)).listObjects(argThat(afterFirstFile));
+
+        downloader.download();
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, fileName2);
+        assertValidFiles(List.of(fileName1, fileName2));
+
+        // and aren't listed again by it
+        verify(s3AsyncClient, times(nodes)).listObjects(argThat(afterFirstFile));
+    }
+
+    @Test
+    @DisplayName("Hedge data file download from a node that doesn't respond")
+    void hedgeStuckDownload() throws Exception {
+        // Data file downloads from node 0.0.3 never complete
+        S3AsyncClient s3 = s3AsyncClient;
+        s3AsyncClient = mock(S3AsyncClient.class, delegatesTo(s3));
+        doAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (request.key().contains("record0.0.3/") && !request.key().endsWith("_sig")) {
+                return new CompletableFuture<>();
+            }
+            return s3.getObject(request, (AsyncResponseTransformer) invocation.getArgument(1));
+        }).when(s3AsyncClient).getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+        downloader = getDownloader();
+        commonDownloaderProperties.setHedgeDelay(Duration.ofMillis(100L));
+        commonDownloaderProperties.setHedgedRequests(2);
+
+        fileCopier.copy();
+        downloader.download();
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_00.419072Z.rcd");
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_05.249678Z.rcd");
+        assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+    }
+
+    @Test
+    @DisplayName("Replace a failed data file download without waiting for the hedge delay")
+    void hedgeReplacesFailedDownload() throws Exception {
+        // For each data file, the download from the first node never completes and the one from the second node fails
+        Duration hedgeDelay = Duration.ofSeconds(1L);
+        Map<String, List<Long>> requestTimes = new ConcurrentHashMap<>();
+        S3AsyncClient s3 = s3AsyncClient;
+        s3AsyncClient = mock(S3AsyncClient.class, delegatesTo(s3));
+        doAnswer(invocation -> {
+            GetObjectRequest request = invocation.getArgument(0);
+            if (!request.key().endsWith("_sig")) {
+                String fileName = Paths.get(request.key()).getFileName().toString();
+                List<Long> times = requestTimes.computeIfAbsent(fileName, k -> new CopyOnWriteArrayList<>());
+                times.add(System.nanoTime());
+                if (times.size() == 1) {
+                    return new CompletableFuture<>();
+                } else if (times.size() == 2) {
+                    return CompletableFuture.failedFuture(new IOException("Download failed"));
+                }
+            }
+            return s3.getObject(request, (AsyncResponseTransformer) invocation.getArgument(1));
+        }).when(s3AsyncClient).getObject(any(GetObjectRequest.class), any(AsyncResponseTransformer.class));
+        downloader = getDownloader();
+        commonDownloaderProperties.setHedgeDelay(hedgeDelay);
+        commonDownloaderProperties.setHedgedRequests(2);
+
+        fileCopier.copy();
+        downloader.download();
+
+        assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+        assertThat(requestTimes).hasSize(2).allSatisfy((fileName, times) -> {
+            assertThat(times).hasSize(3);
+            assertThat(times.get(1) - times.get(0)).isGreaterThanOrEqualTo(hedgeDelay.toNanos());
+            assertThat(times.get(2) - times.get(1)).isLessThan(hedgeDelay.toNanos() / 2);
+        });
+    }
+
+    @Test
+    @DisplayName("Hedge data file download from all nodes at once")
+    void hedgeAllNodes() throws Exception {
+        commonDownloaderProperties.setHedgeDelay(Duration.ZERO);
+        commonDownloaderProperties.setHedgedRequests(4);
+        fileCopier.copy();
+        // Node 0.0.4 is missing the data files
+        Files.walk(s3Path).filter(file -> file.toString().endsWith(".rcd") && file.toString().contains("record0.0.4"))
+                .forEach(file -> file.toFile().delete());
+        downloader.download();
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_00.419072Z.rcd");
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_05.249678Z.rcd");
+        assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+    }
+
+    @Test
+    @DisplayName("Download files one at a time")
+    void noneInFlight() throws Exception {
+        commonDownloaderProperties.setMaxInFlight(1);
+        fileCopier.copy();
+        downloader.download();
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_00.419072Z.rcd");
+        verify(ingestionState).update(
+                ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE, "2019-08-30T18_10_05.249678Z.rcd");
+        assertValidFiles(List.of("2019-08-30T18_10_05.249678Z.rcd", "2019-08-30T18_10_00.419072Z.rcd"));
+    }
+
     @Test
     @DisplayName("overwrite on download")
     void overwriteOnDownload() throws Exception {
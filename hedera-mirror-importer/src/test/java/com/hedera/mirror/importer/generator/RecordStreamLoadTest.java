@@ -0,0 +1,250 @@
+package com.hedera.mirror.importer.generator;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.findify.s3mock.S3Mock;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.Resource;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.hedera.mirror.importer.IntegrationTest;
+import com.hedera.mirror.importer.MirrorProperties;
+import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
+import com.hedera.mirror.importer.downloader.record.RecordDownloaderProperties;
+import com.hedera.mirror.importer.downloader.record.RecordFileDownloader;
+import com.hedera.mirror.importer.parser.record.RecordFileLogger;
+import com.hedera.mirror.importer.parser.record.RecordFileParser;
+import com.hedera.mirror.importer.parser.record.RecordParserProperties;
+import com.hedera.mirror.importer.repository.IngestionState;
+import com.hedera.mirror.importer.repository.TransactionRepository;
+
+/**
+ * Publishes generated record streams to S3Mock at the configured rate and runs the downloader and parser beans against
+ * them the way the scheduler would, reporting the sustained transactions per second and how long each file took from
+ * being published to being persisted. Its outcome depends on the speed of the machine, so it is tagged to only run
+ * with the load profile. For a longer run against a bigger stream, set hedera.mirror.load.duration and the
+ * hedera.mirror.generator.* properties (see {@link StreamGeneratorProperties}), e.g.:
+ * <pre>
+ * ./mvnw test -P load -pl hedera-mirror-importer -Dtest=RecordStreamLoadTest -Dhedera.mirror.load.duration=5m
+ *     -Dhedera.mirror.generator.transactionsPerSecond=10000 -Dhedera.mirror.generator.recordInterval=2s
+ * </pre>
+ */
+@Log4j2
+@Tag("load")
+// Class manually commits so have to manually cleanup tables
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/scripts/cleanup.sql")
+@Sql(executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/scripts/cleanup.sql")
+@TestPropertySource(properties = {
+        "hedera.mirror.downloader.accessKey=x", // https://github.com/findify/s3mock/issues/147
+        "hedera.mirror.downloader.secretKey=x"
+})
+public class RecordStreamLoadTest extends IntegrationTest {
+
+    private static final int S3_PORT = 8001;
+
+    @TempDir
+    Path dataPath;
+    @TempDir
+    Path s3Path;
+    @TempDir
+    Path stagingPath;
+    @Value("${hedera.mirror.load.duration:5s}")
+    Duration duration;
+    @Value("${hedera.mirror.load.timeout:1m}")
+    Duration timeout;
+    @Resource
+    private IngestionState ingestionState;
+    @Resource
+    private NetworkAddressBook networkAddressBook;
+    @Resource
+    private RecordDownloaderProperties downloaderProperties;
+    @Resource
+    private Environment environment;
+    @Resource
+    private RecordFileDownloader recordFileDownloader;
+    @Resource
+    private RecordFileParser recordFileParser;
+    @Resource
+    private RecordParserProperties parserProperties;
+    @Resource
+    private TransactionRepository transactionRepository;
+    private StreamGeneratorProperties generatorProperties;
+    private S3Mock s3;
+    private ScheduledExecutorService scheduler;
+    private Path originalDataPath;
+    private boolean downloaderEnabled;
+    private boolean parserEnabled;
+
+    @BeforeEach
+    void before() {
+        generatorProperties = new StreamGeneratorProperties();
+        generatorProperties.setKeySize(1024);
+        generatorProperties.setRecordInterval(Duration.ofSeconds(1L));
+        generatorProperties.setTransactionsPerSecond(200);
+        Binder.get(environment).bind("hedera.mirror.generator", Bindable.ofInstance(generatorProperties));
+
+        MirrorProperties mirrorProperties = parserProperties.getMirrorProperties();
+        originalDataPath = mirrorProperties.getDataPath();
+        mirrorProperties.setDataPath(dataPath);
+        mirrorProperties.setAddressBookPath(dataPath.resolve("generated.bin"));
+        downloaderEnabled = downloaderProperties.isEnabled();
+        downloaderProperties.setEnabled(true);
+        downloaderProperties.init();
+        parserEnabled = parserProperties.isEnabled();
+        parserProperties.setEnabled(true);
+        parserProperties.init();
+
+        // Discard any status and entity ids kept by a previous test since cleanup.sql bypasses them
+        ingestionState.reset();
+        RecordFileLogger.invalidateEntityIdCache();
+
+        s3 = S3Mock.create(S3_PORT, s3Path.toString());
+        s3.start();
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler.awaitTermination(10L, TimeUnit.SECONDS);
+        }
+        s3.shutdown();
+
+        // Put the shared beans back the way the other tests expect them, including the default address book
+        downloaderProperties.setEnabled(downloaderEnabled);
+        parserProperties.setEnabled(parserEnabled);
+        parserProperties.getMirrorProperties().setDataPath(originalDataPath);
+        parserProperties.getMirrorProperties().setAddressBookPath(null);
+        networkAddressBook.reload();
+    }
+
+    @Test
+    void load() throws Exception {
+        // Generate everything up front so that generating and signing isn't competing with the importer
+        StreamFileGenerator generator = new StreamFileGenerator(generatorProperties, stagingPath);
+        generator.writeAddressBook(parserProperties.getMirrorProperties().getAddressBookPath());
+        networkAddressBook.reload();
+        Duration interval = generatorProperties.getRecordInterval();
+        int fileCount = (int) Math.max(1L, duration.toNanos() / interval.toNanos());
+        List<StreamFileGenerator.GeneratedFile> files = new ArrayList<>(fileCount);
+        long transactions = 0L;
+        for (int i = 0; i < fileCount; ++i) {
+            StreamFileGenerator.GeneratedFile file = generator
+                    .writeRecordFile(generatorProperties.getStartTime().plus(interval.multipliedBy(i)));
+            files.add(file);
+            transactions += file.getItems();
+        }
+        log.info("Generated {} record files with {} transactions from {} nodes", fileCount, transactions,
+                generatorProperties.getNodes());
+
+        scheduler = Executors.newScheduledThreadPool(2);
+        scheduler.scheduleAtFixedRate(recordFileDownloader::download, 0L,
+                downloaderProperties.getFrequency().toMillis(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(recordFileParser::parse, 0L, parserProperties.getFrequency().toMillis(),
+                TimeUnit.MILLISECONDS);
+
+        Map<String, Instant> published = new HashMap<>();
+        Map<String, Instant> parsed = new HashMap<>();
+        Path bucketPath = s3Path.resolve(downloaderProperties.getCommon().getBucketName());
+        Instant start = Instant.now();
+        Instant deadline = start.plus(duration).plus(timeout);
+
+        while (parsed.size() < fileCount && Instant.now().isBefore(deadline)) {
+            // Publish each file when it is due, data files before their signatures like the nodes do
+            int due = (int) Math.min(fileCount, Duration.between(start, Instant.now()).toNanos() /
+                    interval.toNanos() + 1);
+            for (StreamFileGenerator.GeneratedFile file : files.subList(published.size(), due)) {
+                publish(file.getDataFiles(), bucketPath);
+                publish(file.getSignatureFiles(), bucketPath);
+                published.put(file.getName(), Instant.now());
+            }
+
+            Instant now = Instant.now();
+            for (String name : parsedFiles()) {
+                parsed.putIfAbsent(name, now);
+            }
+            Thread.sleep(10L);
+        }
+
+        Duration elapsed = Duration.between(start, parsed.values().stream().max(Instant::compareTo).orElse(start));
+        List<Duration> lags = parsed.entrySet().stream()
+                .map(e -> Duration.between(published.get(e.getKey()), e.getValue()))
+                .sorted()
+                .collect(Collectors.toList());
+        long parsedTransactions = transactionRepository.count();
+        log.info("Persisted {} of {} record files with {} transactions in {}: {} transactions/s sustained ({} " +
+                        "generated), lag avg {} ms max {} ms", parsed.size(), fileCount, parsedTransactions, elapsed,
+                elapsed.isZero() ? 0L : parsedTransactions * 1000L / elapsed.toMillis(),
+                generatorProperties.getTransactionsPerSecond(),
+                lags.stream().mapToLong(Duration::toMillis).average().orElse(0.0),
+                lags.isEmpty() ? 0L : lags.get(lags.size() - 1).toMillis());
+
+        assertThat(parsed).hasSize(fileCount);
+        assertThat(parsedTransactions).isEqualTo(transactions);
+    }
+
+    private void publish(List<Path> files, Path bucketPath) throws Exception {
+        for (Path file : files) {
+            Path target = bucketPath.resolve(stagingPath.relativize(file));
+            Files.createDirectories(target.getParent());
+            Files.move(file, target);
+        }
+    }
+
+    private List<String> parsedFiles() throws Exception {
+        Path parsedPath = parserProperties.getParsedPath();
+        if (!Files.exists(parsedPath)) {
+            return List.of();
+        }
+        try (Stream<Path> paths = Files.walk(parsedPath)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(p -> p.getFileName().toString())
+                    .collect(Collectors.toList());
+        }
+    }
+}
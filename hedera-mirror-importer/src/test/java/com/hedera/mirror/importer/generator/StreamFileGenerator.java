@@ -0,0 +1,499 @@
+package com.hedera.mirror.importer.generator;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.AccountAmount;
+import com.hederahashgraph.api.proto.java.AccountID;
+import com.hederahashgraph.api.proto.java.ContractCallTransactionBody;
+import com.hederahashgraph.api.proto.java.ContractFunctionResult;
+import com.hederahashgraph.api.proto.java.ContractID;
+import com.hederahashgraph.api.proto.java.CryptoCreateTransactionBody;
+import com.hederahashgraph.api.proto.java.CryptoTransferTransactionBody;
+import com.hederahashgraph.api.proto.java.Duration;
+import com.hederahashgraph.api.proto.java.FileAppendTransactionBody;
+import com.hederahashgraph.api.proto.java.FileCreateTransactionBody;
+import com.hederahashgraph.api.proto.java.FileID;
+import com.hederahashgraph.api.proto.java.Key;
+import com.hederahashgraph.api.proto.java.KeyList;
+import com.hederahashgraph.api.proto.java.NodeAddress;
+import com.hederahashgraph.api.proto.java.NodeAddressBook;
+import com.hederahashgraph.api.proto.java.ResponseCodeEnum;
+import com.hederahashgraph.api.proto.java.SignatureMap;
+import com.hederahashgraph.api.proto.java.SignaturePair;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionID;
+import com.hederahashgraph.api.proto.java.TransactionReceipt;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import com.hederahashgraph.api.proto.java.TransferList;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import lombok.Value;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.codec.binary.Hex;
+
+import com.hedera.mirror.importer.domain.StreamType;
+import com.hedera.mirror.importer.util.FileDelimiter;
+import com.hedera.mirror.importer.util.Utility;
+
+/**
+ * Writes synthetic record, balance and event stream files the way the nodes upload them to the bucket: every node
+ * directory gets a copy of the data file and a _sig file signed with that node's generated RSA key. Record and event
+ * files continue the hash chain of the previous file written by the same generator. The matching address book is
+ * written by writeAddressBook().
+ */
+@Log4j2
+public class StreamFileGenerator {
+
+    public static final Set<TransactionBody.DataCase> SUPPORTED_TYPES = EnumSet.of(
+            TransactionBody.DataCase.CONTRACTCALL, TransactionBody.DataCase.CRYPTOCREATEACCOUNT,
+            TransactionBody.DataCase.CRYPTOTRANSFER, TransactionBody.DataCase.FILEAPPEND,
+            TransactionBody.DataCase.FILECREATE);
+
+    static final long FIRST_ACCOUNT = 1001L;
+    static final long NODE_FEE = 10_000L;
+    static final long TRANSACTION_FEE = 100_000L;
+
+    private static final long FEE_COLLECTION_ACCOUNT = 98L;
+    private static final int HAPI_VERSION = 3;
+    private static final int HASH_LENGTH = 48;
+    private static final long TREASURY_ACCOUNT = 2L;
+    private static final int TRANSACTIONS_PER_EVENT = 4;
+
+    // Fixed width names so that ordering the files by name orders them by time
+    private static final DateTimeFormatter FILE_NAME_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH_mm_ss.nnnnnnnnn'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.nnnnnnnnn'Z'")
+            .withZone(ZoneOffset.UTC);
+
+    private final StreamGeneratorProperties properties;
+    private final Path outputPath;
+    private final List<KeyPair> keyPairs = new ArrayList<>();
+    private final Random random;
+    private final TransactionBody.DataCase[] types;
+    private final int[] cumulativeWeights;
+    private final List<Long> files = new ArrayList<>();
+    private final long contractNum;
+    private long nextEntityNum;
+    private long consensusOrder = 0L;
+    private byte[] previousRecordHash = new byte[HASH_LENGTH];
+    private byte[] previousEventHash = new byte[HASH_LENGTH];
+
+    /**
+     * @param properties the shape of the streams
+     * @param outputPath the root of the bucket to write the files to
+     */
+    public StreamFileGenerator(StreamGeneratorProperties properties, Path outputPath) throws GeneralSecurityException {
+        this.properties = properties;
+        this.outputPath = outputPath;
+        random = new Random(properties.getSeed());
+
+        Map<TransactionBody.DataCase, Integer> mix = properties.getTransactionMix();
+        types = new TransactionBody.DataCase[mix.size()];
+        cumulativeWeights = new int[mix.size()];
+        int total = 0;
+        int i = 0;
+        for (Map.Entry<TransactionBody.DataCase, Integer> entry : mix.entrySet()) {
+            if (!SUPPORTED_TYPES.contains(entry.getKey())) {
+                throw new IllegalArgumentException("Unsupported transaction type " + entry.getKey());
+            }
+            total += entry.getValue();
+            types[i] = entry.getKey();
+            cumulativeWeights[i++] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Transaction mix has no weight: " + mix);
+        }
+
+        // Accounts, contract and the entities created by the transactions don't overlap
+        contractNum = FIRST_ACCOUNT + properties.getAccounts();
+        nextEntityNum = contractNum + 1;
+
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(properties.getKeySize());
+        for (int node = 0; node < properties.getNodes(); ++node) {
+            keyPairs.add(keyPairGenerator.generateKeyPair());
+        }
+    }
+
+    public static String nodeAccountId(int node) {
+        return "0.0." + (node + 3);
+    }
+
+    /**
+     * @return the number of transactions generated for a file covering the interval
+     */
+    public int transactionCount(java.time.Duration interval) {
+        long count = properties.getTransactionsPerSecond() * interval.toNanos() / 1_000_000_000L;
+        return (int) Math.max(1L, count);
+    }
+
+    /**
+     * Writes a NodeAddressBook with the public keys of the generated nodes
+     */
+    public void writeAddressBook(Path path) throws IOException {
+        NodeAddressBook.Builder nodeAddressBook = NodeAddressBook.newBuilder();
+        for (int node = 0; node < keyPairs.size(); ++node) {
+            nodeAddressBook.addNodeAddress(NodeAddress.newBuilder()
+                    .setIpAddress(ByteString.copyFromUtf8("127.0.0." + (node + 1)))
+                    .setPortno(50211)
+                    .setMemo(ByteString.copyFromUtf8(nodeAccountId(node)))
+                    .setRSAPubKey(Hex.encodeHexString(keyPairs.get(node).getPublic().getEncoded())));
+        }
+        Utility.ensureDirectory(path.getParent());
+        Files.write(path, nodeAddressBook.build().toByteArray());
+    }
+
+    /**
+     * Writes a version 2 record file with the transactions that reached consensus in [start, start +
+     * recordInterval)
+     */
+    public GeneratedFile writeRecordFile(Instant start) throws IOException, GeneralSecurityException {
+        int count = transactionCount(properties.getRecordInterval());
+        long spacing = properties.getRecordInterval().toNanos() / count;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream dos = new DataOutputStream(bytes)) {
+            dos.writeInt(FileDelimiter.RECORD_FORMAT_VERSION);
+            dos.writeInt(HAPI_VERSION);
+            dos.writeByte(FileDelimiter.RECORD_TYPE_PREV_HASH);
+            dos.write(previousRecordHash);
+
+            for (int i = 0; i < count; ++i) {
+                Instant consensusTimestamp = start.plusNanos(i * spacing);
+                TransactionBody body = transactionBody(consensusTimestamp, i);
+                byte[] transactionBytes = transaction(body).toByteArray();
+                byte[] recordBytes = transactionRecord(body, consensusTimestamp).toByteArray();
+                dos.writeByte(FileDelimiter.RECORD_TYPE_RECORD);
+                dos.writeInt(transactionBytes.length);
+                dos.write(transactionBytes);
+                dos.writeInt(recordBytes.length);
+                dos.write(recordBytes);
+            }
+        }
+
+        String name = FILE_NAME_FORMAT.format(start) + ".rcd";
+        GeneratedFile generatedFile = write(StreamType.RECORD.getPath() + "/record", name, bytes.toByteArray(), count);
+        previousRecordHash = generatedFile.getHash();
+        return generatedFile;
+    }
+
+    /**
+     * Writes an account balances CSV with the balances of the nodes, system and generated accounts at the timestamp
+     */
+    public GeneratedFile writeBalanceFile(Instant timestamp) throws IOException, GeneralSecurityException {
+        StringBuilder csv = new StringBuilder();
+        csv.append("TimeStamp:").append(TIMESTAMP_FORMAT.format(timestamp)).append('\n');
+        csv.append("shardNum,realmNum,accountNum,balance\n");
+
+        List<Long> accounts = new ArrayList<>();
+        accounts.add(TREASURY_ACCOUNT);
+        for (int node = 0; node < keyPairs.size(); ++node) {
+            accounts.add(node + 3L);
+        }
+        accounts.add(FEE_COLLECTION_ACCOUNT);
+        for (long num = FIRST_ACCOUNT; num < contractNum; ++num) {
+            accounts.add(num);
+        }
+        for (long num : accounts) {
+            csv.append("0,0,").append(num).append(',').append(1L + (random.nextLong() >>> 1)).append('\n');
+        }
+
+        String name = FILE_NAME_FORMAT.format(timestamp) + "_Balances.csv";
+        return write(StreamType.BALANCE.getPath() + "/balance", name, csv.toString()
+                .getBytes(StandardCharsets.UTF_8), accounts.size());
+    }
+
+    /**
+     * Writes a version 3 event file with events of a few transactions each that reached consensus in [start, start
+     * + eventInterval)
+     */
+    public GeneratedFile writeEventFile(Instant start) throws IOException, GeneralSecurityException {
+        int count = transactionCount(properties.getEventInterval());
+        int events = (count + TRANSACTIONS_PER_EVENT - 1) / TRANSACTIONS_PER_EVENT;
+        long spacing = properties.getEventInterval().toNanos() / events;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream dos = new DataOutputStream(bytes)) {
+            dos.writeInt(FileDelimiter.EVENT_STREAM_FILE_VERSION_CURRENT);
+            dos.writeByte(FileDelimiter.EVENT_TYPE_PREV_HASH);
+            dos.write(previousEventHash);
+
+            for (int i = 0; i < events; ++i) {
+                Instant consensusTimestamp = start.plusNanos(i * spacing);
+                List<byte[]> transactions = new ArrayList<>();
+                for (int j = i * TRANSACTIONS_PER_EVENT; j < Math.min(count, (i + 1) * TRANSACTIONS_PER_EVENT); ++j) {
+                    transactions.add(transaction(transactionBody(consensusTimestamp, j)).toByteArray());
+                }
+                writeEvent(dos, i % keyPairs.size(), consensusTimestamp, transactions);
+            }
+        }
+
+        String name = FILE_NAME_FORMAT.format(start) + ".evts";
+        GeneratedFile generatedFile = write(StreamType.EVENT.getPath() + "/events_", name, bytes.toByteArray(), events);
+        previousEventHash = generatedFile.getHash();
+        return generatedFile;
+    }
+
+    private void writeEvent(DataOutputStream dos, int creator, Instant consensusTimestamp, List<byte[]> transactions)
+            throws IOException {
+        long order = consensusOrder++;
+        dos.writeByte(FileDelimiter.EVENT_STREAM_START_WITH_VERSION);
+        dos.writeInt(FileDelimiter.EVENT_STREAM_VERSION);
+        dos.writeLong(creator); // creatorId
+        dos.writeLong(order); // creatorSeq
+        dos.writeLong((creator + 1) % keyPairs.size()); // otherId
+        dos.writeLong(order); // otherSeq
+        dos.writeLong(order); // selfParentGen
+        dos.writeLong(order); // otherParentGen
+        writeByteArray(dos, randomBytes(HASH_LENGTH)); // selfParentHash
+        writeByteArray(dos, randomBytes(HASH_LENGTH)); // otherParentHash
+
+        // Transaction array and checksums as read by Transaction.readArray()
+        dos.writeInt(transactions.size());
+        dos.writeInt(1873 - transactions.size());
+        for (byte[] transaction : transactions) {
+            dos.writeInt(transaction.length);
+            dos.writeInt(277 - transaction.length);
+            dos.writeBoolean(false);
+            dos.write(transaction);
+            dos.writeInt(0);
+            dos.writeInt(353);
+        }
+
+        Instant timeCreated = consensusTimestamp.minusSeconds(1L);
+        dos.writeLong(timeCreated.getEpochSecond());
+        dos.writeLong(timeCreated.getNano());
+        writeByteArray(dos, randomBytes(384)); // signature
+        dos.writeByte(FileDelimiter.EVENT_COMM_EVENT_LAST);
+        writeByteArray(dos, randomBytes(HASH_LENGTH)); // hash
+        dos.writeLong(consensusTimestamp.getEpochSecond());
+        dos.writeLong(consensusTimestamp.getNano());
+        dos.writeLong(order);
+    }
+
+    private static void writeByteArray(DataOutputStream dos, byte[] bytes) throws IOException {
+        dos.writeInt(bytes.length);
+        dos.writeInt(101 - bytes.length);
+        dos.write(bytes);
+    }
+
+    /**
+     * Writes the data file to every node's directory, followed by each node's signature of its hash
+     */
+    private GeneratedFile write(String prefix, String name, byte[] contents, int items) throws IOException,
+            GeneralSecurityException {
+        List<Path> dataFiles = new ArrayList<>();
+        for (int node = 0; node < keyPairs.size(); ++node) {
+            Path directory = outputPath.resolve(prefix + nodeAccountId(node));
+            Utility.ensureDirectory(directory);
+            dataFiles.add(Files.write(directory.resolve(name), contents));
+        }
+
+        // Sign the same hash the downloader calculates for this type of file
+        byte[] hash = Utility.getFileHash(dataFiles.get(0).toString());
+        List<Path> sigFiles = new ArrayList<>();
+        for (int node = 0; node < keyPairs.size(); ++node) {
+            Signature signature = Signature.getInstance("SHA384withRSA");
+            signature.initSign(keyPairs.get(node).getPrivate());
+            signature.update(hash);
+            byte[] sig = signature.sign();
+
+            Path sigFile = dataFiles.get(node).resolveSibling(name + "_sig");
+            try (DataOutputStream dos = new DataOutputStream(Files.newOutputStream(sigFile))) {
+                dos.writeByte(FileDelimiter.SIGNATURE_TYPE_FILE_HASH);
+                dos.write(hash);
+                dos.writeByte(FileDelimiter.SIGNATURE_TYPE_SIGNATURE);
+                dos.writeInt(sig.length);
+                dos.write(sig);
+            }
+            sigFiles.add(sigFile);
+        }
+
+        log.debug("Generated {} with {} items", name, items);
+        return new GeneratedFile(name, hash, dataFiles, sigFiles, items);
+    }
+
+    private TransactionBody transactionBody(Instant consensusTimestamp, int index) {
+        AccountID payer = account(FIRST_ACCOUNT + random.nextInt(properties.getAccounts()));
+        TransactionBody.Builder body = TransactionBody.newBuilder()
+                .setMemo("")
+                .setNodeAccountID(account(3L + index % keyPairs.size()))
+                .setTransactionFee(TRANSACTION_FEE)
+                .setTransactionID(TransactionID.newBuilder()
+                        .setAccountID(payer)
+                        .setTransactionValidStart(Utility.instantToTimestamp(consensusTimestamp.minusSeconds(2L))))
+                .setTransactionValidDuration(Duration.newBuilder().setSeconds(120L));
+
+        switch (nextType()) {
+            case CONTRACTCALL:
+                body.setContractCall(ContractCallTransactionBody.newBuilder()
+                        .setContractID(ContractID.newBuilder().setContractNum(contractNum))
+                        .setGas(100_000L)
+                        .setFunctionParameters(ByteString.copyFrom(randomBytes(68))));
+                break;
+            case CRYPTOCREATEACCOUNT:
+                body.setCryptoCreateAccount(CryptoCreateTransactionBody.newBuilder()
+                        .setAutoRenewPeriod(Duration.newBuilder().setSeconds(7_776_000L))
+                        .setInitialBalance(1 + random.nextInt(1_000_000))
+                        .setKey(key()));
+                break;
+            case FILEAPPEND:
+                // Appends need a file to append to, so create one first
+                if (!files.isEmpty()) {
+                    body.setFileAppend(FileAppendTransactionBody.newBuilder()
+                            .setContents(ByteString.copyFrom(randomBytes(256)))
+                            .setFileID(FileID.newBuilder().setFileNum(files.get(random.nextInt(files.size())))));
+                    break;
+                }
+                // fall through
+            case FILECREATE:
+                body.setFileCreate(FileCreateTransactionBody.newBuilder()
+                        .setContents(ByteString.copyFrom(randomBytes(256)))
+                        .setExpirationTime(Utility.instantToTimestamp(consensusTimestamp.plusSeconds(7_776_000L)))
+                        .setKeys(KeyList.newBuilder().addKeys(key())));
+                break;
+            default:
+                AccountID receiver = account(FIRST_ACCOUNT + random.nextInt(properties.getAccounts()));
+                long amount = 1L + random.nextInt(1_000_000);
+                body.setCryptoTransfer(CryptoTransferTransactionBody.newBuilder()
+                        .setTransfers(TransferList.newBuilder()
+                                .addAccountAmounts(accountAmount(payer, -amount))
+                                .addAccountAmounts(accountAmount(receiver, amount))));
+                break;
+        }
+
+        return body.build();
+    }
+
+    private Transaction transaction(TransactionBody body) {
+        return Transaction.newBuilder()
+                .setBodyBytes(body.toByteString())
+                .setSigMap(SignatureMap.newBuilder().addSigPair(SignaturePair.newBuilder()
+                        .setPubKeyPrefix(ByteString.copyFrom(randomBytes(6)))
+                        .setEd25519(ByteString.copyFrom(randomBytes(64)))))
+                .build();
+    }
+
+    private TransactionRecord transactionRecord(TransactionBody body, Instant consensusTimestamp) {
+        AccountID payer = body.getTransactionID().getAccountID();
+        TransactionReceipt.Builder receipt = TransactionReceipt.newBuilder().setStatus(ResponseCodeEnum.SUCCESS);
+        TransferList.Builder transferList = TransferList.newBuilder()
+                .addAccountAmounts(accountAmount(payer, -TRANSACTION_FEE))
+                .addAccountAmounts(accountAmount(body.getNodeAccountID(), NODE_FEE))
+                .addAccountAmounts(accountAmount(account(FEE_COLLECTION_ACCOUNT), TRANSACTION_FEE - NODE_FEE));
+        TransactionRecord.Builder transactionRecord = TransactionRecord.newBuilder()
+                .setConsensusTimestamp(Utility.instantToTimestamp(consensusTimestamp))
+                .setMemo(body.getMemo())
+                .setTransactionFee(TRANSACTION_FEE)
+                .setTransactionHash(ByteString.copyFrom(randomBytes(HASH_LENGTH)))
+                .setTransactionID(body.getTransactionID());
+
+        switch (body.getDataCase()) {
+            case CONTRACTCALL:
+                transactionRecord.setContractCallResult(ContractFunctionResult.newBuilder()
+                        .setContractID(body.getContractCall().getContractID())
+                        .setContractCallResult(ByteString.copyFrom(randomBytes(32)))
+                        .setGasUsed(body.getContractCall().getGas() / 2));
+                break;
+            case CRYPTOCREATEACCOUNT:
+                AccountID accountId = account(nextEntityNum++);
+                long initialBalance = body.getCryptoCreateAccount().getInitialBalance();
+                receipt.setAccountID(accountId);
+                transferList.addAccountAmounts(accountAmount(payer, -initialBalance))
+                        .addAccountAmounts(accountAmount(accountId, initialBalance));
+                break;
+            case CRYPTOTRANSFER:
+                transferList.addAllAccountAmounts(body.getCryptoTransfer().getTransfers().getAccountAmountsList());
+                break;
+            case FILECREATE:
+                long fileNum = nextEntityNum++;
+                files.add(fileNum);
+                receipt.setFileID(FileID.newBuilder().setFileNum(fileNum));
+                break;
+            default:
+                break;
+        }
+
+        return transactionRecord.setReceipt(receipt).setTransferList(transferList).build();
+    }
+
+    private TransactionBody.DataCase nextType() {
+        int weight = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (weight >= cumulativeWeights[i]) {
+            ++i;
+        }
+        return types[i];
+    }
+
+    private Key key() {
+        return Key.newBuilder().setEd25519(ByteString.copyFrom(randomBytes(32))).build();
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static AccountID account(long num) {
+        return AccountID.newBuilder().setAccountNum(num).build();
+    }
+
+    private static AccountAmount accountAmount(AccountID accountId, long amount) {
+        return AccountAmount.newBuilder().setAccountID(accountId).setAmount(amount).build();
+    }
+
+    /**
+     * A data file and its signatures as written to each node's directory
+     */
+    @Value
+    public static class GeneratedFile {
+        String name;
+        byte[] hash;
+        List<Path> dataFiles;
+        List<Path> signatureFiles;
+        int items;
+    }
+}
@@ -0,0 +1,189 @@
+package com.hedera.mirror.importer.generator;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hedera.mirror.importer.MirrorProperties;
+import com.hedera.mirror.importer.addressbook.AddressBook;
+import com.hedera.mirror.importer.addressbook.NetworkAddressBook;
+import com.hedera.mirror.importer.downloader.NodeSignatureVerifier;
+import com.hedera.mirror.importer.parser.balance.AccountBalancesDatasetV2;
+import com.hedera.mirror.importer.parser.event.EventStreamFileParser;
+import com.hedera.mirror.importer.parser.record.ParsedRecordFile;
+import com.hedera.mirror.importer.parser.record.RecordFileReader;
+import com.hedera.mirror.importer.util.Utility;
+
+public class StreamFileGeneratorTest {
+
+    private static final Instant START = Instant.parse("2019-09-01T00:00:00Z");
+
+    @TempDir
+    Path outputPath;
+
+    private StreamGeneratorProperties properties;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void before() {
+        properties = new StreamGeneratorProperties();
+        properties.setAccounts(100);
+        properties.setKeySize(1024);
+        properties.setRecordInterval(Duration.ofSeconds(2L));
+        properties.setStartTime(START);
+        properties.setTransactionsPerSecond(50);
+    }
+
+    @AfterEach
+    void after() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void recordFiles() throws Exception {
+        StreamFileGenerator generator = new StreamFileGenerator(properties, outputPath);
+        StreamFileGenerator.GeneratedFile first = generator.writeRecordFile(START);
+        StreamFileGenerator.GeneratedFile second = generator.writeRecordFile(START.plusSeconds(2L));
+
+        assertThat(first.getName()).isEqualTo("2019-09-01T00_00_00.000000000Z.rcd");
+        assertThat(Utility.getInstantFromFileName(second.getName())).isEqualTo(START.plusSeconds(2L));
+        assertThat(first.getItems()).isEqualTo(100);
+        assertThat(first.getDataFiles()).hasSize(4)
+                .allMatch(p -> p.getParent().getFileName().toString().startsWith("record0.0."));
+        assertThat(first.getSignatureFiles()).hasSize(4);
+
+        ParsedRecordFile firstFile = RecordFileReader.read(first.getDataFiles().get(0).toFile(), true);
+        ParsedRecordFile secondFile = RecordFileReader.read(second.getDataFiles().get(3).toFile(), true);
+        assertThat(firstFile.getFileHash()).isEqualTo(Hex.encodeHexString(first.getHash()));
+        assertThat(firstFile.getPreviousHash()).isEqualTo(Hex.encodeHexString(new byte[48]));
+        assertThat(secondFile.getPreviousHash()).isEqualTo(firstFile.getFileHash());
+        assertThat(secondFile.getRecords()).hasSize(100);
+
+        for (Triple<Transaction, TransactionRecord, ByteString> record : secondFile.getRecords()) {
+            TransactionBody body = TransactionBody.parseFrom(record.getLeft().getBodyBytes());
+            assertThat(StreamFileGenerator.SUPPORTED_TYPES).contains(body.getDataCase());
+            assertThat(record.getMiddle().getTransactionID()).isEqualTo(body.getTransactionID());
+            assertThat(record.getMiddle().getTransferList().getAccountAmountsList())
+                    .extracting(a -> a.getAmount())
+                    .matches(amounts -> amounts.stream().mapToLong(Long::longValue).sum() == 0L);
+        }
+    }
+
+    @Test
+    void transactionMix() throws Exception {
+        properties.setTransactionMix(Map.of(TransactionBody.DataCase.CRYPTOTRANSFER, 1));
+        StreamFileGenerator generator = new StreamFileGenerator(properties, outputPath);
+
+        ParsedRecordFile recordFile = RecordFileReader.read(generator.writeRecordFile(START).getDataFiles().get(0)
+                .toFile(), true);
+
+        assertThat(recordFile.getRecords())
+                .extracting(r -> TransactionBody.parseFrom(r.getLeft().getBodyBytes()).getDataCase())
+                .containsOnly(TransactionBody.DataCase.CRYPTOTRANSFER);
+    }
+
+    @Test
+    void unsupportedTransactionType() {
+        properties.setTransactionMix(Map.of(TransactionBody.DataCase.FREEZE, 1));
+        assertThatThrownBy(() -> new StreamFileGenerator(properties, outputPath))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void signaturesMatchAddressBook() throws Exception {
+        StreamFileGenerator generator = new StreamFileGenerator(properties, outputPath);
+        Path addressBookPath = outputPath.resolve("addressbook.bin");
+        generator.writeAddressBook(addressBookPath);
+        MirrorProperties mirrorProperties = new MirrorProperties();
+        mirrorProperties.setDataPath(outputPath);
+        mirrorProperties.setAddressBookPath(addressBookPath);
+        AddressBook addressBook = new NetworkAddressBook(mirrorProperties).getAddressBook();
+        executor = Executors.newSingleThreadExecutor();
+        NodeSignatureVerifier verifier = new NodeSignatureVerifier(addressBook, executor);
+
+        assertThat(addressBook.getNodeAccountIds())
+                .containsExactly("0.0.3", "0.0.4", "0.0.5", "0.0.6");
+
+        for (StreamFileGenerator.GeneratedFile file : List.of(generator.writeRecordFile(START),
+                generator.writeBalanceFile(START), generator.writeEventFile(START))) {
+            List<File> sigFiles = file.getSignatureFiles().stream().map(Path::toFile).collect(Collectors.toList());
+            assertThat(verifier.verifySignatureFiles(sigFiles).getLeft()).isEqualTo(file.getHash());
+            assertThat(Utility.getFileHash(file.getDataFiles().get(1).toString())).isEqualTo(file.getHash());
+        }
+    }
+
+    @Test
+    void balanceFile() throws Exception {
+        StreamFileGenerator generator = new StreamFileGenerator(properties, outputPath);
+        StreamFileGenerator.GeneratedFile file = generator.writeBalanceFile(START);
+
+        assertThat(file.getName()).isEqualTo("2019-09-01T00_00_00.000000000Z_Balances.csv");
+        assertThat(file.getDataFiles().get(0).getParent().getFileName().toString()).isEqualTo("balance0.0.3");
+        try (BufferedReader reader = Files.newBufferedReader(file.getDataFiles().get(0));
+             AccountBalancesDatasetV2 dataset = new AccountBalancesDatasetV2(file.getName(), reader)) {
+            assertThat(dataset.getConsensusTimestamp()).isEqualTo(START);
+            // Treasury, nodes, fee collection account and the generated accounts
+            assertThat(dataset.getRecordStream().count()).isEqualTo(1 + 4 + 1 + 100).isEqualTo(file.getItems());
+        }
+    }
+
+    @Test
+    void eventFiles() throws Exception {
+        StreamFileGenerator generator = new StreamFileGenerator(properties, outputPath);
+        StreamFileGenerator.GeneratedFile first = generator.writeEventFile(START);
+        StreamFileGenerator.GeneratedFile second = generator.writeEventFile(START.plusSeconds(5L));
+
+        assertThat(first.getName()).isEqualTo("2019-09-01T00_00_00.000000000Z.evts");
+        assertThat(first.getDataFiles().get(0).getParent().getFileName().toString()).isEqualTo("events_0.0.3");
+        // 250 transactions in events of up to 4
+        assertThat(first.getItems()).isEqualTo(63);
+        assertThat(EventStreamFileParser.readPrevFileHash(first.getDataFiles().get(0).toString()))
+                .isEqualTo(Hex.encodeHexString(new byte[48]));
+        assertThat(EventStreamFileParser.readPrevFileHash(second.getDataFiles().get(0).toString()))
+                .isEqualTo(Hex.encodeHexString(first.getHash()));
+    }
+}
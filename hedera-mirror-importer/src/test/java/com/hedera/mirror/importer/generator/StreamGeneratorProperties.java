@@ -0,0 +1,74 @@
+package com.hedera.mirror.importer.generator;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import com.hederahashgraph.api.proto.java.TransactionBody;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+
+import lombok.Data;
+
+/**
+ * Shape of the synthetic streams written by {@link StreamFileGenerator}. Tests can override the defaults with
+ * hedera.mirror.generator.* properties.
+ */
+@Data
+public class StreamGeneratorProperties {
+
+    // Number of accounts that pay for and receive transfers, starting at 0.0.1001
+    private int accounts = 1000;
+
+    private Duration balanceInterval = Duration.ofMinutes(15L);
+
+    private Duration eventInterval = Duration.ofSeconds(5L);
+
+    // RSA key size of the generated node keys. Mainnet uses 3072 bit keys, tests use smaller ones to start faster.
+    private int keySize = 3072;
+
+    private int nodes = 4;
+
+    private Duration recordInterval = Duration.ofSeconds(5L);
+
+    // Seed of the random transactions and balances, so a run can be reproduced
+    private long seed = 0L;
+
+    // Consensus timestamp of the first transaction
+    private Instant startTime = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    // Relative weight of each transaction type
+    private Map<TransactionBody.DataCase, Integer> transactionMix = defaultTransactionMix();
+
+    private int transactionsPerSecond = 100;
+
+    private static Map<TransactionBody.DataCase, Integer> defaultTransactionMix() {
+        Map<TransactionBody.DataCase, Integer> mix = new EnumMap<>(TransactionBody.DataCase.class);
+        mix.put(TransactionBody.DataCase.CRYPTOTRANSFER, 90);
+        mix.put(TransactionBody.DataCase.CRYPTOCREATEACCOUNT, 4);
+        mix.put(TransactionBody.DataCase.FILECREATE, 2);
+        mix.put(TransactionBody.DataCase.FILEAPPEND, 2);
+        mix.put(TransactionBody.DataCase.CONTRACTCALL, 2);
+        return mix;
+    }
+}
@@ -0,0 +1,186 @@
+package com.hedera.mirror.importer.parser;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hedera.mirror.importer.MirrorProperties;
+import com.hedera.mirror.importer.parser.balance.BalanceParserProperties;
+
+public class FileWatcherTest {
+
+    private static final Duration DEBOUNCE = Duration.ofMillis(300L);
+
+    @TempDir
+    Path dataPath;
+
+    private Path validPath;
+    private TestFileWatcher fileWatcher;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void before() throws Exception {
+        MirrorProperties mirrorProperties = new MirrorProperties();
+        mirrorProperties.setDataPath(dataPath);
+        BalanceParserProperties parserProperties = new BalanceParserProperties(mirrorProperties);
+        parserProperties.init();
+        validPath = parserProperties.getValidPath();
+        fileWatcher = new TestFileWatcher(parserProperties);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void after() throws InterruptedException {
+        fileWatcher.enabled = false;
+        executor.shutdown();
+        executor.awaitTermination(5L, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void scansOnStartupOnly() throws Exception {
+        start();
+        Thread.sleep(DEBOUNCE.toMillis() * 2);
+
+        assertThat(fileWatcher.startups).hasValue(1);
+        assertThat(fileWatcher.batches).isEmpty();
+    }
+
+    @Test
+    void createdFilesProcessedOnceInOrder() throws Exception {
+        start();
+        Path file1 = Files.write(validPath.resolve("2019-08-30T18_15_00.016002001Z_Balances.csv"), new byte[1]);
+        Path file3 = Files.write(validPath.resolve("2019-08-30T18_45_00.010147001Z_Balances.csv"), new byte[1]);
+        Path file2 = Files.write(validPath.resolve("2019-08-30T18_30_00.010147001Z_Balances.csv"), new byte[1]);
+        Files.write(file1, new byte[2]);
+
+        waitFor(() -> processedFiles().size() >= 3);
+        Thread.sleep(DEBOUNCE.toMillis());
+
+        assertThat(processedFiles()).containsExactly(file1, file2, file3);
+        assertThat(fileWatcher.startups).hasValue(1);
+    }
+
+    @Test
+    void waitsForFileBeingWritten() throws Exception {
+        start();
+        Path file1 = validPath.resolve("2019-08-30T18_15_00.016002001Z_Balances.csv");
+        Path file2 = Files.write(validPath.resolve("2019-08-30T18_30_00.010147001Z_Balances.csv"), new byte[1]);
+
+        // Keep writing the earlier file for longer than the debounce period
+        for (int i = 0; i < 8; ++i) {
+            Files.write(file1, new byte[i + 1]);
+            Thread.sleep(DEBOUNCE.toMillis() / 3);
+        }
+        assertThat(fileWatcher.batches).isEmpty();
+
+        waitFor(() -> processedFiles().size() >= 2);
+        assertThat(processedFiles()).containsExactly(file1, file2);
+    }
+
+    @Test
+    void failedFilesRetriedInOrder() throws Exception {
+        start();
+        Path file1 = validPath.resolve("2019-08-30T18_15_00.016002001Z_Balances.csv");
+        fileWatcher.failures.add(file1);
+        Files.write(file1, new byte[1]);
+        Path file2 = Files.write(validPath.resolve("2019-08-30T18_30_00.010147001Z_Balances.csv"), new byte[1]);
+
+        waitFor(() -> fileWatcher.processed.size() >= 2);
+        assertThat(fileWatcher.processed).containsExactly(file1, file2);
+        assertThat(processedFiles()).filteredOn(file1::equals).hasSize(2);
+    }
+
+    private void start() throws Exception {
+        executor.submit(fileWatcher::watch);
+        waitFor(() -> fileWatcher.startups.get() > 0);
+    }
+
+    private List<Path> processedFiles() {
+        return fileWatcher.batches.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static class TestFileWatcher extends FileWatcher {
+
+        private final AtomicInteger startups = new AtomicInteger();
+        private final List<List<Path>> batches = new CopyOnWriteArrayList<>();
+        private final List<Path> processed = new CopyOnWriteArrayList<>();
+        private final Set<Path> failures = ConcurrentHashMap.newKeySet(); // Files that fail to process once
+        private volatile boolean enabled = true;
+
+        TestFileWatcher(ParserProperties parserProperties) {
+            super(parserProperties);
+        }
+
+        @Override
+        protected boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        protected Duration getDebounce() {
+            return DEBOUNCE;
+        }
+
+        @Override
+        public void onStartup() {
+            startups.incrementAndGet();
+        }
+
+        @Override
+        public List<Path> onCreate(List<Path> files) {
+            batches.add(files);
+            for (int i = 0; i < files.size(); ++i) {
+                if (failures.remove(files.get(i))) {
+                    return new ArrayList<>(files.subList(i, files.size()));
+                }
+                processed.add(files.get(i));
+            }
+            return List.of();
+        }
+    }
+}
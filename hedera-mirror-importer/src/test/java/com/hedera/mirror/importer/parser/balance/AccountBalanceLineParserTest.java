@@ -0,0 +1,107 @@
+package com.hedera.mirror.importer.parser.balance;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class AccountBalanceLineParserTest {
+
+    private final AccountBalanceLineParser parser = new AccountBalanceLineParser(0, 1567188900016002001L);
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "0,0,1,0|0|1|0",
+            "0,0,98,9223372036854775807|0|98|9223372036854775807",
+            "+0,32767,2147483647,-9223372036854775808|32767|2147483647|-9223372036854775808",
+            "0,-32768,-5,10|-32768|-5|10"
+    })
+    void parse(String line, short realmNum, int accountNum, long balance) {
+        assertThat(parse(line)).isTrue();
+        assertThat(parser.getShardNum()).isZero();
+        assertThat(parser.getRealmNum()).isEqualTo(realmNum);
+        assertThat(parser.getAccountNum()).isEqualTo(accountNum);
+        assertThat(parser.getBalance()).isEqualTo(balance);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0,0,1",
+            "0,0,1,2,3",
+            "0,0,1,2,",
+            "0,0,,2",
+            ",0,1,2",
+            "0,0,x,2",
+            "0, 0,1,2",
+            "0,0,1,-",
+            "0,32768,1,2",
+            "0,0,2147483648,2",
+            "0,0,1,9223372036854775808",
+            "shardNum,realmNum,accountNum,balance"
+    })
+    void invalidLine(String line) {
+        assertThat(parse(line)).isFalse();
+        assertThat(parser.getInvalidReason()).isEqualTo("Invalid line");
+    }
+
+    @Test
+    void invalidShard() {
+        assertThat(parse("1,0,1,2")).isFalse();
+        assertThat(parser.getInvalidReason()).isEqualTo("Invalid shardNum 1");
+    }
+
+    @Test
+    void parseRange() {
+        ByteBuffer buffer = ByteBuffer.wrap("x0,0,12,34\n".getBytes(StandardCharsets.US_ASCII));
+        assertThat(parser.parse(buffer, 1, 10)).isTrue();
+        assertThat(parser.getAccountNum()).isEqualTo(12);
+        assertThat(parser.getBalance()).isEqualTo(34);
+        assertThat(AccountBalanceLineParser.toString(buffer, 1, 10)).isEqualTo("0,0,12,34");
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "0,0,1,0|1567188900016002001\t0\t1\t0",
+            "0,32767,2147483647,9223372036854775807|1567188900016002001\t32767\t2147483647\t9223372036854775807",
+            "0,-32768,-2147483648,-9223372036854775808|1567188900016002001\t-32768\t-2147483648\t-9223372036854775808",
+            "0,+00,-0,000000000000000000000000042|1567188900016002001\t0\t0\t42",
+            "0,00032767,-0002147483648,+9223372036854775807|1567188900016002001\t32767\t-2147483648\t9223372036854775807"
+    })
+    void writeRow(String line, String row) {
+        byte[] destination = new byte[AccountBalanceLineParser.MAX_ROW_LENGTH + 1];
+        destination[0] = 'x';
+        assertThat(parse(line)).isTrue();
+        int end = parser.writeRow(destination, 1);
+        assertThat(new String(destination, 1, end - 1, StandardCharsets.US_ASCII)).isEqualTo(row + "\n");
+    }
+
+    private boolean parse(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+        return parser.parse(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+}
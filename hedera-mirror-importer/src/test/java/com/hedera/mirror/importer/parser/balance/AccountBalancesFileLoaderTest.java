@@ -22,12 +22,19 @@ package com.hedera.mirror.importer.parser.balance;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.List;
 import javax.annotation.Resource;
+import javax.sql.DataSource;
 import javax.transaction.Transactional;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import com.hedera.mirror.importer.IntegrationTest;
 
@@ -40,6 +47,15 @@ public class AccountBalancesFileLoaderTest extends IntegrationTest {
     @Resource
     private BalanceParserProperties parserProperties;
 
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private DataSource dataSource;
+
+    @TempDir
+    Path tempDir;
+
     @Test
     public void positiveSmallFile() throws Exception {
         // The test has a 2 line header and 2 data lines.
@@ -51,4 +67,244 @@ public class AccountBalancesFileLoaderTest extends IntegrationTest {
         );
         // TODO assert the rows actually added to the database.
     }
+
+    @Test
+    public void parallelChunks() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setThreads(7);
+        properties.setBatchSize(100);
+        var cut = new AccountBalancesFileLoader(properties, path);
+        boolean success = cut.loadAccountBalances();
+        assertAll(
+                () -> assertEquals(25391, cut.getValidRowCount())
+                , () -> assertTrue(success)
+                , () -> assertEquals(25391, countBalances(1567188900016002001L))
+                , () -> assertTrue(isComplete(1567188900016002001L))
+        );
+    }
+
+    @Test
+    public void reloadComplete() throws Exception {
+        assertTrue(new AccountBalancesFileLoader(parserProperties, path).loadAccountBalances());
+        var processingEnd = processingEndTimestamp(1567188900016002001L);
+        var cut = new AccountBalancesFileLoader(parserProperties, path);
+        boolean success = cut.loadAccountBalances();
+        assertAll(
+                () -> assertEquals(0, cut.getValidRowCount())
+                , () -> assertTrue(success)
+                , () -> assertEquals(25391, countBalances(1567188900016002001L))
+                , () -> assertTrue(isComplete(1567188900016002001L))
+                , () -> assertEquals(processingEnd, processingEndTimestamp(1567188900016002001L))
+        );
+    }
+
+    @Test
+    public void reloadIncomplete() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        assertFalse(load(properties, "2004-01-01T00_00_00.000000000Z", "0,0,1,10\n0,0,x,20\n0,0,3,30"));
+        assertTrue(load(properties, "2004-01-01T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20\n0,0,3,30"));
+
+        long timestamp = 1072915200000000000L;
+        assertAll(
+                () -> assertEquals(3, countBalances(timestamp))
+                , () -> assertTrue(isComplete(timestamp))
+                , () -> assertEquals(List.of(10L, 20L, 30L), balancesAt(timestamp))
+        );
+    }
+
+    @Test
+    public void moreThreadsThanLines() throws Exception {
+        var file = tempDir.resolve("2019-01-01T00_00_00.000000001Z_Balances.csv");
+        Files.writeString(file, "TimeStamp:2019-01-01T00:00:00.000000001Z\r\nshardNum,realmNum,accountNum,balance" +
+                "\r\n0,0,1,10\r\n\r\n0,0,2,20\r\n");
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setThreads(16);
+        var cut = new AccountBalancesFileLoader(properties, file);
+        boolean success = cut.loadAccountBalances();
+        assertAll(
+                () -> assertEquals(2, cut.getValidRowCount())
+                , () -> assertTrue(success)
+                , () -> assertEquals(2, countBalances(1546300800000000001L))
+        );
+    }
+
+    @Test
+    public void invalidLine() throws Exception {
+        var file = tempDir.resolve("2019-01-01T00_00_00.000000002Z_Balances.csv");
+        Files.writeString(file, "TimeStamp:2019-01-01T00:00:00.000000002Z\nshardNum,realmNum,accountNum,balance\n" +
+                "0,0,1,10\n0,0,x,20\n0,0,3,30\n1,0,4,40\n0,0,5,50");
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setThreads(3);
+        var cut = new AccountBalancesFileLoader(properties, file);
+        boolean success = cut.loadAccountBalances();
+        assertAll(
+                () -> assertEquals(3, cut.getValidRowCount())
+                , () -> assertFalse(success)
+                , () -> assertEquals(3, countBalances(1546300800000000002L))
+                , () -> assertFalse(isComplete(1546300800000000002L))
+        );
+    }
+
+    @Test
+    public void deltaEncoded() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setDeltaEncoded(true);
+        properties.setKeyframeInterval(3);
+        properties.setThreads(2);
+
+        // Keyframe since there's no previous set
+        assertTrue(load(properties, "2001-01-01T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20\n0,0,3,30\n0,0,4,40"));
+        // Deltas relative to the previous set
+        assertTrue(load(properties, "2001-01-02T00_00_00.000000000Z", "0,0,1,10\n0,0,2,25\n0,0,3,30\n0,0,4,40"));
+        assertTrue(load(properties, "2001-01-03T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20\n0,0,3,30\n0,0,4,45"));
+        // Keyframe since the chain reached the keyframe interval
+        assertTrue(load(properties, "2001-01-04T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20\n0,0,3,30\n0,0,4,45"));
+        assertTrue(load(properties, "2001-01-05T00_00_00.000000000Z", "0,0,1,11\n0,0,2,20\n0,0,3,30\n0,0,4,45"));
+
+        long day = 86_400_000_000_000L;
+        long timestamp = 978307200000000000L;
+        assertAll(
+                () -> assertEquals(4, countBalances(timestamp))
+                , () -> assertEquals(1, countBalances(timestamp + day))
+                , () -> assertEquals(2, countBalances(timestamp + 2 * day))
+                , () -> assertEquals(4, countBalances(timestamp + 3 * day))
+                , () -> assertEquals(1, countBalances(timestamp + 4 * day))
+                , () -> assertEquals(List.of(10L, 20L, 30L, 40L), balancesAt(timestamp))
+                , () -> assertEquals(List.of(10L, 25L, 30L, 40L), balancesAt(timestamp + day))
+                , () -> assertEquals(List.of(10L, 20L, 30L, 45L), balancesAt(timestamp + 2 * day + 1))
+                , () -> assertEquals(List.of(10L, 20L, 30L, 45L), balancesAt(timestamp + 3 * day))
+                , () -> assertEquals(List.of(11L, 20L, 30L, 45L), balancesAt(timestamp + 4 * day))
+                , () -> assertEquals(25L, balanceAt(timestamp + 2 * day - 1, 2))
+                , () -> assertEquals(45L, balanceAt(timestamp + 4 * day, 4))
+                , () -> assertTrue(isComplete(timestamp + 4 * day))
+        );
+    }
+
+    @Test
+    public void deltaEncodedMissingAccount() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setDeltaEncoded(true);
+
+        assertTrue(load(properties, "2002-01-01T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20\n0,0,3,30"));
+        assertTrue(load(properties, "2002-01-02T00_00_00.000000000Z", "0,0,1,10\n0,0,3,35"));
+
+        long timestamp = 1009843200000000000L + 86_400_000_000_000L;
+        assertAll(
+                () -> assertEquals(2, countBalances(timestamp))
+                , () -> assertEquals(List.of(10L, 35L), balancesAt(timestamp))
+                , () -> assertNull(jdbcTemplate.queryForObject("select base_timestamp from account_balance_sets " +
+                        "where consensus_timestamp = ?", Long.class, timestamp))
+        );
+    }
+
+    @Test
+    public void deltaEncodedBrokenChain() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setDeltaEncoded(true);
+
+        assertTrue(load(properties, "2005-01-01T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20"));
+        assertTrue(load(properties, "2005-01-02T00_00_00.000000000Z", "0,0,1,15\n0,0,2,20"));
+
+        // Break the chain of the second set as if its base failed part-way through a reload. The loader commits on
+        // connections of its own, so this has to be committed outside the test transaction as well.
+        long timestamp = 1104537600000000000L;
+        long day = 86_400_000_000_000L;
+        try (Connection conn = dataSource.getConnection();
+             var statement = conn.prepareStatement(
+                     "update account_balance_sets set is_complete = false where consensus_timestamp = ?")) {
+            statement.setLong(1, timestamp);
+            statement.execute();
+        }
+
+        assertTrue(load(properties, "2005-01-03T00_00_00.000000000Z", "0,0,1,15\n0,0,2,25"));
+        assertAll(
+                () -> assertEquals(List.of(), balancesAt(timestamp + day))
+                , () -> assertEquals(2, countBalances(timestamp + 2 * day))
+                , () -> assertEquals(List.of(15L, 25L), balancesAt(timestamp + 2 * day))
+                , () -> assertNull(jdbcTemplate.queryForObject("select base_timestamp from account_balance_sets " +
+                        "where consensus_timestamp = ?", Long.class, timestamp + 2 * day))
+        );
+    }
+
+    @Test
+    public void partitions() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        assertTrue(load(properties, "2003-01-01T12_00_00.000000000Z", "0,0,1,10\n0,0,2,20"));
+        assertAll(
+                () -> assertEquals(2, countRows("only account_balances_p20030101"))
+                , () -> assertEquals(0, countRows("only account_balances_p20030102"))
+                , () -> assertEquals(2, countBalances(1041422400000000000L))
+        );
+    }
+
+    @Test
+    public void retention() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setRetention(Duration.ofDays(1));
+        assertTrue(load(properties, "1990-01-01T00_00_00.000000000Z", "0,0,1,10"));
+        assertTrue(load(properties, "1990-01-02T00_00_00.000000000Z", "0,0,1,20"));
+        assertTrue(partitionExists("account_balances_p19900101"));
+
+        assertTrue(load(properties, "1990-01-03T00_00_00.000000000Z", "0,0,1,30"));
+        assertAll(
+                () -> assertFalse(partitionExists("account_balances_p19900101"))
+                , () -> assertTrue(partitionExists("account_balances_p19900102"))
+                , () -> assertEquals(0, countRows("account_balance_sets where consensus_timestamp = 631152000000000000"))
+                , () -> assertEquals(List.of(20L), balancesAt(631238400000000000L))
+        );
+    }
+
+    @Test
+    public void retentionKeepsDeltaChain() throws Exception {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setDeltaEncoded(true);
+        properties.setRetention(Duration.ofDays(1));
+        assertTrue(load(properties, "1991-01-01T00_00_00.000000000Z", "0,0,1,10\n0,0,2,20"));
+        assertTrue(load(properties, "1991-01-02T00_00_00.000000000Z", "0,0,1,15\n0,0,2,20"));
+        assertTrue(load(properties, "1991-01-03T00_00_00.000000000Z", "0,0,1,15\n0,0,2,25"));
+        assertAll(
+                () -> assertTrue(partitionExists("account_balances_p19910101"))
+                , () -> assertEquals(List.of(15L, 20L), balancesAt(662774400000000000L))
+        );
+    }
+
+    private boolean partitionExists(String name) {
+        return jdbcTemplate.queryForObject("select count(*) > 0 from pg_class where relname = ?", Boolean.class, name);
+    }
+
+    private int countRows(String from) {
+        return jdbcTemplate.queryForObject("select count(*) from " + from, Integer.class);
+    }
+
+    private boolean load(BalanceParserProperties properties, String timestamp, String balances) throws Exception {
+        var file = tempDir.resolve(timestamp + "_Balances.csv");
+        Files.writeString(file, "TimeStamp:" + timestamp.replace('_', ':') + "\nshardNum,realmNum,accountNum,balance\n" +
+                balances);
+        return new AccountBalancesFileLoader(properties, file).loadAccountBalances();
+    }
+
+    private List<Long> balancesAt(long consensusTimestamp) {
+        return jdbcTemplate.queryForList("select balance from account_balances_at(?) where account_realm_num = 0",
+                Long.class, consensusTimestamp);
+    }
+
+    private Long balanceAt(long consensusTimestamp, int accountNum) {
+        return jdbcTemplate.queryForObject("select account_balance_at(?, 0::smallint, ?)", Long.class,
+                consensusTimestamp, accountNum);
+    }
+
+    private int countBalances(long consensusTimestamp) {
+        return jdbcTemplate.queryForObject("select count(*) from account_balances where consensus_timestamp = ?",
+                Integer.class, consensusTimestamp);
+    }
+
+    private Object processingEndTimestamp(long consensusTimestamp) {
+        return jdbcTemplate.queryForObject("select processing_end_timestamp from account_balance_sets where " +
+                "consensus_timestamp = ?", Object.class, consensusTimestamp);
+    }
+
+    private boolean isComplete(long consensusTimestamp) {
+        return jdbcTemplate.queryForObject("select is_complete from account_balance_sets where consensus_timestamp = ?",
+                Boolean.class, consensusTimestamp);
+    }
 }
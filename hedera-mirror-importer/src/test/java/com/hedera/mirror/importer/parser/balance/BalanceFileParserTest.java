@@ -0,0 +1,61 @@
+package com.hedera.mirror.importer.parser.balance;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import com.hedera.mirror.importer.IntegrationTest;
+
+public class BalanceFileParserTest extends IntegrationTest {
+
+    @Resource
+    private BalanceParserProperties parserProperties;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Test
+    void threadsBelowPoolSize() {
+        int poolSize = ((HikariDataSource) dataSource).getMaximumPoolSize();
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setThreads(poolSize);
+        new BalanceFileParser(properties, meterRegistry, dataSource);
+        assertThat(properties.getThreads()).isEqualTo(poolSize - 1);
+    }
+
+    @Test
+    void threadsUnchanged() {
+        var properties = new BalanceParserProperties(parserProperties.getMirrorProperties());
+        properties.setThreads(2);
+        new BalanceFileParser(properties, meterRegistry, dataSource);
+        assertThat(properties.getThreads()).isEqualTo(2);
+    }
+}
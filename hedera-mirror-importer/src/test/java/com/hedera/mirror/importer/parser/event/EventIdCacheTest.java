@@ -0,0 +1,76 @@
+package com.hedera.mirror.importer.parser.event;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class EventIdCacheTest {
+
+    private final EventIdCache eventIdCache = new EventIdCache(2);
+
+    @Test
+    void getMissing() {
+        assertThat(eventIdCache.get(new byte[] {1})).isEqualTo(EventIdCache.NOT_FOUND);
+    }
+
+    @Test
+    void putAndGet() {
+        eventIdCache.put(new byte[] {1, 2}, 10L);
+        assertThat(eventIdCache.get(new byte[] {1, 2})).isEqualTo(10L);
+        assertThat(eventIdCache.get(new byte[] {1, 3})).isEqualTo(EventIdCache.NOT_FOUND);
+        assertThat(eventIdCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void commit() {
+        eventIdCache.put(new byte[] {1}, 10L);
+        eventIdCache.commit();
+        eventIdCache.rollback();
+        assertThat(eventIdCache.get(new byte[] {1})).isEqualTo(10L);
+    }
+
+    @Test
+    void rollback() {
+        eventIdCache.put(new byte[] {1}, 10L);
+        eventIdCache.commit();
+        eventIdCache.put(new byte[] {2}, 11L);
+        eventIdCache.rollback();
+        assertThat(eventIdCache.get(new byte[] {1})).isEqualTo(10L);
+        assertThat(eventIdCache.get(new byte[] {2})).isEqualTo(EventIdCache.NOT_FOUND);
+        assertThat(eventIdCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        eventIdCache.put(new byte[] {1}, 10L);
+        eventIdCache.put(new byte[] {2}, 11L);
+        eventIdCache.commit();
+        eventIdCache.get(new byte[] {1});
+        eventIdCache.put(new byte[] {3}, 12L);
+        eventIdCache.commit();
+        assertThat(eventIdCache.get(new byte[] {1})).isEqualTo(10L);
+        assertThat(eventIdCache.get(new byte[] {2})).isEqualTo(EventIdCache.NOT_FOUND);
+        assertThat(eventIdCache.get(new byte[] {3})).isEqualTo(12L);
+        assertThat(eventIdCache.size()).isEqualTo(2);
+    }
+}
@@ -41,6 +41,7 @@ import java.util.Optional;
 import javax.annotation.Resource;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
 
 import com.hedera.mirror.importer.IntegrationTest;
 import com.hedera.mirror.importer.domain.Entities;
@@ -59,6 +60,13 @@ import com.hedera.mirror.importer.util.Utility;
 
 public class AbstractRecordFileLoggerTest extends IntegrationTest {
 
+    // Runs before the subclasses start the logger. Discards any entity ids cached by a previous test since cleanup.sql
+    // bypasses the cache.
+    @BeforeEach
+    void invalidateEntityIdCache() {
+        RecordFileLogger.invalidateEntityIdCache();
+    }
+
     @Resource
     protected TransactionRepository transactionRepository;
     @Resource
@@ -0,0 +1,356 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.common.base.Stopwatch;
+import com.google.protobuf.ByteString;
+import com.hederahashgraph.api.proto.java.AccountAmount;
+import com.hederahashgraph.api.proto.java.AccountID;
+import com.hederahashgraph.api.proto.java.Claim;
+import com.hederahashgraph.api.proto.java.ContractCallTransactionBody;
+import com.hederahashgraph.api.proto.java.ContractFunctionResult;
+import com.hederahashgraph.api.proto.java.ContractID;
+import com.hederahashgraph.api.proto.java.CryptoAddClaimTransactionBody;
+import com.hederahashgraph.api.proto.java.CryptoTransferTransactionBody;
+import com.hederahashgraph.api.proto.java.FileCreateTransactionBody;
+import com.hederahashgraph.api.proto.java.FileID;
+import com.hederahashgraph.api.proto.java.ResponseCodeEnum;
+import com.hederahashgraph.api.proto.java.Timestamp;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionReceipt;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import com.hederahashgraph.api.proto.java.TransferList;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.hedera.mirror.importer.FileCopier;
+import com.hedera.mirror.importer.domain.ContractResult;
+import com.hedera.mirror.importer.domain.CryptoTransfer;
+import com.hedera.mirror.importer.domain.FileData;
+import com.hedera.mirror.importer.domain.LiveHash;
+import com.hedera.mirror.importer.domain.StreamType;
+import com.hedera.mirror.importer.parser.record.RecordParserProperties.WriterType;
+import com.hedera.mirror.importer.repository.IngestionState;
+
+@Log4j2
+// Class manually commits so have to manually cleanup tables
+@Sql(executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/scripts/cleanup.sql")
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/scripts/cleanup.sql")
+public class CopyRecordWriterTest extends AbstractRecordFileLoggerTest {
+
+    private static final long[] transferAccounts = {98, 2002, 3};
+    private static final long[] transferAmounts = {1000, -2000, 1000};
+
+    @TempDir
+    Path dataPath;
+
+    @Value("classpath:data")
+    Path testPath;
+
+    @Resource
+    private DataSource dataSource;
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private IngestionState ingestionState;
+
+    @Resource
+    private RecordFileParser recordFileParser;
+
+    @Value("${hedera.mirror.load.records:100000}")
+    private int loadRecords;
+
+    private long consensusSeconds = Instant.now().getEpochSecond();
+
+    @BeforeEach
+    void before() {
+        ingestionState.reset();
+    }
+
+    @AfterEach
+    void after() {
+        parserProperties.setWriter(WriterType.INSERT);
+        parserProperties.setPersistClaims(false);
+    }
+
+    @Test
+    void copyMatchesInsert() throws Exception {
+        parserProperties.getMirrorProperties().setDataPath(dataPath);
+        parserProperties.init();
+        StreamType streamType = parserProperties.getStreamType();
+        FileCopier fileCopier = FileCopier.create(testPath, dataPath)
+                .from(streamType.getPath(), "v2", "record0.0.3")
+                .filterFiles("*.rcd")
+                .to(streamType.getPath(), streamType.getValid());
+
+        fileCopier.copy();
+        recordFileParser.parse();
+        Iterable<com.hedera.mirror.importer.domain.Transaction> transactions = transactionRepository.findAll();
+        Iterable<CryptoTransfer> cryptoTransfers = cryptoTransferRepository.findAll();
+        assertThat(transactions).hasSize(19 + 15);
+
+        new ResourceDatabasePopulator(new ClassPathResource("db/scripts/cleanup.sql")).execute(dataSource);
+        ingestionState.reset();
+        RecordFileLogger.invalidateEntityIdCache();
+        parserProperties.setWriter(WriterType.COPY);
+        fileCopier.copy();
+        recordFileParser.parse();
+
+        // Entity and record file IDs come from sequences that are not reset between runs
+        assertThat(transactionRepository.findAll())
+                .usingElementComparatorIgnoringFields("nodeAccountId", "payerAccountId", "entityId", "recordFileId")
+                .containsExactlyInAnyOrderElementsOf(transactions);
+        assertThat(cryptoTransferRepository.findAll()).containsExactlyInAnyOrderElementsOf(cryptoTransfers);
+    }
+
+    @Test
+    void copyAllTables() throws Exception {
+        parserProperties.setWriter(WriterType.COPY);
+        parserProperties.setPersistClaims(true);
+        assertTrue(RecordFileLogger.start());
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+
+        byte[] contents = {0, 1, 2, 3};
+        FileID fileId = FileID.newBuilder().setFileNum(1001).build();
+        TransactionBody fileCreate = defaultTransactionBodyBuilder("file")
+                .setFileCreate(FileCreateTransactionBody.newBuilder().setContents(ByteString.copyFrom(contents)))
+                .build();
+        RecordFileLogger.storeRecord(transaction(fileCreate), transactionRecord(fileCreate,
+                TransactionReceipt.newBuilder().setFileID(fileId)).build());
+
+        ContractID contractId = ContractID.newBuilder().setContractNum(1002).build();
+        TransactionBody contractCall = defaultTransactionBodyBuilder("")
+                .setContractCall(ContractCallTransactionBody.newBuilder().setContractID(contractId).setGas(100L)
+                        .setFunctionParameters(ByteString.copyFromUtf8("params")))
+                .build();
+        ContractFunctionResult callResult = ContractFunctionResult.newBuilder().setContractID(contractId)
+                .setGasUsed(50L).build();
+        RecordFileLogger.storeRecord(transaction(contractCall), transactionRecord(contractCall,
+                TransactionReceipt.newBuilder()).setContractCallResult(callResult).build());
+
+        TransactionBody addClaim = defaultTransactionBodyBuilder("claim")
+                .setCryptoAddClaim(CryptoAddClaimTransactionBody.newBuilder().setClaim(Claim.newBuilder()
+                        .setAccountID(AccountID.newBuilder().setAccountNum(1003))
+                        .setHash(ByteString.copyFromUtf8("claim hash"))))
+                .build();
+        RecordFileLogger.storeRecord(transaction(addClaim), transactionRecord(addClaim,
+                TransactionReceipt.newBuilder()).build());
+
+        RecordFileLogger.completeFile("", "");
+        RecordFileLogger.finish();
+
+        FileData fileData = fileDataRepository.findAll().iterator().next();
+        ContractResult contractResult = contractResultRepository.findAll().iterator().next();
+        LiveHash liveHash = liveHashRepository.findAll().iterator().next();
+
+        assertAll(
+                () -> assertEquals(3, transactionRepository.count())
+                , () -> assertEquals(9, cryptoTransferRepository.count())
+                , () -> assertArrayEquals(contents, fileData.getFileData())
+                , () -> assertArrayEquals("params".getBytes(), contractResult.getFunctionParameters())
+                , () -> assertArrayEquals(callResult.toByteArray(), contractResult.getCallResult())
+                , () -> assertEquals(100L, contractResult.getGasSupplied())
+                , () -> assertEquals(50L, contractResult.getGasUsed())
+                , () -> assertArrayEquals("claim hash".getBytes(), liveHash.getLivehash())
+                , () -> assertThat(transactionRepository.findAll())
+                        .extracting(com.hedera.mirror.importer.domain.Transaction::getEntityId)
+                        .doesNotContainNull()
+        );
+    }
+
+    @Test
+    void copyRollback() throws Exception {
+        parserProperties.setWriter(WriterType.COPY);
+        assertTrue(RecordFileLogger.start());
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        RecordFileLogger.storeRecord(cryptoTransferTransaction(), cryptoTransferRecord());
+        RecordFileLogger.rollback();
+
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        RecordFileLogger.completeFile("", "");
+        RecordFileLogger.finish();
+
+        assertEquals(1, recordFileRepository.count());
+        assertEquals(0, transactionRepository.count());
+        assertEquals(0, cryptoTransferRepository.count());
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriterType.class)
+    void partitions(WriterType writerType) throws Exception {
+        parserProperties.setWriter(writerType);
+        consensusSeconds = Instant.parse("1992-01-01T23:59:58Z").getEpochSecond();
+        assertTrue(RecordFileLogger.start());
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        for (int i = 0; i < 3; ++i) {
+            RecordFileLogger.storeRecord(cryptoTransferTransaction(), cryptoTransferRecord());
+        }
+        RecordFileLogger.completeFile("", "");
+        RecordFileLogger.finish();
+
+        assertAll(
+                () -> assertEquals(3, transactionRepository.count())
+                , () -> assertEquals(9, cryptoTransferRepository.count())
+                , () -> assertEquals(1, count("t_transactions_p19920101"))
+                , () -> assertEquals(2, count("t_transactions_p19920102"))
+                , () -> assertEquals(3, count("t_cryptotransferlists_p19920101"))
+                , () -> assertEquals(6, count("t_cryptotransferlists_p19920102"))
+                , () -> assertEquals(0, count("t_transactions_p19920103"))
+                , () -> assertEquals(0, count("t_cryptotransferlists_p19920103"))
+        );
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriterType.class)
+    void partitionsRollback(WriterType writerType) throws Exception {
+        parserProperties.setWriter(writerType);
+        consensusSeconds = Instant.parse("1993-01-01T00:00:00Z").getEpochSecond();
+        assertTrue(RecordFileLogger.start());
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        RecordFileLogger.storeRecord(cryptoTransferTransaction(), cryptoTransferRecord());
+        RecordFileLogger.rollback();
+
+        // The partition created by the rolled back transaction has to be created again
+        jdbcTemplate.execute("drop table if exists t_transactions_p19930101, t_cryptotransferlists_p19930101");
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        RecordFileLogger.storeRecord(cryptoTransferTransaction(), cryptoTransferRecord());
+        RecordFileLogger.completeFile("", "");
+        RecordFileLogger.finish();
+
+        assertEquals(1, count("t_transactions_p19930101"));
+        assertEquals(3, count("t_cryptotransferlists_p19930101"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(WriterType.class)
+    void partitionsPrimaryKey(WriterType writerType) throws Exception {
+        parserProperties.setWriter(writerType);
+        consensusSeconds = Instant.parse("1994-01-01T00:00:00Z").getEpochSecond();
+        assertTrue(RecordFileLogger.start());
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        RecordFileLogger.storeRecord(cryptoTransferTransaction(), cryptoTransferRecord());
+        RecordFileLogger.completeFile("", "");
+        RecordFileLogger.finish();
+
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate
+                .update("insert into t_transactions_p19940101 select * from only t_transactions_p19940101"));
+    }
+
+    /**
+     * Compares the throughput of the writers for the same crypto transfers, from storing the first record to committing
+     * the file. Its outcome depends on the speed of the machine and the database, so it only runs with the load profile.
+     */
+    @Tag("load")
+    @ParameterizedTest
+    @EnumSource(WriterType.class)
+    void throughput(WriterType writerType) throws Exception {
+        parserProperties.setWriter(writerType);
+        List<Pair<Transaction, TransactionRecord>> records = new ArrayList<>(loadRecords);
+        for (int i = 0; i < loadRecords; ++i) {
+            records.add(Pair.of(cryptoTransferTransaction(), cryptoTransferRecord()));
+        }
+
+        assertTrue(RecordFileLogger.start());
+        assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (Pair<Transaction, TransactionRecord> record : records) {
+            RecordFileLogger.storeRecord(record.getLeft(), record.getRight());
+        }
+        RecordFileLogger.completeFile("", "");
+        long millis = Math.max(1L, stopwatch.elapsed().toMillis());
+        RecordFileLogger.finish();
+
+        long rows = loadRecords * (1L + transferAccounts.length);
+        log.info("writer={} persisted {} transactions and {} rows in {} ms: {} rows/s", writerType, loadRecords, rows,
+                millis, rows * 1000L / millis);
+        assertEquals(loadRecords, transactionRepository.count());
+        assertEquals(loadRecords * transferAccounts.length, cryptoTransferRepository.count());
+    }
+
+    private long count(String partition) {
+        return jdbcTemplate.queryForObject("select count(*) from only " + partition, Long.class);
+    }
+
+    private Transaction transaction(TransactionBody transactionBody) {
+        return Transaction.newBuilder().setBodyBytes(transactionBody.toByteString()).setSigMap(getSigMap()).build();
+    }
+
+    private Transaction cryptoTransferTransaction() {
+        TransactionBody body = defaultTransactionBodyBuilder("transfer")
+                .setCryptoTransfer(CryptoTransferTransactionBody.newBuilder().setTransfers(transferList()))
+                .build();
+        return transaction(body);
+    }
+
+    private TransactionRecord cryptoTransferRecord() throws Exception {
+        TransactionBody body = TransactionBody.parseFrom(cryptoTransferTransaction().getBodyBytes());
+        return transactionRecord(body, TransactionReceipt.newBuilder()).build();
+    }
+
+    private TransactionRecord.Builder transactionRecord(TransactionBody transactionBody,
+                                                        TransactionReceipt.Builder receipt) {
+        receipt.setStatus(ResponseCodeEnum.SUCCESS);
+        return TransactionRecord.newBuilder()
+                .setConsensusTimestamp(Timestamp.newBuilder().setSeconds(++consensusSeconds))
+                .setReceipt(receipt)
+                .setTransactionFee(transactionBody.getTransactionFee())
+                .setTransactionHash(ByteString.copyFromUtf8("TransactionHash"))
+                .setTransactionID(transactionBody.getTransactionID())
+                .setTransferList(transferList());
+    }
+
+    private TransferList transferList() {
+        TransferList.Builder transferList = TransferList.newBuilder();
+        for (int i = 0; i < transferAccounts.length; i++) {
+            transferList.addAccountAmounts(AccountAmount.newBuilder()
+                    .setAccountID(AccountID.newBuilder().setAccountNum(transferAccounts[i]))
+                    .setAmount(transferAmounts[i]));
+        }
+        return transferList.build();
+    }
+}
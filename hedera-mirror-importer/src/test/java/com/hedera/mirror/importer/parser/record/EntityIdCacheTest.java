@@ -0,0 +1,173 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+public class EntityIdCacheTest {
+
+    private final EntityIdCache entityIdCache = new EntityIdCache();
+
+    @Test
+    void getMissing() {
+        assertThat(entityIdCache.get(0, 0, 1)).isEqualTo(EntityIdCache.NOT_FOUND);
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 0, 1",
+            "0, 0, 4294967295",
+            "0, 65535, 2",
+            "32767, 0, 3",
+            "32768, 0, 4",
+            "0, 65536, 5",
+            "0, 0, 4294967296",
+            "-1, 0, 6"
+    })
+    void putAndGet(long shard, long realm, long num) {
+        entityIdCache.put(shard, realm, num, 10L);
+        assertThat(entityIdCache.get(shard, realm, num)).isEqualTo(10L);
+        entityIdCache.commit();
+        assertThat(entityIdCache.get(shard, realm, num)).isEqualTo(10L);
+        assertThat(entityIdCache.get(shard, realm, num + 1)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void metrics() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        entityIdCache.bindTo(meterRegistry);
+        entityIdCache.put(0, 0, 1, 10L);
+        entityIdCache.get(0, 0, 1);
+        entityIdCache.get(0, 0, 1);
+        entityIdCache.get(0, 0, 2);
+
+        assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(2.0);
+        assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("cache.size").tag("cache", "entities").gauge().value()).isEqualTo(1.0);
+    }
+
+    @Test
+    void putOverwrites() {
+        entityIdCache.put(0, 0, 1, 10L);
+        entityIdCache.put(0, 0, 1, 11L);
+        assertThat(entityIdCache.get(0, 0, 1)).isEqualTo(11L);
+        assertThat(entityIdCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void resize() {
+        int count = 200_000;
+        for (int i = 1; i <= count; ++i) {
+            entityIdCache.put(0, i % 3, i, i * 2L);
+        }
+        entityIdCache.commit();
+
+        assertThat(entityIdCache.size()).isEqualTo(count);
+        for (int i = 1; i <= count; ++i) {
+            assertThat(entityIdCache.get(0, i % 3, i)).isEqualTo(i * 2L);
+        }
+    }
+
+    @Test
+    void clear() {
+        entityIdCache.put(0, 0, 1, 10L);
+        entityIdCache.put(0, 0, 4294967296L, 11L);
+        entityIdCache.commit();
+        entityIdCache.put(0, 0, 2, 12L);
+        entityIdCache.clear();
+        assertThat(entityIdCache.get(0, 0, 1)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.get(0, 0, 4294967296L)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.get(0, 0, 2)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.size()).isZero();
+    }
+
+    @Test
+    void rollback() {
+        entityIdCache.put(0, 0, 1, 10L);
+        entityIdCache.commit();
+        entityIdCache.put(0, 0, 2, 11L);
+        entityIdCache.setSavepoint();
+        entityIdCache.put(0, 0, 3, 12L);
+        entityIdCache.rollback();
+        assertThat(entityIdCache.get(0, 0, 1)).isEqualTo(10L);
+        assertThat(entityIdCache.get(0, 0, 2)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.get(0, 0, 3)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void rollbackToSavepoint() {
+        entityIdCache.put(0, 0, 1, 10L);
+        entityIdCache.commit();
+        entityIdCache.put(0, 0, 2, 11L);
+        entityIdCache.setSavepoint();
+        entityIdCache.put(0, 0, 3, 12L);
+        entityIdCache.put(0, 0, 4294967296L, 13L);
+        entityIdCache.rollbackToSavepoint();
+        assertThat(entityIdCache.get(0, 0, 1)).isEqualTo(10L);
+        assertThat(entityIdCache.get(0, 0, 2)).isEqualTo(11L);
+        assertThat(entityIdCache.get(0, 0, 3)).isEqualTo(EntityIdCache.NOT_FOUND);
+        assertThat(entityIdCache.get(0, 0, 4294967296L)).isEqualTo(EntityIdCache.NOT_FOUND);
+
+        entityIdCache.commit();
+        assertThat(entityIdCache.get(0, 0, 2)).isEqualTo(11L);
+        assertThat(entityIdCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rollbackToSavepointRestoresOverwritten() {
+        entityIdCache.put(0, 0, 1, 10L);
+        entityIdCache.put(0, 0, 4294967296L, 11L);
+        entityIdCache.setSavepoint();
+        entityIdCache.put(0, 0, 1, 12L);
+        entityIdCache.put(0, 0, 4294967296L, 13L);
+        entityIdCache.rollbackToSavepoint();
+        assertThat(entityIdCache.get(0, 0, 1)).isEqualTo(10L);
+        assertThat(entityIdCache.get(0, 0, 4294967296L)).isEqualTo(11L);
+        assertThat(entityIdCache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rollbackKeepsCommittedAfterResize() {
+        int count = 100_000;
+        for (int i = 1; i <= count; ++i) {
+            entityIdCache.put(0, 0, i * 2L, i);
+        }
+        entityIdCache.commit();
+        for (int i = 1; i <= count; ++i) {
+            entityIdCache.put(0, 0, i * 2L + 1, i);
+        }
+        entityIdCache.rollback();
+
+        assertThat(entityIdCache.size()).isEqualTo(count);
+        for (int i = 1; i <= count; ++i) {
+            assertThat(entityIdCache.get(0, 0, i * 2L)).isEqualTo(i);
+            assertThat(entityIdCache.get(0, 0, i * 2L + 1)).isEqualTo(EntityIdCache.NOT_FOUND);
+        }
+    }
+}
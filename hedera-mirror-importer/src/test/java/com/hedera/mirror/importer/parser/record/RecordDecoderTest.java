@@ -0,0 +1,306 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import com.hederahashgraph.api.proto.java.AccountAmount;
+import com.hederahashgraph.api.proto.java.AccountID;
+import com.hederahashgraph.api.proto.java.Claim;
+import com.hederahashgraph.api.proto.java.ContractFunctionResult;
+import com.hederahashgraph.api.proto.java.CryptoAddClaimTransactionBody;
+import com.hederahashgraph.api.proto.java.CryptoTransferTransactionBody;
+import com.hederahashgraph.api.proto.java.FileAppendTransactionBody;
+import com.hederahashgraph.api.proto.java.FileID;
+import com.hederahashgraph.api.proto.java.FileUpdateTransactionBody;
+import com.hederahashgraph.api.proto.java.SignatureMap;
+import com.hederahashgraph.api.proto.java.SignaturePair;
+import com.hederahashgraph.api.proto.java.Timestamp;
+import com.hederahashgraph.api.proto.java.Transaction;
+import com.hederahashgraph.api.proto.java.TransactionBody;
+import com.hederahashgraph.api.proto.java.TransactionID;
+import com.hederahashgraph.api.proto.java.TransactionRecord;
+import com.hederahashgraph.api.proto.java.TransferList;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.hedera.mirror.importer.MirrorProperties;
+
+public class RecordDecoderTest {
+
+    private static final AccountID PAYER = AccountID.newBuilder().setAccountNum(2).build();
+    private static final AccountID NODE = AccountID.newBuilder().setAccountNum(3).build();
+
+    private RecordParserProperties parserProperties;
+    private RecordDecoder recordDecoder;
+
+    @BeforeEach
+    void before() {
+        parserProperties = new RecordParserProperties(new MirrorProperties());
+        recordDecoder = new RecordDecoder(parserProperties);
+    }
+
+    @Test
+    void allFields() throws Exception {
+        Transaction transaction = transaction(cryptoTransfer());
+        TransactionRecord record = record(true);
+
+        assertThat(RecordDecoder.ALL_FIELDS.decodeTransaction(buffer(transaction))).isEqualTo(transaction);
+        assertThat(RecordDecoder.ALL_FIELDS.decodeRecord(buffer(record))).isEqualTo(record);
+    }
+
+    @Test
+    void cryptoTransferFastPath() throws Exception {
+        TransactionBody body = cryptoTransfer();
+        Transaction transaction = transaction(body);
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction));
+
+        assertThat(decoded.hasSigMap()).isFalse();
+        assertThat(decoded.getBodyBytes()).isEqualTo(transaction.getBodyBytes());
+        assertThat(decoded.getBody().getDataCase()).isEqualTo(TransactionBody.DataCase.CRYPTOTRANSFER);
+        assertThat(decoded.getBody().getCryptoTransfer()).isEqualTo(CryptoTransferTransactionBody.getDefaultInstance());
+        assertThat(decoded.getBody().toBuilder().clearCryptoTransfer().build())
+                .isEqualTo(body.toBuilder().clearCryptoTransfer().build());
+    }
+
+    @Test
+    void fileAppend() throws Exception {
+        TransactionBody body = header()
+                .setFileAppend(FileAppendTransactionBody.newBuilder().setContents(ByteString.copyFromUtf8("file")))
+                .build();
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction(body)));
+
+        assertThat(decoded.getBody()).isEqualTo(body);
+    }
+
+    @Test
+    void fileContentsSkipped() throws Exception {
+        parserProperties.setPersistFiles(false);
+        parserProperties.setPersistSystemFiles(false);
+        TransactionBody body = fileAppend(1001L);
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction(body)));
+
+        assertThat(decoded.getBody().getFileAppend().getContents()).isEqualTo(ByteString.EMPTY);
+        assertThat(decoded.getBody().getFileAppend().getFileID()).isEqualTo(body.getFileAppend().getFileID());
+        assertThat(decoded.getBody().toBuilder().clearFileAppend().build())
+                .isEqualTo(body.toBuilder().clearFileAppend().build());
+    }
+
+    @Test
+    void systemFileContentsKept() throws Exception {
+        parserProperties.setPersistFiles(false);
+        parserProperties.setPersistSystemFiles(true);
+        TransactionBody body = fileAppend(101L);
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction(body)));
+
+        assertThat(decoded.getBody()).isEqualTo(body);
+    }
+
+    @Test
+    void addressBookContentsKept() throws Exception {
+        parserProperties.setPersistFiles(false);
+        parserProperties.setPersistSystemFiles(false);
+        TransactionBody body = header()
+                .setFileUpdate(FileUpdateTransactionBody.newBuilder()
+                        .setFileID(FileID.newBuilder().setFileNum(102L))
+                        .setContents(ByteString.copyFromUtf8("address book")))
+                .build();
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction(body)));
+
+        assertThat(decoded.getBody()).isEqualTo(body);
+    }
+
+    @Test
+    void claimHashSkipped() throws Exception {
+        parserProperties.setPersistClaims(false);
+        TransactionBody body = header()
+                .setCryptoAddClaim(CryptoAddClaimTransactionBody.newBuilder().setClaim(Claim.newBuilder()
+                        .setAccountID(PAYER)
+                        .setHash(ByteString.copyFromUtf8("claim"))))
+                .build();
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction(body)));
+
+        Claim claim = decoded.getBody().getCryptoAddClaim().getClaim();
+        assertThat(claim.getHash()).isEqualTo(ByteString.EMPTY);
+        assertThat(claim.getAccountID()).isEqualTo(PAYER);
+    }
+
+    @Test
+    void unknownTransaction() throws Exception {
+        TransactionBody body = header()
+                .setUnknownFields(UnknownFieldSet.newBuilder()
+                        .addField(999, UnknownFieldSet.Field.newBuilder().addVarint(1L).build())
+                        .build())
+                .build();
+
+        Transaction decoded = recordDecoder.decodeTransaction(buffer(transaction(body)));
+
+        assertThat(decoded.getBody()).isEqualTo(body);
+        assertThat(decoded.getBody().getUnknownFields().hasField(999)).isTrue();
+    }
+
+    @Test
+    void bytesAreAliased() throws Exception {
+        TransactionBody body = header()
+                .setFileAppend(FileAppendTransactionBody.newBuilder().setContents(ByteString.copyFromUtf8("file")))
+                .build();
+        byte[] bytes = transaction(body).toByteArray();
+
+        Transaction decoded = recordDecoder.decodeTransaction(ByteBuffer.wrap(bytes));
+        int index = indexOf(bytes, "file".getBytes());
+        bytes[index] = 'F';
+
+        assertThat(decoded.getBody().getFileAppend().getContents().toStringUtf8()).isEqualTo("File");
+    }
+
+    @Test
+    void contractResultsSkipped() throws Exception {
+        parserProperties.setPersistContracts(false);
+        TransactionRecord record = record(true);
+
+        TransactionRecord decoded = recordDecoder.decodeRecord(buffer(record));
+
+        assertThat(decoded.hasContractCallResult()).isTrue();
+        assertThat(decoded.getContractCallResult()).isEqualTo(ContractFunctionResult.getDefaultInstance());
+        assertThat(decoded.toBuilder().clearContractCallResult().build())
+                .isEqualTo(record.toBuilder().clearContractCallResult().build());
+    }
+
+    @Test
+    void contractResultsPersisted() throws Exception {
+        parserProperties.setPersistContracts(true);
+        TransactionRecord record = record(true);
+
+        assertThat(recordDecoder.decodeRecord(buffer(record))).isEqualTo(record);
+    }
+
+    @Test
+    void recordWithoutContractResult() throws Exception {
+        parserProperties.setPersistContracts(false);
+        TransactionRecord record = record(false);
+
+        TransactionRecord decoded = recordDecoder.decodeRecord(buffer(record));
+
+        assertThat(decoded.hasContractCallResult()).isFalse();
+        assertThat(decoded).isEqualTo(record);
+    }
+
+    @Test
+    void contractResultSlice() throws Exception {
+        parserProperties.setPersistContracts(true);
+        Transaction transaction = transaction(cryptoTransfer());
+        TransactionRecord record = record(true);
+
+        Triple<Transaction, TransactionRecord, ByteString> decoded = recordDecoder
+                .decode(buffer(transaction), buffer(record));
+
+        assertThat(decoded.getMiddle()).isEqualTo(record);
+        assertThat(decoded.getRight()).isEqualTo(record.getContractCallResult().toByteString());
+    }
+
+    @Test
+    void contractResultSliceSkipped() throws Exception {
+        parserProperties.setPersistContracts(false);
+
+        Triple<Transaction, TransactionRecord, ByteString> decoded = recordDecoder
+                .decode(buffer(transaction(cryptoTransfer())), buffer(record(true)));
+
+        assertThat(decoded.getRight()).isNull();
+    }
+
+    private TransactionBody.Builder header() {
+        return TransactionBody.newBuilder()
+                .setTransactionID(TransactionID.newBuilder()
+                        .setAccountID(PAYER)
+                        .setTransactionValidStart(Timestamp.newBuilder().setSeconds(1L)))
+                .setNodeAccountID(NODE)
+                .setTransactionFee(100L)
+                .setMemo("memo");
+    }
+
+    private TransactionBody fileAppend(long fileNum) {
+        return header().setFileAppend(FileAppendTransactionBody.newBuilder()
+                .setFileID(FileID.newBuilder().setFileNum(fileNum))
+                .setContents(ByteString.copyFromUtf8("file")))
+                .build();
+    }
+
+    private TransactionBody cryptoTransfer() {
+        return header().setCryptoTransfer(CryptoTransferTransactionBody.newBuilder()
+                .setTransfers(transferList()))
+                .build();
+    }
+
+    private Transaction transaction(TransactionBody body) {
+        return Transaction.newBuilder()
+                .setBodyBytes(body.toByteString())
+                .setSigMap(SignatureMap.newBuilder().addSigPair(SignaturePair.newBuilder()
+                        .setPubKeyPrefix(ByteString.copyFromUtf8("prefix"))
+                        .setEd25519(ByteString.copyFromUtf8("signature"))))
+                .build();
+    }
+
+    private TransactionRecord record(boolean contractCall) {
+        TransactionRecord.Builder builder = TransactionRecord.newBuilder()
+                .setConsensusTimestamp(Timestamp.newBuilder().setSeconds(2L))
+                .setTransactionHash(ByteString.copyFromUtf8("hash"))
+                .setTransactionFee(100L)
+                .setTransferList(transferList());
+        if (contractCall) {
+            builder.setContractCallResult(ContractFunctionResult.newBuilder()
+                    .setContractCallResult(ByteString.copyFromUtf8("result"))
+                    .setGasUsed(10L));
+        }
+        return builder.build();
+    }
+
+    private TransferList transferList() {
+        return TransferList.newBuilder()
+                .addAccountAmounts(AccountAmount.newBuilder().setAccountID(PAYER).setAmount(-100L))
+                .addAccountAmounts(AccountAmount.newBuilder().setAccountID(NODE).setAmount(100L))
+                .build();
+    }
+
+    private static ByteBuffer buffer(com.google.protobuf.Message message) {
+        return ByteBuffer.wrap(message.toByteArray());
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i <= bytes.length - target.length; ++i) {
+            if (Arrays.equals(bytes, i, i + target.length, target, 0, target.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -676,6 +676,42 @@ public class RecordFileLoggerCryptoTest extends AbstractRecordFileLoggerTest {
         verifyRepoCryptoTransferList(record);
     }
 
+    @Test
+    void cryptoUpdateAndDeleteInSameFile() throws Exception {
+        Transaction createTransaction = cryptoCreateTransaction();
+        TransactionBody createTransactionBody = TransactionBody.parseFrom(createTransaction.getBodyBytes());
+        RecordFileLogger.storeRecord(createTransaction, transactionRecordSuccess(createTransactionBody));
+
+        Transaction updateTransaction = cryptoUpdateTransaction();
+        TransactionBody updateTransactionBody = TransactionBody.parseFrom(updateTransaction.getBodyBytes());
+        CryptoUpdateTransactionBody cryptoUpdateTransactionBody = updateTransactionBody.getCryptoUpdateAccount();
+        RecordFileLogger.storeRecord(updateTransaction, transactionRecordSuccess(updateTransactionBody));
+
+        Transaction transaction = cryptoDeleteTransaction();
+        TransactionBody transactionBody = TransactionBody.parseFrom(transaction.getBodyBytes());
+        TransactionRecord record = transactionRecordSuccess(transactionBody);
+        RecordFileLogger.storeRecord(transaction, record);
+        RecordFileLogger.completeFile("", "");
+
+        com.hedera.mirror.importer.domain.Transaction dbTransaction = transactionRepository
+                .findById(Utility.timeStampInNanos(record.getConsensusTimestamp())).get();
+        com.hedera.mirror.importer.domain.Entities dbAccountEntity = entityRepository
+                .findById(dbTransaction.getEntityId()).get();
+
+        // The update and the delete are applied together when the file completes
+        assertAll(
+                () -> assertEquals(3, transactionRepository.count())
+                , () -> assertAccount(record.getReceipt().getAccountID(), dbAccountEntity)
+                , () -> assertTrue(dbAccountEntity.isDeleted())
+                , () -> assertEquals(cryptoUpdateTransactionBody.getAutoRenewPeriod().getSeconds(), dbAccountEntity
+                        .getAutoRenewPeriod())
+                , () -> assertArrayEquals(cryptoUpdateTransactionBody.getKey().toByteArray(), dbAccountEntity.getKey())
+                , () -> assertEquals(Utility
+                        .timeStampInNanos(cryptoUpdateTransactionBody.getExpirationTime()), dbAccountEntity
+                        .getExpiryTimeNs())
+        );
+    }
+
     @Test
     void cryptoDeleteFailedTransaction() throws Exception {
 
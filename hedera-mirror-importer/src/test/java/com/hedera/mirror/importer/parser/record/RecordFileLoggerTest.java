@@ -22,6 +22,7 @@ package com.hedera.mirror.importer.parser.record;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import org.junit.jupiter.api.AfterEach;
@@ -45,6 +46,8 @@ public class RecordFileLoggerTest extends AbstractRecordFileLoggerTest {
     @AfterEach
     void after() {
         RecordFileLogger.finish();
+        parserProperties.setCommitFiles(1);
+        parserProperties.setCommitInterval(Duration.ofSeconds(1L));
     }
 
     @Test
@@ -61,6 +64,25 @@ public class RecordFileLoggerTest extends AbstractRecordFileLoggerTest {
         Assertions.assertEquals(RecordFileLogger.INIT_RESULT.SKIP, RecordFileLogger.initFile("TestFile"));
     }
 
+    @Test
+    void initFileDuplicateUncommitted() throws Exception {
+        parserProperties.setCommitFiles(10);
+        parserProperties.setCommitInterval(Duration.ofMinutes(1L));
+        Assertions.assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
+        RecordFileLogger.completeFile("", "");
+        long fileId = RecordFileLogger.getFileId();
+
+        // The savepoint of the skipped file is released, so the next file rolls back to a savepoint of its own
+        Assertions.assertEquals(RecordFileLogger.INIT_RESULT.SKIP, RecordFileLogger.initFile("TestFile"));
+        Assertions.assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile2"));
+        long rolledBackFileId = RecordFileLogger.getFileId();
+        RecordFileLogger.rollback();
+        RecordFileLogger.commit();
+
+        assertTrue(recordFileRepository.findById(fileId).isPresent());
+        assertFalse(recordFileRepository.findById(rolledBackFileId).isPresent());
+    }
+
     @Test
     void completeFileNoHashes() throws Exception {
         Assertions.assertEquals(RecordFileLogger.INIT_RESULT.OK, RecordFileLogger.initFile("TestFile"));
@@ -28,22 +28,30 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import javax.annotation.Resource;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 
 import com.hedera.mirror.importer.FileCopier;
 import com.hedera.mirror.importer.IntegrationTest;
+import com.hedera.mirror.importer.domain.ApplicationStatus;
 import com.hedera.mirror.importer.domain.ApplicationStatusCode;
 import com.hedera.mirror.importer.domain.StreamType;
 import com.hedera.mirror.importer.domain.Transaction;
 import com.hedera.mirror.importer.repository.ApplicationStatusRepository;
+import com.hedera.mirror.importer.repository.IngestionState;
 import com.hedera.mirror.importer.repository.TransactionRepository;
 
 // Class manually commits so have to manually cleanup tables
@@ -60,14 +68,28 @@ public class RecordFileParserTest extends IntegrationTest {
     @Resource
     private ApplicationStatusRepository applicationStatusRepository;
     @Resource
+    private IngestionState ingestionState;
+    @Resource
     private TransactionRepository transactionRepository;
     @Resource
     private RecordParserProperties parserProperties;
+    @Resource
+    private MeterRegistry meterRegistry;
+    @Resource
+    private JdbcTemplate jdbcTemplate;
     private FileCopier fileCopier;
     private StreamType streamType;
 
     @BeforeEach
     void before() {
+        parserProperties.setEnabled(true);
+        parserProperties.setReadAhead(4);
+        parserProperties.setCommitFiles(1);
+        parserProperties.setCommitInterval(Duration.ofSeconds(1L));
+        parserProperties.setSynchronousCommit(true);
+        // Discard any status and entity ids kept by a previous test since cleanup.sql bypasses them
+        ingestionState.reset();
+        RecordFileLogger.invalidateEntityIdCache();
         streamType = parserProperties.getStreamType();
         parserProperties.getMirrorProperties().setDataPath(dataPath);
         parserProperties.init();
@@ -95,6 +117,22 @@ public class RecordFileParserTest extends IntegrationTest {
                 .containsOnlyElementsOf(Sets.newHashSet(11, 12, 14));
     }
 
+    @Test
+    void metrics() throws Exception {
+        Counter records = meterRegistry.get("hedera.mirror.parse.records").tag("type", "RECORD").counter();
+        Timer latency = meterRegistry.get("hedera.mirror.parse.latency").tag("type", "RECORD").timer();
+        double recordCount = records.count();
+        long latencyCount = latency.count();
+
+        fileCopier.copy();
+        recordFileParser.parse();
+
+        assertThat(records.count() - recordCount).isEqualTo(19 + 15);
+        assertThat(latency.count() - latencyCount).isEqualTo(2L);
+        assertThat(meterRegistry.get("hedera.mirror.parse.flush").tag("table", "t_transactions").timer().count())
+                .isPositive();
+    }
+
     @Test
     void disabled() throws Exception {
         parserProperties.setEnabled(false);
@@ -121,6 +159,167 @@ public class RecordFileParserTest extends IntegrationTest {
         assertThat(transactionRepository.count()).isEqualTo(0L);
     }
 
+    @Test
+    void invalidFileAfterValidFile() throws Exception {
+        fileCopier.copy();
+        File recordFile = dataPath.resolve(streamType.getPath()).resolve(streamType.getValid())
+                .resolve("2019-08-30T18_10_05.249678Z.rcd").toFile();
+        FileUtils.writeStringToFile(recordFile, "corrupt", "UTF-8");
+        recordFileParser.parse();
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(1)
+                .extracting(Path::getFileName)
+                .contains(Paths.get("2019-08-30T18_10_00.419072Z.rcd"));
+        assertThat(transactionRepository.count()).isPositive();
+    }
+
+    @Test
+    void parseWithoutReadAhead() throws Exception {
+        parserProperties.setReadAhead(1);
+        fileCopier.copy();
+        recordFileParser.parse();
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+    }
+
+    @Test
+    void groupCommit() throws Exception {
+        parserProperties.setCommitFiles(10);
+        parserProperties.setCommitInterval(Duration.ofMinutes(1L));
+        fileCopier.copy();
+        File lastFile = parserProperties.getValidPath().resolve("2019-08-30T18_10_05.249678Z.rcd").toFile();
+        String lastFileHash = RecordFileReader.read(lastFile, false).getFileHash();
+        recordFileParser.parse();
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+        assertThat(ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH)).isEqualTo(lastFileHash);
+        assertThat(applicationStatusRepository.findById(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH))
+                .get().extracting(ApplicationStatus::getStatusValue).isEqualTo(lastFileHash);
+    }
+
+    @Test
+    void groupCommitInvalidFileAfterValidFile() throws Exception {
+        parserProperties.setCommitFiles(10);
+        parserProperties.setCommitInterval(Duration.ofMinutes(1L));
+        fileCopier.copy();
+        File recordFile = dataPath.resolve(streamType.getPath()).resolve(streamType.getValid())
+                .resolve("2019-08-30T18_10_05.249678Z.rcd").toFile();
+        FileUtils.writeStringToFile(recordFile, "corrupt", "UTF-8");
+        recordFileParser.parse();
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(1)
+                .extracting(Path::getFileName)
+                .contains(Paths.get("2019-08-30T18_10_00.419072Z.rcd"));
+        assertThat(transactionRepository.count()).isEqualTo(19);
+    }
+
+    @Test
+    void groupCommitFailure() throws Exception {
+        parserProperties.setCommitFiles(2);
+        parserProperties.setCommitInterval(Duration.ofMinutes(1L));
+        fileCopier.copy();
+        String hash = ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH);
+        // A deferred trigger fails the commit of the group once both files were completed
+        jdbcTemplate.execute("create or replace function fail_commit() returns trigger as $$ " +
+                "begin raise exception 'commit failed'; end; $$ language plpgsql");
+        jdbcTemplate.execute("create constraint trigger fail_commit after insert on t_record_files " +
+                "deferrable initially deferred for each row when (new.name like '%18_10_05%') " +
+                "execute procedure fail_commit()");
+
+        try {
+            recordFileParser.parse();
+        } finally {
+            jdbcTemplate.execute("drop trigger fail_commit on t_record_files");
+            jdbcTemplate.execute("drop function fail_commit()");
+        }
+
+        assertThat(Files.walk(parserProperties.getParsedPath())).filteredOn(p -> !p.toFile().isDirectory()).hasSize(0);
+        assertThat(Files.list(parserProperties.getValidPath())).hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(0L);
+        assertThat(ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH)).isEqualTo(hash);
+
+        recordFileParser.parse();
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+    }
+
+    @Test
+    void asynchronousCommit() throws Exception {
+        parserProperties.setSynchronousCommit(false);
+        fileCopier.copy();
+        recordFileParser.parse();
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+    }
+
+    @Test
+    void parseQueuedFile() throws Exception {
+        fileCopier.filterFiles("2019-08-30T18_10_00.419072Z.rcd").copy();
+        recordFileParser.parse();
+
+        File file = parserProperties.getValidPath().resolve("2019-08-30T18_10_05.249678Z.rcd").toFile();
+        FileUtils.copyFile(testPath.resolve(streamType.getPath()).resolve("v2").resolve("record0.0.3")
+                .resolve(file.getName()).toFile(), file);
+        ParsedRecordFile parsedRecordFile = RecordFileReader.read(file, false);
+        recordFileParser.parse(new ValidRecordFile(file, parsedRecordFile.getFileHash(), parsedRecordFile
+                .getPreviousHash(), Files.readAllBytes(file.toPath())));
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+        assertThat(ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH)).isEqualTo(parsedRecordFile.getFileHash());
+        assertThat(applicationStatusRepository.findById(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH))
+                .get().extracting(ApplicationStatus::getStatusValue).isEqualTo(parsedRecordFile.getFileHash());
+    }
+
+    @Test
+    void parseQueuedFileUsesVerifiedHash() throws Exception {
+        fileCopier.filterFiles("2019-08-30T18_10_00.419072Z.rcd").copy();
+        recordFileParser.parse();
+
+        File file = parserProperties.getValidPath().resolve("2019-08-30T18_10_05.249678Z.rcd").toFile();
+        FileUtils.copyFile(testPath.resolve(streamType.getPath()).resolve("v2").resolve("record0.0.3")
+                .resolve(file.getName()).toFile(), file);
+        ParsedRecordFile parsedRecordFile = RecordFileReader.read(file, false);
+        // The parser takes the hash the downloader verified instead of hashing the file again
+        String verifiedHash = StringUtils.repeat("ab", 48);
+        recordFileParser.parse(new ValidRecordFile(file, verifiedHash, parsedRecordFile.getPreviousHash(), null));
+
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+        assertThat(ingestionState.get(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH)).isEqualTo(verifiedHash);
+    }
+
+    @Test
+    void parseQueuedFileOutOfOrder() throws Exception {
+        fileCopier.copy();
+        File file = parserProperties.getValidPath().resolve("2019-08-30T18_10_05.249678Z.rcd").toFile();
+        ParsedRecordFile parsedRecordFile = RecordFileReader.read(file, false);
+        recordFileParser.parse(new ValidRecordFile(file, parsedRecordFile.getFileHash(), parsedRecordFile
+                .getPreviousHash(), null));
+
+        assertThat(Files.walk(parserProperties.getParsedPath()))
+                .filteredOn(p -> !p.toFile().isDirectory())
+                .hasSize(2);
+        assertThat(transactionRepository.count()).isEqualTo(19 + 15);
+    }
+
     @Test
     void hashMismatch() throws Exception {
         applicationStatusRepository.updateStatusValue(ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH, "123");
@@ -0,0 +1,94 @@
+package com.hedera.mirror.importer.parser.record;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import com.hedera.mirror.importer.util.Utility;
+
+public class RecordFileReaderTest {
+
+    private static final Path DATA_PATH = Utility.getResource("data/recordstreams").toPath();
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @CsvSource({
+            "v1, 2019-07-01T14:13:00.317763Z.rcd, 1, 15",
+            "v1, 2019-07-01T14:29:00.302068Z.rcd, 1, 69",
+            "v2, 2019-08-30T18_10_00.419072Z.rcd, 2, 19",
+            "v2, 2019-08-30T18_10_05.249678Z.rcd, 2, 15"
+    })
+    void read(String version, String fileName, int expectedVersion, int expectedRecords) throws Exception {
+        File file = DATA_PATH.resolve(version).resolve("record0.0.3").resolve(fileName).toFile();
+        File sigFile = new File(file.getPath() + "_sig");
+        byte[] signedHash = Utility.extractHashAndSigFromFile(sigFile).getLeft();
+
+        ParsedRecordFile recordFile = RecordFileReader.read(file, true);
+
+        assertThat(recordFile.getFileHash()).isEqualTo(Hex.encodeHexString(signedHash));
+        assertThat(recordFile.getVersion()).isEqualTo(expectedVersion);
+        assertThat(recordFile.getRecords()).hasSize(expectedRecords);
+        assertThat(recordFile.getPreviousHash()).hasSize(96);
+        assertThat(recordFile.getContentHash() != null).isEqualTo(expectedVersion >= 2);
+    }
+
+    @Test
+    void readHashesOnly() throws Exception {
+        File file = DATA_PATH.resolve("v2").resolve("record0.0.3").resolve("2019-08-30T18_10_05.249678Z.rcd")
+                .toFile();
+
+        ParsedRecordFile decoded = RecordFileReader.read(file, true);
+        ParsedRecordFile hashesOnly = RecordFileReader.read(file, false);
+
+        assertThat(hashesOnly.getRecords()).isEmpty();
+        assertThat(hashesOnly).isEqualToIgnoringGivenFields(decoded, "records");
+    }
+
+    @Test
+    void hashChain() throws Exception {
+        Path path = DATA_PATH.resolve("v2").resolve("record0.0.3");
+        ParsedRecordFile first = RecordFileReader.read(path.resolve("2019-08-30T18_10_00.419072Z.rcd").toFile(), true);
+        ParsedRecordFile second = RecordFileReader.read(path.resolve("2019-08-30T18_10_05.249678Z.rcd").toFile(),
+                false);
+        assertThat(second.getPreviousHash()).isEqualTo(first.getFileHash());
+    }
+
+    @Test
+    void corrupt() throws Exception {
+        File file = tempDir.resolve("corrupt.rcd").toFile();
+        FileUtils.writeStringToFile(file, "corrupt", "UTF-8");
+        assertThatThrownBy(() -> RecordFileReader.read(file, true)).isInstanceOf(IOException.class);
+    }
+}
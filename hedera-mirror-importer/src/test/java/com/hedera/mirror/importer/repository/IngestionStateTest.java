@@ -0,0 +1,98 @@
+package com.hedera.mirror.importer.repository;
+
+/*-
+ * ‌
+ * Hedera Mirror Node
+ * ​
+ * Copyright (C) 2019 Hedera Hashgraph, LLC
+ * ​
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ‍
+ */
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import javax.annotation.Resource;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.jdbc.Sql;
+
+import com.hedera.mirror.importer.IntegrationTest;
+import com.hedera.mirror.importer.domain.ApplicationStatus;
+import com.hedera.mirror.importer.domain.ApplicationStatusCode;
+
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:db/scripts/cleanup.sql")
+@Sql(executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD, scripts = "classpath:db/scripts/cleanup.sql")
+public class IngestionStateTest extends IntegrationTest {
+
+    @Resource
+    private ApplicationStatusRepository applicationStatusRepository;
+    @Resource
+    private DataSource dataSource;
+    @Resource
+    private IngestionState ingestionState;
+
+    @BeforeEach
+    void before() {
+        ingestionState.reset();
+    }
+
+    @Test
+    void update() {
+        ApplicationStatusCode statusCode = ApplicationStatusCode.LAST_VALID_DOWNLOADED_RECORD_FILE;
+        ingestionState.update(statusCode, "value1");
+        assertThat(ingestionState.get(statusCode)).isEqualTo("value1");
+        assertThat(persisted(statusCode)).isNull();
+
+        ingestionState.flush();
+        assertThat(persisted(statusCode)).isEqualTo("value1");
+    }
+
+    @Test
+    void write() throws Exception {
+        ApplicationStatusCode statusCode = ApplicationStatusCode.LAST_PROCESSED_RECORD_HASH;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            ingestionState.write(connection, statusCode, "value1");
+            connection.rollback();
+            assertThat(ingestionState.get(statusCode)).isEmpty();
+            assertThat(persisted(statusCode)).isNull();
+
+            ingestionState.write(connection, statusCode, "value2");
+            connection.commit();
+            ingestionState.committed(statusCode, "value2");
+        }
+
+        assertThat(ingestionState.get(statusCode)).isEqualTo("value2");
+        assertThat(persisted(statusCode)).isEqualTo("value2");
+    }
+
+    @Test
+    void flushReloadsBypass() {
+        ApplicationStatusCode statusCode = ApplicationStatusCode.RECORD_HASH_MISMATCH_BYPASS_UNTIL_AFTER;
+        assertThat(ingestionState.get(statusCode)).isEmpty();
+
+        applicationStatusRepository.updateStatusValue(statusCode, "value1");
+        assertThat(ingestionState.get(statusCode)).isEmpty();
+
+        ingestionState.flush();
+        assertThat(ingestionState.get(statusCode)).isEqualTo("value1");
+    }
+
+    private String persisted(ApplicationStatusCode statusCode) {
+        return applicationStatusRepository.findById(statusCode).map(ApplicationStatus::getStatusValue).orElse(null);
+    }
+}